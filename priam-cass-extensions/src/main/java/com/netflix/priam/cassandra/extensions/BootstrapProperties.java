@@ -0,0 +1,144 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.cassandra.extensions;
+
+import com.google.common.base.Charsets;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.commons.lang3.StringUtils;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Everything Cassandra needs from Priam at startup, as returned by the {@code
+ * get_bootstrap_properties} endpoint. A copy is kept on local disk so that a restart of Cassandra
+ * does not depend on Priam answering.
+ */
+public class BootstrapProperties {
+    public static final String BOOTSTRAP_URL =
+            "http://127.0.0.1:8080/Priam/REST/v1/cassconfig/get_bootstrap_properties";
+    /** System property to override the location of the local copy. */
+    public static final String CACHE_FILE_PROPERTY = "priam.bootstrap.cache.file";
+
+    private static final String DEFAULT_CACHE_FILE = "priam_bootstrap_properties.json";
+
+    private final JSONObject properties;
+
+    private BootstrapProperties(JSONObject properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Fetch the properties from Priam, letting Priam hold the request until they are available.
+     *
+     * @param waitMs how long Priam may hold the request.
+     * @return the properties
+     * @throws RuntimeException if Priam could not be reached or did not have the properties in
+     *     time.
+     */
+    public static BootstrapProperties fetch(int waitMs) {
+        // Leave Priam some slack to answer after it is done waiting.
+        String json = DataFetcher.fetchData(BOOTSTRAP_URL + "?timeout_ms=" + waitMs, waitMs + 5000);
+        return parse(json);
+    }
+
+    /**
+     * Read the local copy written by {@link #store(File)}.
+     *
+     * @param file the local copy
+     * @return the properties or null if there is no usable local copy.
+     */
+    public static BootstrapProperties load(File file) {
+        if (!file.exists()) return null;
+        try {
+            return parse(new String(Files.readAllBytes(file.toPath()), Charsets.UTF_8));
+        } catch (Exception e) {
+            System.out.println("Ignoring unreadable bootstrap properties in " + file);
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * @param agentArgs arguments passed to the java agent, which may hold the path of the file.
+     * @return the file that holds the local copy of the properties.
+     */
+    public static File getCacheFile(String agentArgs) {
+        if (StringUtils.isNotBlank(agentArgs)) return new File(agentArgs.trim());
+        String defaultPath =
+                System.getProperty("java.io.tmpdir") + File.separator + DEFAULT_CACHE_FILE;
+        return new File(System.getProperty(CACHE_FILE_PROPERTY, defaultPath));
+    }
+
+    private static BootstrapProperties parse(String json) {
+        try {
+            return new BootstrapProperties((JSONObject) new JSONParser().parse(json));
+        } catch (ParseException e) {
+            throw new RuntimeException("Unable to parse bootstrap properties: " + json, e);
+        }
+    }
+
+    /**
+     * Write the properties to {@code file}. The file is replaced atomically so that a concurrent
+     * or interrupted write never leaves a partial copy behind.
+     *
+     * @param file the local copy
+     * @throws IOException if the file could not be written.
+     */
+    public void store(File file) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        Files.write(tmp.toPath(), properties.toJSONString().getBytes(Charsets.UTF_8));
+        Files.move(
+                tmp.toPath(),
+                file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public String getToken() {
+        return (String) properties.get("token");
+    }
+
+    public String getSeeds() {
+        return (String) properties.get("seeds");
+    }
+
+    public boolean isReplace() {
+        return Boolean.TRUE.equals(properties.get("is_replace"));
+    }
+
+    public String getReplacedIp() {
+        return (String) properties.get("replaced_ip");
+    }
+
+    public Map<String, String> getExtraEnvParams() {
+        Map<String, String> extraEnvParams = new HashMap<>();
+        Object params = properties.get("extra_env_params");
+        if (params instanceof JSONObject) {
+            for (Object key : ((JSONObject) params).keySet()) {
+                Object value = ((JSONObject) params).get(key);
+                if (value != null) extraEnvParams.put(key.toString(), value.toString());
+            }
+        }
+        return extraEnvParams;
+    }
+}
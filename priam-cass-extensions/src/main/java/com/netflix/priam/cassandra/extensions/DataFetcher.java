@@ -29,11 +29,15 @@ public class DataFetcher {
     private static final Logger logger = LoggerFactory.getLogger(DataFetcher.class);
 
     public static String fetchData(String url) {
+        return fetchData(url, 10000);
+    }
+
+    public static String fetchData(String url, int readTimeoutMs) {
         DataInputStream responseStream = null;
         try {
             HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
             conn.setConnectTimeout(1000);
-            conn.setReadTimeout(10000);
+            conn.setReadTimeout(readTimeoutMs);
             conn.setRequestMethod("GET");
             if (conn.getResponseCode() != 200)
                 throw new RuntimeException("Unable to get data for URL " + url);
@@ -41,6 +41,26 @@ public class NFSeedProvider implements SeedProvider {
         } catch (Exception e) {
             logger.error("Failed to load seed data", e);
         }
+        if (seeds.isEmpty()) seeds = getCachedSeeds();
+        return seeds;
+    }
+
+    /**
+     * Fall back to the seeds in the local copy of the bootstrap properties written by {@link
+     * PriamStartupAgent}, so that Cassandra has seeds while Priam is not answering.
+     */
+    private List<InetAddress> getCachedSeeds() {
+        List<InetAddress> seeds = new ArrayList<InetAddress>();
+        BootstrapProperties properties =
+                BootstrapProperties.load(BootstrapProperties.getCacheFile(null));
+        if (properties == null || properties.getSeeds() == null) return seeds;
+        try {
+            for (String seed : properties.getSeeds().split(","))
+                seeds.add(InetAddress.getByName(seed));
+            logger.info("Using seeds from local copy of bootstrap properties: {}", seeds);
+        } catch (Exception e) {
+            logger.error("Failed to load cached seed data", e);
+        }
         return seeds;
     }
 }
@@ -16,12 +16,11 @@
  */
 package com.netflix.priam.cassandra.extensions;
 
+import java.io.File;
 import java.lang.instrument.Instrumentation;
-import java.util.Iterator;
+import java.util.Map;
 import org.apache.cassandra.utils.FBUtilities;
 import org.apache.commons.lang3.StringUtils;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
 
 /**
  * A <a
@@ -31,89 +30,80 @@ import org.json.simple.parser.JSONParser;
  */
 public class PriamStartupAgent {
     public static String REPLACED_ADDRESS_MIN_VER = "1.2.11";
+    // How long Priam may hold a request for the bootstrap properties.
+    private static final int BOOTSTRAP_WAIT_MS = 30 * 1000;
+    // How long to wait on Priam when a local copy of the bootstrap properties exists.
+    private static final int CACHED_BOOTSTRAP_WAIT_MS = 1000;
 
     public static void premain(String agentArgs, Instrumentation inst) {
         PriamStartupAgent agent = new PriamStartupAgent();
-        agent.setPriamProperties();
+        File cacheFile = BootstrapProperties.getCacheFile(agentArgs);
+        // Let NFSeedProvider find the same local copy.
+        System.setProperty(BootstrapProperties.CACHE_FILE_PROPERTY, cacheFile.getPath());
+        agent.setPriamProperties(cacheFile);
     }
 
-    private void setPriamProperties() {
-        String token = null;
-        String seeds = null;
-        boolean isReplace = false;
-        String replacedIp = "";
-        String extraEnvParams = null;
+    private void setPriamProperties(File cacheFile) {
+        BootstrapProperties properties = null;
 
-        while (true) {
+        if (cacheFile.exists()) {
+            // We have been bootstrapped before. Do not hold up a restart if Priam is busy.
             try {
-                token =
-                        DataFetcher.fetchData(
-                                "http://127.0.0.1:8080/Priam/REST/v1/cassconfig/get_token");
-                seeds =
-                        DataFetcher.fetchData(
-                                "http://127.0.0.1:8080/Priam/REST/v1/cassconfig/get_seeds");
-                isReplace =
-                        Boolean.parseBoolean(
-                                DataFetcher.fetchData(
-                                        "http://127.0.0.1:8080/Priam/REST/v1/cassconfig/is_replace_token"));
-                replacedIp =
-                        DataFetcher.fetchData(
-                                "http://127.0.0.1:8080/Priam/REST/v1/cassconfig/get_replaced_ip");
-                extraEnvParams =
-                        DataFetcher.fetchData(
-                                "http://127.0.0.1:8080/Priam/REST/v1/cassconfig/get_extra_env_params");
+                properties = BootstrapProperties.fetch(CACHED_BOOTSTRAP_WAIT_MS);
+            } catch (Exception e) {
+                System.out.println(
+                        "Failed to obtain startup data from priam, using local copy in "
+                                + cacheFile);
+                properties = BootstrapProperties.load(cacheFile);
+            }
+        }
 
+        while (properties == null) {
+            try {
+                properties = BootstrapProperties.fetch(BOOTSTRAP_WAIT_MS);
             } catch (Exception e) {
                 System.out.println(
                         "Failed to obtain startup data from priam, can not start yet. will retry shortly");
                 e.printStackTrace();
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException e1) {
+                    // do nothing.
+                }
             }
+        }
 
-            if (token != null && seeds != null) break;
-            try {
-                Thread.sleep(5 * 1000);
-            } catch (InterruptedException e1) {
-                // do nothing.
-            }
+        try {
+            properties.store(cacheFile);
+        } catch (Exception e) {
+            System.out.println("Failed to write local copy of startup data to " + cacheFile);
+            e.printStackTrace();
         }
 
+        String token = properties.getToken();
         System.setProperty("cassandra.initial_token", token);
 
-        setExtraEnvParams(extraEnvParams);
+        setExtraEnvParams(properties.getExtraEnvParams());
 
-        if (isReplace) {
+        if (properties.isReplace()) {
             System.out.println(
                     "Detect cassandra version : " + FBUtilities.getReleaseVersionString());
             if (FBUtilities.getReleaseVersionString().compareTo(REPLACED_ADDRESS_MIN_VER) < 0) {
                 System.setProperty("cassandra.replace_token", token);
             } else {
-                System.setProperty("cassandra.replace_address_first_boot", replacedIp);
+                System.setProperty(
+                        "cassandra.replace_address_first_boot", properties.getReplacedIp());
             }
         }
     }
 
-    private void setExtraEnvParams(String extraEnvParams) {
-        try {
-            if (null != extraEnvParams && extraEnvParams.length() > 0) {
-                JSONParser parser = new JSONParser();
-                Object obj = parser.parse(extraEnvParams);
-                JSONObject jsonObj = (JSONObject) obj;
-                if (jsonObj.size() > 0) {
-                    for (Iterator iterator = jsonObj.keySet().iterator(); iterator.hasNext(); ) {
-                        String key = (String) iterator.next();
-                        String val = (String) jsonObj.get(key);
-                        if (StringUtils.isNotBlank(key) && StringUtils.isNotBlank(val)) {
-                            System.setProperty(key.trim(), val.trim());
-                        }
-                    }
-                }
+    private void setExtraEnvParams(Map<String, String> extraEnvParams) {
+        for (Map.Entry<String, String> param : extraEnvParams.entrySet()) {
+            String key = param.getKey();
+            String val = param.getValue();
+            if (StringUtils.isNotBlank(key) && StringUtils.isNotBlank(val)) {
+                System.setProperty(key.trim(), val.trim());
             }
-        } catch (Exception e) {
-            System.out.println(
-                    "Failed to parse extra env params: "
-                            + extraEnvParams
-                            + ". However, ignoring the exception.");
-            e.printStackTrace();
         }
     }
 }
@@ -16,6 +16,7 @@
  */
 package com.netflix.priam;
 
+import com.netflix.priam.aws.UpdateSecuritySettings;
 import com.netflix.priam.backup.BackupService;
 import com.netflix.priam.backupv2.BackupV2Service;
 import com.netflix.priam.cluster.management.ClusterManagementService;
@@ -25,12 +26,17 @@ import com.netflix.priam.defaultimpl.ICassandraProcess;
 import com.netflix.priam.defaultimpl.IService;
 import com.netflix.priam.health.CassandraMonitor;
 import com.netflix.priam.identity.InstanceIdentity;
+import com.netflix.priam.merics.Metrics;
 import com.netflix.priam.restore.RestoreContext;
+import com.netflix.priam.scheduler.NamedThreadPoolExecutor;
 import com.netflix.priam.scheduler.PriamScheduler;
+import com.netflix.priam.scheduler.StartupGraph;
 import com.netflix.priam.tuner.CassandraTunerService;
 import com.netflix.priam.utils.Sleeper;
 import com.netflix.priam.utils.SystemUtils;
+import com.netflix.spectator.api.Registry;
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import org.slf4j.Logger;
@@ -49,7 +55,9 @@ public class PriamServer implements IService {
     private final IService backupService;
     private final IService cassandraTunerService;
     private final IService clusterManagementService;
+    private final Registry registry;
     private static final int CASSANDRA_MONITORING_INITIAL_DELAY = 10;
+    private static final int STARTUP_THREADS = 4;
     private static final Logger logger = LoggerFactory.getLogger(PriamServer.class);
 
     @Inject
@@ -63,7 +71,8 @@ public class PriamServer implements IService {
             BackupService backupService,
             BackupV2Service backupV2Service,
             CassandraTunerService cassandraTunerService,
-            ClusterManagementService clusterManagementService) {
+            ClusterManagementService clusterManagementService,
+            Registry registry) {
         this.config = config;
         this.scheduler = scheduler;
         this.instanceIdentity = id;
@@ -74,6 +83,7 @@ public class PriamServer implements IService {
         this.backupV2Service = backupV2Service;
         this.cassandraTunerService = cassandraTunerService;
         this.clusterManagementService = clusterManagementService;
+        this.registry = registry;
     }
 
     private void createDirectories() throws IOException {
@@ -86,19 +96,81 @@ public class PriamServer implements IService {
 
     @Override
     public void scheduleService() throws Exception {
-        // Create all the required directories for priam and Cassandra.
-        createDirectories();
-
         // Do not start Priam if you are out of service.
-        if (instanceIdentity.getInstance().isOutOfService()) return;
-
-        // start to schedule jobs
-        scheduler.start();
+        if (instanceIdentity.getInstance().isOutOfService()) {
+            // Create all the required directories for priam and Cassandra.
+            createDirectories();
+            return;
+        }
 
-        // Set up cassandra tuning.
-        cassandraTunerService.scheduleService();
+        /*
+         * Steps only wait on the steps they need, so independent I/O like directory setup,
+         * Cassandra tuning and the remote lookups done by the backup services overlap.
+         * Scheduling jobs is the same before or after the scheduler is started, but the restore
+         * job must not fire before Cassandra is tuned.
+         */
+        StartupGraph startup =
+                new StartupGraph(Metrics.METRIC_PREFIX + "startup.duration", registry)
+                        // Create all the required directories for priam and Cassandra.
+                        .add("directories", this::createDirectories)
+                        // start to schedule jobs
+                        .add("scheduler", scheduler::start)
+                        // Set up cassandra tuning.
+                        .add("tuner", cassandraTunerService::scheduleService)
+                        // Determine if we need to restore from backup else start cassandra.
+                        .add(
+                                "restoreOrStart",
+                                this::restoreOrStart,
+                                "directories",
+                                "scheduler",
+                                "tuner")
+                        /*
+                         *  Run the delayed task (after 10 seconds) to Monitor Cassandra
+                         *  If Restore option is chosen, then Running Cassandra instance is stopped
+                         *  Hence waiting for Cassandra to stop
+                         */
+                        .add(
+                                "monitor",
+                                () ->
+                                        scheduler.addTaskWithDelay(
+                                                CassandraMonitor.JOBNAME,
+                                                CassandraMonitor.class,
+                                                CassandraMonitor.getTimer(),
+                                                CASSANDRA_MONITORING_INITIAL_DELAY),
+                                "restoreOrStart")
+                        // Set up management services like flush, compactions etc.
+                        .add("clusterManagement", clusterManagementService::scheduleService)
+                        // Set up the background configuration dumping thread
+                        .add(
+                                "configPersister",
+                                () ->
+                                        scheduleTask(
+                                                scheduler,
+                                                PriamConfigurationPersister.class,
+                                                PriamConfigurationPersister.getTimer(config)))
+                        // Keep the security group open to the nodes of the other regions.
+                        .add(
+                                "securitySettings",
+                                () ->
+                                        scheduleTask(
+                                                scheduler,
+                                                UpdateSecuritySettings.class,
+                                                UpdateSecuritySettings.getTimer(config)))
+                        // Set up V1 Snapshot Service
+                        .add("backupV1", backupService::scheduleService)
+                        // Set up V2 Snapshot Service. Both backup services (re)schedule the
+                        // incremental backup job, so they must not run concurrently.
+                        .add("backupV2", backupV2Service::scheduleService, "backupV1");
+
+        ExecutorService executor = new NamedThreadPoolExecutor(STARTUP_THREADS, "priam-startup");
+        try {
+            startup.run(executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
 
-        // Determine if we need to restore from backup else start cassandra.
+    private void restoreOrStart() throws Exception {
         if (restoreContext.isRestoreEnabled()) {
             restoreContext.restore();
         } else { // no restores needed
@@ -108,32 +180,6 @@ public class PriamServer implements IService {
                 logger.info(
                         "config.doesCassandraStartManually() is set to True, hence Cassandra needs to be started manually ...");
         }
-
-        /*
-         *  Run the delayed task (after 10 seconds) to Monitor Cassandra
-         *  If Restore option is chosen, then Running Cassandra instance is stopped
-         *  Hence waiting for Cassandra to stop
-         */
-        scheduler.addTaskWithDelay(
-                CassandraMonitor.JOBNAME,
-                CassandraMonitor.class,
-                CassandraMonitor.getTimer(),
-                CASSANDRA_MONITORING_INITIAL_DELAY);
-
-        // Set up management services like flush, compactions etc.
-        clusterManagementService.scheduleService();
-
-        // Set up the background configuration dumping thread
-        scheduleTask(
-                scheduler,
-                PriamConfigurationPersister.class,
-                PriamConfigurationPersister.getTimer(config));
-
-        // Set up V1 Snapshot Service
-        backupService.scheduleService();
-
-        // Set up V2 Snapshot Service
-        backupV2Service.scheduleService();
     }
 
     @Override
@@ -30,6 +30,7 @@ import com.netflix.priam.cred.ICredential;
 import com.netflix.priam.identity.IMembership;
 import com.netflix.priam.identity.config.InstanceInfo;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.inject.Inject;
 import javax.inject.Named;
 import org.apache.commons.lang3.StringUtils;
@@ -39,13 +40,22 @@ import org.slf4j.LoggerFactory;
 /**
  * Class to query amazon ASG for its members to provide - Number of valid nodes in the ASG - Number
  * of zones - Methods for adding ACLs for the nodes
+ *
+ * <p>The security group is described at most once per {@link #ACL_CACHE_MILLIS} for listing its
+ * ACL, unless it was changed since, and its group id is only looked up once.
  */
 public class AWSMembership implements IMembership {
     private static final Logger logger = LoggerFactory.getLogger(AWSMembership.class);
+    private static final long ACL_CACHE_MILLIS = 30 * 1000;
     private final IConfiguration config;
     private final ICredential provider;
     private final InstanceInfo instanceInfo;
     private final ICredential crossAccountProvider;
+    private volatile String vpcGroupId;
+    private volatile List<IpPermission> aclPermissions;
+    private volatile long aclDescribedAt;
+    // Changed on every ACL change, so that a describe racing with a change is not cached.
+    private final AtomicInteger aclChanges = new AtomicInteger();
 
     @Inject
     public AWSMembership(
@@ -161,18 +171,21 @@ public class AWSMembership implements IMembership {
 
     /**
      * Adding peers' IPs as ingress to the running instance SG. The running instance could be in
-     * "classic" or "vpc"
+     * "classic" or "vpc". The rules are described as Priam's, for {@link #listOwnedACL}.
      */
     public void addACL(Collection<String> listIPs, int from, int to) {
         AmazonEC2 client = null;
         try {
             client = getEc2Client();
+            List<IpRange> ipRanges = new ArrayList<>();
+            for (String ip : listIPs)
+                ipRanges.add(new IpRange().withCidrIp(ip).withDescription(getACLDescription()));
             List<IpPermission> ipPermissions = new ArrayList<>();
             ipPermissions.add(
                     new IpPermission()
                             .withFromPort(from)
                             .withIpProtocol("tcp")
-                            .withIpRanges(listIPs)
+                            .withIpv4Ranges(ipRanges)
                             .withToPort(to));
 
             if (isClassic()) {
@@ -197,6 +210,7 @@ public class AWSMembership implements IMembership {
             }
 
         } finally {
+            invalidateACL();
             if (client != null) client.shutdown();
         }
     }
@@ -205,6 +219,7 @@ public class AWSMembership implements IMembership {
      * @return SG group id for a group name, vpc account of the running instance.
      */
     protected String getVpcGoupId() {
+        if (StringUtils.isNotEmpty(vpcGroupId)) return vpcGroupId;
         AmazonEC2 client = null;
         try {
             client = getEc2Client();
@@ -221,7 +236,8 @@ public class AWSMembership implements IMembership {
                         group.getGroupId(),
                         config.getACLGroupName(),
                         instanceInfo.getVpcId());
-                return group.getGroupId();
+                vpcGroupId = group.getGroupId();
+                return vpcGroupId;
             }
             logger.error(
                     "unable to get group-id for group-name={} vpc-id={}",
@@ -269,16 +285,53 @@ public class AWSMembership implements IMembership {
             }
 
         } finally {
+            invalidateACL();
             if (client != null) client.shutdown();
         }
     }
 
     /** List SG ACL's */
     public ImmutableSet<String> listACL(int from, int to) {
+        ImmutableSet.Builder<String> ipPermissions = ImmutableSet.builder();
+        for (IpPermission perm : describeACL())
+            if (perm.getFromPort() == from && perm.getToPort() == to)
+                ipPermissions.addAll(perm.getIpRanges());
+        return ipPermissions.build();
+    }
+
+    /** List the SG ACL's which {@link #addACL} added for this app */
+    @Override
+    public ImmutableSet<String> listOwnedACL(int from, int to) {
+        ImmutableSet.Builder<String> ipPermissions = ImmutableSet.builder();
+        for (IpPermission perm : describeACL())
+            if (perm.getFromPort() == from && perm.getToPort() == to)
+                for (IpRange ipRange : perm.getIpv4Ranges())
+                    if (getACLDescription().equals(ipRange.getDescription()))
+                        ipPermissions.add(ipRange.getCidrIp());
+        return ipPermissions.build();
+    }
+
+    @Override
+    public void invalidateACL() {
+        aclChanges.incrementAndGet();
+        aclPermissions = null;
+    }
+
+    private String getACLDescription() {
+        return "Priam " + config.getAppName();
+    }
+
+    private List<IpPermission> describeACL() {
+        List<IpPermission> permissions = aclPermissions;
+        if (permissions != null && System.currentTimeMillis() - aclDescribedAt < ACL_CACHE_MILLIS)
+            return permissions;
+
         AmazonEC2 client = null;
         try {
             client = getEc2Client();
-            ImmutableSet.Builder<String> ipPermissions = ImmutableSet.builder();
+            permissions = new ArrayList<>();
+            long describedAt = System.currentTimeMillis();
+            int changes = aclChanges.get();
 
             if (isClassic()) {
 
@@ -288,9 +341,7 @@ public class AWSMembership implements IMembership {
                                         Collections.singletonList(config.getACLGroupName()));
                 DescribeSecurityGroupsResult result = client.describeSecurityGroups(req);
                 for (SecurityGroup group : result.getSecurityGroups())
-                    for (IpPermission perm : group.getIpPermissions())
-                        if (perm.getFromPort() == from && perm.getToPort() == to)
-                            ipPermissions.addAll(perm.getIpRanges());
+                    permissions.addAll(group.getIpPermissions());
 
                 logger.debug("Fetch current permissions for classic env of running instance");
             } else {
@@ -309,14 +360,16 @@ public class AWSMembership implements IMembership {
                         new DescribeSecurityGroupsRequest().withFilters(nameFilter, vpcFilter);
                 DescribeSecurityGroupsResult result = client.describeSecurityGroups(req);
                 for (SecurityGroup group : result.getSecurityGroups())
-                    for (IpPermission perm : group.getIpPermissions())
-                        if (perm.getFromPort() == from && perm.getToPort() == to)
-                            ipPermissions.addAll(perm.getIpRanges());
+                    permissions.addAll(group.getIpPermissions());
 
                 logger.debug("Fetch current permissions for vpc env of running instance");
             }
 
-            return ipPermissions.build();
+            if (changes == aclChanges.get()) {
+                aclDescribedAt = describedAt;
+                aclPermissions = permissions;
+            }
+            return permissions;
         } finally {
             if (client != null) client.shutdown();
         }
@@ -22,8 +22,6 @@ import com.netflix.priam.backup.AbstractBackupPath;
 import com.netflix.priam.backup.BackupRestoreException;
 import com.netflix.priam.backup.DynamicRateLimiter;
 import com.netflix.priam.backup.RangeReadInputStream;
-import com.netflix.priam.compress.ChunkedStream;
-import com.netflix.priam.compress.ICompression;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.cred.ICredential;
 import com.netflix.priam.cryptography.IFileCryptography;
@@ -57,7 +55,6 @@ public class S3EncryptedFileSystem extends S3FileSystemBase {
     @Inject
     public S3EncryptedFileSystem(
             Provider<AbstractBackupPath> pathProvider,
-            ICompression compress,
             final IConfiguration config,
             ICredential cred,
             @Named("filecryptoalgorithm") IFileCryptography fileCryptography,
@@ -66,7 +63,7 @@ public class S3EncryptedFileSystem extends S3FileSystemBase {
             InstanceInfo instanceInfo,
             DynamicRateLimiter dynamicRateLimiter) {
 
-        super(pathProvider, compress, config, backupMetrics, backupNotificationMgr);
+        super(pathProvider, config, backupMetrics, backupNotificationMgr);
         this.encryptor = fileCryptography;
         this.dynamicRateLimiter = dynamicRateLimiter;
         super.s3Client =
@@ -130,10 +127,10 @@ public class S3EncryptedFileSystem extends S3FileSystemBase {
         try (InputStream in = new FileInputStream(localPath.toFile());
                 BufferedOutputStream compressedBos =
                         new BufferedOutputStream(new FileOutputStream(compressedDstFile))) {
-            Iterator<byte[]> compressedChunks =
-                    new ChunkedStream(in, chunkSize, path.getCompression());
+            Iterator<byte[]> compressedChunks = compressedChunks(in, chunkSize, path);
             while (compressedChunks.hasNext()) {
-                byte[] compressedChunk = compressedChunks.next();
+                byte[] compressedChunk =
+                        nextChunk(compressedChunks, backupMetrics.getCompressChunk());
                 compressedBos.write(compressedChunk);
             }
         } catch (Exception e) {
@@ -147,14 +144,20 @@ public class S3EncryptedFileSystem extends S3FileSystemBase {
         // == Read compressed data, encrypt each chunk, upload it to aws
         try (BufferedInputStream compressedBis =
                 new BufferedInputStream(new FileInputStream(compressedDstFile))) {
-            Iterator<byte[]> chunks = this.encryptor.encryptStream(compressedBis, remotePath);
+            Iterator<byte[]> chunks =
+                    config.isEncryptBackupSegmented()
+                            ? this.encryptor.encryptSegments(
+                                    compressedDstFile,
+                                    remotePath,
+                                    getChunkSize(compressedDstFile.toPath()))
+                            : this.encryptor.encryptStream(compressedBis, remotePath);
 
             // identifies this part position in the object we are uploading
             int partNum = 0;
             long encryptedFileSize = 0;
 
             while (chunks.hasNext()) {
-                byte[] chunk = chunks.next();
+                byte[] chunk = nextChunk(chunks, backupMetrics.getEncryptChunk());
                 // throttle upload to endpoint
                 rateLimiter.acquire(chunk.length);
                 dynamicRateLimiter.acquire(path, target, chunk.length);
@@ -168,7 +171,7 @@ public class S3EncryptedFileSystem extends S3FileSystemBase {
                                 initResponse.getUploadId());
                 S3PartUploader partUploader = new S3PartUploader(s3Client, dp, partETags);
                 encryptedFileSize += chunk.length;
-                executor.submit(partUploader);
+                submitPart(partUploader);
             }
 
             executor.sleepTillEmpty();
@@ -20,14 +20,13 @@ import com.amazonaws.services.s3.AmazonS3Client;
 import com.amazonaws.services.s3.S3ResponseMetadata;
 import com.amazonaws.services.s3.model.*;
 import com.google.common.base.Preconditions;
+import com.google.common.hash.HashingOutputStream;
 import com.netflix.priam.aws.auth.IS3Credential;
 import com.netflix.priam.backup.AbstractBackupPath;
 import com.netflix.priam.backup.BackupRestoreException;
 import com.netflix.priam.backup.DynamicRateLimiter;
 import com.netflix.priam.backup.RangeReadInputStream;
-import com.netflix.priam.compress.ChunkedStream;
 import com.netflix.priam.compress.CompressionType;
-import com.netflix.priam.compress.ICompression;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.identity.config.InstanceInfo;
 import com.netflix.priam.merics.BackupMetrics;
@@ -62,13 +61,12 @@ public class S3FileSystem extends S3FileSystemBase {
     public S3FileSystem(
             @Named("awss3roleassumption") IS3Credential cred,
             Provider<AbstractBackupPath> pathProvider,
-            ICompression compress,
             final IConfiguration config,
             BackupMetrics backupMetrics,
             BackupNotificationMgr backupNotificationMgr,
             InstanceInfo instanceInfo,
             DynamicRateLimiter dynamicRateLimiter) {
-        super(pathProvider, compress, config, backupMetrics, backupNotificationMgr);
+        super(pathProvider, config, backupMetrics, backupNotificationMgr);
         s3Client =
                 AmazonS3Client.builder()
                         .withCredentials(cred.getAwsCredentialProvider())
@@ -88,13 +86,16 @@ public class S3FileSystem extends S3FileSystemBase {
                         new BufferedInputStream(
                                 new RangeReadInputStream(s3Client, getShard(), size, remotePath),
                                 bufferSize);
-                BufferedOutputStream os =
-                        new BufferedOutputStream(new FileOutputStream(localFile))) {
+                HashingOutputStream os =
+                        new HashingOutputStream(
+                                AbstractBackupPath.CHECKSUM_FUNCTION,
+                                new BufferedOutputStream(new FileOutputStream(localFile)))) {
             if (path.getCompression() == CompressionType.NONE) {
                 IOUtils.copyLarge(is, os);
             } else {
-                compress.decompressAndClose(is, os);
+                codecs.get(path.getCompression()).decompressAndClose(is, os);
             }
+            path.verifyChecksum(os.hash());
         } catch (Exception e) {
             String err =
                     String.format(
@@ -136,20 +137,20 @@ public class S3FileSystem extends S3FileSystemBase {
         List<PartETag> partETags = Collections.synchronizedList(new ArrayList<>());
 
         try (InputStream in = new FileInputStream(localFile)) {
-            Iterator<byte[]> chunks = new ChunkedStream(in, chunkSize, path.getCompression());
+            Iterator<byte[]> chunks = compressedChunks(in, chunkSize, path);
             int partNum = 0;
             AtomicInteger partsPut = new AtomicInteger(0);
             long compressedFileSize = 0;
 
             while (chunks.hasNext()) {
-                byte[] chunk = chunks.next();
+                byte[] chunk = nextChunk(chunks, backupMetrics.getCompressChunk());
                 rateLimiter.acquire(chunk.length);
                 dynamicRateLimiter.acquire(path, target, chunk.length);
                 DataPart dp = new DataPart(++partNum, chunk, prefix, remotePath, uploadId);
                 S3PartUploader partUploader = new S3PartUploader(s3Client, dp, partETags, partsPut);
                 compressedFileSize += chunk.length;
                 // TODO: output Future<Etag> instead, collect them here, wait for all below
-                executor.submit(partUploader);
+                submitPart(partUploader);
             }
 
             executor.sleepTillEmpty();
@@ -211,10 +212,9 @@ public class S3FileSystem extends S3FileSystemBase {
         File localFile = Paths.get(path.getBackupFile().getAbsolutePath()).toFile();
         try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
                 InputStream in = new BufferedInputStream(new FileInputStream(localFile))) {
-            Iterator<byte[]> chunks =
-                    new ChunkedStream(in, config.getBackupChunkSize(), path.getCompression());
+            Iterator<byte[]> chunks = compressedChunks(in, config.getBackupChunkSize(), path);
             while (chunks.hasNext()) {
-                byteArrayOutputStream.write(chunks.next());
+                byteArrayOutputStream.write(nextChunk(chunks, backupMetrics.getCompressChunk()));
             }
             return byteArrayOutputStream.toByteArray();
         } catch (Exception e) {
@@ -25,7 +25,6 @@ import com.google.common.util.concurrent.RateLimiter;
 import com.netflix.priam.backup.AbstractBackupPath;
 import com.netflix.priam.backup.AbstractFileSystem;
 import com.netflix.priam.backup.BackupRestoreException;
-import com.netflix.priam.compress.ICompression;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.merics.BackupMetrics;
 import com.netflix.priam.notification.BackupNotificationMgr;
@@ -45,19 +44,16 @@ public abstract class S3FileSystemBase extends AbstractFileSystem {
     private static final Logger logger = LoggerFactory.getLogger(S3FileSystemBase.class);
     AmazonS3 s3Client;
     final IConfiguration config;
-    final ICompression compress;
     final BlockingSubmitThreadPoolExecutor executor;
     final RateLimiter rateLimiter;
     private final RateLimiter objectExistLimiter;
 
     S3FileSystemBase(
             Provider<AbstractBackupPath> pathProvider,
-            ICompression compress,
             final IConfiguration config,
             BackupMetrics backupMetrics,
             BackupNotificationMgr backupNotificationMgr) {
         super(config, backupMetrics, backupNotificationMgr, pathProvider);
-        this.compress = compress;
         this.config = config;
 
         int threads = config.getBackupThreads();
@@ -250,6 +246,17 @@ public abstract class S3FileSystemBase extends AbstractFileSystem {
         return exists;
     }
 
+    /** Submit the part for upload, recording how long it takes including retries. */
+    void submitPart(S3PartUploader partUploader) {
+        executor.submit(
+                () -> {
+                    long start = System.nanoTime();
+                    Void result = partUploader.call();
+                    BackupMetrics.recordSince(backupMetrics.getPartUpload(), start);
+                    return result;
+                });
+    }
+
     @Override
     public void shutdown() {
         if (executor != null) executor.shutdown();
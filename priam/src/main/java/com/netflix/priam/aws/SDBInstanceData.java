@@ -45,6 +45,10 @@ public class SDBInstanceData {
     public static final String DOMAIN = "InstanceIdentity";
     public static final String ALL_QUERY =
             "select * from " + DOMAIN + " where " + Attributes.APP_ID + "='%s'";
+    // SimpleDB compares attribute values lexicographically. Epoch milliseconds have a fixed width
+    // of 13 digits until the year 2286, so a string comparison is also a numeric one.
+    public static final String UPDATED_SINCE_QUERY =
+            ALL_QUERY + " and " + Attributes.UPDATE_TS + " > '%d'";
     public static final String INSTANCE_QUERY =
             "select * from "
                     + DOMAIN
@@ -89,14 +93,28 @@ public class SDBInstanceData {
      * @return the set of all instances in the given {@code app}
      */
     public Set<PriamInstance> getAllIds(String app) {
+        return select(String.format(ALL_QUERY, app));
+    }
+
+    /**
+     * Get the set of nodes in the cluster whose entry was written after the given time. Note that
+     * deregistered nodes are not part of the result.
+     *
+     * @param app Cluster name
+     * @param updatedSince epoch millis, exclusive lower bound on the update timestamp of a node
+     * @return the set of instances in the given {@code app} updated after {@code updatedSince}
+     */
+    public Set<PriamInstance> getAllIdsUpdatedSince(String app, long updatedSince) {
+        return select(String.format(UPDATED_SINCE_QUERY, app, updatedSince));
+    }
+
+    private Set<PriamInstance> select(String query) {
         AmazonSimpleDB simpleDBClient = getSimpleDBClient();
         Set<PriamInstance> inslist = new HashSet<>();
         String nextToken = null;
         do {
             SelectRequest request =
-                    new SelectRequest(String.format(ALL_QUERY, app))
-                            .withConsistentRead(true)
-                            .withNextToken(nextToken);
+                    new SelectRequest(query).withConsistentRead(true).withNextToken(nextToken);
             SelectResult result = simpleDBClient.select(request);
             nextToken = result.getNextToken();
             for (Item item : result.getItems()) {
@@ -53,6 +53,11 @@ public class SDBInstanceFactory implements IPriamInstanceFactory {
                         .collect(Collectors.toList()));
     }
 
+    @Override
+    public ImmutableSet<PriamInstance> getAllIdsUpdatedSince(String appName, long updatedSince) {
+        return ImmutableSet.copyOf(dao.getAllIdsUpdatedSince(appName, updatedSince));
+    }
+
     @Override
     public PriamInstance getInstance(String appName, String dc, int id) {
         return dao.getInstance(appName, dc, id);
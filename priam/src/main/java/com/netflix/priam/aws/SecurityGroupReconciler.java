@@ -0,0 +1,162 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.aws;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.netflix.priam.config.IConfiguration;
+import com.netflix.priam.identity.IMembership;
+import com.netflix.priam.identity.IPriamInstanceFactory;
+import com.netflix.priam.identity.PriamInstance;
+import com.netflix.priam.utils.BoundedExponentialRetryCallable;
+import com.netflix.priam.utils.Sleeper;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Brings the ACL of the security group to a desired set of IP ranges. The current ACL is listed
+ * once, and only the difference is applied, in batches of {@link #BATCH_SIZE} ranges per authorize
+ * or revoke call. Calls that fail, e.g. because they are throttled, are retried with exponential
+ * backoff. A retry describes the security group again and applies only what is still missing, as
+ * the failed call or another node may have changed the ACL meanwhile.
+ *
+ * <p>Only single addresses which Priam added for this app are ever revoked. Wider ranges, and
+ * those added by hand or by other apps sharing the security group, are left as they are.
+ */
+@Singleton
+public class SecurityGroupReconciler {
+    private static final Logger logger = LoggerFactory.getLogger(SecurityGroupReconciler.class);
+    static final int BATCH_SIZE = 100;
+    private static final String CIDR_TAG = "/32";
+
+    private final IMembership membership;
+    private final IPriamInstanceFactory factory;
+    private final IConfiguration config;
+    private final Sleeper sleeper;
+
+    @Inject
+    public SecurityGroupReconciler(
+            IMembership membership,
+            IPriamInstanceFactory factory,
+            IConfiguration config,
+            Sleeper sleeper) {
+        this.membership = membership;
+        this.factory = factory;
+        this.config = config;
+        this.sleeper = sleeper;
+    }
+
+    /**
+     * Allow the public IPs of all the instances of the cluster on the SSL storage port, and revoke
+     * the addresses Priam added for instances which left it.
+     */
+    public void reconcileCluster() throws Exception {
+        Set<String> desired = new LinkedHashSet<>();
+        for (PriamInstance instance : factory.getAllIds(config.getAppName()))
+            if (StringUtils.isNotBlank(instance.getHostIP()))
+                desired.add(instance.getHostIP() + CIDR_TAG);
+        int port = config.getSSLStoragePort();
+        reconcile(desired, port, port);
+    }
+
+    /**
+     * Make the ACL for the port range the given IP ranges, adding those missing and revoking the
+     * addresses Priam owns which are not wanted. An empty set leaves the ACL as it is, as it more
+     * likely means the cluster could not be listed than that no one may connect.
+     *
+     * @param desired IP ranges in CIDR notation
+     * @param from start of the port range
+     * @param to end of the port range
+     */
+    public void reconcile(Collection<String> desired, int from, int to) throws Exception {
+        if (desired.isEmpty()) {
+            logger.warn("Not reconciling the ACL for ports {}-{} with an empty set", from, to);
+            return;
+        }
+        Set<String> wanted = new LinkedHashSet<>(desired);
+        ImmutableSet<String> current = membership.listACL(from, to);
+        List<String> toAdd = new ArrayList<>();
+        for (String range : wanted) if (!current.contains(range)) toAdd.add(range);
+        List<String> toRemove = new ArrayList<>();
+        for (String range : membership.listOwnedACL(from, to))
+            if (range.endsWith(CIDR_TAG) && !wanted.contains(range)) toRemove.add(range);
+
+        apply(
+                toAdd,
+                () -> membership.listACL(from, to)::contains,
+                batch -> membership.addACL(batch, from, to));
+        apply(
+                toRemove,
+                () -> range -> !membership.listOwnedACL(from, to).contains(range),
+                batch -> membership.removeACL(batch, from, to));
+        if (!toAdd.isEmpty() || !toRemove.isEmpty())
+            logger.info(
+                    "Reconciled ACL for ports {}-{}: added {}, removed {}",
+                    from,
+                    to,
+                    toAdd.size(),
+                    toRemove.size());
+    }
+
+    /**
+     * @param ranges to change, in batches
+     * @param applied tells, from a new description of the security group, which ranges no longer
+     *     need the change
+     * @param change the call changing the ACL for a batch
+     */
+    private void apply(
+            List<String> ranges,
+            Supplier<Predicate<String>> applied,
+            Consumer<List<String>> change)
+            throws Exception {
+        for (List<String> batch : Lists.partition(ranges, BATCH_SIZE)) {
+            new BoundedExponentialRetryCallable<Void>(sleeper) {
+                private boolean retry;
+
+                @Override
+                public Void retriableCall() {
+                    List<String> pending = batch;
+                    if (retry) {
+                        // An authorize or revoke fails as a whole if any range is already
+                        // applied, so drop those rather than repeat the same call.
+                        membership.invalidateACL();
+                        Predicate<String> done = applied.get();
+                        pending =
+                                batch.stream()
+                                        .filter(done.negate())
+                                        .collect(Collectors.toList());
+                    }
+                    retry = true;
+                    if (!pending.isEmpty()) change.accept(pending);
+                    return null;
+                }
+            }.call();
+        }
+    }
+}
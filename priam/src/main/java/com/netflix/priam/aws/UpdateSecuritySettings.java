@@ -0,0 +1,57 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.aws;
+
+import com.netflix.priam.config.IConfiguration;
+import com.netflix.priam.scheduler.SimpleTimer;
+import com.netflix.priam.scheduler.Task;
+import com.netflix.priam.scheduler.TaskTimer;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Keeps the ACL of the security group in line with the membership of the cluster, so that nodes in
+ * other regions can reach the storage port of those which join, and no longer reach it once they
+ * leave. Only multi regional clusters need it.
+ */
+@Singleton
+public class UpdateSecuritySettings extends Task {
+    public static final String JOBNAME = "UpdateSecuritySettings";
+    private static final long INTERVAL_MILLIS = 2 * 60 * 1000;
+    private final SecurityGroupReconciler reconciler;
+
+    @Inject
+    public UpdateSecuritySettings(IConfiguration config, SecurityGroupReconciler reconciler) {
+        super(config);
+        this.reconciler = reconciler;
+    }
+
+    @Override
+    public void execute() throws Exception {
+        reconciler.reconcileCluster();
+    }
+
+    @Override
+    public String getName() {
+        return JOBNAME;
+    }
+
+    /** @return the timer of the task, or null if the cluster is not multi regional. */
+    public static TaskTimer getTimer(IConfiguration config) {
+        return config.isMultiDC() ? new SimpleTimer(JOBNAME, INTERVAL_MILLIS) : null;
+    }
+}
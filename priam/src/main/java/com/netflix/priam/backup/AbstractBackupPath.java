@@ -19,6 +19,9 @@ package com.netflix.priam.backup;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
 import com.google.inject.ImplementedBy;
 import com.netflix.priam.aws.RemoteBackupPath;
 import com.netflix.priam.compress.CompressionType;
@@ -41,6 +44,8 @@ import org.apache.commons.lang3.StringUtils;
 public abstract class AbstractBackupPath implements Comparable<AbstractBackupPath> {
     public static final char PATH_SEP = File.separatorChar;
     public static final Joiner PATH_JOINER = Joiner.on(PATH_SEP);
+    /** Function of {@link #getChecksum()}, computed while reading the file to upload it. */
+    public static final HashFunction CHECKSUM_FUNCTION = Hashing.crc32c();
 
     public enum BackupFileType {
         CL,
@@ -85,6 +90,7 @@ public abstract class AbstractBackupPath implements Comparable<AbstractBackupPat
     protected Date time;
     private long size; // uncompressed file size
     private long compressedFileSize = 0;
+    private String checksum; // of the uncompressed and unencrypted content, null if unknown
     protected final InstanceIdentity instanceIdentity;
     protected final IConfiguration config;
     protected File backupFile;
@@ -92,6 +98,8 @@ public abstract class AbstractBackupPath implements Comparable<AbstractBackupPat
     private Instant creationTime;
     private Date uploadedTs;
     private CompressionType compression;
+    // Ratio measured on the beginning of the file by ADAPTIVE compression, null if not sampled.
+    private Double sampledCompressionRatio;
     private CryptographyAlgorithm encryption = CryptographyAlgorithm.PLAINTEXT;
     private boolean isIncremental;
 
@@ -265,6 +273,27 @@ public abstract class AbstractBackupPath implements Comparable<AbstractBackupPat
         this.compressedFileSize = val;
     }
 
+    /** @return {@link #CHECKSUM_FUNCTION} of the content of the file, or null if unknown. */
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public void setChecksum(String checksum) {
+        this.checksum = checksum;
+    }
+
+    /**
+     * @param actual checksum of the content of the file as it was restored
+     * @throws BackupRestoreException if the checksum of the file is known and is different.
+     */
+    public void verifyChecksum(HashCode actual) throws BackupRestoreException {
+        if (checksum != null && !checksum.equals(actual.toString()))
+            throw new BackupRestoreException(
+                    String.format(
+                            "Checksum of %s is %s, expected %s",
+                            getRemotePath(), actual, checksum));
+    }
+
     public File getBackupFile() {
         return backupFile;
     }
@@ -310,6 +339,14 @@ public abstract class AbstractBackupPath implements Comparable<AbstractBackupPat
         this.compression = compressionType;
     }
 
+    public Double getSampledCompressionRatio() {
+        return sampledCompressionRatio;
+    }
+
+    public void setSampledCompressionRatio(Double sampledCompressionRatio) {
+        this.sampledCompressionRatio = sampledCompressionRatio;
+    }
+
     public CryptographyAlgorithm getEncryption() {
         return encryption;
     }
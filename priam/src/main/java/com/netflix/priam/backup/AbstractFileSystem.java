@@ -21,25 +21,38 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashingInputStream;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.netflix.priam.backup.AbstractBackupPath.BackupFileType;
+import com.netflix.priam.compress.ChunkedStream;
+import com.netflix.priam.compress.CompressionCodecs;
+import com.netflix.priam.compress.CompressionType;
+import com.netflix.priam.compress.ParallelSnappyStream;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.merics.BackupMetrics;
 import com.netflix.priam.notification.BackupNotificationMgr;
 import com.netflix.priam.notification.UploadStatus;
 import com.netflix.priam.scheduler.BlockingSubmitThreadPoolExecutor;
 import com.netflix.priam.utils.BoundedExponentialRetryCallable;
+import com.netflix.spectator.api.Timer;
 import com.netflix.spectator.api.patterns.PolledMeter;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.*;
 import javax.inject.Inject;
@@ -59,17 +72,27 @@ import org.slf4j.LoggerFactory;
  */
 public abstract class AbstractFileSystem implements IBackupFileSystem {
     private static final Logger logger = LoggerFactory.getLogger(AbstractFileSystem.class);
+    // Each day is at least one list request, so longer ranges are listed as a whole.
+    private static final long MAX_LISTING_DAYS = 31;
     protected final Provider<AbstractBackupPath> pathProvider;
     private final IConfiguration configuration;
     protected final BackupMetrics backupMetrics;
+    protected final CompressionCodecs codecs;
     private final Set<Path> tasksQueued;
     private final ListeningExecutorService fileUploadExecutor;
     private final ThreadPoolExecutor fileDownloadExecutor;
+    // Shared by all uploads, null to compress on the uploading thread.
+    private final ExecutorService compressionExecutor;
     private final BackupNotificationMgr backupNotificationMgr;
 
     // This is going to be a write-thru cache containing the most frequently used items from remote
     // file system. This is to ensure that we don't make too many API calls to remote file system.
     private final Cache<Path, Boolean> objectCache;
+    // Checksums of the files uploaded or listed in a meta file, by remote path, so that the meta
+    // file can describe a file which is already backed up without reading it again.
+    private final Cache<Path, String> checksumCache;
+    // Null unless an interrupted transfer may be resumed.
+    private TransferCheckpoint checkpoint;
 
     @Inject
     public AbstractFileSystem(
@@ -81,8 +104,11 @@ public abstract class AbstractFileSystem implements IBackupFileSystem {
         this.backupMetrics = backupMetrics;
         this.pathProvider = pathProvider;
         this.backupNotificationMgr = backupNotificationMgr;
+        this.codecs = new CompressionCodecs(configuration);
         this.objectCache =
                 CacheBuilder.newBuilder().maximumSize(configuration.getBackupQueueSize()).build();
+        this.checksumCache =
+                CacheBuilder.newBuilder().maximumSize(configuration.getBackupQueueSize()).build();
         tasksQueued = new ConcurrentHashMap<>().newKeySet();
         /*
         Note: We are using different queue for upload and download as with Backup V2.0 we might download all the meta
@@ -111,6 +137,16 @@ public abstract class AbstractFileSystem implements IBackupFileSystem {
                         configuration.getRestoreThreads(),
                         downloadQueue,
                         configuration.getDownloadTimeout());
+
+        this.compressionExecutor =
+                configuration.getBackupCompressionThreads() > 1
+                        ? Executors.newFixedThreadPool(
+                                configuration.getBackupCompressionThreads(),
+                                new ThreadFactoryBuilder()
+                                        .setDaemon(true)
+                                        .setNameFormat("BackupCompression-%d")
+                                        .build())
+                        : null;
     }
 
     @Override
@@ -129,6 +165,10 @@ public abstract class AbstractFileSystem implements IBackupFileSystem {
         // TODO: Should we download the file if localPath already exists?
         String remotePath = path.getRemotePath();
         String localPath = path.newRestoreFile().getAbsolutePath() + suffix;
+        if (isCheckpointed(remotePath) && new File(localPath).exists()) {
+            logger.info("File: {} already downloaded to location: {}", remotePath, localPath);
+            return;
+        }
         logger.info("Downloading file: {} to location: {}", path.getRemotePath(), localPath);
         try {
             new BoundedExponentialRetryCallable<Void>(500, 10000, retry) {
@@ -143,6 +183,7 @@ public abstract class AbstractFileSystem implements IBackupFileSystem {
             // File size after decompression or decryption might be more/less.
             backupMetrics.recordDownloadRate(getFileSize(remotePath));
             backupMetrics.incrementValidDownloads();
+            checkpoint(remotePath, path.getChecksum());
             logger.info("Successfully downloaded file: {} to location: {}", remotePath, localPath);
         } catch (Exception e) {
             backupMetrics.incrementInvalidDownloads();
@@ -159,8 +200,12 @@ public abstract class AbstractFileSystem implements IBackupFileSystem {
             final AbstractBackupPath path, Instant target, boolean async)
             throws RejectedExecutionException, BackupRestoreException {
         if (async) {
+            long queuedAt = System.nanoTime();
             return fileUploadExecutor.submit(
-                    () -> uploadAndDeleteInternal(path, target, 10 /* retries */));
+                    () -> {
+                        BackupMetrics.recordSince(backupMetrics.getUploadQueueWait(), queuedAt);
+                        return uploadAndDeleteInternal(path, target, 10 /* retries */);
+                    });
         } else {
             return Futures.immediateFuture(uploadAndDeleteInternal(path, target, 10 /* retries */));
         }
@@ -181,12 +226,18 @@ public abstract class AbstractFileSystem implements IBackupFileSystem {
 
         if (tasksQueued.add(localPath)) {
             logger.info("Uploading file: {} to location: {}", localPath, remotePath);
+            long fileSize = localFile.length();
+            backupMetrics.incrementUploadsInFlight(fileSize);
             try {
                 long uploadedFileSize;
 
                 // Upload file if it not present at remote location.
-                if (path.getType() != BackupFileType.SST_V2 || !checkObjectExists(remotePath)) {
+                boolean checkpointed = isCheckpointed(remotePath.toString());
+                if (!checkpointed
+                        && (path.getType() != BackupFileType.SST_V2
+                                || !timedCheckObjectExists(remotePath))) {
                     backupNotificationMgr.notify(path, UploadStatus.STARTED);
+                    long start = System.nanoTime();
                     uploadedFileSize =
                             new BoundedExponentialRetryCallable<Long>(
                                     500 /* minSleep */, 10000 /* maxSleep */, retry) {
@@ -195,19 +246,34 @@ public abstract class AbstractFileSystem implements IBackupFileSystem {
                                     return uploadFileImpl(path, target);
                                 }
                             }.call();
+                    BackupMetrics.recordSince(backupMetrics.getFileUpload(), start);
 
                     // Add to cache after successful upload.
                     // We only add SST_V2 as other file types are usually not checked, so no point
                     // evicting our SST_V2 results.
-                    if (path.getType() == BackupFileType.SST_V2) addObjectCache(remotePath);
+                    if (path.getType() == BackupFileType.SST_V2) {
+                        addObjectCache(remotePath);
+                        if (path.getChecksum() != null)
+                            checksumCache.put(remotePath, path.getChecksum());
+                    }
 
                     backupMetrics.recordUploadRate(uploadedFileSize);
                     backupMetrics.incrementValidUploads();
+                    checkpoint(remotePath.toString(), path.getChecksum());
                     path.setCompressedFileSize(uploadedFileSize);
+                    if (path.getCompression() != CompressionType.NONE)
+                        backupMetrics.recordCompression(fileSize, uploadedFileSize);
+                    else if (path.getSampledCompressionRatio() != null)
+                        backupMetrics.incrementCompressionSkippedBytes(fileSize);
                     backupNotificationMgr.notify(path, UploadStatus.SUCCESS);
                 } else {
                     // file is already uploaded to remote file system.
                     logger.info("File: {} already present on remoteFileSystem.", remotePath);
+                    if (checkpointed) {
+                        // Uploaded by the interrupted run, describe it as that upload would have.
+                        checkpoint.getChecksum(remotePath.toString()).ifPresent(path::setChecksum);
+                        path.setCompressedFileSize(getFileSize(remotePath.toString()));
+                    }
                 }
 
                 logger.info(
@@ -232,11 +298,95 @@ public abstract class AbstractFileSystem implements IBackupFileSystem {
             } finally {
                 // Remove the task from the list so if we try to upload file ever again, we can.
                 tasksQueued.remove(localPath);
+                backupMetrics.decrementUploadsInFlight(fileSize);
             }
         } else logger.info("Already in queue, no-op.  File: {}", localPath);
         return path;
     }
 
+    /**
+     * @return chunks of the data of the stream, compressed as the path says. The checksum of the
+     *     data is set on the path once the last chunk is returned.
+     */
+    protected Iterator<byte[]> compressedChunks(
+            InputStream in, long chunkSize, AbstractBackupPath path) {
+        HashingInputStream hashing =
+                new HashingInputStream(AbstractBackupPath.CHECKSUM_FUNCTION, in);
+        Iterator<byte[]> chunks = compressedChunks(hashing, chunkSize, path.getCompression());
+        return new Iterator<byte[]>() {
+            @Override
+            public boolean hasNext() {
+                return chunks.hasNext();
+            }
+
+            @Override
+            public byte[] next() {
+                byte[] chunk = chunks.next();
+                if (!chunks.hasNext()) path.setChecksum(hashing.hash().toString());
+                return chunk;
+            }
+        };
+    }
+
+    /**
+     * @return chunks of the data of the stream, compressed on the compression threads if there is
+     *     more than one.
+     */
+    private Iterator<byte[]> compressedChunks(
+            InputStream in, long chunkSize, CompressionType compression) {
+        if (compression == CompressionType.SNAPPY && compressionExecutor != null)
+            return new ParallelSnappyStream(
+                    in,
+                    chunkSize,
+                    compressionExecutor,
+                    configuration.getBackupCompressionThreads());
+        return new ChunkedStream(
+                in,
+                chunkSize,
+                compression == CompressionType.NONE ? null : codecs.get(compression));
+    }
+
+    /** @return the next chunk of the stream, recording the time taken to produce it. */
+    protected byte[] nextChunk(Iterator<byte[]> chunks, Timer timer) {
+        long start = System.nanoTime();
+        try {
+            return chunks.next();
+        } finally {
+            BackupMetrics.recordSince(timer, start);
+        }
+    }
+
+    /**
+     * Skip the transfers the checkpoint lists, and add those which complete to it. Only the command
+     * line tools resume an interrupted job this way, the service never sets a checkpoint.
+     */
+    public void setCheckpoint(TransferCheckpoint checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    private boolean isCheckpointed(String remotePath) {
+        return checkpoint != null && checkpoint.contains(remotePath);
+    }
+
+    private void checkpoint(String remotePath, String checksum) {
+        if (checkpoint == null) return;
+        try {
+            checkpoint.add(remotePath, checksum);
+        } catch (IOException e) {
+            // The file is transferred anyway, it would only be transferred again on resume.
+            logger.warn("Unable to checkpoint {}: {}", remotePath, e.getMessage());
+        }
+    }
+
+    private boolean timedCheckObjectExists(Path remotePath) {
+        long start = System.nanoTime();
+        try {
+            return checkObjectExists(remotePath);
+        } finally {
+            BackupMetrics.recordSince(backupMetrics.getExistenceCheck(), start);
+        }
+    }
+
     private void addObjectCache(Path remotePath) {
         objectCache.put(remotePath, Boolean.TRUE);
     }
@@ -257,6 +407,11 @@ public abstract class AbstractFileSystem implements IBackupFileSystem {
         return remoteFileExist;
     }
 
+    @Override
+    public Optional<String> getChecksum(Path remotePath) {
+        return Optional.ofNullable(checksumCache.getIfPresent(remotePath));
+    }
+
     @Override
     public void deleteRemoteFiles(List<Path> remotePaths) throws BackupRestoreException {
         if (remotePaths == null) return;
@@ -267,6 +422,7 @@ public abstract class AbstractFileSystem implements IBackupFileSystem {
         // help in ensuring that our validation job fails if there are any error caused due to TTL
         // of a file.
         objectCache.invalidateAll(remotePaths);
+        checksumCache.invalidateAll(remotePaths);
         deleteFiles(remotePaths);
     }
 
@@ -310,8 +466,7 @@ public abstract class AbstractFileSystem implements IBackupFileSystem {
 
     @Override
     public Iterator<AbstractBackupPath> list(String path, Date start, Date till) {
-        String prefix = pathProvider.get().remotePrefix(start, till, path);
-        Iterator<String> fileIterator = listFileSystem(prefix, null, null);
+        Iterator<String> fileIterator = listFileSystem(remotePrefixes(path, start, till));
 
         @SuppressWarnings("unchecked")
         TransformIterator<String, AbstractBackupPath> transformIterator =
@@ -331,6 +486,27 @@ public abstract class AbstractFileSystem implements IBackupFileSystem {
                                 || abstractBackupPath.getTime().equals(start));
     }
 
+    /**
+     * @return the remote prefix of each day from start to till, which file systems may list at the
+     *     same time, or their common prefix if the range is longer than {@link #MAX_LISTING_DAYS}.
+     */
+    private List<String> remotePrefixes(String path, Date start, Date till) {
+        List<String> prefixes = new ArrayList<>();
+        Instant from = start.toInstant();
+        Instant end = till.toInstant();
+        if (Duration.between(from, end).toDays() < MAX_LISTING_DAYS) {
+            Instant nextDay = from.truncatedTo(ChronoUnit.DAYS).plus(1, ChronoUnit.DAYS);
+            while (!nextDay.isAfter(end)) {
+                Date lastMinute = Date.from(nextDay.minus(1, ChronoUnit.MINUTES));
+                prefixes.add(pathProvider.get().remotePrefix(Date.from(from), lastMinute, path));
+                from = nextDay;
+                nextDay = nextDay.plus(1, ChronoUnit.DAYS);
+            }
+        }
+        prefixes.add(pathProvider.get().remotePrefix(Date.from(from), till, path));
+        return prefixes;
+    }
+
     @Override
     public int getUploadTasksQueued() {
         return tasksQueued.size();
@@ -344,5 +520,6 @@ public abstract class AbstractFileSystem implements IBackupFileSystem {
     @Override
     public void clearCache() {
         objectCache.invalidateAll();
+        checksumCache.invalidateAll();
     }
 }
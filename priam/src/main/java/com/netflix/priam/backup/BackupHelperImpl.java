@@ -2,38 +2,59 @@ package com.netflix.priam.backup;
 
 import static java.util.stream.Collectors.toSet;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.netflix.priam.compress.CompressionCodecs;
+import com.netflix.priam.compress.CompressionSample;
 import com.netflix.priam.compress.CompressionType;
 import com.netflix.priam.config.BackupsToCompress;
 import com.netflix.priam.config.IConfiguration;
+import com.netflix.priam.merics.BackupMetrics;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 import javax.inject.Inject;
 import javax.inject.Provider;
+import javax.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+@Singleton
 public class BackupHelperImpl implements BackupHelper {
+    private static final Logger logger = LoggerFactory.getLogger(BackupHelperImpl.class);
 
     private static final String COMPRESSION_SUFFIX = "-CompressionInfo.db";
     private static final String DATA_SUFFIX = "-Data.db";
     private final Provider<AbstractBackupPath> pathFactory;
     private final IBackupFileSystem fs;
     private final IConfiguration config;
+    private final BackupMetrics backupMetrics;
+    private final CompressionCodecs codecs;
+    // Ratios sampled by file, as a file is listed for its meta file and again for its upload, and
+    // files are backed up again by every snapshot while they remain.
+    private final Cache<String, Double> sampledRatios;
 
     @Inject
     public BackupHelperImpl(
             IConfiguration config,
             IFileSystemContext backupFileSystemCtx,
-            Provider<AbstractBackupPath> pathFactory) {
+            Provider<AbstractBackupPath> pathFactory,
+            BackupMetrics backupMetrics) {
         this.config = config;
         this.pathFactory = pathFactory;
         this.fs = backupFileSystemCtx.getFileStrategy(config);
+        this.backupMetrics = backupMetrics;
+        this.codecs = new CompressionCodecs(config);
+        this.sampledRatios =
+                CacheBuilder.newBuilder().maximumSize(config.getBackupQueueSize()).build();
     }
 
     /**
@@ -99,14 +120,54 @@ public class BackupHelperImpl implements BackupHelper {
             case NONE:
                 return CompressionType.NONE;
             case ALL:
-                return CompressionType.SNAPPY;
+                return config.getBackupCompressionType();
             case IF_REQUIRED:
                 int splitIndex = file.lastIndexOf('-');
                 return splitIndex >= 0 && compressedFiles.contains(file.substring(0, splitIndex))
                         ? CompressionType.NONE
-                        : CompressionType.SNAPPY;
+                        : config.getBackupCompressionType();
+            case ADAPTIVE:
+                return sampleCompression(path);
             default:
                 throw new IllegalArgumentException("NONE, ALL, UNCOMPRESSED only. Saw: " + which);
         }
     }
+
+    /**
+     * Compress the beginning of the file and skip compressing the file if the ratio is below the
+     * minimum, recording the ratio in the path so that it is part of the meta file. A file is
+     * sampled once while its name, size and modification time stay the same.
+     */
+    private CompressionType sampleCompression(AbstractBackupPath path) {
+        CompressionType compression = config.getBackupCompressionType();
+        if (compression == CompressionType.NONE) return compression;
+        String key =
+                String.join(
+                        ":",
+                        compression.name(),
+                        path.getKeyspace(),
+                        path.getColumnFamily(),
+                        path.getFileName(),
+                        String.valueOf(path.getSize()),
+                        String.valueOf(path.getLastModified().toEpochMilli()));
+        Double ratio = sampledRatios.getIfPresent(key);
+        if (ratio == null) {
+            CompressionSample sample;
+            try {
+                sample =
+                        CompressionSample.of(
+                                path.getBackupFile(),
+                                codecs.get(compression),
+                                config.getCompressionSampleBytes());
+            } catch (IOException e) {
+                logger.warn("Unable to sample {}, compressing it", path.getBackupFile(), e);
+                return compression;
+            }
+            backupMetrics.getCompressionSample().record(sample.getNanos(), TimeUnit.NANOSECONDS);
+            ratio = sample.getRatio();
+            sampledRatios.put(key, ratio);
+        }
+        path.setSampledCompressionRatio(ratio);
+        return ratio < config.getMinCompressionRatio() ? CompressionType.NONE : compression;
+    }
 }
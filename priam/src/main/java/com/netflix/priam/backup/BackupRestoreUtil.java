@@ -64,6 +64,7 @@ public class BackupRestoreUtil {
             Provider<AbstractBackupPath> pathProvider)
             throws Exception {
         Path metaFile = metaProxy.downloadMetaFile(latestValidMetaFile);
+        Map<String, String> checksums = metaProxy.getChecksumsFromMeta(metaFile);
         List<AbstractBackupPath> snapshotPaths =
                 metaProxy
                         .getSSTFilesFromMeta(metaFile)
@@ -72,6 +73,7 @@ public class BackupRestoreUtil {
                                 value -> {
                                     AbstractBackupPath path = pathProvider.get();
                                     path.parseRemote(value);
+                                    path.setChecksum(checksums.get(value));
                                     return path;
                                 })
                         .collect(Collectors.toList());
@@ -83,14 +85,23 @@ public class BackupRestoreUtil {
             AbstractBackupPath latestValidMetaFile,
             DateUtil.DateRange dateRange,
             IMetaProxy metaProxy) {
+        List<AbstractBackupPath> incrementalPaths = new ArrayList<>();
+        getIncrementals(latestValidMetaFile, dateRange, metaProxy)
+                .forEachRemaining(incrementalPaths::add);
+        return incrementalPaths;
+    }
+
+    /** Same as {@link #getIncrementalPaths}, but lists the incrementals as they are iterated. */
+    public static Iterator<AbstractBackupPath> getIncrementals(
+            AbstractBackupPath latestValidMetaFile,
+            DateUtil.DateRange dateRange,
+            IMetaProxy metaProxy) {
         Instant snapshotTime;
         if (metaProxy instanceof MetaV2Proxy) snapshotTime = latestValidMetaFile.getLastModified();
         else snapshotTime = latestValidMetaFile.getTime().toInstant();
         DateUtil.DateRange incrementalDateRange =
                 new DateUtil.DateRange(snapshotTime, dateRange.getEndTime());
-        List<AbstractBackupPath> incrementalPaths = new ArrayList<>();
-        metaProxy.getIncrementals(incrementalDateRange).forEachRemaining(incrementalPaths::add);
-        return incrementalPaths;
+        return metaProxy.getIncrementals(incrementalDateRange);
     }
 
     public static Map<String, List<String>> getFilter(String inputFilter)
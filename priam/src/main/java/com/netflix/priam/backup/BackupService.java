@@ -38,6 +38,7 @@ public class BackupService implements IService {
     private final IConfiguration config;
     private final IBackupRestoreConfig backupRestoreConfig;
     private final CassandraTunerService cassandraTunerService;
+    private final CommitLogBackup commitLogBackup;
     private static final Logger logger = LoggerFactory.getLogger(BackupService.class);
 
     @Inject
@@ -45,11 +46,13 @@ public class BackupService implements IService {
             IConfiguration config,
             IBackupRestoreConfig backupRestoreConfig,
             PriamScheduler priamScheduler,
-            CassandraTunerService cassandraTunerService) {
+            CassandraTunerService cassandraTunerService,
+            CommitLogBackup commitLogBackup) {
         this.config = config;
         this.backupRestoreConfig = backupRestoreConfig;
         this.scheduler = priamScheduler;
         this.cassandraTunerService = cassandraTunerService;
+        this.commitLogBackup = commitLogBackup;
     }
 
     @Override
@@ -59,13 +62,16 @@ public class BackupService implements IService {
         TaskTimer snapshotTimer = SnapshotBackup.getTimer(config);
         scheduleTask(scheduler, SnapshotBackup.class, snapshotTimer);
 
+        TaskTimer commitLogTimer = null;
         if (snapshotTimer != null) {
             // Set cleanup
             scheduleTask(scheduler, UpdateCleanupPolicy.class, UpdateCleanupPolicy.getTimer());
             // Schedule commit log task
-            scheduleTask(
-                    scheduler, CommitLogBackupTask.class, CommitLogBackupTask.getTimer(config));
+            commitLogTimer = CommitLogBackupTask.getTimer(config);
+            scheduleTask(scheduler, CommitLogBackupTask.class, commitLogTimer);
         }
+        // The task starts watching the archive directory, so stop when it is no longer scheduled.
+        if (commitLogTimer == null) commitLogBackup.stopWatching();
 
         // Start the Incremental backup schedule if enabled
         scheduleTask(
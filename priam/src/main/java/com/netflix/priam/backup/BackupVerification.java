@@ -14,15 +14,20 @@
 package com.netflix.priam.backup;
 
 import com.netflix.priam.backupv2.IMetaProxy;
-import com.netflix.priam.utils.DateUtil;
+import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.utils.DateUtil.DateRange;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Clock;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
@@ -34,6 +39,14 @@ import org.slf4j.LoggerFactory;
  * Created by aagrawal on 2/16/17. This class validates the backup by doing listing of files in the
  * backup destination and comparing with meta.json by downloading from the location. Input:
  * BackupMetadata that needs to be verified.
+ *
+ * <p>Results are kept per meta file, identified by its remote path and last modified time, along
+ * with the time they were found. Valid results are reused for {@link
+ * IConfiguration#getBackupVerificationCacheTtlInSecs()} and invalid ones, e.g. of a backup still
+ * uploading, for {@link IConfiguration#getBackupVerificationInvalidCacheTtlInSecs()}. A forced
+ * verification only reuses a result found within {@link
+ * IConfiguration#getBackupVerificationForcedMaxAgeInSecs()}. Callers verifying the same meta file
+ * at the same time share a single verification.
  */
 @Singleton
 public class BackupVerification {
@@ -43,6 +56,11 @@ public class BackupVerification {
     private final IMetaProxy metaV2Proxy;
     private final IBackupStatusMgr backupStatusMgr;
     private final Provider<AbstractBackupPath> abstractBackupPathProvider;
+    private final IConfiguration config;
+    private final Clock clock;
+    private final ConcurrentMap<String, VerifiedMeta> verifiedMetas = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CompletableFuture<VerifiedMeta>> inProgress =
+            new ConcurrentHashMap<>();
     private BackupVerificationResult latestResult;
 
     @Inject
@@ -50,11 +68,15 @@ public class BackupVerification {
             @Named("v1") IMetaProxy metaV1Proxy,
             @Named("v2") IMetaProxy metaV2Proxy,
             IBackupStatusMgr backupStatusMgr,
-            Provider<AbstractBackupPath> abstractBackupPathProvider) {
+            Provider<AbstractBackupPath> abstractBackupPathProvider,
+            IConfiguration config,
+            Clock clock) {
         this.metaV1Proxy = metaV1Proxy;
         this.metaV2Proxy = metaV2Proxy;
         this.backupStatusMgr = backupStatusMgr;
         this.abstractBackupPathProvider = abstractBackupPathProvider;
+        this.config = config;
+        this.clock = clock;
     }
 
     public IMetaProxy getMetaProxy(BackupVersion backupVersion) {
@@ -75,7 +97,8 @@ public class BackupVerification {
         for (BackupMetadata backupMetadata :
                 backupStatusMgr.getLatestBackupMetadata(backupVersion, dateRange)) {
             if (backupMetadata.getLastValidated() == null || force) {
-                Optional<BackupVerificationResult> result = verifyBackup(metaProxy, backupMetadata);
+                Optional<BackupVerificationResult> result =
+                        verifyBackup(metaProxy, backupMetadata, force);
                 if (result.isPresent()) {
                     return result;
                 }
@@ -95,7 +118,7 @@ public class BackupVerification {
         for (BackupMetadata backupMetadata :
                 backupStatusMgr.getLatestBackupMetadata(backupVersion, dateRange)) {
             if (backupMetadata.getLastValidated() != null
-                    || verifyBackup(metaProxy, backupMetadata).isPresent()) {
+                    || verifyBackup(metaProxy, backupMetadata, false /* force */).isPresent()) {
                 results.add(backupMetadata);
             }
         }
@@ -108,22 +131,75 @@ public class BackupVerification {
     }
 
     private Optional<BackupVerificationResult> verifyBackup(
-            IMetaProxy metaProxy, BackupMetadata latestBackupMetaData) {
+            IMetaProxy metaProxy, BackupMetadata latestBackupMetaData, boolean force) {
         Path metadataLocation = Paths.get(latestBackupMetaData.getSnapshotLocation());
         metadataLocation = metadataLocation.subpath(1, metadataLocation.getNameCount());
         AbstractBackupPath abstractBackupPath = abstractBackupPathProvider.get();
         abstractBackupPath.parseRemote(metadataLocation.toString());
-        BackupVerificationResult result = metaProxy.isMetaFileValid(abstractBackupPath);
-        if (result.valid) {
+        // V1 meta files have no last modified time, their remote path has the time of the backup.
+        String key =
+                latestBackupMetaData.getBackupVersion()
+                        + ":"
+                        + abstractBackupPath.getRemotePath()
+                        + ":"
+                        + abstractBackupPath.getLastModified();
+        VerifiedMeta verified = verifiedMetas.get(key);
+        if (verified == null || !isFresh(verified, force)) {
+            verified = verifyOnce(key, metaProxy, abstractBackupPath, force);
+        }
+        if (verified.result.valid) {
             updateLatestResult(latestBackupMetaData);
-            Date now = new Date(DateUtil.getInstant().toEpochMilli());
-            latestBackupMetaData.setLastValidated(now);
-            backupStatusMgr.update(latestBackupMetaData);
-            return Optional.of(result);
+            Date lastValidated = latestBackupMetaData.getLastValidated();
+            if (lastValidated == null || lastValidated.toInstant().isBefore(verified.verifiedAt)) {
+                latestBackupMetaData.setLastValidated(Date.from(verified.verifiedAt));
+                backupStatusMgr.update(latestBackupMetaData);
+            }
+            return Optional.of(verified.result);
         }
         return Optional.empty();
     }
 
+    /** Verify the meta file, or wait for the verification already running for it. */
+    private VerifiedMeta verifyOnce(
+            String key, IMetaProxy metaProxy, AbstractBackupPath metaPath, boolean force) {
+        CompletableFuture<VerifiedMeta> future = new CompletableFuture<>();
+        CompletableFuture<VerifiedMeta> running = inProgress.putIfAbsent(key, future);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                throw e;
+            }
+        }
+        try {
+            // Another caller may have finished verifying it since we looked.
+            VerifiedMeta verified = verifiedMetas.get(key);
+            if (verified == null || !isFresh(verified, force)) {
+                verified = new VerifiedMeta(metaProxy.isMetaFileValid(metaPath), clock.instant());
+                verifiedMetas.values().removeIf(v -> !isFresh(v, false));
+                verifiedMetas.put(key, verified);
+            }
+            future.complete(verified);
+            return verified;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inProgress.remove(key, future);
+        }
+    }
+
+    private boolean isFresh(VerifiedMeta verified, boolean force) {
+        // An invalid result, e.g. of a backup still uploading, is only kept briefly.
+        long ttl =
+                verified.result.valid
+                        ? config.getBackupVerificationCacheTtlInSecs()
+                        : config.getBackupVerificationInvalidCacheTtlInSecs();
+        if (force) ttl = Math.min(ttl, config.getBackupVerificationForcedMaxAgeInSecs());
+        return verified.verifiedAt.plusSeconds(ttl).isAfter(clock.instant());
+    }
+
     private void updateLatestResult(BackupMetadata backupMetadata) {
         Instant snapshotInstant = backupMetadata.getStart().toInstant();
         if (latestResult == null || latestResult.snapshotInstant.isBefore(snapshotInstant)) {
@@ -136,4 +212,14 @@ public class BackupVerification {
                     snapshotLocation.subpath(1, snapshotLocation.getNameCount()).toString();
         }
     }
+
+    private static class VerifiedMeta {
+        private final BackupVerificationResult result;
+        private final Instant verifiedAt;
+
+        VerifiedMeta(BackupVerificationResult result, Instant verifiedAt) {
+            this.result = result;
+            this.verifiedAt = verifiedAt;
+        }
+    }
 }
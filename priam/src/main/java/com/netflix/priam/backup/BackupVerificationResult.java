@@ -29,6 +29,8 @@ public class BackupVerificationResult {
     public boolean manifestAvailable = false;
     public List<String> filesInMetaOnly = new ArrayList<>();
     public int filesMatched = 0;
+    // Components whose existence was checked, the others were confirmed by an earlier verification.
+    public int filesChecked = 0;
 
     @Override
     public String toString() {
@@ -13,72 +13,261 @@
  */
 package com.netflix.priam.backup;
 
-import com.google.common.collect.Lists;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.netflix.priam.backup.AbstractBackupPath.BackupFileType;
+import com.netflix.priam.config.IConfiguration;
+import com.netflix.priam.merics.BackupMetrics;
 import com.netflix.priam.utils.DateUtil;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Clock;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
+import javax.inject.Singleton;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-// Providing this if we want to use it outside Quart
+/**
+ * Providing this if we want to use it outside Quart
+ *
+ * <p>Segments are uploaded on {@link IConfiguration#getCommitLogBackupThreads()} threads. Once
+ * {@link #watch(String)} was called they are uploaded as soon as they are archived, and {@link
+ * #upload(String, String)} picks up anything missed, including segments whose upload failed.
+ * Either way a segment is only uploaded once it was not modified for {@link #SETTLE_MILLIS}, as
+ * a segment copied rather than linked into the directory shows up before it is complete. Only the
+ * segments waiting for or in upload are tracked, as uploaded ones are deleted.
+ */
+@Singleton
 public class CommitLogBackup {
     private static final Logger logger = LoggerFactory.getLogger(CommitLogBackup.class);
+    @VisibleForTesting static final long SETTLE_MILLIS = 2000;
     private final Provider<AbstractBackupPath> pathFactory;
-    private final List<String> clRemotePaths = Lists.newArrayList();
     private final IBackupFileSystem fs;
+    private final BackupMetrics backupMetrics;
+    private final Clock clock;
+    private final ExecutorService uploadExecutor;
+    private final ExecutorService watchExecutor;
+    private final ScheduledExecutorService settleExecutor;
+    // Segments waiting for or in upload, with their size at the time.
+    private final Map<Path, Long> pending = new ConcurrentHashMap<>();
+    // Segments reported by the watch service which may still be written to.
+    private final Set<File> archived = ConcurrentHashMap.newKeySet();
+    private WatchService watchService;
+    private ScheduledFuture<?> settleCheck;
 
     @Inject
     public CommitLogBackup(
-            Provider<AbstractBackupPath> pathFactory, @Named("backup") IBackupFileSystem fs) {
+            Provider<AbstractBackupPath> pathFactory,
+            @Named("backup") IBackupFileSystem fs,
+            BackupMetrics backupMetrics,
+            IConfiguration config,
+            Clock clock) {
         this.pathFactory = pathFactory;
         this.fs = fs;
+        this.backupMetrics = backupMetrics;
+        this.clock = clock;
+        this.uploadExecutor =
+                Executors.newFixedThreadPool(
+                        config.getCommitLogBackupThreads(),
+                        new ThreadFactoryBuilder()
+                                .setDaemon(true)
+                                .setNameFormat("CommitLogBackup-%d")
+                                .build());
+        this.watchExecutor =
+                Executors.newSingleThreadExecutor(
+                        new ThreadFactoryBuilder()
+                                .setDaemon(true)
+                                .setNameFormat("CommitLogBackup-watch-%d")
+                                .build());
+        this.settleExecutor =
+                Executors.newSingleThreadScheduledExecutor(
+                        new ThreadFactoryBuilder()
+                                .setDaemon(true)
+                                .setNameFormat("CommitLogBackup-settle-%d")
+                                .build());
     }
 
-    public List<AbstractBackupPath> upload(String archivedDir, final String snapshotName)
+    /**
+     * Queue the upload of all the segments in the archive directory which are not queued yet.
+     *
+     * @return the uploads queued, which complete with the uploaded segment.
+     */
+    public List<Future<AbstractBackupPath>> upload(String archivedDir, final String snapshotName)
             throws Exception {
         logger.info("Inside upload CommitLog files");
+        File archivedCommitLogDir = getArchivedDir(archivedDir);
 
-        if (StringUtils.isBlank(archivedDir)) {
-            throw new IllegalArgumentException("The archived commitlog director is blank or null");
+        if (logger.isDebugEnabled()) {
+            logger.debug("Scanning for backup in: {}", archivedCommitLogDir.getAbsolutePath());
+        }
+        List<Future<AbstractBackupPath>> uploads = new ArrayList<>();
+        File[] files = archivedCommitLogDir.listFiles();
+        if (files == null) return uploads;
+        for (final File file : files) {
+            // Left for the next scan, or the watch service, if it is still written to.
+            if (!isSettled(file)) continue;
+            Future<AbstractBackupPath> upload = submit(file, snapshotName);
+            if (upload != null) uploads.add(upload);
         }
+        return uploads;
+    }
 
-        File archivedCommitLogDir = new File(archivedDir);
-        if (!archivedCommitLogDir.exists()) {
-            throw new IllegalArgumentException(
-                    "The archived commitlog director does not exist: " + archivedDir);
+    /**
+     * Start uploading segments as soon as they are archived to the directory. Calling it again
+     * while the directory is watched has no effect.
+     */
+    public synchronized void watch(String archivedDir) throws IOException {
+        if (watchService != null) return;
+        Path dir = getArchivedDir(archivedDir).toPath();
+        WatchService service = dir.getFileSystem().newWatchService();
+        dir.register(service, StandardWatchEventKinds.ENTRY_CREATE);
+        watchService = service;
+        watchExecutor.execute(() -> watchLoop(dir, service));
+        settleCheck =
+                settleExecutor.scheduleWithFixedDelay(
+                        this::submitSettled,
+                        SETTLE_MILLIS / 4,
+                        SETTLE_MILLIS / 4,
+                        TimeUnit.MILLISECONDS);
+        logger.info("Watching {} for archived commit logs", dir);
+    }
+
+    /**
+     * Stop uploading segments as they are archived, leaving them to {@link #upload(String,
+     * String)}. Uploads already queued still complete.
+     */
+    public synchronized void stopWatching() {
+        if (watchService == null) return;
+        settleCheck.cancel(false);
+        archived.clear();
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.warn("Unable to close the watch service for archived commit logs", e);
         }
+        watchService = null;
+    }
 
-        if (logger.isDebugEnabled()) {
-            logger.debug("Scanning for backup in: {}", archivedCommitLogDir.getAbsolutePath());
+    private void watchLoop(Path dir, WatchService service) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    // On overflow the next scan picks the segments up.
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) continue;
+                    onArchived(dir.resolve((Path) event.context()).toFile());
+                }
+                if (!key.reset()) {
+                    logger.warn("Stopped watching {} for archived commit logs", dir);
+                    break;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            logger.info("Stopped watching {} for archived commit logs", dir);
+        } finally {
+            synchronized (this) {
+                if (watchService == service) stopWatching();
+            }
         }
-        List<AbstractBackupPath> bps = Lists.newArrayList();
-        for (final File file : archivedCommitLogDir.listFiles()) {
-            logger.debug("Uploading commit log {} for backup", file.getCanonicalFile());
-            try {
-                AbstractBackupPath bp = pathFactory.get();
-                bp.parseLocal(file, BackupFileType.CL);
+    }
 
-                if (snapshotName != null) bp.time = DateUtil.getDate(snapshotName);
+    @VisibleForTesting
+    void onArchived(File file) {
+        archived.add(file);
+    }
 
-                fs.uploadAndDelete(bp, false /* async */);
-                bps.add(bp);
-                addToRemotePath(bp.getRemotePath());
-            } catch (Exception e) {
-                logger.error(
-                        "Failed to upload local file {}. Ignoring to continue with rest of backup.",
-                        file,
-                        e);
+    /** Queue the upload of the archived segments which are no longer written to. */
+    @VisibleForTesting
+    List<Future<AbstractBackupPath>> submitSettled() {
+        List<Future<AbstractBackupPath>> uploads = new ArrayList<>();
+        for (File file : archived) {
+            if (file.exists() && !isSettled(file)) continue;
+            archived.remove(file);
+            try {
+                Future<AbstractBackupPath> upload = submit(file, null);
+                if (upload != null) uploads.add(upload);
+            } catch (RejectedExecutionException e) {
+                logger.error("Unable to queue upload of commit log {}", file, e);
             }
         }
-        return bps;
+        return uploads;
+    }
+
+    private boolean isSettled(File file) {
+        return clock.millis() - file.lastModified() >= SETTLE_MILLIS;
+    }
+
+    private Future<AbstractBackupPath> submit(File file, String snapshotName) {
+        if (!file.isFile()) return null;
+        Path localPath = file.toPath();
+        long size = file.length();
+        if (pending.putIfAbsent(localPath, size) != null) return null;
+        backupMetrics.incrementCommitLogBacklog(size);
+        try {
+            return uploadExecutor.submit(
+                    () -> {
+                        logger.debug("Uploading commit log {} for backup", file);
+                        try {
+                            AbstractBackupPath bp = pathFactory.get();
+                            bp.parseLocal(file, BackupFileType.CL);
+                            if (snapshotName != null) bp.time = DateUtil.getDate(snapshotName);
+                            // Retried within, and left in place for the next scan if it fails.
+                            fs.uploadAndDelete(bp, false /* async */);
+                            return bp;
+                        } catch (Exception e) {
+                            logger.error(
+                                    "Failed to upload commit log {}. It is retried with the "
+                                            + "next scan of the archive directory.",
+                                    file,
+                                    e);
+                            throw e;
+                        } finally {
+                            done(localPath, size);
+                        }
+                    });
+        } catch (RejectedExecutionException e) {
+            done(localPath, size);
+            throw e;
+        }
+    }
+
+    private void done(Path localPath, long size) {
+        pending.remove(localPath);
+        backupMetrics.decrementCommitLogBacklog(size);
     }
 
-    private void addToRemotePath(String remotePath) {
-        this.clRemotePaths.add(remotePath);
+    private static File getArchivedDir(String archivedDir) {
+        if (StringUtils.isBlank(archivedDir)) {
+            throw new IllegalArgumentException("The archived commitlog director is blank or null");
+        }
+
+        File archivedCommitLogDir = new File(archivedDir);
+        if (!archivedCommitLogDir.exists()) {
+            throw new IllegalArgumentException(
+                    "The archived commitlog director does not exist: " + archivedDir);
+        }
+        return archivedCommitLogDir;
     }
 }
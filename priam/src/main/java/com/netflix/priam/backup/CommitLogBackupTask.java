@@ -41,8 +41,11 @@ public class CommitLogBackupTask extends AbstractBackup {
         try {
             logger.debug("Checking for any archived commitlogs");
             // double-check the permission
-            if (config.isBackingUpCommitLogs())
+            if (config.isBackingUpCommitLogs()) {
+                // Upload segments as they are archived, and scan for anything missed.
+                clBackup.watch(config.getCommitLogBackupRestoreFromDirs());
                 clBackup.upload(config.getCommitLogBackupRestoreFromDirs(), null);
+            }
         } catch (Exception e) {
             logger.error(e.getMessage(), e);
         }
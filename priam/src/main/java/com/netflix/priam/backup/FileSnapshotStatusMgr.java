@@ -19,24 +19,48 @@ package com.netflix.priam.backup;
 
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.health.InstanceState;
+import com.netflix.priam.utils.DateUtil;
 import com.netflix.priam.utils.MaxSizeHashMap;
 import java.io.*;
-import java.util.LinkedList;
-import java.util.Map;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Default implementation for {@link IBackupStatusMgr}. This will save the snapshot status in local
  * file. Created by aagrawal on 7/11/17.
+ *
+ * <p>The file is a log with one JSON line per change to a snapshot status, appended and synced to
+ * disk on every change. The latest line of a snapshot wins when the log is read back at startup,
+ * and a line cut short by a crash is skipped. Once the log has {@link #COMPACTION_THRESHOLD} more
+ * lines than there are snapshots in memory, it is replaced with one line per snapshot. A status
+ * file written by older versions with Java serialization is read once and converted. Nothing is
+ * appended to a file in the old format, or ending with a line cut short, until it was replaced.
  */
 @Singleton
 public class FileSnapshotStatusMgr extends BackupStatusMgr {
     private static final Logger logger = LoggerFactory.getLogger(FileSnapshotStatusMgr.class);
     private static final int IN_MEMORY_SNAPSHOT_CAPACITY = 60;
+    private static final int COMPACTION_THRESHOLD = 1000;
     private final String filename;
+    // Snapshots held in memory by version, start time and token, so that date range lookups do
+    // not walk day by day.
+    private final Map<BackupVersion, NavigableMap<Date, Map<String, BackupMetadata>>>
+            snapshotsByVersion = new EnumMap<>(BackupVersion.class);
+    private int logLines;
+    private boolean compactBeforeAppend;
 
     /**
      * Constructor to initialize the file based snapshot status manager.
@@ -51,33 +75,47 @@ public class FileSnapshotStatusMgr extends BackupStatusMgr {
                 IN_MEMORY_SNAPSHOT_CAPACITY,
                 instanceState); // Fetch capacity from properties, if required.
         this.filename = config.getBackupStatusFileLoc();
+        for (BackupVersion backupVersion : BackupVersion.values())
+            snapshotsByVersion.put(backupVersion, new ConcurrentSkipListMap<>());
+        backupMetadataMap =
+                new MaxSizeHashMap<String, LinkedList<BackupMetadata>>(capacity) {
+                    @Override
+                    protected boolean removeEldestEntry(
+                            Map.Entry<String, LinkedList<BackupMetadata>> eldest) {
+                        boolean remove = super.removeEldestEntry(eldest);
+                        if (remove && eldest.getValue() != null)
+                            eldest.getValue().forEach(FileSnapshotStatusMgr.this::unindex);
+                        return remove;
+                    }
+                };
         init();
     }
 
-    private void init() {
+    private synchronized void init() {
         // Retrieve entire file and re-populate the list.
         File snapshotFile = new File(filename);
         if (!snapshotFile.exists()) {
             snapshotFile.getParentFile().mkdirs();
             logger.info(
                     "Snapshot status file do not exist on system. Bypassing initilization phase.");
-            backupMetadataMap = new MaxSizeHashMap<>(capacity);
             return;
         }
 
-        try (final ObjectInputStream inputStream =
-                new ObjectInputStream(new FileInputStream(snapshotFile))) {
-            backupMetadataMap = (Map<String, LinkedList<BackupMetadata>>) inputStream.readObject();
+        try {
+            if (isJavaSerialized(snapshotFile)) {
+                logger.info("Converting snapshot status at {} from Java serialization", filename);
+                // Replaced even if it cannot be read, or by the next save if it cannot be now.
+                compactBeforeAppend = true;
+                readSerialized(snapshotFile);
+            } else {
+                compactBeforeAppend = replay(snapshotFile) > 0;
+            }
+            if (compactBeforeAppend || logLines > countSnapshots() + COMPACTION_THRESHOLD)
+                compact();
             logger.info(
                     "Snapshot status of size {} fetched successfully from {}",
                     backupMetadataMap.size(),
                     filename);
-        } catch (IOException e) {
-            logger.error(
-                    "Error while trying to fetch snapshot status from {}. Error: {}. If this is first time after upgrading Priam, ignore this.",
-                    filename,
-                    e.getLocalizedMessage());
-            e.printStackTrace();
         } catch (Exception e) {
             logger.error(
                     "Error while trying to fetch snapshot status from {}. Error: {}.",
@@ -85,30 +123,163 @@ public class FileSnapshotStatusMgr extends BackupStatusMgr {
                     e.getLocalizedMessage());
             e.printStackTrace();
         }
+        reindex();
+    }
+
+    private static boolean isJavaSerialized(File snapshotFile) throws IOException {
+        try (InputStream in = new FileInputStream(snapshotFile)) {
+            // ObjectOutputStream.STREAM_MAGIC
+            return in.read() == 0xAC && in.read() == 0xED;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readSerialized(File snapshotFile) throws IOException, ClassNotFoundException {
+        try (final ObjectInputStream inputStream =
+                new ObjectInputStream(new FileInputStream(snapshotFile))) {
+            Map<String, LinkedList<BackupMetadata>> saved =
+                    (Map<String, LinkedList<BackupMetadata>>) inputStream.readObject();
+            saved.forEach(
+                    (snapshotDate, list) -> {
+                        if (list != null) backupMetadataMap.put(snapshotDate, list);
+                    });
+        }
+    }
+
+    /** @return number of lines that could not be read. */
+    private int replay(File snapshotFile) throws IOException {
+        int skipped = 0;
+        try (BufferedReader reader =
+                Files.newBufferedReader(snapshotFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                logLines++;
+                try {
+                    apply(fromLine(line));
+                } catch (Exception e) {
+                    skipped++;
+                }
+            }
+        }
+        if (skipped > 0)
+            logger.warn("Skipped {} unreadable lines of snapshot status at {}", skipped, filename);
+        Comparator<BackupMetadata> latestFirst =
+                Comparator.comparing(BackupMetadata::getStart).reversed();
+        backupMetadataMap.values().forEach(list -> list.sort(latestFirst));
+        return skipped;
+    }
+
+    private void apply(BackupMetadata backupMetadata) {
+        LinkedList<BackupMetadata> list =
+                backupMetadataMap.computeIfAbsent(
+                        backupMetadata.getSnapshotDate(), snapshotDate -> new LinkedList<>());
+        list.remove(backupMetadata);
+        list.addFirst(backupMetadata);
+    }
+
+    private int countSnapshots() {
+        return backupMetadataMap
+                .values()
+                .stream()
+                .filter(Objects::nonNull)
+                .mapToInt(List::size)
+                .sum();
+    }
 
-        if (backupMetadataMap == null) backupMetadataMap = new MaxSizeHashMap<>(capacity);
+    private void reindex() {
+        snapshotsByVersion.values().forEach(Map::clear);
+        backupMetadataMap
+                .values()
+                .stream()
+                .filter(Objects::nonNull)
+                .flatMap(List::stream)
+                .forEach(this::index);
+    }
+
+    private void index(BackupMetadata backupMetadata) {
+        snapshotsByVersion
+                .get(backupMetadata.getBackupVersion())
+                .computeIfAbsent(backupMetadata.getStart(), start -> new ConcurrentHashMap<>())
+                .put(backupMetadata.getToken(), backupMetadata);
+    }
+
+    private void unindex(BackupMetadata backupMetadata) {
+        snapshotsByVersion
+                .get(backupMetadata.getBackupVersion())
+                .computeIfPresent(
+                        backupMetadata.getStart(),
+                        (start, byToken) -> {
+                            byToken.remove(backupMetadata.getToken());
+                            return byToken.isEmpty() ? null : byToken;
+                        });
     }
 
     @Override
-    public void save(BackupMetadata backupMetadata) {
+    public synchronized void save(BackupMetadata backupMetadata) {
+        // Index the instance held in memory, which may not be the one passed in.
+        LinkedList<BackupMetadata> list = backupMetadataMap.get(backupMetadata.getSnapshotDate());
+        BackupMetadata saved =
+                list == null
+                        ? backupMetadata
+                        : list.stream()
+                                .filter(backupMetadata::equals)
+                                .findFirst()
+                                .orElse(backupMetadata);
+        index(saved);
+
         File snapshotFile = new File(filename);
         if (!snapshotFile.exists()) snapshotFile.getParentFile().mkdirs();
+        // Otherwise the file is replaced with all the snapshots held in memory, this one included.
+        if (!compactBeforeAppend) {
+            try (FileOutputStream out = new FileOutputStream(snapshotFile, true)) {
+                out.write((toLine(saved) + "\n").getBytes(StandardCharsets.UTF_8));
+                out.getChannel().force(false);
+                logLines++;
+            } catch (IOException | JSONException e) {
+                logger.error(
+                        "Error while trying to persist snapshot status to {}. Error: {}",
+                        filename,
+                        e.getLocalizedMessage());
+                return;
+            }
+        }
 
-        // Will save entire list to file.
-        try (final ObjectOutputStream out =
-                new ObjectOutputStream(new FileOutputStream(filename))) {
-            out.writeObject(backupMetadataMap);
-            out.flush();
-            logger.info(
-                    "Snapshot status of size {} is saved to {}",
-                    backupMetadataMap.size(),
-                    filename);
-        } catch (IOException e) {
-            logger.error(
-                    "Error while trying to persist snapshot status to {}. Error: {}",
-                    filename,
-                    e.getLocalizedMessage());
+        if (compactBeforeAppend || logLines > countSnapshots() + COMPACTION_THRESHOLD) {
+            try {
+                compact();
+            } catch (IOException | JSONException e) {
+                logger.error(
+                        "Error while trying to compact snapshot status at {}. Error: {}",
+                        filename,
+                        e.getLocalizedMessage());
+            }
+        }
+    }
+
+    /** Replace the log with a line per snapshot held in memory. */
+    private void compact() throws IOException, JSONException {
+        Path target = Paths.get(filename);
+        Path tmp = Paths.get(filename + ".tmp");
+        int lines = 0;
+        try (FileOutputStream out = new FileOutputStream(tmp.toFile())) {
+            Writer writer =
+                    new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            for (List<BackupMetadata> list : backupMetadataMap.values()) {
+                if (list == null) continue;
+                for (BackupMetadata backupMetadata : list) {
+                    writer.write(toLine(backupMetadata));
+                    writer.write('\n');
+                    lines++;
+                }
+            }
+            writer.flush();
+            out.getChannel().force(false);
         }
+        Files.move(
+                tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logLines = lines;
+        compactBeforeAppend = false;
+        logger.info("Snapshot status of size {} is compacted to {}", lines, filename);
     }
 
     @Override
@@ -117,4 +288,57 @@ public class FileSnapshotStatusMgr extends BackupStatusMgr {
         // and again.
         return backupMetadataMap.get(snapshotDate);
     }
+
+    @Override
+    public List<BackupMetadata> getLatestBackupMetadata(
+            BackupVersion backupVersion, DateUtil.DateRange dateRange) {
+        // Return all the backups which are FINISHED and were "started" in the dateRange provided.
+        return snapshotsByVersion
+                .get(backupVersion)
+                .subMap(
+                        Date.from(dateRange.getStartTime()),
+                        true,
+                        Date.from(dateRange.getEndTime()),
+                        true)
+                .descendingMap()
+                .values()
+                .stream()
+                .flatMap(byToken -> byToken.values().stream())
+                .filter(backupMetadata -> backupMetadata.getStatus() == Status.FINISHED)
+                .collect(Collectors.toList());
+    }
+
+    private static String toLine(BackupMetadata backupMetadata) throws JSONException {
+        JSONObject object = new JSONObject();
+        object.put("backupVersion", backupMetadata.getBackupVersion().name());
+        object.put("token", backupMetadata.getToken());
+        object.put("start", backupMetadata.getStart().getTime());
+        object.put("status", backupMetadata.getStatus().name());
+        object.put("cassandraSnapshotSuccess", backupMetadata.isCassandraSnapshotSuccess());
+        if (backupMetadata.getCompleted() != null)
+            object.put("completed", backupMetadata.getCompleted().getTime());
+        if (backupMetadata.getLastValidated() != null)
+            object.put("lastValidated", backupMetadata.getLastValidated().getTime());
+        if (backupMetadata.getSnapshotLocation() != null)
+            object.put("snapshotLocation", backupMetadata.getSnapshotLocation());
+        return object.toString();
+    }
+
+    private static BackupMetadata fromLine(String line) throws JSONException {
+        JSONObject object = new JSONObject(line);
+        BackupMetadata backupMetadata =
+                new BackupMetadata(
+                        BackupVersion.valueOf(object.getString("backupVersion")),
+                        object.getString("token"),
+                        new Date(object.getLong("start")));
+        backupMetadata.setStatus(Status.valueOf(object.getString("status")));
+        backupMetadata.setCassandraSnapshotSuccess(object.getBoolean("cassandraSnapshotSuccess"));
+        if (object.has("completed"))
+            backupMetadata.setCompleted(new Date(object.getLong("completed")));
+        if (object.has("lastValidated"))
+            backupMetadata.setLastValidated(new Date(object.getLong("lastValidated")));
+        if (object.has("snapshotLocation"))
+            backupMetadata.setSnapshotLocation(object.getString("snapshotLocation"));
+        return backupMetadata;
+    }
 }
@@ -16,6 +16,7 @@
  */
 package com.netflix.priam.backup;
 
+import com.google.common.collect.Iterators;
 import com.google.common.util.concurrent.ListenableFuture;
 import java.io.FileNotFoundException;
 import java.nio.file.Path;
@@ -23,6 +24,7 @@ import java.time.Instant;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
 
@@ -131,6 +133,19 @@ public interface IBackupFileSystem {
      */
     Iterator<String> listFileSystem(String prefix, String delimiter, String marker);
 
+    /**
+     * List all the files under each of the given prefixes. Implementations may list several
+     * prefixes at the same time.
+     *
+     * @param prefixes common prefixes of the elements to search in the backup file system.
+     * @return the paths of the files, prefix by prefix in the given order.
+     */
+    default Iterator<String> listFileSystem(List<String> prefixes) {
+        return Iterators.concat(
+                Iterators.transform(
+                        prefixes.iterator(), prefix -> listFileSystem(prefix, null, null)));
+    }
+
     /** Runs cleanup or set retention */
     void cleanup();
 
@@ -158,6 +173,18 @@ public interface IBackupFileSystem {
         return false;
     }
 
+    /**
+     * Get the checksum of the content of a file which this file system uploaded, or which was
+     * listed in a meta file. The file is never read to compute it.
+     *
+     * @param remotePath location on the remote file system.
+     * @return the {@link AbstractBackupPath#getChecksum()} of the file uploaded there, or empty if
+     *     it is not known.
+     */
+    default Optional<String> getChecksum(Path remotePath) {
+        return Optional.empty();
+    }
+
     /**
      * Delete list of remote files from the remote file system. It should throw exception if there
      * is anything wrong in processing the request. If the remotePath passed do not exist, then it
@@ -22,11 +22,15 @@ import com.netflix.priam.backup.AbstractBackupPath.BackupFileType;
 import com.netflix.priam.backupv2.SnapshotMetaTask;
 import com.netflix.priam.config.IBackupRestoreConfig;
 import com.netflix.priam.config.IConfiguration;
+import com.netflix.priam.merics.BackupMetrics;
 import com.netflix.priam.scheduler.SimpleTimer;
 import com.netflix.priam.scheduler.TaskTimer;
 import java.io.File;
 import java.io.FileFilter;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import javax.inject.Inject;
@@ -45,12 +49,16 @@ public class IncrementalBackup extends AbstractBackup {
     private final BackupRestoreUtil backupRestoreUtil;
     private final IBackupRestoreConfig backupRestoreConfig;
     private final BackupHelper backupHelper;
+    private final BackupMetrics backupMetrics;
+    // Oldest incremental waiting for upload per keyspace, as found by the current run.
+    private Map<String, Long> oldestPending = new HashMap<>();
 
     @Inject
     public IncrementalBackup(
             IConfiguration config,
             IBackupRestoreConfig backupRestoreConfig,
-            BackupHelper backupHelper) {
+            BackupHelper backupHelper,
+            BackupMetrics backupMetrics) {
         super(config);
         // a means to upload audit trail (via meta_cf_yyyymmddhhmm.json) of files successfully
         // uploaded)
@@ -59,12 +67,21 @@ public class IncrementalBackup extends AbstractBackup {
                 new BackupRestoreUtil(
                         config.getIncrementalIncludeCFList(), config.getIncrementalExcludeCFList());
         this.backupHelper = backupHelper;
+        this.backupMetrics = backupMetrics;
     }
 
     @Override
     public void execute() throws Exception {
-        // Clearing remotePath List
-        initiateBackup(INCREMENTAL_BACKUP_FOLDER, backupRestoreUtil);
+        Map<String, Long> previous = oldestPending;
+        oldestPending = new HashMap<>();
+        try {
+            initiateBackup(INCREMENTAL_BACKUP_FOLDER, backupRestoreUtil);
+        } finally {
+            // Keyspaces that had nothing left to upload this time.
+            for (String keyspace : previous.keySet())
+                if (!oldestPending.containsKey(keyspace))
+                    backupMetrics.setOldestPendingIncremental(keyspace, 0);
+        }
     }
 
     /** Run every 10 Sec */
@@ -122,6 +139,7 @@ public class IncrementalBackup extends AbstractBackup {
         for (File file : Optional.ofNullable(backupDir.listFiles(filter)).orElse(new File[] {})) {
             FileUtils.deleteQuietly(file);
         }
+        recordOldestPending(backupDir);
         // upload SSTables and components
         ImmutableList<ListenableFuture<AbstractBackupPath>> futures =
                 backupHelper.uploadAndDeleteAllFiles(
@@ -130,4 +148,20 @@ public class IncrementalBackup extends AbstractBackup {
             future.get();
         }
     }
+
+    private void recordOldestPending(File backupDir) {
+        FileFilter filter = File::isFile;
+        File[] files = Optional.ofNullable(backupDir.listFiles(filter)).orElse(new File[] {});
+        long oldest =
+                Arrays.stream(files)
+                        .mapToLong(File::lastModified)
+                        .filter(modified -> modified > 0)
+                        .min()
+                        .orElse(0);
+        String keyspace = getKeyspace(backupDir);
+        long keyspaceOldest = oldestPending.getOrDefault(keyspace, 0L);
+        if (oldest > 0 && (keyspaceOldest == 0 || oldest < keyspaceOldest)) keyspaceOldest = oldest;
+        oldestPending.put(keyspace, keyspaceOldest);
+        backupMetrics.setOldestPendingIncremental(keyspace, keyspaceOldest);
+    }
 }
@@ -20,7 +20,6 @@ import com.netflix.priam.backup.AbstractBackupPath.BackupFileType;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.utils.DateUtil;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.text.ParseException;
 import java.util.ArrayList;
@@ -28,7 +27,6 @@ import java.util.List;
 import javax.inject.Inject;
 import javax.inject.Provider;
 import org.apache.commons.io.FileUtils;
-import org.json.simple.JSONArray;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -54,13 +52,37 @@ public class MetaData {
 
     public AbstractBackupPath set(List<AbstractBackupPath> bps, String snapshotName)
             throws Exception {
-        File metafile = createTmpMetaFile();
-        try (FileWriter fr = new FileWriter(metafile)) {
-            JSONArray jsonObj = new JSONArray();
-            for (AbstractBackupPath filePath : bps) jsonObj.add(filePath.getRemotePath());
-            fr.write(jsonObj.toJSONString());
+        MetaFileWriter writer = newMetaFileWriter();
+        try {
+            for (AbstractBackupPath filePath : bps) writer.add(filePath.getRemotePath());
+        } finally {
+            writer.close();
         }
-        AbstractBackupPath backupfile = decorateMetaJson(metafile, snapshotName);
+        return upload(writer, snapshotName);
+    }
+
+    /**
+     * Start a meta.json to which the remote paths of a snapshot are appended as they are uploaded.
+     *
+     * @return writer over a new temporary meta.json.
+     * @throws IOException if the file could not be created.
+     */
+    public MetaFileWriter newMetaFileWriter() throws IOException {
+        return new MetaFileWriter(createTmpMetaFile());
+    }
+
+    /**
+     * Close the meta.json written by {@code writer} and upload it.
+     *
+     * @param writer writer returned by {@link #newMetaFileWriter()}.
+     * @param snapshotName name of the snapshot the meta.json belongs to.
+     * @return the uploaded meta.json.
+     * @throws Exception if the file could not be completed or uploaded.
+     */
+    public AbstractBackupPath upload(MetaFileWriter writer, String snapshotName)
+            throws Exception {
+        writer.close();
+        AbstractBackupPath backupfile = decorateMetaJson(writer.getFile(), snapshotName);
         fs.uploadAndDelete(backupfile, false /* async */);
         addToRemotePath(backupfile.getRemotePath());
         return backupfile;
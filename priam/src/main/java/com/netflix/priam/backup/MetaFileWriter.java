@@ -0,0 +1,80 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.backup;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import org.json.simple.JSONValue;
+
+/**
+ * Writes the V1 meta.json one remote path at a time, so that the paths of a snapshot never have to
+ * be held in memory together. The output is the same as that of {@link
+ * org.json.simple.JSONArray#toJSONString()} over the same paths. Safe to use from multiple
+ * threads.
+ */
+public class MetaFileWriter implements Closeable {
+    private final File file;
+    private final Writer writer;
+    private int count;
+    private boolean closed;
+
+    public MetaFileWriter(File file) throws IOException {
+        this.file = file;
+        this.writer = new BufferedWriter(new FileWriter(file));
+        writer.write('[');
+    }
+
+    /**
+     * Append the remote path of an uploaded file.
+     *
+     * @param remotePath remote path of the file.
+     * @throws IOException if the path could not be written.
+     */
+    public synchronized void add(String remotePath) throws IOException {
+        if (closed) throw new IOException("Meta file " + file + " is already closed");
+        if (count > 0) writer.write(',');
+        writer.write('"');
+        writer.write(JSONValue.escape(remotePath));
+        writer.write('"');
+        count++;
+    }
+
+    /** @return number of paths written so far. */
+    public synchronized int getCount() {
+        return count;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /** Finish the JSON array and close the file. Closing more than once has no effect. */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            writer.write(']');
+        } finally {
+            writer.close();
+        }
+    }
+}
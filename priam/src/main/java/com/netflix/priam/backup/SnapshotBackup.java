@@ -16,31 +16,38 @@
  */
 package com.netflix.priam.backup;
 
+import com.google.common.base.Function;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.netflix.priam.backup.AbstractBackupPath.BackupFileType;
 import com.netflix.priam.backupv2.ForgottenFilesManager;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.connection.CassandraOperations;
 import com.netflix.priam.health.CassandraMonitor;
 import com.netflix.priam.identity.InstanceIdentity;
+import com.netflix.priam.merics.BackupMetrics;
 import com.netflix.priam.scheduler.CronTimer;
 import com.netflix.priam.scheduler.TaskTimer;
 import com.netflix.priam.utils.DateUtil;
 import com.netflix.priam.utils.ThreadSleeper;
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
 import java.util.*;
-import java.util.concurrent.Future;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -58,9 +65,16 @@ public class SnapshotBackup extends AbstractBackup {
     private final ForgottenFilesManager forgottenFilesManager;
     private String snapshotName = null;
     private Instant snapshotInstant = DateUtil.getInstant();
-    private List<AbstractBackupPath> abstractBackupPaths = null;
+    // meta.json of the running snapshot, written as uploads complete.
+    private MetaFileWriter metaFileWriter = null;
+    // Uploads of all column families of the running snapshot, by keyspace.columnfamily.
+    private Map<String, List<ListenableFuture<Void>>> pendingUploads = null;
+    // Snapshot uploads handed to the file system and not yet done, and the most seen at once.
+    private final AtomicInteger activeUploads = new AtomicInteger();
+    private final AtomicInteger peakConcurrentUploads = new AtomicInteger();
     private final CassandraOperations cassandraOperations;
     private final BackupHelper backupHelper;
+    private final BackupMetrics backupMetrics;
     private static final Lock lock = new ReentrantLock();
 
     @Inject
@@ -71,7 +85,8 @@ public class SnapshotBackup extends AbstractBackup {
             IBackupStatusMgr snapshotStatusMgr,
             InstanceIdentity instanceIdentity,
             CassandraOperations cassandraOperations,
-            ForgottenFilesManager forgottenFilesManager) {
+            ForgottenFilesManager forgottenFilesManager,
+            BackupMetrics backupMetrics) {
         super(config);
         this.backupHelper = backupHelper;
         this.metaData = metaData;
@@ -82,6 +97,7 @@ public class SnapshotBackup extends AbstractBackup {
                 new BackupRestoreUtil(
                         config.getSnapshotIncludeCFList(), config.getSnapshotExcludeCFList());
         this.forgottenFilesManager = forgottenFilesManager;
+        this.backupMetrics = backupMetrics;
     }
 
     @Override
@@ -128,19 +144,17 @@ public class SnapshotBackup extends AbstractBackup {
             backupMetadata.setCassandraSnapshotSuccess(true);
 
             // Collect all snapshot dir's under keyspace dir's
-            abstractBackupPaths = Lists.newArrayList();
+            metaFileWriter = metaData.newMetaFileWriter();
+            pendingUploads = new LinkedHashMap<>();
+            activeUploads.set(0);
+            peakConcurrentUploads.set(0);
             // Try to upload all the files as part of snapshot. If there is any error, there will be
             // an exception and snapshot will be considered as failure.
             initiateBackup(SNAPSHOT_FOLDER, backupRestoreUtil);
+            awaitUploads();
 
-            // All the files are uploaded successfully as part of snapshot.
-            // pre condition notify of meta.json upload
-            File tmpMetaFile = metaData.createTmpMetaFile();
-            // Note: no need to remove this temp as it is done within createTmpMetaFile()
-            AbstractBackupPath metaJsonAbp = metaData.decorateMetaJson(tmpMetaFile, snapshotName);
-
-            // Upload meta file
-            AbstractBackupPath metaJson = metaData.set(abstractBackupPaths, snapshotName);
+            // All the files are uploaded successfully as part of snapshot. Upload meta file.
+            AbstractBackupPath metaJson = metaData.upload(metaFileWriter, snapshotName);
 
             logger.info("Snapshot upload complete for {}", snapshotName);
             backupMetadata.setSnapshotLocation(
@@ -155,6 +169,16 @@ public class SnapshotBackup extends AbstractBackup {
             snapshotStatusMgr.failed(backupMetadata);
             throw e;
         } finally {
+            // If queueing failed half way, the uploads already queued still write to meta.json and
+            // read from the snapshot, so neither may go away before they are done.
+            if (pendingUploads != null) awaitQuietly();
+            pendingUploads = null;
+            if (metaFileWriter != null) {
+                // Only left behind if the snapshot failed, successful uploads delete it.
+                IOUtils.closeQuietly(metaFileWriter);
+                FileUtils.deleteQuietly(metaFileWriter.getFile());
+                metaFileWriter = null;
+            }
             try {
                 cassandraOperations.clearSnapshot(snapshotName);
             } catch (Exception e) {
@@ -210,13 +234,83 @@ public class SnapshotBackup extends AbstractBackup {
         }
 
         forgottenFilesManager.findAndMoveForgottenFiles(snapshotInstant, snapshotDir);
-        // Add files to this dir
-
+        // Queue the files of this dir. They are only waited for once all column families have
+        // been queued, so that one large column family does not leave the upload pool idle.
         ImmutableList<ListenableFuture<AbstractBackupPath>> futures =
                 backupHelper.uploadAndDeleteAllFiles(
                         snapshotDir, BackupFileType.SNAP, config.enableAsyncSnapshot());
-        for (Future<AbstractBackupPath> future : futures) {
-            abstractBackupPaths.add(future.get());
+        List<ListenableFuture<Void>> uploads =
+                pendingUploads.computeIfAbsent(
+                        getKeyspace(backupDir) + "." + getColumnFamily(backupDir),
+                        columnFamily -> new ArrayList<>());
+        for (ListenableFuture<AbstractBackupPath> future : futures) {
+            peakConcurrentUploads.accumulateAndGet(activeUploads.incrementAndGet(), Math::max);
+            future.addListener(activeUploads::decrementAndGet, MoreExecutors.directExecutor());
+            // Only keep a handle on the upload, its path goes to meta.json as soon as it is done.
+            uploads.add(
+                    Futures.transform(
+                            future, (Function<AbstractBackupPath, Void>) this::addToMetaFile));
+        }
+    }
+
+    private Void addToMetaFile(AbstractBackupPath path) {
+        try {
+            metaFileWriter.add(path.getRemotePath());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return null;
+    }
+
+    /** Wait for all queued uploads to be done, whatever their outcome. */
+    private void awaitQuietly() {
+        List<ListenableFuture<Void>> uploads = new ArrayList<>();
+        pendingUploads.values().forEach(uploads::addAll);
+        try {
+            Futures.successfulAsList(uploads).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Never thrown, failed uploads only leave a null in the list.
+            logger.error("Failed to wait for the snapshot uploads", e);
+        }
+    }
+
+    /**
+     * Wait for the uploads of all column families. Every upload is waited for even if some failed,
+     * so that no upload is left running once the snapshot is cleared.
+     *
+     * @throws BackupRestoreException naming the column families of which some files could not be
+     *     uploaded.
+     */
+    private void awaitUploads() throws Exception {
+        Map<String, Exception> failures = new LinkedHashMap<>();
+        int files = 0;
+        for (Map.Entry<String, List<ListenableFuture<Void>>> entry : pendingUploads.entrySet()) {
+            for (ListenableFuture<Void> future : entry.getValue()) {
+                try {
+                    future.get();
+                    files++;
+                } catch (ExecutionException e) {
+                    logger.error("Failed to upload a snapshot file of {}", entry.getKey(), e);
+                    failures.putIfAbsent(
+                            entry.getKey(),
+                            e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+                }
+            }
+        }
+        int peak = peakConcurrentUploads.get();
+        backupMetrics.recordSnapshotUploadConcurrency(peak);
+        logger.info(
+                "Snapshot {} uploaded {} files of {} column families, up to {} at a time",
+                snapshotName,
+                files,
+                pendingUploads.size(),
+                peak);
+        if (!failures.isEmpty()) {
+            throw new BackupRestoreException(
+                    "Failed to upload snapshot files of " + failures.keySet(),
+                    failures.values().iterator().next());
         }
     }
 
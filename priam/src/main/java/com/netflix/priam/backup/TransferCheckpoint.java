@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.backup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remote paths of the files transferred so far, one per line, each preceded by the checksum of the
+ * file and a tab if it is known. A line is appended as soon as its transfer completes, so after an
+ * interruption the file lists exactly what need not be transferred again. The path ends the line,
+ * so a line torn by the interruption never matches a remote path.
+ */
+public class TransferCheckpoint {
+    private static final char SEPARATOR = '\t';
+    private final File file;
+    // Checksum by remote path, empty if unknown.
+    private final Map<String, String> transferred = new ConcurrentHashMap<>();
+
+    public TransferCheckpoint(File file) throws IOException {
+        this.file = file;
+        if (file.exists())
+            for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+                int separator = line.indexOf(SEPARATOR);
+                if (separator < 0) transferred.put(line, "");
+                else transferred.put(line.substring(separator + 1), line.substring(0, separator));
+            }
+    }
+
+    public boolean contains(String remotePath) {
+        return transferred.containsKey(remotePath);
+    }
+
+    /** @return the checksum recorded with the transfer, or empty if none was. */
+    public Optional<String> getChecksum(String remotePath) {
+        return Optional.ofNullable(transferred.get(remotePath))
+                .filter(checksum -> !checksum.isEmpty());
+    }
+
+    public synchronized void add(String remotePath, String checksum) throws IOException {
+        if (transferred.containsKey(remotePath)) return;
+        String line = checksum == null ? remotePath : checksum + SEPARATOR + remotePath;
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (!parent.exists()) parent.mkdirs();
+        Files.write(
+                file.toPath(),
+                Collections.singletonList(line),
+                StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+        transferred.put(remotePath, checksum == null ? "" : checksum);
+    }
+
+    public int size() {
+        return transferred.size();
+    }
+
+    public File getFile() {
+        return file;
+    }
+}
@@ -36,9 +36,13 @@ public class FileUploadResult {
     private final long fileSizeOnDisk; // Size on disk in bytes
     // Valid compression technique for now is SNAPPY only. Future we need to support LZ4 and NONE
     private final CompressionType compression;
+    // Ratio on which ADAPTIVE compression decided the compression of the file, null otherwise.
+    private final Double sampledCompressionRatio;
     // Valid encryption technique for now is PLAINTEXT only. In future we will support pgp and more.
     private final CryptographyAlgorithm encryption;
 
+    // CRC32C of the content, null if it was not uploaded by this process before the meta file.
+    private String checksum;
     private Boolean isUploaded;
     private String backupPath;
 
@@ -53,6 +57,7 @@ public class FileUploadResult {
         this.fileCreationTime = fileCreationTime;
         this.fileSizeOnDisk = fileSizeOnDisk;
         this.compression = CompressionType.SNAPPY;
+        this.sampledCompressionRatio = null;
         this.encryption = CryptographyAlgorithm.PLAINTEXT;
     }
 
@@ -66,6 +71,8 @@ public class FileUploadResult {
         this.fileCreationTime = path.getCreationTime();
         this.fileSizeOnDisk = path.getSize();
         this.compression = path.getCompression();
+        this.sampledCompressionRatio = path.getSampledCompressionRatio();
+        this.checksum = path.getChecksum();
         this.encryption = path.getEncryption();
     }
 
@@ -81,6 +88,14 @@ public class FileUploadResult {
         return fileName;
     }
 
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public void setChecksum(String checksum) {
+        this.checksum = checksum;
+    }
+
     public String getBackupPath() {
         return backupPath;
     }
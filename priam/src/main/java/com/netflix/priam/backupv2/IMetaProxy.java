@@ -22,8 +22,10 @@ import com.netflix.priam.backup.BackupRestoreException;
 import com.netflix.priam.backup.BackupVerificationResult;
 import com.netflix.priam.utils.DateUtil;
 import java.nio.file.Path;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 /** Proxy to do management tasks for meta files. Created by aagrawal on 12/18/18. */
 public interface IMetaProxy {
@@ -72,6 +74,17 @@ public interface IMetaProxy {
      */
     List<String> getSSTFilesFromMeta(Path localMetaPath) throws Exception;
 
+    /**
+     * Read the manifest file and give the checksum of the sstable components which have one.
+     *
+     * @param localMetaPath location of the manifest file on disk.
+     * @return map of the remote location of sstable components to their checksum.
+     * @throws Exception if file is not found on local system or is corrupt.
+     */
+    default Map<String, String> getChecksumsFromMeta(Path localMetaPath) throws Exception {
+        return Collections.emptyMap();
+    }
+
     /**
      * Get the list of incremental files given the daterange.
      *
@@ -240,6 +240,11 @@ public class MetaFileWriterBuilder {
             try {
                 Path backupPath = Paths.get(fileUploadResult.getBackupPath());
                 fileUploadResult.setUploaded(backupFileSystem.checkObjectExists(backupPath));
+                // A file which was not uploaded again has the checksum of its earlier upload.
+                if (fileUploadResult.getChecksum() == null)
+                    backupFileSystem
+                            .getChecksum(backupPath)
+                            .ifPresent(fileUploadResult::setChecksum);
             } catch (Exception e) {
                 logger.error("Error checking if file exists. Ignoring as it is not fatal.", e);
             }
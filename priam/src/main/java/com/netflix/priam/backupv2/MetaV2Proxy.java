@@ -25,9 +25,12 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
 import javax.inject.Inject;
 import javax.inject.Provider;
+import javax.inject.Singleton;
 import org.apache.commons.collections4.iterators.FilterIterator;
 import org.apache.commons.collections4.iterators.TransformIterator;
 import org.apache.commons.io.FileUtils;
@@ -37,12 +40,21 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-/** Do any management task for meta files. Created by aagrawal on 8/2/18. */
+/**
+ * Do any management task for meta files. Created by aagrawal on 8/2/18.
+ *
+ * <p>Verification remembers the components of the last meta file found valid and only checks the
+ * components which are new since then, except every {@link
+ * IConfiguration#getBackupVerificationFullIntervalInHours()} when all of them are checked again.
+ */
+@Singleton
 public class MetaV2Proxy implements IMetaProxy {
     private static final Logger logger = LoggerFactory.getLogger(MetaV2Proxy.class);
     private final Path metaFileDirectory;
     private final IBackupFileSystem fs;
     private final Provider<AbstractBackupPath> abstractBackupPathProvider;
+    private final IConfiguration configuration;
+    private volatile VerifiedComponents lastVerified;
 
     @Inject
     public MetaV2Proxy(
@@ -51,6 +63,7 @@ public class MetaV2Proxy implements IMetaProxy {
             Provider<AbstractBackupPath> abstractBackupPathProvider) {
         fs = backupFileSystemCtx.getFileStrategy(configuration);
         this.abstractBackupPathProvider = abstractBackupPathProvider;
+        this.configuration = configuration;
         metaFileDirectory = Paths.get(configuration.getDataFileLocation());
     }
 
@@ -184,9 +197,22 @@ public class MetaV2Proxy implements IMetaProxy {
         return metaFileBackupWalker.backupRemotePaths;
     }
 
+    @Override
+    public Map<String, String> getChecksumsFromMeta(Path localMetaPath) throws Exception {
+        MetaFileBackupWalker metaFileBackupWalker = new MetaFileBackupWalker();
+        metaFileBackupWalker.readMeta(localMetaPath);
+        return metaFileBackupWalker.checksums;
+    }
+
     @Override
     public BackupVerificationResult isMetaFileValid(AbstractBackupPath metaBackupPath) {
-        MetaFileBackupValidator metaFileBackupValidator = new MetaFileBackupValidator();
+        Instant now = DateUtil.getInstant();
+        VerifiedComponents previous = lastVerified;
+        Duration fullInterval =
+                Duration.ofHours(configuration.getBackupVerificationFullIntervalInHours());
+        if (previous != null && !previous.getLastFullVerification().plus(fullInterval).isAfter(now))
+            previous = null;
+        MetaFileBackupValidator metaFileBackupValidator = new MetaFileBackupValidator(previous);
         BackupVerificationResult result = metaFileBackupValidator.verificationResult;
         result.remotePath = metaBackupPath.getRemotePath();
         result.snapshotInstant = metaBackupPath.getLastModified();
@@ -198,6 +224,16 @@ public class MetaV2Proxy implements IMetaProxy {
 
             metaFileBackupValidator.readMeta(metaFile);
             result.valid = (result.filesInMetaOnly.isEmpty());
+            if (result.valid) {
+                lastVerified =
+                        metaFileBackupValidator.components.build(
+                                previous == null ? now : previous.getLastFullVerification());
+            }
+            logger.info(
+                    "Checked {} of {} components of meta file: {}",
+                    result.filesChecked,
+                    result.filesMatched + result.filesInMetaOnly.size(),
+                    metaBackupPath.getRemotePath());
         } catch (FileNotFoundException fne) {
             logger.error(fne.getLocalizedMessage());
         } catch (IOException ioe) {
@@ -214,13 +250,27 @@ public class MetaV2Proxy implements IMetaProxy {
 
     private class MetaFileBackupValidator extends MetaFileReader {
         private BackupVerificationResult verificationResult = new BackupVerificationResult();
+        private final VerifiedComponents previous;
+        private final VerifiedComponents.Builder components = new VerifiedComponents.Builder();
+
+        /** @param previous components already known to exist, or null to check all of them */
+        MetaFileBackupValidator(VerifiedComponents previous) {
+            this.previous = previous;
+        }
 
         @Override
         public void process(ColumnFamilyResult columnfamilyResult) {
             for (ColumnFamilyResult.SSTableResult ssTableResult :
                     columnfamilyResult.getSstables()) {
                 for (FileUploadResult fileUploadResult : ssTableResult.getSstableComponents()) {
-                    if (fs.checkObjectExists(Paths.get(fileUploadResult.getBackupPath()))) {
+                    String backupPath = fileUploadResult.getBackupPath();
+                    components.add(backupPath);
+                    if (previous != null && previous.contains(backupPath)) {
+                        verificationResult.filesMatched++;
+                        continue;
+                    }
+                    verificationResult.filesChecked++;
+                    if (fs.checkObjectExists(Paths.get(backupPath))) {
                         verificationResult.filesMatched++;
                     } else {
                         verificationResult.filesInMetaOnly.add(fileUploadResult.getBackupPath());
@@ -232,6 +282,7 @@ public class MetaV2Proxy implements IMetaProxy {
 
     private class MetaFileBackupWalker extends MetaFileReader {
         private List<String> backupRemotePaths = new ArrayList<>();
+        private Map<String, String> checksums = new HashMap<>();
 
         @Override
         public void process(ColumnFamilyResult columnfamilyResult) {
@@ -239,6 +290,9 @@ public class MetaV2Proxy implements IMetaProxy {
                     columnfamilyResult.getSstables()) {
                 for (FileUploadResult fileUploadResult : ssTableResult.getSstableComponents()) {
                     backupRemotePaths.add(fileUploadResult.getBackupPath());
+                    if (fileUploadResult.getChecksum() != null)
+                        checksums.put(
+                                fileUploadResult.getBackupPath(), fileUploadResult.getChecksum());
                 }
             }
         }
@@ -43,6 +43,7 @@ import java.time.Instant;
 import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import javax.inject.Inject;
@@ -62,10 +63,12 @@ import org.slf4j.LoggerFactory;
  * external entities) and will be used in future for Priam Backup Version 2 where a file is not
  * uploaded to backup file system unless SSTable has been modified. This will lead to huge reduction
  * in storage costs and provide bandwidth back to Cassandra instead of creating/uploading snapshots.
- * Note that this component will "try" to enqueue the files to upload, but no guarantee is provided.
- * If the enqueue fails for any reason, it is considered "OK" as there will be another service
- * pushing all the files in the queue for upload (think of this like a cleanup thread and will help
- * us in "resuming" any failed backup for any reason). Created by aagrawal on 6/18/18.
+ * The files of the snapshot are uploaded before the meta file is written, so that it lists each
+ * file with the checksum computed while uploading it. Note that this component will "try" to
+ * enqueue the files to upload, but no guarantee is provided. If the enqueue fails for any reason,
+ * it is considered "OK" as there will be another service pushing all the files in the queue for
+ * upload (think of this like a cleanup thread and will help us in "resuming" any failed backup for
+ * any reason). Created by aagrawal on 6/18/18.
  */
 @Singleton
 public class SnapshotMetaTask extends AbstractBackup {
@@ -90,6 +93,11 @@ public class SnapshotMetaTask extends AbstractBackup {
     private final IBackupRestoreConfig backupRestoreConfig;
     private final BackupVerification backupVerification;
     private final BackupHelper backupHelper;
+    private final IBackupFileSystem fs;
+    // Files of the snapshot, by column family, which are added to the meta file once their uploads
+    // complete.
+    private final List<ColumnFamilyFiles> pendingColumnFamilies = new ArrayList<>();
+    private final List<ListenableFuture<AbstractBackupPath>> pendingUploads = new ArrayList<>();
 
     private enum MetaStep {
         META_GENERATION,
@@ -109,10 +117,12 @@ public class SnapshotMetaTask extends AbstractBackup {
             CassandraOperations cassandraOperations,
             Clock clock,
             IBackupRestoreConfig backupRestoreConfig,
-            BackupVerification backupVerification) {
+            BackupVerification backupVerification,
+            IFileSystemContext backupFileSystemCtx) {
         super(config);
         this.config = config;
         this.backupHelper = backupHelper;
+        this.fs = backupFileSystemCtx.getFileStrategy(config);
         this.instanceIdentity = instanceIdentity;
         this.snapshotStatusMgr = snapshotStatusMgr;
         this.cassandraOperations = cassandraOperations;
@@ -242,7 +252,19 @@ public class SnapshotMetaTask extends AbstractBackup {
 
     MetaFileWriterBuilder.UploadStep processSnapshot(Instant snapshotInstant) throws Exception {
         dataStep = metaFileWriter.newBuilder().startMetaFileGeneration(snapshotInstant);
-        initiateBackup(SNAPSHOT_FOLDER, backupRestoreUtil);
+        try {
+            initiateBackup(SNAPSHOT_FOLDER, backupRestoreUtil);
+            // A failed upload leaves its file without a checksum, it is retried by uploadFiles.
+            Futures.successfulAsList(pendingUploads).get();
+            for (ColumnFamilyFiles files : pendingColumnFamilies) {
+                dataStep.addColumnfamilyResult(files.keyspace, files.columnFamily, files.sstables);
+                logger.debug(
+                        "Finished processing KS: {}, CF: {}", files.keyspace, files.columnFamily);
+            }
+        } finally {
+            pendingColumnFamilies.clear();
+            pendingUploads.clear();
+        }
         return dataStep.endMetaFileGeneration();
     }
 
@@ -329,8 +351,7 @@ public class SnapshotMetaTask extends AbstractBackup {
         String columnFamily = getColumnFamily(backupDir);
         switch (metaStep) {
             case META_GENERATION:
-                generateMetaFile(keyspace, columnFamily, backupDir)
-                        .ifPresent(this::deleteUploadedFiles);
+                generateMetaFile(keyspace, columnFamily, backupDir);
                 break;
             case UPLOAD_FILES:
                 uploadAllFiles(backupDir);
@@ -340,14 +361,14 @@ public class SnapshotMetaTask extends AbstractBackup {
         }
     }
 
-    private Optional<ColumnFamilyResult> generateMetaFile(
+    private void generateMetaFile(
             final String keyspace, final String columnFamily, final File backupDir)
             throws Exception {
         File snapshotDir = getValidSnapshot(backupDir, snapshotName);
         // Process this snapshot folder for the given columnFamily
         if (snapshotDir == null) {
             logger.warn("{} folder does not contain {} snapshots", backupDir, snapshotName);
-            return Optional.empty();
+            return;
         }
 
         logger.debug("Scanning for all SSTables in: {}", snapshotDir.getAbsolutePath());
@@ -357,18 +378,16 @@ public class SnapshotMetaTask extends AbstractBackup {
 
         ImmutableSetMultimap<String, AbstractBackupPath> sstables = builder.build();
         logger.debug("Processing {} sstables from {}.{}", keyspace, columnFamily, sstables.size());
-        ColumnFamilyResult result =
-                dataStep.addColumnfamilyResult(keyspace, columnFamily, sstables);
-        logger.debug("Finished processing KS: {}, CF: {}", keyspace, columnFamily);
-        return Optional.of(result);
-    }
-
-    private void deleteUploadedFiles(ColumnFamilyResult result) {
-        result.getSstables()
-                .stream()
-                .flatMap(sstable -> sstable.getSstableComponents().stream())
-                .filter(file -> Boolean.TRUE.equals(file.getIsUploaded()))
-                .forEach(file -> FileUtils.deleteQuietly(file.getFileName().toFile()));
+        // The upload deletes each file, or only deletes it if it is already backed up.
+        Instant target = getUploadTarget();
+        for (AbstractBackupPath path : sstables.values()) {
+            try {
+                pendingUploads.add(fs.uploadAndDelete(path, target, true));
+            } catch (RejectedExecutionException e) {
+                logger.warn("Unable to queue {} for upload, it is left for uploadFiles", path, e);
+            }
+        }
+        pendingColumnFamilies.add(new ColumnFamilyFiles(keyspace, columnFamily, sstables));
     }
 
     private ImmutableSetMultimap<String, AbstractBackupPath> getSSTables(
@@ -408,6 +427,21 @@ public class SnapshotMetaTask extends AbstractBackup {
         this.snapshotName = snapshotName;
     }
 
+    private static class ColumnFamilyFiles {
+        private final String keyspace;
+        private final String columnFamily;
+        private final ImmutableSetMultimap<String, AbstractBackupPath> sstables;
+
+        ColumnFamilyFiles(
+                String keyspace,
+                String columnFamily,
+                ImmutableSetMultimap<String, AbstractBackupPath> sstables) {
+            this.keyspace = keyspace;
+            this.columnFamily = columnFamily;
+            this.sstables = sstables;
+        }
+    }
+
     private static void addCallback(ListenableFuture<AbstractBackupPath> future, File snapshotDir) {
         FutureCallback<AbstractBackupPath> callback =
                 new FutureCallback<AbstractBackupPath>() {
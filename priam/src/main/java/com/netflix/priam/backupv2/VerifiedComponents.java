@@ -0,0 +1,70 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.backupv2;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Remote paths of the components of a meta file which were confirmed to exist by a verification.
+ * Only a 64 bit hash of each path is kept, so that the hundreds of thousands of components of a
+ * large snapshot take a few megabytes.
+ */
+class VerifiedComponents {
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    private final long[] hashes;
+    private final Instant lastFullVerification;
+
+    private VerifiedComponents(long[] hashes, Instant lastFullVerification) {
+        this.hashes = hashes;
+        this.lastFullVerification = lastFullVerification;
+    }
+
+    boolean contains(String remotePath) {
+        return Arrays.binarySearch(hashes, hash(remotePath)) >= 0;
+    }
+
+    /** @return when all of the components of a meta file were last checked. */
+    Instant getLastFullVerification() {
+        return lastFullVerification;
+    }
+
+    private static long hash(String remotePath) {
+        return HASH.hashString(remotePath, StandardCharsets.UTF_8).asLong();
+    }
+
+    static class Builder {
+        private long[] hashes = new long[1024];
+        private int size;
+
+        Builder add(String remotePath) {
+            if (size == hashes.length) hashes = Arrays.copyOf(hashes, size * 2);
+            hashes[size++] = hash(remotePath);
+            return this;
+        }
+
+        VerifiedComponents build(Instant lastFullVerification) {
+            long[] sorted = Arrays.copyOf(hashes, size);
+            Arrays.sort(sorted);
+            return new VerifiedComponents(sorted, lastFullVerification);
+        }
+    }
+}
@@ -16,26 +16,148 @@
  */
 package com.netflix.priam.cli;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.Module;
+import com.google.inject.name.Names;
+import com.google.inject.util.Modules;
+import com.netflix.priam.backup.AbstractFileSystem;
 import com.netflix.priam.backup.IBackupFileSystem;
+import com.netflix.priam.backup.TransferCheckpoint;
 import com.netflix.priam.config.IConfiguration;
+import com.netflix.priam.defaultimpl.PriamGuiceModule;
+import com.netflix.priam.merics.BackupMetrics;
+import java.io.IOException;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class Application {
+    private static final Logger logger = LoggerFactory.getLogger(Application.class);
+    private static final long UPLOAD_POLL_MILLIS = 100;
+    private static Module priamModule = new PriamGuiceModule();
+    // Bindings replacing those of the tools, none outside of tests.
+    private static Module overrides = Modules.EMPTY_MODULE;
     private static Injector injector;
+    private static CliOptions options = CliOptions.parse();
+    private static ProgressReporter progressReporter;
+    private static boolean resuming;
 
     static Injector getInjector() {
-        if (injector == null) injector = Guice.createInjector(new LightGuiceModule());
+        if (injector == null)
+            injector =
+                    Guice.createInjector(
+                            Modules.override(
+                                            Modules.override(priamModule)
+                                                    .with(new LightGuiceModule(options)))
+                                    .with(overrides));
         return injector;
     }
 
-    static void initialize() {
+    /**
+     * Runs the tools with the bindings of the first module in place of those of the service, and
+     * those of the second module in place of those of the tools.
+     */
+    @VisibleForTesting
+    static void setModules(Module priamModule, Module overrides) {
+        Application.priamModule = priamModule;
+        Application.overrides = overrides;
+        injector = null;
+    }
+
+    /**
+     * @return the arguments of the tool, which follow the options
+     * @throws IllegalArgumentException if the options are invalid
+     */
+    static List<String> initialize(String[] args) {
+        options = CliOptions.parse(args);
         IConfiguration conf = getInjector().getInstance(IConfiguration.class);
         conf.initialize();
+        resuming = options.getCheckpoint() != null && options.getCheckpoint().exists();
+        if (options.getCheckpoint() != null) openCheckpoint();
+        progressReporter =
+                new ProgressReporter(
+                        getInjector().getInstance(BackupMetrics.class),
+                        getFileSystem(),
+                        options.getProgressSeconds());
+        return options.getArguments();
+    }
+
+    static void displayOptions() {
+        System.out.println(CliOptions.USAGE);
+    }
+
+    private static void openCheckpoint() {
+        TransferCheckpoint checkpoint;
+        try {
+            checkpoint = new TransferCheckpoint(options.getCheckpoint());
+        } catch (IOException e) {
+            throw new IllegalArgumentException(
+                    "Unable to read the checkpoint " + options.getCheckpoint(), e);
+        }
+        IBackupFileSystem fs = getFileSystem();
+        if (!(fs instanceof AbstractFileSystem))
+            throw new IllegalArgumentException("The file system cannot resume transfers: " + fs);
+        ((AbstractFileSystem) fs).setCheckpoint(checkpoint);
+    }
+
+    /** @return true if the checkpoint of an interrupted run of the tool was found */
+    static boolean isResuming() {
+        return resuming;
+    }
+
+    /**
+     * Wait for the uploads still queued, then forget the checkpoint if every transfer succeeded, as
+     * nothing is left to resume.
+     */
+    static void complete() throws InterruptedException {
+        long timeout = getInjector().getInstance(IConfiguration.class).getUploadTimeout();
+        int left = awaitUploads(getFileSystem(), timeout);
+        if (left > 0) logger.warn("Gave up waiting for {} uploads after {} ms", left, timeout);
+        if (options.getCheckpoint() == null) return;
+        BackupMetrics backupMetrics = getInjector().getInstance(BackupMetrics.class);
+        long failures =
+                left
+                        + backupMetrics.getInvalidUploads().count()
+                        + backupMetrics.getInvalidDownloads().count();
+        if (failures > 0)
+            logger.warn(
+                    "{} transfers failed, keeping the checkpoint {} to resume",
+                    failures,
+                    options.getCheckpoint());
+        else FileUtils.deleteQuietly(options.getCheckpoint());
+    }
+
+    /**
+     * The tools wait for the uploads they queue themselves, only those queued in the background are
+     * left, so they are waited for as long as one of them completes every timeout.
+     *
+     * @return the number of uploads still queued
+     */
+    @VisibleForTesting
+    static int awaitUploads(IBackupFileSystem fs, long timeoutMillis) throws InterruptedException {
+        int queued = fs.getUploadTasksQueued();
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (queued > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(UPLOAD_POLL_MILLIS);
+            int left = fs.getUploadTasksQueued();
+            if (left < queued) deadline = System.currentTimeMillis() + timeoutMillis;
+            queued = left;
+        }
+        return queued;
+    }
+
+    private static IBackupFileSystem getFileSystem() {
+        return getInjector().getInstance(Key.get(IBackupFileSystem.class, Names.named("backup")));
     }
 
     static void shutdownAdditionalThreads() {
-        IBackupFileSystem fs = getInjector().getInstance(IBackupFileSystem.class);
-        fs.shutdown();
+        // Nothing was started when the options were invalid.
+        if (injector == null) return;
+        if (progressReporter != null) progressReporter.close();
+        getFileSystem().shutdown();
     }
 }
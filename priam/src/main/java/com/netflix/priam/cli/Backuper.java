@@ -23,12 +23,24 @@ import org.slf4j.LoggerFactory;
 public class Backuper {
     private static final Logger logger = LoggerFactory.getLogger(Backuper.class);
 
+    static void displayHelp() {
+        System.out.println("Usage: command_name [OPTIONS]");
+        Application.displayOptions();
+    }
+
     public static void main(String[] args) {
         try {
-            Application.initialize();
+            try {
+                Application.initialize(args);
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
+                displayHelp();
+                return;
+            }
             SnapshotBackup backuper = Application.getInjector().getInstance(SnapshotBackup.class);
             try {
                 backuper.execute();
+                Application.complete();
             } catch (Exception e) {
                 logger.error("Unable to backup: ", e);
             }
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.cli;
+
+import com.netflix.priam.config.PriamConfiguration;
+import com.netflix.priam.configSource.IConfigSource;
+import com.netflix.priam.identity.config.InstanceInfo;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * The configuration, with the values given on the command line taking precedence over those of
+ * the config sources.
+ */
+@Singleton
+class CliConfiguration extends PriamConfiguration {
+    private final CliOptions options;
+
+    @Inject
+    CliConfiguration(IConfigSource config, InstanceInfo instanceInfo, CliOptions options) {
+        super(config, instanceInfo);
+        this.options = options;
+    }
+
+    @Override
+    public int getBackupThreads() {
+        return options.getThreads() == null ? super.getBackupThreads() : options.getThreads();
+    }
+
+    @Override
+    public int getRestoreThreads() {
+        return options.getThreads() == null ? super.getRestoreThreads() : options.getThreads();
+    }
+
+    @Override
+    public int getUploadThrottle() {
+        return options.getBandwidth() == null
+                ? super.getUploadThrottle()
+                : options.getBandwidth();
+    }
+
+    @Override
+    public long getBackupChunkSize() {
+        return options.getPartSize() == null ? super.getBackupChunkSize() : options.getPartSize();
+    }
+}
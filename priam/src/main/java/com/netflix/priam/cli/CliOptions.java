@@ -0,0 +1,131 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.cli;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Options common to the command line tools, given as {@code --name=value} before the arguments of
+ * the tool. Options which are not given leave the configuration as it is.
+ */
+public class CliOptions {
+    static final String USAGE =
+            "Options:\n"
+                    + "  --threads=N           files transferred at the same time\n"
+                    + "  --bandwidth=MB        megabytes per second uploaded at most\n"
+                    + "  --part-size=MB        megabytes per part of multipart uploads\n"
+                    + "  --checkpoint=FILE     resume from, and record progress to, FILE\n"
+                    + "  --target=DIR          back up to, or restore from, DIR instead of S3\n"
+                    + "  --progress=SECONDS    seconds between progress reports, 0 for none";
+    private static final long MB = 1024 * 1024L;
+
+    private Integer threads;
+    private Integer bandwidthMB;
+    private Long partSizeMB;
+    private File checkpoint;
+    private File target;
+    private int progressSeconds = 10;
+    private final List<String> arguments = new ArrayList<>();
+
+    /** @throws IllegalArgumentException if an option is unknown or its value is invalid */
+    public static CliOptions parse(String... args) {
+        CliOptions options = new CliOptions();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                options.arguments.addAll(Arrays.asList(args).subList(i, args.length));
+                break;
+            }
+            int separator = args[i].indexOf('=');
+            if (separator < 0)
+                throw new IllegalArgumentException("Option without a value: " + args[i]);
+            String value = args[i].substring(separator + 1);
+            switch (args[i].substring(2, separator)) {
+                case "threads":
+                    options.threads = positive(args[i], value);
+                    break;
+                case "bandwidth":
+                    options.bandwidthMB = positive(args[i], value);
+                    break;
+                case "part-size":
+                    options.partSizeMB = (long) positive(args[i], value);
+                    break;
+                case "checkpoint":
+                    options.checkpoint = new File(value);
+                    break;
+                case "target":
+                    options.target = new File(value);
+                    break;
+                case "progress":
+                    options.progressSeconds = Math.max(0, integer(args[i], value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        return options;
+    }
+
+    private static int positive(String option, String value) {
+        int parsed = integer(option, value);
+        if (parsed < 1) throw new IllegalArgumentException("Expected a positive value: " + option);
+        return parsed;
+    }
+
+    private static int integer(String option, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Expected a number: " + option);
+        }
+    }
+
+    /** @return the number of upload and download threads, null to use the configuration */
+    public Integer getThreads() {
+        return threads;
+    }
+
+    /** @return bytes per second uploaded at most, null to use the configuration */
+    public Integer getBandwidth() {
+        return bandwidthMB == null ? null : (int) Math.min(Integer.MAX_VALUE, bandwidthMB * MB);
+    }
+
+    /** @return bytes per part of multipart uploads, null to use the configuration */
+    public Long getPartSize() {
+        return partSizeMB == null ? null : partSizeMB * MB;
+    }
+
+    public File getCheckpoint() {
+        return checkpoint;
+    }
+
+    /** @return directory holding the backups, null to use the configured remote file system */
+    public File getTarget() {
+        return target;
+    }
+
+    public int getProgressSeconds() {
+        return progressSeconds;
+    }
+
+    /** @return the arguments following the options */
+    public List<String> getArguments() {
+        return arguments;
+    }
+}
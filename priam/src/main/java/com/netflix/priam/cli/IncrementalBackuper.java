@@ -23,13 +23,25 @@ import org.slf4j.LoggerFactory;
 public class IncrementalBackuper {
     private static final Logger logger = LoggerFactory.getLogger(IncrementalBackuper.class);
 
+    static void displayHelp() {
+        System.out.println("Usage: command_name [OPTIONS]");
+        Application.displayOptions();
+    }
+
     public static void main(String[] args) {
         try {
-            Application.initialize();
+            try {
+                Application.initialize(args);
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
+                displayHelp();
+                return;
+            }
             IncrementalBackup backuper =
                     Application.getInjector().getInstance(IncrementalBackup.class);
             try {
                 backuper.execute();
+                Application.complete();
             } catch (Exception e) {
                 logger.error("Unable to backup: ", e);
             }
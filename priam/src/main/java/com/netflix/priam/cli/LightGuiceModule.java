@@ -17,16 +17,32 @@
 package com.netflix.priam.cli;
 
 import com.google.inject.AbstractModule;
+import com.google.inject.name.Names;
 import com.netflix.priam.aws.S3FileSystem;
 import com.netflix.priam.backup.IBackupFileSystem;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.identity.IMembership;
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.spectator.api.Registry;
 
+/** Bindings of the command line tools, overriding those of the Priam module. */
 class LightGuiceModule extends AbstractModule {
+    private final CliOptions options;
+
+    LightGuiceModule(CliOptions options) {
+        this.options = options;
+    }
+
     @Override
     protected void configure() {
-        bind(IConfiguration.class).asEagerSingleton();
+        bind(CliOptions.class).toInstance(options);
+        bind(IConfiguration.class).to(CliConfiguration.class).asEagerSingleton();
         bind(IMembership.class).to(StaticMembership.class);
-        bind(IBackupFileSystem.class).to(S3FileSystem.class);
+        Class<? extends IBackupFileSystem> fs =
+                options.getTarget() == null ? S3FileSystem.class : LocalFileSystem.class;
+        bind(IBackupFileSystem.class).to(fs);
+        bind(IBackupFileSystem.class).annotatedWith(Names.named("backup")).to(fs);
+        // The progress reports read the transfer metrics.
+        bind(Registry.class).toInstance(new DefaultRegistry());
     }
 }
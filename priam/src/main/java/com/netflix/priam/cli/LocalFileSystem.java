@@ -0,0 +1,202 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.cli;
+
+import com.google.common.hash.HashingOutputStream;
+import com.google.common.util.concurrent.RateLimiter;
+import com.netflix.priam.backup.AbstractBackupPath;
+import com.netflix.priam.backup.AbstractFileSystem;
+import com.netflix.priam.backup.BackupRestoreException;
+import com.netflix.priam.compress.CompressionType;
+import com.netflix.priam.config.IConfiguration;
+import com.netflix.priam.merics.BackupMetrics;
+import com.netflix.priam.notification.BackupNotificationMgr;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Backups kept in a local directory, with the same layout as in a bucket: the file of a remote
+ * path is that path under the directory. Files are written to a hidden file first and renamed
+ * once complete, so an interrupted upload never leaves a partial backup file behind.
+ */
+@Singleton
+public class LocalFileSystem extends AbstractFileSystem {
+    private static final String PARTIAL_PREFIX = ".";
+    private final File root;
+    private final IConfiguration config;
+    private final RateLimiter rateLimiter;
+
+    @Inject
+    public LocalFileSystem(
+            IConfiguration config,
+            BackupMetrics backupMetrics,
+            BackupNotificationMgr backupNotificationMgr,
+            Provider<AbstractBackupPath> pathProvider,
+            CliOptions options) {
+        super(config, backupMetrics, backupNotificationMgr, pathProvider);
+        this.config = config;
+        this.root = options.getTarget();
+        double throttleLimit = config.getUploadThrottle();
+        this.rateLimiter = RateLimiter.create(throttleLimit < 1 ? Double.MAX_VALUE : throttleLimit);
+    }
+
+    private File toFile(String remotePath) {
+        return new File(root, remotePath);
+    }
+
+    private String toRemotePath(Path file) {
+        return root.toPath().relativize(file).toString().replace(File.separatorChar, '/');
+    }
+
+    @Override
+    protected void downloadFileImpl(AbstractBackupPath path, String suffix)
+            throws BackupRestoreException {
+        File localFile = new File(path.newRestoreFile().getAbsolutePath() + suffix);
+        try (InputStream is =
+                        new BufferedInputStream(
+                                new FileInputStream(toFile(path.getRemotePath())));
+                HashingOutputStream os =
+                        new HashingOutputStream(
+                                AbstractBackupPath.CHECKSUM_FUNCTION,
+                                new BufferedOutputStream(new FileOutputStream(localFile)))) {
+            if (path.getCompression() == CompressionType.NONE) {
+                IOUtils.copyLarge(is, os);
+            } else {
+                codecs.get(path.getCompression()).decompressAndClose(is, os);
+            }
+            path.verifyChecksum(os.hash());
+        } catch (Exception e) {
+            throw new BackupRestoreException(
+                    "Failed to read " + path.getRemotePath() + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    protected long uploadFileImpl(AbstractBackupPath path, Instant target)
+            throws BackupRestoreException {
+        File remoteFile = toFile(path.getRemotePath());
+        File partial = new File(remoteFile.getParentFile(), PARTIAL_PREFIX + remoteFile.getName());
+        long written = 0;
+        try {
+            Files.createDirectories(remoteFile.getParentFile().toPath());
+            try (InputStream in =
+                            new BufferedInputStream(
+                                    new FileInputStream(path.getBackupFile()));
+                    OutputStream out = new FileOutputStream(partial)) {
+                Iterator<byte[]> chunks =
+                        compressedChunks(in, config.getBackupChunkSize(), path);
+                while (chunks.hasNext()) {
+                    byte[] chunk = nextChunk(chunks, backupMetrics.getCompressChunk());
+                    rateLimiter.acquire(Math.max(1, chunk.length));
+                    out.write(chunk);
+                    written += chunk.length;
+                }
+            }
+            Files.move(
+                    partial.toPath(),
+                    remoteFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            partial.delete();
+            throw new BackupRestoreException("Error uploading file: " + remoteFile, e);
+        }
+        return written;
+    }
+
+    @Override
+    public Iterator<String> listFileSystem(String prefix, String delimiter, String marker) {
+        if (!root.isDirectory()) return Collections.emptyIterator();
+        try (Stream<Path> files = Files.walk(root.toPath())) {
+            Stream<String> remotePaths =
+                    files.filter(Files::isRegularFile)
+                            .filter(file -> !isPartial(file))
+                            .map(this::toRemotePath)
+                            .filter(remotePath -> remotePath.startsWith(prefix));
+            if (delimiter != null)
+                remotePaths =
+                        remotePaths
+                                .map(remotePath -> commonPrefix(remotePath, prefix, delimiter))
+                                .distinct();
+            return remotePaths.sorted().collect(Collectors.toList()).iterator();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to list " + root, e);
+        }
+    }
+
+    private static boolean isPartial(Path file) {
+        return file.getFileName().toString().startsWith(PARTIAL_PREFIX);
+    }
+
+    /** @return the path up to the first delimiter after the prefix, as S3 lists common prefixes */
+    private static String commonPrefix(String remotePath, String prefix, String delimiter) {
+        int end = remotePath.indexOf(delimiter, prefix.length());
+        return end < 0 ? remotePath : remotePath.substring(0, end + delimiter.length());
+    }
+
+    @Override
+    public long getFileSize(String remotePath) throws BackupRestoreException {
+        File file = toFile(remotePath);
+        if (!file.isFile()) throw new BackupRestoreException("No such file: " + file);
+        return file.length();
+    }
+
+    @Override
+    protected boolean doesRemoteFileExist(Path remotePath) {
+        return toFile(remotePath.toString()).isFile();
+    }
+
+    @Override
+    protected void deleteFiles(List<Path> remotePaths) throws BackupRestoreException {
+        for (Path remotePath : remotePaths) {
+            try {
+                Files.deleteIfExists(toFile(remotePath.toString()).toPath());
+            } catch (IOException e) {
+                throw new BackupRestoreException("Unable to delete " + remotePath, e);
+            }
+        }
+    }
+
+    @Override
+    public void cleanup() {
+        // Nothing expires in a local directory.
+    }
+
+    @Override
+    public void shutdown() {
+        // nop
+    }
+}
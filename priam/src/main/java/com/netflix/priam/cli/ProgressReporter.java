@@ -0,0 +1,98 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.cli;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.netflix.priam.backup.IBackupFileSystem;
+import com.netflix.priam.merics.BackupMetrics;
+import com.netflix.spectator.api.DistributionSummary;
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prints how much was transferred so far, and how fast, every few seconds while a command line
+ * tool runs, then the totals when it is closed.
+ */
+class ProgressReporter implements Closeable {
+    private static final double MB = 1024 * 1024;
+    private final BackupMetrics backupMetrics;
+    private final IBackupFileSystem fs;
+    private final ScheduledExecutorService executor;
+    private final long startNanos = System.nanoTime();
+    private long lastNanos = startNanos;
+    private long lastBytes;
+
+    ProgressReporter(BackupMetrics backupMetrics, IBackupFileSystem fs, int periodSeconds) {
+        this.backupMetrics = backupMetrics;
+        this.fs = fs;
+        this.executor =
+                Executors.newSingleThreadScheduledExecutor(
+                        new ThreadFactoryBuilder()
+                                .setDaemon(true)
+                                .setNameFormat("CliProgressReporter")
+                                .build());
+        if (periodSeconds > 0)
+            executor.scheduleAtFixedRate(
+                    this::report, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    private synchronized void report() {
+        long now = System.nanoTime();
+        long bytes = transferredBytes();
+        System.out.println(
+                String.format(
+                        "%s, %.1f MB/s, %d uploads and %d downloads queued",
+                        summary(),
+                        rate(bytes - lastBytes, now - lastNanos),
+                        fs.getUploadTasksQueued(),
+                        fs.getDownloadTasksQueued()));
+        lastNanos = now;
+        lastBytes = bytes;
+    }
+
+    private long transferredBytes() {
+        return backupMetrics.getUploadRate().totalAmount()
+                + backupMetrics.getDownloadRate().totalAmount();
+    }
+
+    private String summary() {
+        DistributionSummary uploads = backupMetrics.getUploadRate();
+        DistributionSummary downloads = backupMetrics.getDownloadRate();
+        return String.format(
+                "Uploaded %d files (%.1f MB), downloaded %d files (%.1f MB)",
+                uploads.count(),
+                uploads.totalAmount() / MB,
+                downloads.count(),
+                downloads.totalAmount() / MB);
+    }
+
+    private static double rate(long bytes, long nanos) {
+        return nanos <= 0 ? 0 : bytes / MB / (nanos / 1e9);
+    }
+
+    @Override
+    public synchronized void close() {
+        executor.shutdownNow();
+        System.out.println(
+                String.format(
+                        "%s, %.1f MB/s on average",
+                        summary(),
+                        rate(transferredBytes(), System.nanoTime() - startNanos)));
+    }
+}
@@ -19,6 +19,7 @@ package com.netflix.priam.cli;
 import com.netflix.priam.restore.Restore;
 import com.netflix.priam.utils.DateUtil;
 import java.time.Instant;
+import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,23 +27,33 @@ public class Restorer {
     private static final Logger logger = LoggerFactory.getLogger(Restorer.class);
 
     static void displayHelp() {
-        System.out.println("Usage: command_name FROM_DATE TO_DATE");
+        System.out.println("Usage: command_name [OPTIONS] FROM_DATE TO_DATE");
+        Application.displayOptions();
     }
 
     public static void main(String[] args) {
         try {
-            Application.initialize();
+            List<String> arguments;
+            try {
+                arguments = Application.initialize(args);
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
+                displayHelp();
+                return;
+            }
             Instant startTime, endTime;
-            if (args.length < 2) {
+            if (arguments.size() < 2) {
                 displayHelp();
                 return;
             }
-            startTime = DateUtil.parseInstant(args[0]);
-            endTime = DateUtil.parseInstant(args[1]);
+            startTime = DateUtil.parseInstant(arguments.get(0));
+            endTime = DateUtil.parseInstant(arguments.get(1));
 
             Restore restorer = Application.getInjector().getInstance(Restore.class);
             try {
-                restorer.restore(new DateUtil.DateRange(startTime, endTime));
+                restorer.restore(
+                        new DateUtil.DateRange(startTime, endTime), Application.isResuming());
+                Application.complete();
             } catch (Exception e) {
                 logger.error("Unable to restore: ", e);
             }
@@ -116,10 +116,11 @@ public class Compaction extends IClusterManagement<String> {
         final Map<String, List<String>> columnfamilies = getCompactionFilterCfs(config);
 
         if (!columnfamilies.isEmpty())
-            for (Map.Entry<String, List<String>> entry : columnfamilies.entrySet()) {
-                cassandraOperations.forceKeyspaceCompaction(
-                        entry.getKey(), entry.getValue().toArray(new String[0]));
-            }
+            runOnKeyspaces(
+                    columnfamilies.keySet(),
+                    keyspace ->
+                            cassandraOperations.forceKeyspaceCompaction(
+                                    keyspace, columnfamilies.get(keyspace).toArray(new String[0])));
 
         return columnfamilies.toString();
     }
@@ -18,10 +18,9 @@ import com.netflix.priam.connection.CassandraOperations;
 import com.netflix.priam.merics.NodeToolFlushMeasurement;
 import com.netflix.priam.scheduler.CronTimer;
 import com.netflix.priam.scheduler.TaskTimer;
-import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import org.apache.commons.lang3.StringUtils;
@@ -35,7 +34,6 @@ public class Flush extends IClusterManagement<String> {
 
     private final IConfiguration config;
     private final CassandraOperations cassandraOperations;
-    private List<String> keyspaces = new ArrayList<>();
 
     @Inject
     public Flush(
@@ -52,53 +50,43 @@ public class Flush extends IClusterManagement<String> {
      * @return the keyspace(s) flushed.  List can be empty but never null.
      */
     protected String runTask() throws Exception {
-        List<String> flushed = new ArrayList<>();
-
         // Get keyspaces to flush
-        deriveKeyspaces();
+        List<String> keyspaces = deriveKeyspaces();
 
-        if (this.keyspaces == null || this.keyspaces.isEmpty()) {
+        if (keyspaces == null || keyspaces.isEmpty()) {
             logger.warn("NO op on requested \"flush\" as there are no keyspaces.");
-            return flushed.toString();
+            return new ArrayList<String>().toString();
         }
 
         // If flush is for certain keyspaces, validate keyspace exist
+        List<String> existingKeyspaces = cassandraOperations.getKeyspaces();
+        List<String> toFlush = new ArrayList<>();
         for (String keyspace : keyspaces) {
-            if (!cassandraOperations.getKeyspaces().contains(keyspace)) {
+            if (!existingKeyspaces.contains(keyspace)) {
                 throw new IllegalArgumentException("Keyspace [" + keyspace + "] does not exist.");
             }
 
             if (SchemaConstant.isSystemKeyspace(keyspace)) // no need to flush system keyspaces.
             continue;
 
-            try {
-                cassandraOperations.forceKeyspaceFlush(keyspace);
-                flushed.add(keyspace);
-            } catch (IOException | ExecutionException | InterruptedException e) {
-                throw new Exception("Exception during flushing keyspace: " + keyspace, e);
-            }
+            toFlush.add(keyspace);
         }
 
-        return flushed.toString();
+        return runOnKeyspaces(toFlush, cassandraOperations::forceKeyspaceFlush).toString();
     }
 
     /*
     Derive keyspace(s) to flush in the following order:  explicit list provided by caller, property, or all keyspaces.
      */
-    private void deriveKeyspaces() throws Exception {
+    private List<String> deriveKeyspaces() throws Exception {
         // == get value from property
         String raw = this.config.getFlushKeyspaces();
         if (!StringUtils.isEmpty(raw)) {
-            String k[] = raw.split(",");
-            for (int i = 0; i < k.length; i++) {
-                this.keyspaces.add(i, k[i]);
-            }
-
-            return;
+            return Arrays.asList(raw.split(","));
         }
 
         // == no override via FP, default to all keyspaces
-        this.keyspaces = cassandraOperations.getKeyspaces();
+        return cassandraOperations.getKeyspaces();
     }
 
     /**
@@ -13,12 +13,33 @@
  */
 package com.netflix.priam.cluster.management;
 
+import com.google.common.base.Stopwatch;
+import com.netflix.priam.backup.AbstractBackup;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.health.CassandraMonitor;
 import com.netflix.priam.merics.IMeasurement;
+import com.netflix.priam.scheduler.NamedThreadPoolExecutor;
 import com.netflix.priam.scheduler.Task;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,12 +51,14 @@ public abstract class IClusterManagement<T> extends Task {
     }
 
     private static final Logger logger = LoggerFactory.getLogger(IClusterManagement.class);
+    private final IConfiguration config;
     private final Task taskType;
     private final IMeasurement measurement;
     private static final Lock lock = new ReentrantLock();
 
     protected IClusterManagement(IConfiguration config, Task taskType, IMeasurement measurement) {
         super(config);
+        this.config = config;
         this.taskType = taskType;
         this.measurement = measurement;
     }
@@ -77,4 +100,137 @@ public abstract class IClusterManagement<T> extends Task {
     }
 
     protected abstract String runTask() throws Exception;
+
+    /** An operation on a single keyspace. */
+    protected interface KeyspaceOperation {
+        void run(String keyspace) throws Exception;
+    }
+
+    /**
+     * Run {@code operation} on every keyspace, {@link
+     * IConfiguration#getKeyspaceOperationConcurrency()} keyspaces at a time. With more than one at
+     * a time, the keyspaces taking most space on disk are started first so that the largest one
+     * does not end up running alone at the end. The duration of every keyspace is recorded, and
+     * an operation running longer than {@link IConfiguration#getKeyspaceOperationTimeoutInSecs()}
+     * is reported as failed.
+     *
+     * @param keyspaces the keyspaces to operate on.
+     * @param operation the operation to run on every keyspace.
+     * @return the keyspaces on which the operation succeeded, in the order they were started.
+     * @throws Exception if the operation failed on any keyspace, once all keyspaces are done.
+     */
+    protected List<String> runOnKeyspaces(
+            Collection<String> keyspaces, KeyspaceOperation operation) throws Exception {
+        int concurrency = Math.max(1, config.getKeyspaceOperationConcurrency());
+        List<String> ordered = new ArrayList<>(keyspaces);
+        if (concurrency > 1 && ordered.size() > 1) {
+            Map<String, Long> sizes = new HashMap<>();
+            ordered.forEach(keyspace -> sizes.put(keyspace, getKeyspaceSize(keyspace)));
+            ordered.sort(Comparator.comparing((String keyspace) -> sizes.get(keyspace)).reversed());
+            logger.info("{} keyspaces by size on disk: {}", taskType, sizes);
+        }
+
+        Map<String, Long> startTimes = new ConcurrentHashMap<>();
+        Map<String, Future<?>> futures = new LinkedHashMap<>();
+        ExecutorService executor =
+                new NamedThreadPoolExecutor(concurrency, taskType.name().toLowerCase());
+        try {
+            for (String keyspace : ordered) {
+                futures.put(
+                        keyspace,
+                        executor.submit(
+                                () -> {
+                                    startTimes.put(keyspace, System.currentTimeMillis());
+                                    Stopwatch stopwatch = Stopwatch.createStarted();
+                                    operation.run(keyspace);
+                                    long elapsed = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+                                    measurement.recordKeyspaceDuration(keyspace, elapsed);
+                                    logger.info(
+                                            "{} of keyspace {} took {} ms",
+                                            taskType,
+                                            keyspace,
+                                            elapsed);
+                                    return null;
+                                }));
+            }
+
+            List<String> succeeded = new ArrayList<>();
+            Map<String, Throwable> failed = new LinkedHashMap<>();
+            for (Map.Entry<String, Future<?>> entry : futures.entrySet()) {
+                try {
+                    await(entry.getKey(), entry.getValue(), startTimes);
+                    succeeded.add(entry.getKey());
+                } catch (ExecutionException e) {
+                    failed.put(entry.getKey(), e.getCause());
+                } catch (TimeoutException e) {
+                    entry.getValue().cancel(true);
+                    failed.put(entry.getKey(), e);
+                }
+            }
+            if (!failed.isEmpty()) {
+                failed.forEach(
+                        (keyspace, e) ->
+                                logger.error("{} of keyspace {} failed", taskType, keyspace, e));
+                throw new Exception(
+                        "Exception during " + taskType + " of keyspace(s): " + failed.keySet(),
+                        failed.values().iterator().next());
+            }
+            return succeeded;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Wait for the operation on a keyspace. The timeout counts from the moment the operation
+     * started rather than from when it was queued.
+     */
+    private void await(String keyspace, Future<?> future, Map<String, Long> startTimes)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        long timeoutMs = TimeUnit.SECONDS.toMillis(config.getKeyspaceOperationTimeoutInSecs());
+        if (timeoutMs <= 0) {
+            future.get();
+            return;
+        }
+        while (true) {
+            Long startTime = startTimes.get(keyspace);
+            long remaining =
+                    startTime == null
+                            ? timeoutMs
+                            : startTime + timeoutMs - System.currentTimeMillis();
+            if (remaining <= 0)
+                throw new TimeoutException(
+                        taskType + " of keyspace " + keyspace + " did not finish in time");
+            try {
+                future.get(remaining, TimeUnit.MILLISECONDS);
+                return;
+            } catch (TimeoutException e) {
+                // Check again against the actual start time of the operation.
+            }
+        }
+    }
+
+    /** @return bytes taken by live sstables of the keyspace, excluding snapshots and backups. */
+    private long getKeyspaceSize(String keyspace) {
+        Path location = Paths.get(config.getDataFileLocation(), keyspace);
+        if (!Files.isDirectory(location)) return 0;
+        try (Stream<Path> files = Files.walk(location)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(file -> !isSnapshotOrBackup(location.relativize(file)))
+                    .mapToLong(file -> file.toFile().length())
+                    .sum();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Unable to size keyspace {}", keyspace, e);
+            return 0;
+        }
+    }
+
+    private static boolean isSnapshotOrBackup(Path relativePath) {
+        for (Path part : relativePath) {
+            if (part.toString().equals(AbstractBackup.SNAPSHOT_FOLDER)
+                    || part.toString().equals("backups"))
+                return true;
+        }
+        return false;
+    }
 }
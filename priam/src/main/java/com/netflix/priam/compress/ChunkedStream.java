@@ -19,31 +19,45 @@ package com.netflix.priam.compress;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Iterator;
 import org.apache.commons.io.IOUtils;
-import org.xerial.snappy.SnappyOutputStream;
 
-/** Byte iterator representing compressed data. Uses snappy compression */
+/** Byte iterator representing compressed data, compressed with one of {@link CompressionType} */
 public class ChunkedStream implements Iterator<byte[]> {
     private static final int BYTES_TO_READ = 2048;
 
     private boolean hasnext = true;
     private final ByteArrayOutputStream bos;
-    private final SnappyOutputStream snappy;
+    // Stream compressing to bos, bos itself if there is no compression.
+    private final OutputStream compressed;
     private final InputStream origin;
     private final long chunkSize;
-    private final CompressionType compression;
 
     public ChunkedStream(InputStream is, long chunkSize) {
         this(is, chunkSize, CompressionType.NONE);
     }
 
+    /** Compress with the default level of the compression. */
     public ChunkedStream(InputStream is, long chunkSize, CompressionType compression) {
+        this(
+                is,
+                chunkSize,
+                compression == CompressionType.NONE
+                        ? null
+                        : CompressionCodecs.withDefaultLevels().get(compression));
+    }
+
+    /** @param codec compression of the data, null for no compression */
+    public ChunkedStream(InputStream is, long chunkSize, ICompression codec) {
         this.origin = is;
         this.bos = new ByteArrayOutputStream();
-        this.snappy = new SnappyOutputStream(bos);
+        try {
+            this.compressed = codec == null ? bos : codec.compress(bos);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
         this.chunkSize = chunkSize;
-        this.compression = compression;
     }
 
     @Override
@@ -57,16 +71,7 @@ public class ChunkedStream implements Iterator<byte[]> {
             byte data[] = new byte[BYTES_TO_READ];
             int count;
             while ((count = origin.read(data, 0, data.length)) != -1) {
-                switch (compression) {
-                    case NONE:
-                        bos.write(data, 0, count);
-                        break;
-                    case SNAPPY:
-                        snappy.write(data, 0, count);
-                        break;
-                    default:
-                        throw new IllegalArgumentException("Snappy compression only.");
-                }
+                compressed.write(data, 0, count);
                 if (bos.size() >= chunkSize) return returnSafe();
             }
             // We don't have anything else to read hence set to false.
@@ -77,10 +82,10 @@ public class ChunkedStream implements Iterator<byte[]> {
     }
 
     private byte[] done() throws IOException {
-        if (compression == CompressionType.SNAPPY) snappy.flush();
+        // Closing the compressed stream writes the end of the compressed data.
+        compressed.close();
         byte[] return_ = bos.toByteArray();
         hasnext = false;
-        IOUtils.closeQuietly(snappy);
         IOUtils.closeQuietly(bos);
         IOUtils.closeQuietly(origin);
         return return_;
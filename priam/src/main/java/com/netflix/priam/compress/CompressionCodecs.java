@@ -0,0 +1,61 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.compress;
+
+import com.netflix.priam.config.IConfiguration;
+import java.util.EnumMap;
+import java.util.Map;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * The {@link ICompression} of each {@link CompressionType}, at the levels of the configuration.
+ * Files are decompressed with the codec of the compression recorded in their remote path.
+ */
+@Singleton
+public class CompressionCodecs {
+    static final int DEFAULT_LZ4_LEVEL = 0;
+    static final int DEFAULT_ZSTD_LEVEL = 3;
+
+    private final Map<CompressionType, ICompression> codecs = new EnumMap<>(CompressionType.class);
+
+    @Inject
+    public CompressionCodecs(IConfiguration config) {
+        this(config.getLz4CompressionLevel(), config.getZstdCompressionLevel());
+    }
+
+    private CompressionCodecs(int lz4Level, int zstdLevel) {
+        codecs.put(CompressionType.SNAPPY, new SnappyCompression());
+        codecs.put(CompressionType.LZ4, new Lz4Compression(lz4Level));
+        codecs.put(CompressionType.ZSTD, new ZstdCompression(zstdLevel));
+    }
+
+    /** @return codecs at their default levels, e.g. to decompress, where the level is unused. */
+    public static CompressionCodecs withDefaultLevels() {
+        return new CompressionCodecs(DEFAULT_LZ4_LEVEL, DEFAULT_ZSTD_LEVEL);
+    }
+
+    /**
+     * @return the codec of the compression
+     * @throws IllegalArgumentException for {@link CompressionType#NONE}
+     */
+    public ICompression get(CompressionType compression) {
+        ICompression codec = codecs.get(compression);
+        if (codec == null) throw new IllegalArgumentException("No codec for " + compression);
+        return codec;
+    }
+}
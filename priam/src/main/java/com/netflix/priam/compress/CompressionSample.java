@@ -0,0 +1,71 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.compress;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/** Compression ratio and time measured by compressing the beginning of a file. */
+public class CompressionSample {
+    private final long inputBytes;
+    private final long outputBytes;
+    private final long nanos;
+
+    CompressionSample(long inputBytes, long outputBytes, long nanos) {
+        this.inputBytes = inputBytes;
+        this.outputBytes = outputBytes;
+        this.nanos = nanos;
+    }
+
+    /** Compress up to {@code sampleBytes} of the beginning of the file with the codec. */
+    public static CompressionSample of(File file, ICompression codec, int sampleBytes)
+            throws IOException {
+        byte[] sample = new byte[(int) Math.min(sampleBytes, file.length())];
+        int length;
+        try (InputStream in = new FileInputStream(file)) {
+            length = ByteStreams.read(in, sample, 0, sample.length);
+        }
+        long start = System.nanoTime();
+        CountingOutputStream counting = new CountingOutputStream(ByteStreams.nullOutputStream());
+        try (OutputStream out = codec.compress(counting)) {
+            out.write(sample, 0, length);
+        }
+        return new CompressionSample(length, counting.getCount(), System.nanoTime() - start);
+    }
+
+    /** @return uncompressed size divided by compressed size, 1 if nothing was sampled. */
+    public double getRatio() {
+        return inputBytes == 0 || outputBytes == 0 ? 1.0 : (double) inputBytes / outputBytes;
+    }
+
+    public long getInputBytes() {
+        return inputBytes;
+    }
+
+    public long getOutputBytes() {
+        return outputBytes;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+}
@@ -3,5 +3,6 @@ package com.netflix.priam.compress;
 public enum CompressionType {
     SNAPPY,
     LZ4,
+    ZSTD,
     NONE
 }
@@ -29,4 +29,10 @@ public interface ICompression {
      * streams
      */
     void decompressAndClose(InputStream input, OutputStream output) throws IOException;
+
+    /**
+     * @return a stream compressing what is written to it to the output stream. Closing it writes
+     *     the end of the compressed data and closes the output stream.
+     */
+    OutputStream compress(OutputStream output) throws IOException;
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.compress;
+
+import java.io.*;
+import net.jpountz.lz4.LZ4BlockInputStream;
+import net.jpountz.lz4.LZ4BlockOutputStream;
+import net.jpountz.lz4.LZ4Factory;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * LZ4 compression in the block format of lz4-java. Level 0 uses the fast compressor, any higher
+ * level the high compression one (LZ4 HC), which is slower to compress but as fast to decompress.
+ */
+public class Lz4Compression implements ICompression {
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final int BUFFER = 64 * 1024;
+    private static final LZ4Factory FACTORY = LZ4Factory.fastestInstance();
+
+    private final int level;
+
+    public Lz4Compression(int level) {
+        this.level = level;
+    }
+
+    @Override
+    public void decompressAndClose(InputStream input, OutputStream output) throws IOException {
+        try (BufferedOutputStream dest = new BufferedOutputStream(output, BUFFER);
+                LZ4BlockInputStream is =
+                        new LZ4BlockInputStream(
+                                new BufferedInputStream(input, BUFFER),
+                                FACTORY.fastDecompressor())) {
+            byte data[] = new byte[BUFFER];
+            int c;
+            while ((c = is.read(data, 0, BUFFER)) != -1) {
+                dest.write(data, 0, c);
+            }
+        } finally {
+            IOUtils.closeQuietly(input);
+            IOUtils.closeQuietly(output);
+        }
+    }
+
+    @Override
+    public OutputStream compress(OutputStream output) {
+        return new LZ4BlockOutputStream(
+                output,
+                BLOCK_SIZE,
+                level > 0 ? FACTORY.highCompressor() : FACTORY.fastCompressor());
+    }
+}
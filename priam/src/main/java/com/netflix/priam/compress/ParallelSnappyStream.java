@@ -0,0 +1,147 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.compress;
+
+import com.google.common.io.ByteStreams;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.apache.commons.io.IOUtils;
+import org.xerial.snappy.Snappy;
+import org.xerial.snappy.SnappyOutputStream;
+
+/**
+ * Byte iterator representing Snappy compressed data, like {@link ChunkedStream}, where the input
+ * is compressed in batches on an executor, up to {@code parallelism} batches ahead of the chunk
+ * returned. A batch is compressed in blocks of the same size as {@link SnappyOutputStream} does,
+ * and the blocks are framed the same way, so the output is the same as that of {@link
+ * ChunkedStream} and is read by {@link SnappyCompression}.
+ */
+public class ParallelSnappyStream implements Iterator<byte[]> {
+    // SnappyOutputStream.DEFAULT_BLOCK_SIZE
+    private static final int BLOCK_SIZE = 32 * 1024;
+    private static final int BATCH_SIZE = 128 * BLOCK_SIZE;
+    private static final byte[] HEADER = header();
+
+    private boolean hasnext = true;
+    private boolean eof;
+    private final ByteArrayOutputStream bos;
+    private final InputStream origin;
+    private final long chunkSize;
+    private final ExecutorService executor;
+    private final int parallelism;
+    private final Deque<Future<byte[]>> inFlight = new ArrayDeque<>();
+
+    public ParallelSnappyStream(
+            InputStream is, long chunkSize, ExecutorService executor, int parallelism) {
+        this.origin = is;
+        this.bos = new ByteArrayOutputStream();
+        this.chunkSize = chunkSize;
+        this.executor = executor;
+        this.parallelism = Math.max(1, parallelism);
+        this.bos.write(HEADER, 0, HEADER.length);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return hasnext;
+    }
+
+    @Override
+    public byte[] next() {
+        if (!hasnext) throw new NoSuchElementException();
+        try {
+            while (true) {
+                while (!eof && inFlight.size() < parallelism) submitBatch();
+                if (inFlight.isEmpty()) return done();
+                byte[] compressed = inFlight.removeFirst().get();
+                bos.write(compressed, 0, compressed.length);
+                if (bos.size() >= chunkSize) return returnSafe();
+            }
+        } catch (Exception e) {
+            inFlight.forEach(future -> future.cancel(true));
+            inFlight.clear();
+            hasnext = false;
+            IOUtils.closeQuietly(origin);
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void submitBatch() throws IOException {
+        byte[] batch = new byte[BATCH_SIZE];
+        int length = ByteStreams.read(origin, batch, 0, batch.length);
+        if (length < batch.length) eof = true;
+        if (length > 0) inFlight.addLast(executor.submit(() -> compress(batch, length)));
+    }
+
+    /** Compress in blocks, each preceded by its compressed length as SnappyOutputStream does. */
+    static byte[] compress(byte[] input, int length) throws IOException {
+        int blocks = (length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        byte[] output = new byte[blocks * (4 + Snappy.maxCompressedLength(BLOCK_SIZE))];
+        int outputCursor = 0;
+        for (int offset = 0; offset < length; offset += BLOCK_SIZE) {
+            int compressed =
+                    Snappy.compress(
+                            input,
+                            offset,
+                            Math.min(BLOCK_SIZE, length - offset),
+                            output,
+                            outputCursor + 4);
+            output[outputCursor] = (byte) (compressed >>> 24);
+            output[outputCursor + 1] = (byte) (compressed >>> 16);
+            output[outputCursor + 2] = (byte) (compressed >>> 8);
+            output[outputCursor + 3] = (byte) compressed;
+            outputCursor += 4 + compressed;
+        }
+        return Arrays.copyOf(output, outputCursor);
+    }
+
+    private static byte[] header() {
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        try {
+            // An empty stream is only the header.
+            new SnappyOutputStream(header).close();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to write the Snappy header", e);
+        }
+        return header.toByteArray();
+    }
+
+    private byte[] done() {
+        byte[] return_ = bos.toByteArray();
+        hasnext = false;
+        IOUtils.closeQuietly(bos);
+        IOUtils.closeQuietly(origin);
+        return return_;
+    }
+
+    private byte[] returnSafe() {
+        byte[] return_ = bos.toByteArray();
+        bos.reset();
+        return return_;
+    }
+
+    @Override
+    public void remove() {}
+}
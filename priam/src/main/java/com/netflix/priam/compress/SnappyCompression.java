@@ -19,6 +19,7 @@ package com.netflix.priam.compress;
 import java.io.*;
 import org.apache.commons.io.IOUtils;
 import org.xerial.snappy.SnappyInputStream;
+import org.xerial.snappy.SnappyOutputStream;
 
 /** Class to generate compressed chunks of data from an input stream using SnappyCompression */
 public class SnappyCompression implements ICompression {
@@ -34,6 +35,11 @@ public class SnappyCompression implements ICompression {
         }
     }
 
+    @Override
+    public OutputStream compress(OutputStream output) {
+        return new SnappyOutputStream(output);
+    }
+
     private void decompress(InputStream input, OutputStream output) throws IOException {
         byte data[] = new byte[BUFFER];
         try (BufferedOutputStream dest1 = new BufferedOutputStream(output, BUFFER);
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.compress;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import java.io.*;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Zstandard compression in the standard frame format, at a level from 1 (fastest) to 22
+ * (smallest). The level only affects compression; decompression is about as fast at any level.
+ */
+public class ZstdCompression implements ICompression {
+    private static final int BUFFER = 128 * 1024;
+
+    private final int level;
+
+    public ZstdCompression(int level) {
+        this.level = level;
+    }
+
+    @Override
+    public void decompressAndClose(InputStream input, OutputStream output) throws IOException {
+        try (BufferedOutputStream dest = new BufferedOutputStream(output, BUFFER);
+                ZstdInputStream is = new ZstdInputStream(new BufferedInputStream(input, BUFFER))) {
+            byte data[] = new byte[BUFFER];
+            int c;
+            while ((c = is.read(data, 0, BUFFER)) != -1) {
+                dest.write(data, 0, c);
+            }
+        } finally {
+            IOUtils.closeQuietly(input);
+            IOUtils.closeQuietly(output);
+        }
+    }
+
+    @Override
+    public OutputStream compress(OutputStream output) throws IOException {
+        return new ZstdOutputStream(output, level);
+    }
+}
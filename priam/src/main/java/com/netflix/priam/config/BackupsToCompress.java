@@ -3,5 +3,7 @@ package com.netflix.priam.config;
 public enum BackupsToCompress {
     ALL,
     IF_REQUIRED,
+    /** Compress a file unless compressing its beginning does not reach the minimum ratio. */
+    ADAPTIVE,
     NONE
 }
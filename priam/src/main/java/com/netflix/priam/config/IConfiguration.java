@@ -20,6 +20,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableSet;
 import com.google.inject.ImplementedBy;
+import com.netflix.priam.compress.CompressionType;
 import com.netflix.priam.scheduler.UnsupportedTypeException;
 import com.netflix.priam.tuner.GCType;
 import java.io.File;
@@ -63,7 +64,7 @@ public interface IConfiguration {
 
     /**
      * @return Type of garbage collection mechanism to use for Cassandra. Supported values are
-     *     CMS,G1GC
+     *     CMS,G1GC,ZGC,SHENANDOAH
      */
     default GCType getGCType() throws UnsupportedTypeException {
         return GCType.CMS;
@@ -192,6 +193,14 @@ public interface IConfiguration {
         return 10 * 1024 * 1024L;
     }
 
+    /**
+     * @return number of threads compressing the data of the files being uploaded, shared by all
+     *     uploads. With 1, each file is compressed on the thread uploading it.
+     */
+    default int getBackupCompressionThreads() {
+        return 1;
+    }
+
     /** @return Cassandra's JMX port */
     default int getJmxPort() {
         return 7199;
@@ -254,6 +263,15 @@ public interface IConfiguration {
         return "2G";
     }
 
+    /**
+     * @return true if heap sizes, thread pools, cache sizes and throughputs should be derived from
+     *     the cores, memory and disk type detected on the instance instead of the configured
+     *     values. See {@link com.netflix.priam.tuner.TuningProfile}.
+     */
+    default boolean isAutoTuneEnabled() {
+        return false;
+    }
+
     /**
      * Cron expression to be used to schedule regular compactions. Use "-1" to disable the CRON.
      * Default: -1
@@ -415,6 +433,24 @@ public interface IConfiguration {
         return "us-east-1";
     }
 
+    /**
+     * @return How long in milliseconds a copy of the token database is served from memory while
+     *     acquiring a token, before it is refreshed with the rows that changed since. 0 disables
+     *     the cache.
+     */
+    default long getTokenDatabaseCacheTtlInMs() {
+        return 5000L;
+    }
+
+    /**
+     * @return Interval in milliseconds at which the in-memory copy of the token database is fully
+     *     reloaded instead of refreshed with the changed rows only. Full loads are needed to drop
+     *     deregistered nodes.
+     */
+    default long getTokenDatabaseFullRefreshIntervalInMs() {
+        return 60000L;
+    }
+
     /** @return true if it is a multi regional cluster */
     default boolean isMultiDC() {
         return false;
@@ -605,6 +641,14 @@ public interface IConfiguration {
         return 10;
     }
 
+    /**
+     * @return number of archived commit log segments uploaded at the same time, separately from
+     *     {@link #getBackupThreads()}.
+     */
+    default int getCommitLogBackupThreads() {
+        return 4;
+    }
+
     default boolean isClientSslEnabled() {
         return false;
     }
@@ -703,6 +747,14 @@ public interface IConfiguration {
         return false;
     }
 
+    /**
+     * @return true to encrypt backups as segments of the size of a multipart upload part, which
+     *     are encrypted in parallel, instead of as a single stream. Restore reads either format.
+     */
+    default boolean isEncryptBackupSegmented() {
+        return false;
+    }
+
     /**
      * Data that needs to be restored is encrypted?
      *
@@ -763,6 +815,15 @@ public interface IConfiguration {
         return StringUtils.EMPTY;
     }
 
+    /**
+     * @return symmetric cipher used by PGP cryptography to encrypt the backup files, CAST5 or
+     *     AES_256. Backups are decrypted with the cipher recorded in them, so that backups taken
+     *     with either one can be restored after a change.
+     */
+    default String getPgpSymmetricAlgorithm() {
+        return "CAST5";
+    }
+
     /**
      * Use this method for adding extra/ dynamic cassandra startup options or env properties
      *
@@ -860,6 +921,66 @@ public interface IConfiguration {
         return (10 * 60 * 60 * 1000L); // 10 minutes.
     }
 
+    /**
+     * The streaming list endpoints of the backup REST API stop after this long and return a marker
+     * to continue the listing from.
+     *
+     * @return server side timeout for a streaming backup listing in seconds.
+     */
+    default int getBackupListingTimeoutInSecs() {
+        return 300;
+    }
+
+    /**
+     * A listing of backups over several days lists each day separately. File systems which can,
+     * like Google Cloud Storage, list this many of the days at the same time.
+     *
+     * @return number of prefixes of a backup listing which are listed at the same time.
+     */
+    default int getBackupListingThreads() {
+        return 4;
+    }
+
+    /**
+     * Valid backup verification results are reused for this long before the meta file is verified
+     * again. 0 verifies every time.
+     *
+     * @return time in seconds a valid backup verification result stays fresh.
+     */
+    default int getBackupVerificationCacheTtlInSecs() {
+        return 900;
+    }
+
+    /**
+     * Invalid backup verification results, e.g. of a backup still uploading, are reused for this
+     * long, so that callers checking on the same backup do not each read its meta file.
+     *
+     * @return time in seconds an invalid backup verification result stays fresh.
+     */
+    default int getBackupVerificationInvalidCacheTtlInSecs() {
+        return 60;
+    }
+
+    /**
+     * A forced backup verification only reuses a result at most this old. 0 always verifies.
+     *
+     * @return time in seconds a backup verification result is fresh for forced verifications.
+     */
+    default int getBackupVerificationForcedMaxAgeInSecs() {
+        return 30;
+    }
+
+    /**
+     * Verifying a V2 backup only checks the components which were not in the last meta file found
+     * valid. Every so often all of the components are checked again, to notice ones that went
+     * missing since. 0 checks all of them every time.
+     *
+     * @return hours between verifications checking all the components of a meta file.
+     */
+    default int getBackupVerificationFullIntervalInHours() {
+        return 168;
+    }
+
     /** @return tombstone_warn_threshold in C* yaml */
     default int getTombstoneWarnThreshold() {
         return 1000;
@@ -875,6 +996,27 @@ public interface IConfiguration {
         return 86400000;
     }
 
+    /**
+     * Number of keyspaces that flush and compaction work on at the same time. When more than one,
+     * the keyspaces taking most space on disk are started first. Default: 1, i.e. one keyspace at
+     * a time.
+     *
+     * @return the number of keyspaces to flush or compact concurrently.
+     */
+    default int getKeyspaceOperationConcurrency() {
+        return 1;
+    }
+
+    /**
+     * How long a flush or compaction of a single keyspace may take before it is reported as failed.
+     * Note that Cassandra is not asked to stop the operation. Default: 0, i.e. no timeout.
+     *
+     * @return timeout in seconds of a flush or compaction of one keyspace.
+     */
+    default int getKeyspaceOperationTimeoutInSecs() {
+        return 0;
+    }
+
     /**
      * List of keyspaces to flush. Default: all keyspaces.
      *
@@ -985,7 +1127,8 @@ public interface IConfiguration {
     }
 
     /**
-     * Heartbeat check frequency (in ms) for post restore hook
+     * Heartbeat check frequency (in ms) for post restore hook. Modifications of the heartbeat file
+     * are seen as they happen, this is for file systems which do not report them.
      *
      * @return heart beat check frequency for post restore hook
      */
@@ -993,6 +1136,16 @@ public interface IConfiguration {
         return 120000;
     }
 
+    /**
+     * Maximum wait (in ms) before restarting post restore hook. The wait starts at a second and
+     * doubles with each restart.
+     *
+     * @return maximum backoff between restarts of post restore hook
+     */
+    default long getPostRestoreHookMaxRestartBackoffInMs() {
+        return 60000;
+    }
+
     /**
      * Grace period in days for the file that 'could' be output of a long-running compaction job.
      * Note that cassandra creates output of the compaction as non-tmp-link files (whole SSTable)
@@ -1126,12 +1279,49 @@ public interface IConfiguration {
 
     /**
      * @return BackupsToCompress UNCOMPRESSED means compress backups only when the files are not
-     *     already compressed by Cassandra
+     *     already compressed by Cassandra. ADAPTIVE compresses the beginning of each file and
+     *     uploads it uncompressed if the ratio is below {@link #getMinCompressionRatio()}.
      */
     default BackupsToCompress getBackupsToCompress() {
         return BackupsToCompress.ALL;
     }
 
+    /**
+     * @return compression of the files of backup V2.0 which {@link #getBackupsToCompress()}
+     *     compresses. The compression is part of the remote path, so that restore decompresses
+     *     each file with what it was compressed with. Other files are always compressed with
+     *     SNAPPY.
+     */
+    default CompressionType getBackupCompressionType() {
+        return CompressionType.SNAPPY;
+    }
+
+    /**
+     * @return LZ4 compression level, 0 for the fast compressor and above 0 for the high
+     *     compression one (LZ4 HC).
+     */
+    default int getLz4CompressionLevel() {
+        return 0;
+    }
+
+    /** @return Zstandard compression level, from 1 (fastest) to 22 (smallest). */
+    default int getZstdCompressionLevel() {
+        return 3;
+    }
+
+    /** @return bytes at the beginning of a file compressed to decide if ADAPTIVE compresses it. */
+    default int getCompressionSampleBytes() {
+        return 4 * 1024 * 1024;
+    }
+
+    /**
+     * @return uncompressed size divided by compressed size of the sample under which ADAPTIVE
+     *     uploads a file uncompressed, e.g. a Data.db which Cassandra already compressed.
+     */
+    default double getMinCompressionRatio() {
+        return 1.1;
+    }
+
     /*
      * @return true if Priam should skip ingress on an IP address from the token database unless it
      *     can confirm that it is public
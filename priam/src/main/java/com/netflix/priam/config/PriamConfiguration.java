@@ -17,6 +17,7 @@
 package com.netflix.priam.config;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.netflix.priam.compress.CompressionType;
 import com.netflix.priam.configSource.IConfigSource;
 import com.netflix.priam.identity.config.InstanceInfo;
 import com.netflix.priam.scheduler.UnsupportedTypeException;
@@ -135,6 +136,11 @@ public class PriamConfiguration implements IConfiguration {
         return size * 1024 * 1024L;
     }
 
+    @Override
+    public int getBackupCompressionThreads() {
+        return config.get(PRIAM_PRE + ".backup.compression.threads", 1);
+    }
+
     @Override
     public int getJmxPort() {
         return config.get(PRIAM_PRE + ".jmx.port", 7199);
@@ -201,6 +207,11 @@ public class PriamConfiguration implements IConfiguration {
                 (PRIAM_PRE + ".heap.newgen.size.") + instanceInfo.getInstanceType(), "2G");
     }
 
+    @Override
+    public boolean isAutoTuneEnabled() {
+        return config.get(PRIAM_PRE + ".autoTune.enabled", false);
+    }
+
     @Override
     public String getMaxDirectMemory() {
         return config.get(
@@ -293,6 +304,16 @@ public class PriamConfiguration implements IConfiguration {
         return config.get(PRIAM_PRE + ".sdb.instanceIdentity.region", "us-east-1");
     }
 
+    @Override
+    public long getTokenDatabaseCacheTtlInMs() {
+        return config.get(PRIAM_PRE + ".tokenDatabase.cache.ttl.ms", 5000L);
+    }
+
+    @Override
+    public long getTokenDatabaseFullRefreshIntervalInMs() {
+        return config.get(PRIAM_PRE + ".tokenDatabase.cache.fullRefreshInterval.ms", 60000L);
+    }
+
     @Override
     public boolean isMultiDC() {
         return config.get(PRIAM_PRE + ".multiregion.enable", false);
@@ -474,6 +495,11 @@ public class PriamConfiguration implements IConfiguration {
         return config.get(PRIAM_PRE + ".clrestore.max", 10);
     }
 
+    @Override
+    public int getCommitLogBackupThreads() {
+        return config.get(PRIAM_PRE + ".clbackup.threads", 4);
+    }
+
     public boolean isClientSslEnabled() {
         return config.get(PRIAM_PRE + ".client.sslEnabled", false);
     }
@@ -586,6 +612,11 @@ public class PriamConfiguration implements IConfiguration {
         return config.get(PRIAM_PRE + ".encrypted.backup.enabled", false);
     }
 
+    @Override
+    public boolean isEncryptBackupSegmented() {
+        return config.get(PRIAM_PRE + ".encrypted.backup.segmented", false);
+    }
+
     @Override
     public String getAWSRoleAssumptionArn() {
         return config.get(PRIAM_PRE + ".roleassumption.arn");
@@ -628,6 +659,11 @@ public class PriamConfiguration implements IConfiguration {
         return config.get(PRIAM_PRE + ".pgp.pubkey.file.location");
     }
 
+    @Override
+    public String getPgpSymmetricAlgorithm() {
+        return config.get(PRIAM_PRE + ".pgp.symmetric.algorithm", "CAST5");
+    }
+
     @Override
     public boolean enableAsyncIncremental() {
         return config.get(PRIAM_PRE + ".async.incremental", false);
@@ -657,6 +693,36 @@ public class PriamConfiguration implements IConfiguration {
         return config.get(PRIAM_PRE + ".download.timeout", (10 * 60 * 60 * 1000L));
     }
 
+    @Override
+    public int getBackupListingTimeoutInSecs() {
+        return config.get(PRIAM_PRE + ".backup.listing.timeout.secs", 300);
+    }
+
+    @Override
+    public int getBackupListingThreads() {
+        return config.get(PRIAM_PRE + ".backup.listing.threads", 4);
+    }
+
+    @Override
+    public int getBackupVerificationCacheTtlInSecs() {
+        return config.get(PRIAM_PRE + ".backupVerification.cache.ttl.secs", 900);
+    }
+
+    @Override
+    public int getBackupVerificationInvalidCacheTtlInSecs() {
+        return config.get(PRIAM_PRE + ".backupVerification.cache.invalid.ttl.secs", 60);
+    }
+
+    @Override
+    public int getBackupVerificationForcedMaxAgeInSecs() {
+        return config.get(PRIAM_PRE + ".backupVerification.cache.forced.max.age.secs", 30);
+    }
+
+    @Override
+    public int getBackupVerificationFullIntervalInHours() {
+        return config.get(PRIAM_PRE + ".backupVerification.full.interval.hours", 168);
+    }
+
     @Override
     public int getTombstoneWarnThreshold() {
         return config.get(PRIAM_PRE + ".tombstone.warning.threshold", 1000);
@@ -672,6 +738,16 @@ public class PriamConfiguration implements IConfiguration {
         return config.get(PRIAM_PRE + ".streaming.socket.timeout.ms", 86400000);
     }
 
+    @Override
+    public int getKeyspaceOperationConcurrency() {
+        return config.get(PRIAM_PRE + ".keyspaceOperation.concurrency", 1);
+    }
+
+    @Override
+    public int getKeyspaceOperationTimeoutInSecs() {
+        return config.get(PRIAM_PRE + ".keyspaceOperation.timeout.secs", 0);
+    }
+
     @Override
     public String getFlushKeyspaces() {
         return config.get(PRIAM_PRE + ".flush.keyspaces");
@@ -738,6 +814,11 @@ public class PriamConfiguration implements IConfiguration {
         return config.get(PRIAM_PRE + ".postrestorehook.heartbeat.check.frequency", 120000);
     }
 
+    @Override
+    public long getPostRestoreHookMaxRestartBackoffInMs() {
+        return config.get(PRIAM_PRE + ".postrestorehook.restart.max.backoff", 60000L);
+    }
+
     @Override
     public String getProperty(String key, String defaultValue) {
         return config.get(key, defaultValue);
@@ -775,6 +856,32 @@ public class PriamConfiguration implements IConfiguration {
                 config.get("priam.backupsToCompress", BackupsToCompress.ALL.name()));
     }
 
+    @Override
+    public CompressionType getBackupCompressionType() {
+        return CompressionType.valueOf(
+                config.get(PRIAM_PRE + ".backup.compression", CompressionType.SNAPPY.name()));
+    }
+
+    @Override
+    public int getLz4CompressionLevel() {
+        return config.get(PRIAM_PRE + ".backup.compression.lz4.level", 0);
+    }
+
+    @Override
+    public int getZstdCompressionLevel() {
+        return config.get(PRIAM_PRE + ".backup.compression.zstd.level", 3);
+    }
+
+    @Override
+    public int getCompressionSampleBytes() {
+        return config.get(PRIAM_PRE + ".backup.compression.sample.bytes", 4 * 1024 * 1024);
+    }
+
+    @Override
+    public double getMinCompressionRatio() {
+        return config.get(PRIAM_PRE + ".backup.compression.min.ratio", 1.1);
+    }
+
     @Override
     public boolean permitDirectTokenAssignmentWithGossipMismatch() {
         return config.get(PRIAM_PRE + ".permitDirectTokenAssignmentWithGossipMismatch", false);
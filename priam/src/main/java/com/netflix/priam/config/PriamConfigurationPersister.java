@@ -19,6 +19,9 @@ package com.netflix.priam.config;
 import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
 import com.netflix.priam.scheduler.CronTimer;
 import com.netflix.priam.scheduler.Task;
 import com.netflix.priam.scheduler.TaskTimer;
@@ -28,21 +31,30 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.PosixFilePermissions;
-import java.util.Map;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-/** Task that persists structured and merged priam configuration to disk. */
+/**
+ * Task that persists structured and merged priam configuration to disk. The file is only replaced
+ * when the configuration changed since it was last written.
+ */
 @Singleton
 public class PriamConfigurationPersister extends Task {
     public static final String NAME = "PriamConfigurationPersister";
 
     private static final Logger logger = LoggerFactory.getLogger(PriamConfigurationPersister.class);
 
+    // Serializers are cached by the mapper, so it is shared by all runs.
+    private static final ObjectWriter STRUCTURED_WRITER =
+            new ObjectMapper().writer(new MinimalPrettyPrinter());
+    private static final HashFunction CONTENT_HASH = Hashing.murmur3_128();
+
     private final Path mergedConfigDirectory;
     private final Path structuredPath;
+    // Hash of the content of structuredPath, null until it is written or read.
+    private HashCode persistedHash;
 
     @Inject
     public PriamConfigurationPersister(IConfiguration config) {
@@ -63,8 +75,16 @@ public class PriamConfigurationPersister extends Task {
     }
 
     @Override
-    public void execute() throws Exception {
+    public synchronized void execute() throws Exception {
         ensurePaths();
+        byte[] structuredConfiguration =
+                STRUCTURED_WRITER.writeValueAsBytes(config.getStructuredConfiguration("all"));
+        HashCode hash = CONTENT_HASH.hashBytes(structuredConfiguration);
+        if (hash.equals(getPersistedHash())) {
+            logger.debug("Structured Priam configuration is unchanged");
+            return;
+        }
+
         Path tempPath = null;
         try {
             File output =
@@ -80,20 +100,24 @@ public class PriamConfigurationPersister extends Task {
             // to be explicit
             Files.setPosixFilePermissions(tempPath, PosixFilePermissions.fromString("rw-------"));
 
-            Map<String, Object> structuredConfiguration = config.getStructuredConfiguration("all");
-
-            ObjectMapper mapper = new ObjectMapper();
-            ObjectWriter structuredPathTmpWriter = mapper.writer(new MinimalPrettyPrinter());
-            structuredPathTmpWriter.writeValue(output, structuredConfiguration);
+            Files.write(tempPath, structuredConfiguration);
 
             // Atomically swap out the new config for the old config.
-            if (!output.renameTo(structuredPath.toFile()))
-                logger.error("Failed to persist structured Priam configuration");
+            if (output.renameTo(structuredPath.toFile())) persistedHash = hash;
+            else logger.error("Failed to persist structured Priam configuration");
         } finally {
             if (tempPath != null) Files.deleteIfExists(tempPath);
         }
     }
 
+    /** @return hash of the persisted configuration, read from disk after a restart. */
+    private HashCode getPersistedHash() throws IOException {
+        if (!Files.exists(structuredPath)) return null;
+        if (persistedHash == null)
+            persistedHash = CONTENT_HASH.hashBytes(Files.readAllBytes(structuredPath));
+        return persistedHash;
+    }
+
     @Override
     public String getName() {
         return NAME;
@@ -13,6 +13,7 @@
  */
 package com.netflix.priam.cryptography;
 
+import java.io.File;
 import java.io.InputStream;
 import java.util.Iterator;
 
@@ -32,4 +33,26 @@ public interface IFileCryptography {
      * @return - an iterate of the ciphertext stream
      */
     Iterator<byte[]> encryptStream(InputStream is, String fileName) throws Exception;
+
+    /**
+     * Encrypt a file as segments which are encrypted independently, and in parallel, so that the
+     * encryption of a large file is not bound to a single core.
+     *
+     * @param file - the plaintext file
+     * @param fileName - name of the object, currently use for debugging purposes only.
+     * @param segmentSize - size of the plaintext of a segment
+     * @return - an iterator of the ciphertext, one segment at a time
+     */
+    Iterator<byte[]> encryptSegments(File file, String fileName, long segmentSize)
+            throws Exception;
+
+    /**
+     * Decrypt a file encrypted by either {@link #encryptStream(InputStream, String)} or {@link
+     * #encryptSegments(File, String, long)}, telling them apart from the content.
+     *
+     * @param encrypted - the encrypted file
+     * @param decrypted - the file to write the decrypted data to
+     * @param passwd - pass phrase used to extract the PGP private key from the encrypted content.
+     */
+    void decryptFile(File encrypted, File decrypted, char[] passwd) throws Exception;
 }
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.cryptography.pgp;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.util.Objects;
+
+/**
+ * Key material parsed from a file, kept until the location, modification time or size of the file
+ * changes. The file is only stat'ed on a hit, so that a key which is rotated on disk is picked up
+ * without parsing it for every file encrypted or decrypted.
+ */
+class KeyFileCache<T> {
+    private final Parser<T> parser;
+    private volatile Entry<T> entry;
+
+    KeyFileCache(Parser<T> parser) {
+        this.parser = parser;
+    }
+
+    T get(String location) throws Exception {
+        File file = new File(location);
+        if (!file.exists()) throw new FileNotFoundException(location);
+        long lastModified = file.lastModified();
+        long length = file.length();
+        Entry<T> current = entry;
+        if (current != null && current.matches(location, lastModified, length))
+            return current.value;
+
+        synchronized (this) {
+            current = entry;
+            if (current != null && current.matches(location, lastModified, length))
+                return current.value;
+            T value;
+            try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+                value = parser.parse(in);
+            }
+            entry = new Entry<>(location, lastModified, length, value);
+            return value;
+        }
+    }
+
+    @FunctionalInterface
+    interface Parser<T> {
+        T parse(InputStream in) throws Exception;
+    }
+
+    private static final class Entry<T> {
+        private final String location;
+        private final long lastModified;
+        private final long length;
+        private final T value;
+
+        private Entry(String location, long lastModified, long length, T value) {
+            this.location = location;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.value = value;
+        }
+
+        private boolean matches(String location, long lastModified, long length) {
+            return Objects.equals(this.location, location)
+                    && this.lastModified == lastModified
+                    && this.length == length;
+        }
+    }
+}
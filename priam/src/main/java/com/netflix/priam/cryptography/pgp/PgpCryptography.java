@@ -13,6 +13,10 @@
  */
 package com.netflix.priam.cryptography.pgp;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.cryptography.IFileCryptography;
 import java.io.*;
@@ -21,17 +25,43 @@ import java.security.SecureRandom;
 import java.security.Security;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javax.inject.Inject;
+import javax.inject.Singleton;
 import org.apache.commons.io.IOUtils;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.bouncycastle.openpgp.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * PGP encryption of backup files. The key rings are parsed once and kept until the key files
+ * change on disk. Files are encrypted with the symmetric cipher of {@link
+ * IConfiguration#getPgpSymmetricAlgorithm()}, and decrypted with whichever cipher they were
+ * encrypted with. Besides a single PGP message, a file can be encrypted in the {@link
+ * SegmentedFormat}, whose segments are encrypted and decrypted on a pool of one thread per core.
+ */
+@Singleton
 public class PgpCryptography implements IFileCryptography {
     private static final Logger logger = LoggerFactory.getLogger(PgpCryptography.class);
+    private static final int SEGMENT_THREADS = Runtime.getRuntime().availableProcessors();
 
     private IConfiguration config;
+    private final Supplier<ExecutorService> segmentExecutor =
+            Suppliers.memoize(
+                    () ->
+                            Executors.newFixedThreadPool(
+                                    SEGMENT_THREADS,
+                                    new ThreadFactoryBuilder()
+                                            .setDaemon(true)
+                                            .setNameFormat("PgpSegment-%d")
+                                            .build()));
+    private final KeyFileCache<PGPSecretKeyRingCollection> secretKeys =
+            new KeyFileCache<>(
+                    in -> new PGPSecretKeyRingCollection(PGPUtil.getDecoderStream(in)));
+    private final KeyFileCache<PGPPublicKey> publicKey =
+            new KeyFileCache<>(PgpUtil::readPublicKey);
 
     static {
         // tell the JVM the security provider is PGP
@@ -45,19 +75,11 @@ public class PgpCryptography implements IFileCryptography {
     }
 
     private PGPSecretKeyRingCollection getPgpSecurityCollection() {
-
-        InputStream keyIn;
         try {
-            keyIn = new BufferedInputStream(new FileInputStream(config.getPrivateKeyLocation()));
+            return secretKeys.get(config.getPrivateKeyLocation());
         } catch (FileNotFoundException e) {
             throw new IllegalStateException(
                     "PGP private key file not found.  file: " + config.getPrivateKeyLocation());
-        }
-
-        try {
-
-            return new PGPSecretKeyRingCollection(PGPUtil.getDecoderStream(keyIn));
-
         } catch (Exception e) {
             logger.error(
                     "Exception in reading PGP security collection ring.  Msg: {}",
@@ -67,21 +89,13 @@ public class PgpCryptography implements IFileCryptography {
     }
 
     private PGPPublicKey getPubKey() {
-        InputStream pubKeyIS;
         try {
-            pubKeyIS = new BufferedInputStream(new FileInputStream(config.getPgpPublicKeyLoc()));
-
+            return publicKey.get(config.getPgpPublicKeyLoc());
         } catch (FileNotFoundException e) {
             logger.error(
                     "Exception in reading PGP security collection ring.  Msg: {}",
                     e.getLocalizedMessage());
             throw new RuntimeException("Exception in reading PGP public key", e);
-        }
-
-        try {
-
-            return PgpUtil.readPublicKey(pubKeyIS);
-
         } catch (Exception e) {
             throw new RuntimeException("Exception in reading & deriving the PGP public key.", e);
         }
@@ -99,6 +113,49 @@ public class PgpCryptography implements IFileCryptography {
 
         logger.info("Start to decrypt object: {}", objectName);
 
+        // Look for the header of the segmented format.
+        if (!in.markSupported()) in = new BufferedInputStream(in);
+        byte[] header = new byte[SegmentedFormat.headerLength()];
+        in.mark(header.length);
+        int read = ByteStreams.read(in, header, 0, header.length);
+        in.reset();
+        if (read == header.length && SegmentedFormat.isSegmented(header)) {
+            ByteStreams.skipFully(in, header.length);
+            return SegmentedFormat.decrypt(in, new SegmentCipher(passwd, objectName));
+        }
+
+        return openDecryption(in, passwd, objectName).literal.getInputStream();
+    }
+
+    @Override
+    public void decryptFile(File encrypted, File decrypted, char[] passwd) throws Exception {
+        String objectName = encrypted.getAbsolutePath();
+        byte[] header = new byte[SegmentedFormat.headerLength()];
+        int read;
+        try (InputStream in = new FileInputStream(encrypted)) {
+            read = ByteStreams.read(in, header, 0, header.length);
+        }
+        if (read == header.length && SegmentedFormat.isSegmented(header)) {
+            logger.info("Start to decrypt segmented object: {}", objectName);
+            SegmentedFormat.decrypt(
+                    encrypted,
+                    decrypted,
+                    new SegmentCipher(passwd, objectName),
+                    segmentExecutor.get());
+            return;
+        }
+
+        try (InputStream in = new BufferedInputStream(new FileInputStream(encrypted));
+                OutputStream out = new BufferedOutputStream(new FileOutputStream(decrypted))) {
+            IOUtils.copyLarge(decryptStream(in, passwd, objectName), out);
+        }
+    }
+
+    /*
+     * @return the encrypted data and the decrypted, uncompressed literal data within it.
+     */
+    private Decryption openDecryption(InputStream in, char[] passwd, String objectName)
+            throws Exception {
         in = PGPUtil.getDecoderStream(in);
 
         // general class for reading a stream of data.
@@ -116,6 +173,7 @@ public class PgpCryptography implements IFileCryptography {
         Iterator encryptedDataIterator = encryptedDataList.getEncryptedDataObjects();
 
         // to be use for decryption
+        PGPSecretKeyRingCollection securityCollection = getPgpSecurityCollection();
         PGPPrivateKey privateKey = null;
         // a handle to the encrypted data stream
         PGPPublicKeyEncryptedData encryptedDataStreamHandle = null;
@@ -126,9 +184,7 @@ public class PgpCryptography implements IFileCryptography {
             try {
                 privateKey =
                         findSecretKey(
-                                getPgpSecurityCollection(),
-                                encryptedDataStreamHandle.getKeyID(),
-                                passwd);
+                                securityCollection, encryptedDataStreamHandle.getKeyID(), passwd);
             } catch (Exception ex) {
                 throw new IllegalStateException(
                         "decryption exception:  object: "
@@ -157,9 +213,8 @@ public class PgpCryptography implements IFileCryptography {
         PGPObjectFactory compressedStreamReader = new PGPObjectFactory(compressedStream);
         Object data = compressedStreamReader.nextObject();
         if (data instanceof PGPLiteralData) {
-            PGPLiteralData dataPgpReader = (PGPLiteralData) data;
             // a handle to the decrypted, uncompress data stream
-            return dataPgpReader.getInputStream();
+            return new Decryption(encryptedDataStreamHandle, (PGPLiteralData) data);
 
         } else if (data instanceof PGPOnePassSignatureList) {
             throw new PGPException(
@@ -197,7 +252,113 @@ public class PgpCryptography implements IFileCryptography {
 
     @Override
     public Iterator<byte[]> encryptStream(InputStream is, String fileName) {
-        return new ChunkEncryptorStream(is, fileName, getPubKey());
+        int symmetricAlgorithm = getSymmetricAlgorithm(config.getPgpSymmetricAlgorithm());
+        return new ChunkEncryptorStream(is, fileName, getPubKey(), symmetricAlgorithm);
+    }
+
+    @Override
+    public Iterator<byte[]> encryptSegments(File file, String fileName, long segmentSize) {
+        SegmentCipher cipher =
+                new SegmentCipher(
+                        getPubKey(), getSymmetricAlgorithm(config.getPgpSymmetricAlgorithm()));
+        return new SegmentedFormat.SegmentEncryptor(
+                file, segmentSize, cipher, segmentExecutor.get(), SEGMENT_THREADS);
+    }
+
+    /**
+     * @param name CAST5 or AES_256
+     * @return the OpenPGP identifier of the symmetric cipher
+     */
+    static int getSymmetricAlgorithm(String name) {
+        switch (name == null ? "" : name.trim().toUpperCase()) {
+            case "":
+            case "CAST5":
+                return PGPEncryptedData.CAST5;
+            case "AES_256":
+            case "AES256":
+                return PGPEncryptedData.AES_256;
+            default:
+                throw new IllegalArgumentException("Unsupported PGP symmetric algorithm: " + name);
+        }
+    }
+
+    /*
+     * Encrypt a buffer as a single PGP message, with an integrity packet.
+     */
+    private static byte[] encrypt(
+            byte[] plaintext, int length, String name, PGPPublicKey pubKey, int symmetricAlgorithm)
+            throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(length + (1 << 12));
+        PGPEncryptedDataGenerator encryptedDataGenerator =
+                new PGPEncryptedDataGenerator(symmetricAlgorithm, true, new SecureRandom(), "BC");
+        encryptedDataGenerator.addMethod(pubKey);
+        OutputStream encrypted = encryptedDataGenerator.open(bos, new byte[1 << 15]);
+        PGPCompressedDataGenerator compressedDataGenerator =
+                new PGPCompressedDataGenerator(PGPCompressedData.UNCOMPRESSED);
+        PGPLiteralDataGenerator literalDataGenerator = new PGPLiteralDataGenerator();
+        OutputStream literal =
+                literalDataGenerator.open(
+                        compressedDataGenerator.open(encrypted),
+                        PGPLiteralData.BINARY,
+                        name,
+                        length,
+                        new Date());
+        literal.write(plaintext, 0, length);
+        literalDataGenerator.close();
+        compressedDataGenerator.close();
+        encryptedDataGenerator.close();
+        return bos.toByteArray();
+    }
+
+    /** Encrypted data along with the literal data decrypted from it. */
+    private static class Decryption {
+        private final PGPPublicKeyEncryptedData encryptedData;
+        private final PGPLiteralData literal;
+
+        private Decryption(PGPPublicKeyEncryptedData encryptedData, PGPLiteralData literal) {
+            this.encryptedData = encryptedData;
+            this.literal = literal;
+        }
+    }
+
+    /** PGP messages of the {@link SegmentedFormat}. */
+    private class SegmentCipher implements SegmentedFormat.Cipher {
+        private final PGPPublicKey pubKey;
+        private final int symmetricAlgorithm;
+        private final char[] passwd;
+        private final String objectName;
+
+        private SegmentCipher(PGPPublicKey pubKey, int symmetricAlgorithm) {
+            this.pubKey = pubKey;
+            this.symmetricAlgorithm = symmetricAlgorithm;
+            this.passwd = null;
+            this.objectName = null;
+        }
+
+        private SegmentCipher(char[] passwd, String objectName) {
+            this.pubKey = null;
+            this.symmetricAlgorithm = 0;
+            this.passwd = passwd;
+            this.objectName = objectName;
+        }
+
+        @Override
+        public byte[] encrypt(byte[] plaintext, int length, String name) throws Exception {
+            return PgpCryptography.encrypt(plaintext, length, name, pubKey, symmetricAlgorithm);
+        }
+
+        @Override
+        public String decrypt(InputStream ciphertext, OutputStream plaintext) throws Exception {
+            Decryption decryption = openDecryption(ciphertext, passwd, objectName);
+            IOUtils.copyLarge(decryption.literal.getInputStream(), plaintext);
+            if (!decryption.encryptedData.isIntegrityProtected()
+                    || !decryption.encryptedData.verify())
+                throw new PGPException(
+                        "decryption exception:  object: "
+                                + objectName
+                                + ", integrity check of a segment failed.");
+            return decryption.literal.getFileName();
+        }
     }
 
     public class ChunkEncryptorStream implements Iterator<byte[]> {
@@ -210,13 +371,20 @@ public class PgpCryptography implements IFileCryptography {
         private final InputStream encryptedSrc;
         private final ByteArrayOutputStream bos;
         private final BufferedOutputStream pgout;
+        private final byte[] buffer = new byte[1 << 16];
 
         public ChunkEncryptorStream(InputStream is, String fileName, PGPPublicKey pubKey) {
+            this(is, fileName, pubKey, PGPEncryptedData.CAST5);
+        }
+
+        public ChunkEncryptorStream(
+                InputStream is, String fileName, PGPPublicKey pubKey, int symmetricAlgorithm) {
             this.is = is;
 
             this.bos = new ByteArrayOutputStream();
             this.pgout = new BufferedOutputStream(this.bos);
-            this.encryptedSrc = new EncryptedInputStream(this.is, fileName, pubKey);
+            this.encryptedSrc =
+                    new EncryptedInputStream(this.is, fileName, pubKey, symmetricAlgorithm);
         }
 
         @Override
@@ -233,7 +401,6 @@ public class PgpCryptography implements IFileCryptography {
         public byte[] next() {
             try {
 
-                byte buffer[] = new byte[2048];
                 int count;
                 while ((count = encryptedSrc.read(buffer, 0, buffer.length)) != -1) {
                     pgout.write(buffer, 0, count);
@@ -284,7 +451,8 @@ public class PgpCryptography implements IFileCryptography {
     public class EncryptedInputStream extends InputStream {
 
         private final InputStream srcHandle; // handle to the source stream
-        private ByteArrayOutputStream bos = null; // Handle to encrypted stream
+        private final ExposedByteArrayOutputStream bos; // Handle to encrypted stream
+        private final byte[] buff = new byte[1 << 16]; // plaintext read from the source stream
         private int bosOff = 0; // current position within encrypted stream
         private OutputStream
                 pgpBosWrapper; // wrapper around the buffer which will contain the encrypted data.
@@ -294,13 +462,18 @@ public class PgpCryptography implements IFileCryptography {
         private String fileName; // TODO: eliminate once debugging is completed.
 
         public EncryptedInputStream(InputStream is, String fileName, PGPPublicKey pubKey) {
+            this(is, fileName, pubKey, PGPEncryptedData.CAST5);
+        }
+
+        public EncryptedInputStream(
+                InputStream is, String fileName, PGPPublicKey pubKey, int symmetricAlgorithm) {
             this.srcHandle = is;
-            this.bos = new ByteArrayOutputStream();
+            this.bos = new ExposedByteArrayOutputStream();
 
             // creates a cipher stream which will have an integrity packet associated with it
             PGPEncryptedDataGenerator encryptedDataGenerator =
                     new PGPEncryptedDataGenerator(
-                            PGPEncryptedData.CAST5, true, new SecureRandom(), "BC");
+                            symmetricAlgorithm, true, new SecureRandom(), "BC");
             try {
                 // Add a key encryption method to be used to encrypt the session data associated
                 // with this encrypted data
@@ -366,10 +539,11 @@ public class PgpCryptography implements IFileCryptography {
 
             // == read up to "len" or end of file from input stream and encrypt it.
 
-            byte[] buff = new byte[1 << 16];
             int bytesRead = 0; // num of bytes read from the source input stream
 
-            while (this.bos.size() < len && (bytesRead = this.srcHandle.read(buff, 0, len)) > 0) {
+            while (this.bos.size() < len
+                    && (bytesRead = this.srcHandle.read(buff, 0, Math.min(len, buff.length)))
+                            > 0) {
                 // lets process each chunk from input until we fill our output
                 // stream or we reach end of input
                 this.encryptedOsWrapper.write(buff, 0, bytesRead);
@@ -415,7 +589,7 @@ public class PgpCryptography implements IFileCryptography {
             int wlen =
                     (this.bos.size() - this.bosOff) < len ? (this.bos.size() - this.bosOff) : len;
             // copy data within encrypted stream to the output buffer
-            System.arraycopy(this.bos.toByteArray(), this.bosOff, buff, off, wlen);
+            System.arraycopy(this.bos.buffer(), this.bosOff, buff, off, wlen);
 
             // now update the current position within the encrypted stream
             this.bosOff = this.bosOff + wlen;
@@ -435,4 +609,11 @@ public class PgpCryptography implements IFileCryptography {
                     "Not supported, invoke read(byte[] bytes, int off, int len) instead.");
         }
     }
+
+    /** Gives access to the buffer, to copy ciphertext out without a copy of the whole buffer. */
+    private static class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+        byte[] buffer() {
+            return buf;
+        }
+    }
 }
@@ -0,0 +1,417 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.cryptography.pgp;
+
+import com.google.common.io.ByteStreams;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Encrypted file format where the plaintext is split into fixed-size segments which are encrypted
+ * independently, so that a large file is encrypted and decrypted on as many cores as there are.
+ *
+ * <pre>
+ * "PRIAMSG1"
+ * ('S' ciphertext length (8 bytes) segment)*
+ * 'I' ciphertext length (8 bytes) index
+ * offset of the index record (8 bytes)
+ * </pre>
+ *
+ * <p>Each segment and the index is a separate PGP message with an integrity packet. The index
+ * lists the ciphertext and plaintext length of every segment. The literal data of segment i is
+ * named "id:i" and the index "id:index", where the id is random for every file, so that segments
+ * which are dropped, reordered or taken from another file are detected. A reader with the whole
+ * file starts from the index and decrypts the segments in parallel; a reader of a stream decrypts
+ * the segments one after the other and checks them against the index at the end.
+ */
+class SegmentedFormat {
+    private static final byte[] MAGIC = "PRIAMSG1".getBytes(StandardCharsets.US_ASCII);
+    private static final byte SEGMENT = 'S';
+    private static final byte INDEX = 'I';
+    private static final int RECORD_HEADER = 9;
+    private static final String INDEX_NAME = "index";
+
+    /** Encryption and decryption of one PGP message. */
+    interface Cipher {
+        byte[] encrypt(byte[] plaintext, int length, String name) throws Exception;
+
+        /**
+         * Decrypt a message, checking its integrity.
+         *
+         * @return name of the literal data
+         */
+        String decrypt(InputStream ciphertext, OutputStream plaintext) throws Exception;
+    }
+
+    static int headerLength() {
+        return MAGIC.length;
+    }
+
+    static boolean isSegmented(byte[] header) {
+        return Arrays.equals(header, MAGIC);
+    }
+
+    /** Decrypt an encrypted file to a plaintext file, with the segments decrypted in parallel. */
+    static void decrypt(File encrypted, File decrypted, Cipher cipher, ExecutorService executor)
+            throws Exception {
+        try (RandomAccessFile src = new RandomAccessFile(encrypted, "r");
+                RandomAccessFile dst = new RandomAccessFile(decrypted, "rw")) {
+            FileChannel in = src.getChannel();
+            FileChannel out = dst.getChannel();
+            Index index = readIndex(in, cipher);
+            dst.setLength(index.plaintextLength());
+
+            List<Future<?>> futures = new ArrayList<>();
+            long offset = MAGIC.length;
+            long plaintextOffset = 0;
+            for (int i = 0; i < index.size(); i++) {
+                ByteBuffer header = read(in, offset, RECORD_HEADER);
+                if (header.get() != SEGMENT || header.getLong() != index.ciphertextLengths[i])
+                    throw new IOException("Segment " + i + " does not match the index");
+                final int segment = i;
+                final long ciphertextOffset = offset + RECORD_HEADER;
+                final long segmentPlaintextOffset = plaintextOffset;
+                Callable<Void> task =
+                        () -> {
+                            int length = (int) index.ciphertextLengths[segment];
+                            InputStream ciphertext =
+                                    new ByteArrayInputStream(
+                                            read(in, ciphertextOffset, length).array());
+                            byte[] plaintext = index.decryptSegment(cipher, segment, ciphertext);
+                            write(out, segmentPlaintextOffset, plaintext);
+                            return null;
+                        };
+                futures.add(executor.submit(task));
+                offset = ciphertextOffset + index.ciphertextLengths[i];
+                plaintextOffset += index.plaintextLengths[i];
+            }
+            try {
+                for (Future<?> future : futures) future.get();
+            } catch (ExecutionException e) {
+                futures.forEach(future -> future.cancel(true));
+                if (e.getCause() instanceof Exception) throw (Exception) e.getCause();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * @param in encrypted stream, positioned after the header
+     * @return plaintext of the stream
+     */
+    static InputStream decrypt(InputStream in, Cipher cipher) {
+        return new SegmentDecryptorStream(in, cipher);
+    }
+
+    private static Index readIndex(FileChannel in, Cipher cipher) throws Exception {
+        long size = in.size();
+        if (size < MAGIC.length + RECORD_HEADER + 8) throw new EOFException("Truncated file");
+        long indexOffset = read(in, size - 8, 8).getLong();
+        if (indexOffset < MAGIC.length || indexOffset > size - RECORD_HEADER - 8)
+            throw new IOException("Invalid index offset " + indexOffset);
+        ByteBuffer header = read(in, indexOffset, RECORD_HEADER);
+        long length = header.getLong(1);
+        if (header.get(0) != INDEX || indexOffset + RECORD_HEADER + length + 8 != size)
+            throw new IOException("Invalid index record at " + indexOffset);
+        Index index =
+                Index.decrypt(
+                        cipher,
+                        new ByteArrayInputStream(
+                                read(in, indexOffset + RECORD_HEADER, (int) length).array()));
+        if (index.recordsLength() != indexOffset)
+            throw new IOException("Segments do not match the index");
+        return index;
+    }
+
+    private static ByteBuffer read(FileChannel in, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer, position + buffer.position()) < 0) throw new EOFException();
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void write(FileChannel out, long position, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) out.write(buffer, position + buffer.position());
+    }
+
+    private static byte[] record(byte type, byte[] ciphertext) {
+        return ByteBuffer.allocate(RECORD_HEADER + ciphertext.length)
+                .put(type)
+                .putLong(ciphertext.length)
+                .put(ciphertext)
+                .array();
+    }
+
+    private static class Index {
+        private final String id;
+        private final long[] ciphertextLengths;
+        private final long[] plaintextLengths;
+
+        private Index(String id, long[] ciphertextLengths, long[] plaintextLengths) {
+            this.id = id;
+            this.ciphertextLengths = ciphertextLengths;
+            this.plaintextLengths = plaintextLengths;
+        }
+
+        int size() {
+            return ciphertextLengths.length;
+        }
+
+        long plaintextLength() {
+            return Arrays.stream(plaintextLengths).sum();
+        }
+
+        /** @return length of the header and the segment records, i.e. the offset of the index. */
+        long recordsLength() {
+            return MAGIC.length
+                    + Arrays.stream(ciphertextLengths).sum()
+                    + (long) RECORD_HEADER * size();
+        }
+
+        byte[] decryptSegment(Cipher cipher, int segment, InputStream ciphertext)
+                throws Exception {
+            ByteArrayOutputStream plaintext =
+                    new ByteArrayOutputStream((int) plaintextLengths[segment]);
+            String name = cipher.decrypt(ciphertext, plaintext);
+            if (!name.equals(id + ":" + segment) || plaintext.size() != plaintextLengths[segment])
+                throw new IOException("Segment " + segment + " does not match the index");
+            return plaintext.toByteArray();
+        }
+
+        byte[] encrypt(Cipher cipher) throws Exception {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(size());
+            for (int i = 0; i < size(); i++) {
+                out.writeLong(ciphertextLengths[i]);
+                out.writeLong(plaintextLengths[i]);
+            }
+            out.flush();
+            return cipher.encrypt(bytes.toByteArray(), bytes.size(), id + ":" + INDEX_NAME);
+        }
+
+        static Index decrypt(Cipher cipher, InputStream ciphertext) throws Exception {
+            ByteArrayOutputStream plaintext = new ByteArrayOutputStream();
+            String name = cipher.decrypt(ciphertext, plaintext);
+            return parse(name, plaintext.toByteArray());
+        }
+
+        static Index parse(String name, byte[] plaintext) throws IOException {
+            String suffix = ":" + INDEX_NAME;
+            if (!name.endsWith(suffix)) throw new IOException("Invalid index " + name);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(plaintext));
+            int size = in.readInt();
+            long[] ciphertextLengths = new long[size];
+            long[] plaintextLengths = new long[size];
+            for (int i = 0; i < size; i++) {
+                ciphertextLengths[i] = in.readLong();
+                plaintextLengths[i] = in.readLong();
+            }
+            return new Index(
+                    name.substring(0, name.length() - suffix.length()),
+                    ciphertextLengths,
+                    plaintextLengths);
+        }
+    }
+
+    /**
+     * Encrypts a file as segments, a few segments ahead of the one returned, and returns one
+     * record per segment. The first also has the header, the last also has the index.
+     */
+    static class SegmentEncryptor implements Iterator<byte[]> {
+        private final File file;
+        private final Cipher cipher;
+        private final ExecutorService executor;
+        private final int window;
+        private final int segmentSize;
+        private final Index index;
+        private final Deque<Future<byte[]>> inFlight = new ArrayDeque<>();
+        private int submitted;
+        private int returned;
+        private boolean done;
+
+        SegmentEncryptor(
+                File file, long segmentSize, Cipher cipher, ExecutorService executor, int window) {
+            this.file = file;
+            this.cipher = cipher;
+            this.executor = executor;
+            this.window = Math.max(1, window);
+            this.segmentSize = (int) Math.min(Integer.MAX_VALUE - 1024, segmentSize);
+            long length = file.length();
+            int count = (int) ((length + this.segmentSize - 1) / this.segmentSize);
+            long[] plaintextLengths = new long[count];
+            for (int i = 0; i < count; i++)
+                plaintextLengths[i] =
+                        Math.min(this.segmentSize, length - (long) i * this.segmentSize);
+            this.index =
+                    new Index(UUID.randomUUID().toString(), new long[count], plaintextLengths);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !done;
+        }
+
+        @Override
+        public byte[] next() {
+            if (done) throw new NoSuchElementException();
+            try {
+                while (submitted < index.size() && inFlight.size() < window) submit(submitted++);
+                ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+                if (returned == 0) chunk.write(MAGIC);
+                if (!inFlight.isEmpty()) {
+                    byte[] ciphertext = inFlight.removeFirst().get();
+                    index.ciphertextLengths[returned++] = ciphertext.length;
+                    chunk.write(record(SEGMENT, ciphertext));
+                }
+                if (returned == index.size()) {
+                    chunk.write(record(INDEX, index.encrypt(cipher)));
+                    chunk.write(ByteBuffer.allocate(8).putLong(index.recordsLength()).array());
+                    done = true;
+                }
+                return chunk.toByteArray();
+            } catch (Exception e) {
+                inFlight.forEach(future -> future.cancel(true));
+                inFlight.clear();
+                done = true;
+                throw new RuntimeException(
+                        "Error encountered returning next segment of ciphertext.  Msg: "
+                                + e.getLocalizedMessage(),
+                        e);
+            }
+        }
+
+        private void submit(int segment) {
+            inFlight.addLast(
+                    executor.submit(
+                            () -> {
+                                int length = (int) index.plaintextLengths[segment];
+                                byte[] plaintext = new byte[length];
+                                try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+                                    in.seek((long) segment * segmentSize);
+                                    in.readFully(plaintext);
+                                }
+                                return cipher.encrypt(
+                                        plaintext, length, index.id + ":" + segment);
+                            }));
+        }
+    }
+
+    /** Decrypts the segments of a stream one after the other. */
+    private static class SegmentDecryptorStream extends InputStream {
+        private final DataInputStream in;
+        private final Cipher cipher;
+        private final List<Long> ciphertextLengths = new ArrayList<>();
+        private final List<Long> plaintextLengths = new ArrayList<>();
+        private String id;
+        private InputStream current = new ByteArrayInputStream(new byte[0]);
+        private boolean done;
+
+        SegmentDecryptorStream(InputStream in, Cipher cipher) {
+            this.in = new DataInputStream(in);
+            this.cipher = cipher;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            while (true) {
+                int read = current.read(b, off, len);
+                if (read >= 0 || done) return read;
+                nextRecord();
+            }
+        }
+
+        private void nextRecord() throws IOException {
+            byte type = in.readByte();
+            long length = in.readLong();
+            InputStream ciphertext = ByteStreams.limit(in, length);
+            ByteArrayOutputStream plaintext = new ByteArrayOutputStream();
+            String name;
+            try {
+                name = cipher.decrypt(ciphertext, plaintext);
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("Unable to decrypt segment " + ciphertextLengths.size(), e);
+            }
+            ByteStreams.exhaust(ciphertext);
+
+            if (type == SEGMENT) {
+                int segment = ciphertextLengths.size();
+                String segmentId = name.substring(0, Math.max(0, name.lastIndexOf(':')));
+                if (id == null) id = segmentId;
+                if (!name.equals(id + ":" + segment))
+                    throw new IOException("Unexpected segment " + name);
+                ciphertextLengths.add(length);
+                plaintextLengths.add((long) plaintext.size());
+                current = new ByteArrayInputStream(plaintext.toByteArray());
+            } else if (type == INDEX) {
+                Index index = Index.parse(name, plaintext.toByteArray());
+                if ((id != null && !id.equals(index.id))
+                        || index.size() != ciphertextLengths.size())
+                    throw new IOException("Segments do not match the index");
+                for (int i = 0; i < index.size(); i++) {
+                    if (index.ciphertextLengths[i] != ciphertextLengths.get(i)
+                            || index.plaintextLengths[i] != plaintextLengths.get(i))
+                        throw new IOException("Segment " + i + " does not match the index");
+                }
+                in.readLong(); // offset of the index
+                done = true;
+                current = new ByteArrayInputStream(new byte[0]);
+            } else {
+                throw new IOException("Unknown record type " + type);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -18,6 +18,7 @@ import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.connection.JMXNodeTool;
 import com.netflix.priam.health.InstanceState;
 import com.netflix.priam.merics.CassMonitorMetrics;
+import com.netflix.priam.tuner.TuningProfile;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
@@ -53,8 +54,9 @@ public class CassandraProcessManager implements ICassandraProcess {
         // If we can tune a jvm.options file instead of setting these
         // environment variables we prefer to set heap sizes that way
         if (!config.supportsTuningJVMOptionsFile()) {
-            env.put("HEAP_NEWSIZE", config.getHeapNewSize());
-            env.put("MAX_HEAP_SIZE", config.getHeapSize());
+            TuningProfile tuningProfile = new TuningProfile(config);
+            env.put("HEAP_NEWSIZE", tuningProfile.getHeapNewSize());
+            env.put("MAX_HEAP_SIZE", tuningProfile.getHeapSize());
         }
 
         env.put("DATA_DIR", config.getDataFileLocation());
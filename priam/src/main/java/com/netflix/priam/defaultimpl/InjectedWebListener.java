@@ -23,6 +23,7 @@ import com.google.inject.Module;
 import com.google.inject.servlet.GuiceServletContextListener;
 import com.google.inject.servlet.ServletModule;
 import com.netflix.priam.PriamServer;
+import com.netflix.priam.backup.CommitLogBackup;
 import com.netflix.priam.config.IConfiguration;
 import com.sun.jersey.api.core.PackagesResourceConfig;
 import com.sun.jersey.guice.spi.container.servlet.GuiceContainer;
@@ -67,6 +68,7 @@ public class InjectedWebListener extends GuiceServletContextListener {
         } catch (SchedulerException e) {
             throw new RuntimeException(e);
         }
+        injector.getInstance(CommitLogBackup.class).stopWatching();
         super.contextDestroyed(servletContextEvent);
     }
 
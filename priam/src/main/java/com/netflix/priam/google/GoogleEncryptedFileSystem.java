@@ -16,30 +16,45 @@ package com.netflix.priam.google;
 import com.google.api.client.auth.oauth2.Credential;
 import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
 import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
+import com.google.api.client.http.ByteArrayContent;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.HttpStatusCodes;
 import com.google.api.client.http.HttpTransport;
 import com.google.api.client.json.JsonFactory;
 import com.google.api.client.json.jackson2.JacksonFactory;
 import com.google.api.services.storage.Storage;
 import com.google.api.services.storage.StorageScopes;
+import com.google.api.services.storage.model.ComposeRequest;
+import com.google.api.services.storage.model.StorageObject;
+import com.google.common.annotations.VisibleForTesting;
 import com.netflix.priam.backup.AbstractBackupPath;
 import com.netflix.priam.backup.AbstractFileSystem;
 import com.netflix.priam.backup.BackupRestoreException;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.cred.ICredentialGeneric;
 import com.netflix.priam.cred.ICredentialGeneric.KEY;
+import com.netflix.priam.cryptography.IFileCryptography;
 import com.netflix.priam.merics.BackupMetrics;
 import com.netflix.priam.notification.BackupNotificationMgr;
+import com.netflix.priam.scheduler.BlockingSubmitThreadPoolExecutor;
+import com.netflix.priam.utils.BoundedExponentialRetryCallable;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
-import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,6 +64,15 @@ public class GoogleEncryptedFileSystem extends AbstractFileSystem {
 
     private static final String APPLICATION_NAME = "gdl";
     private static final JsonFactory JSON_FACTORY = JacksonFactory.getDefaultInstance();
+    private static final String CONTENT_TYPE = "application/octet-stream";
+    // The parts of composite objects are kept apart from the backups, so that parts left behind by
+    // an interrupted upload are never listed along with the backups.
+    @VisibleForTesting static final String PARTS_PREFIX = "priam-composite-parts/";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int RETRIES = 5;
+    // GCS allows 32 sources per compose request and 1024 components in a composite object.
+    private static final int MAX_COMPOSE_SOURCES = 32;
+    private static final int MAX_PARTS = 1000;
 
     private HttpTransport httpTransport;
     // represents our "service account" credentials we will use to access GCS
@@ -59,19 +83,22 @@ public class GoogleEncryptedFileSystem extends AbstractFileSystem {
     private final IConfiguration config;
 
     private final ICredentialGeneric gcsCredential;
-    private final BackupMetrics backupMetrics;
+    private final IFileCryptography encryptor;
+    private final BlockingSubmitThreadPoolExecutor rangeExecutor;
+    private final BlockingSubmitThreadPoolExecutor partExecutor;
 
     @Inject
     public GoogleEncryptedFileSystem(
             Provider<AbstractBackupPath> pathProvider,
             final IConfiguration config,
             @Named("gcscredential") ICredentialGeneric credential,
+            @Named("filecryptoalgorithm") IFileCryptography fileCryptography,
             BackupMetrics backupMetrics,
             BackupNotificationMgr backupNotificationManager) {
         super(config, backupMetrics, backupNotificationManager, pathProvider);
-        this.backupMetrics = backupMetrics;
         this.config = config;
         this.gcsCredential = credential;
+        this.encryptor = fileCryptography;
 
         try {
             this.httpTransport = GoogleNetHttpTransport.newTrustedTransport();
@@ -81,6 +108,18 @@ public class GoogleEncryptedFileSystem extends AbstractFileSystem {
         }
 
         this.srcBucketName = getShard();
+
+        // Ranges and parts have their own pools as they are submitted from within the file level
+        // download and upload tasks of AbstractFileSystem.
+        this.rangeExecutor =
+                new BlockingSubmitThreadPoolExecutor(
+                        config.getRestoreThreads(),
+                        new LinkedBlockingQueue<>(config.getDownloadQueueSize()),
+                        config.getDownloadTimeout());
+        int threads = config.getBackupThreads();
+        this.partExecutor =
+                new BlockingSubmitThreadPoolExecutor(
+                        threads, new LinkedBlockingQueue<>(threads), config.getUploadTimeout());
     }
 
     private Storage.Objects constructObjectResourceHandle() {
@@ -159,7 +198,7 @@ public class GoogleEncryptedFileSystem extends AbstractFileSystem {
                 }
 
                 Collection<String> scopes = new ArrayList<>(1);
-                scopes.add(StorageScopes.DEVSTORAGE_READ_ONLY);
+                scopes.add(StorageScopes.DEVSTORAGE_READ_WRITE);
                 // Cryptex decrypted service account key derive from the GCS console
                 this.credential =
                         new GoogleCredential.Builder()
@@ -175,55 +214,118 @@ public class GoogleEncryptedFileSystem extends AbstractFileSystem {
         return this.credential;
     }
 
+    /**
+     * Downloads the object as concurrent ranged reads of {@link
+     * IConfiguration#getBackupChunkSize()} bytes, each written straight to its offset in the local
+     * file. A failed range is retried on its own rather than restarting the whole object, and all
+     * ranges are pinned to the generation seen when the download started.
+     */
     @Override
     protected void downloadFileImpl(AbstractBackupPath path, String suffix)
             throws BackupRestoreException {
         String remotePath = path.getRemotePath();
         File localFile = new File(path.newRestoreFile().getAbsolutePath() + suffix);
-        String objectName = parseObjectname(getPrefix().toString());
-        com.google.api.services.storage.Storage.Objects.Get get;
-
+        StorageObject object;
         try {
-            get = constructObjectResourceHandle().get(this.srcBucketName, remotePath);
+            object = getObject(this.srcBucketName, remotePath);
         } catch (IOException e) {
             throw new BackupRestoreException(
                     "IO error retrieving metadata for: "
-                            + objectName
+                            + remotePath
                             + " from bucket: "
                             + this.srcBucketName,
                     e);
         }
-
-        // If you're not using GCS' AppEngine, download the whole thing (instead of chunks) in one
-        // request, if possible.
-        get.getMediaHttpDownloader().setDirectDownloadEnabled(true);
-        try (OutputStream os = new FileOutputStream(localFile);
-                InputStream is = get.executeMediaAsInputStream()) {
-            IOUtils.copyLarge(is, os);
-        } catch (IOException e) {
+        if (object == null)
+            throw new BackupRestoreException(
+                    "Object: " + remotePath + " does not exist in bucket: " + this.srcBucketName);
+
+        long size = object.getSize().longValue();
+        Long generation = object.getGeneration();
+        long rangeSize = config.getBackupChunkSize();
+        try (RandomAccessFile file = new RandomAccessFile(localFile, "rw")) {
+            file.setLength(size);
+            FileChannel channel = file.getChannel();
+            List<Future<?>> ranges = new ArrayList<>();
+            for (long start = 0; start < size; start += rangeSize) {
+                final long first = start;
+                final long last = Math.min(start + rangeSize, size) - 1;
+                ranges.add(
+                        rangeExecutor.submit(
+                                () -> downloadRange(remotePath, generation, first, last, channel)));
+            }
+            await(ranges);
+        } catch (Exception e) {
             throw new BackupRestoreException(
                     "IO error during streaming of object: "
-                            + objectName
+                            + remotePath
                             + " from bucket: "
                             + this.srcBucketName,
                     e);
-        } catch (Exception ex) {
-            throw new BackupRestoreException(
-                    "Exception encountered when copying bytes from input to output", ex);
         }
+    }
 
-        backupMetrics.recordDownloadRate(get.getLastResponseHeaders().getContentLength());
+    private Void downloadRange(
+            String remotePath, Long generation, long first, long last, FileChannel channel)
+            throws Exception {
+        return new BoundedExponentialRetryCallable<Void>(500, 10000, RETRIES) {
+            @Override
+            public Void retriableCall() throws Exception {
+                Storage.Objects.Get get =
+                        constructObjectResourceHandle().get(srcBucketName, remotePath);
+                if (generation != null) get.setGeneration(generation);
+                get.getRequestHeaders().setRange("bytes=" + first + "-" + last);
+                long position = first;
+                try (InputStream is = get.executeMediaAsInputStream()) {
+                    byte[] buffer = new byte[BUFFER_SIZE];
+                    int read;
+                    while ((read = is.read(buffer)) != -1) {
+                        ByteBuffer data = ByteBuffer.wrap(buffer, 0, read);
+                        while (data.hasRemaining()) position += channel.write(data, position);
+                    }
+                }
+                if (position != last + 1)
+                    throw new IOException(
+                            String.format(
+                                    "Short read of %s bytes %d-%d: got up to %d",
+                                    remotePath, first, last, position - 1));
+                return null;
+            }
+        }.call();
     }
 
     @Override
     protected boolean doesRemoteFileExist(Path remotePath) {
-        // TODO: Implement based on GCS. Since this is only used for upload, leaving it empty
-        return false;
+        try {
+            return getObject(config.getBackupPrefix(), remotePath.toString()) != null;
+        } catch (IOException e) {
+            logger.error("Exception checking if {} exists: {}", remotePath, e.getMessage());
+            return false;
+        }
+    }
+
+    /** @return metadata of the object, or null if it does not exist. */
+    private StorageObject getObject(String bucket, String name) throws IOException {
+        try {
+            return constructObjectResourceHandle().get(bucket, name).execute();
+        } catch (HttpResponseException e) {
+            if (e.getStatusCode() == HttpStatusCodes.STATUS_CODE_NOT_FOUND) return null;
+            throw e;
+        }
     }
 
     @Override
     public Iterator<String> listFileSystem(String prefix, String delimiter, String marker) {
-        return new GoogleFileIterator(constructGcsStorageHandle(), prefix, null);
+        return new GoogleFileIterator(constructGcsStorageHandle(), this.srcBucketName, prefix);
+    }
+
+    @Override
+    public Iterator<String> listFileSystem(List<String> prefixes) {
+        return new GoogleFileIterator(
+                constructGcsStorageHandle(),
+                this.srcBucketName,
+                prefixes,
+                config.getBackupListingThreads());
     }
 
     @Override
@@ -233,18 +335,194 @@ public class GoogleEncryptedFileSystem extends AbstractFileSystem {
 
     @Override
     public void shutdown() {
-        // TODO Auto-generated method stub
+        rangeExecutor.shutdown();
+        partExecutor.shutdown();
     }
 
+    /**
+     * The file is compressed to a temporary file which is then encrypted, as by {@link
+     * com.netflix.priam.aws.S3EncryptedFileSystem}, so that it is restored by {@link
+     * com.netflix.priam.restore.GoogleCryptographyRestoreStrategy}. Files smaller than {@link
+     * IConfiguration#getBackupChunkSize()} once encrypted are sent in a single request. Larger
+     * files are uploaded as a parallel composite object: the parts are uploaded concurrently as
+     * temporary objects, composed into the final object and then deleted.
+     */
     @Override
     protected long uploadFileImpl(AbstractBackupPath path, Instant target)
             throws BackupRestoreException {
-        throw new UnsupportedOperationException();
+        File localFile = path.getBackupFile();
+        String bucket = config.getBackupPrefix();
+        String remotePath = path.getRemotePath();
+        // Stay well within the limit on the number of components of a composite object.
+        long partSize = Math.max(localFile.length() / MAX_PARTS, config.getBackupChunkSize());
+        File compressedFile = new File(localFile.getAbsolutePath() + ".compressed");
+        try {
+            try (InputStream in = new BufferedInputStream(new FileInputStream(localFile));
+                    OutputStream out =
+                            new BufferedOutputStream(new FileOutputStream(compressedFile))) {
+                Iterator<byte[]> chunks = compressedChunks(in, partSize, path);
+                while (chunks.hasNext())
+                    out.write(nextChunk(chunks, backupMetrics.getCompressChunk()));
+            }
+            try (InputStream in = new BufferedInputStream(new FileInputStream(compressedFile))) {
+                Iterator<byte[]> encrypted =
+                        config.isEncryptBackupSegmented()
+                                ? encryptor.encryptSegments(compressedFile, remotePath, partSize)
+                                : encryptor.encryptStream(in, remotePath);
+                byte[] part = nextPart(encrypted, partSize);
+                if (!encrypted.hasNext()) {
+                    insert(bucket, remotePath, part);
+                    return part.length;
+                }
+                return uploadComposite(bucket, remotePath, part, encrypted, partSize);
+            }
+        } catch (Exception e) {
+            throw new BackupRestoreException("Error uploading file: " + localFile.getName(), e);
+        } finally {
+            FileUtils.deleteQuietly(compressedFile);
+        }
+    }
+
+    /** @return the next chunks of ciphertext, joined up to at least the part size. */
+    private byte[] nextPart(Iterator<byte[]> encrypted, long partSize) {
+        ByteArrayOutputStream part = new ByteArrayOutputStream();
+        while (part.size() < partSize && encrypted.hasNext()) {
+            byte[] chunk = nextChunk(encrypted, backupMetrics.getEncryptChunk());
+            part.write(chunk, 0, chunk.length);
+        }
+        return part.toByteArray();
+    }
+
+    private long uploadComposite(
+            String bucket,
+            String remotePath,
+            byte[] firstPart,
+            Iterator<byte[]> encrypted,
+            long partSize)
+            throws Exception {
+        // Unique to the upload, so that a retry never composes the parts of an earlier attempt.
+        String partsPrefix = PARTS_PREFIX + UUID.randomUUID() + "/";
+        List<String> parts = new ArrayList<>();
+        List<Future<?>> uploads = new ArrayList<>();
+        long encryptedFileSize = 0;
+        byte[] chunk = firstPart;
+        try {
+            while (true) {
+                // The last part is empty when the data is an exact multiple of the part size.
+                if (chunk.length > 0) {
+                    String part = partsPrefix + parts.size();
+                    byte[] data = chunk;
+                    parts.add(part);
+                    uploads.add(
+                            partExecutor.submit(
+                                    () -> {
+                                        long start = System.nanoTime();
+                                        insert(bucket, part, data);
+                                        BackupMetrics.recordSince(
+                                                backupMetrics.getPartUpload(), start);
+                                        return null;
+                                    }));
+                    encryptedFileSize += chunk.length;
+                }
+                if (!encrypted.hasNext()) break;
+                chunk = nextPart(encrypted, partSize);
+            }
+            await(uploads);
+            compose(bucket, remotePath, parts, partsPrefix + "composed");
+            logger.info("Uploaded {} as a composite of {} parts", remotePath, parts.size());
+            return encryptedFileSize;
+        } finally {
+            parts.add(partsPrefix + "composed");
+            for (String part : parts) deleteQuietly(bucket, part);
+        }
+    }
+
+    /**
+     * A compose request takes at most {@link #MAX_COMPOSE_SOURCES} sources, so longer lists of
+     * parts are composed in rounds, each appending to the result of the previous round. Only the
+     * last round writes the final object, so it never exists half composed.
+     */
+    private void compose(
+            String bucket, String remotePath, List<String> parts, String intermediate)
+            throws Exception {
+        String previous = null;
+        int next = 0;
+        while (next < parts.size()) {
+            List<ComposeRequest.SourceObjects> sources = new ArrayList<>();
+            if (previous != null) sources.add(new ComposeRequest.SourceObjects().setName(previous));
+            while (sources.size() < MAX_COMPOSE_SOURCES && next < parts.size())
+                sources.add(new ComposeRequest.SourceObjects().setName(parts.get(next++)));
+            String destination = next < parts.size() ? intermediate : remotePath;
+            ComposeRequest request =
+                    new ComposeRequest()
+                            .setSourceObjects(sources)
+                            .setDestination(
+                                    new StorageObject().setBucket(bucket).setName(destination));
+            new BoundedExponentialRetryCallable<StorageObject>(500, 10000, RETRIES) {
+                @Override
+                public StorageObject retriableCall() throws Exception {
+                    return constructObjectResourceHandle()
+                            .compose(bucket, destination, request)
+                            .execute();
+                }
+            }.call();
+            previous = destination;
+        }
+    }
+
+    private void insert(String bucket, String name, byte[] data) throws Exception {
+        new BoundedExponentialRetryCallable<StorageObject>(500, 10000, RETRIES) {
+            @Override
+            public StorageObject retriableCall() throws Exception {
+                Storage.Objects.Insert insert =
+                        constructObjectResourceHandle()
+                                .insert(bucket, null, new ByteArrayContent(CONTENT_TYPE, data))
+                                .setName(name);
+                insert.getMediaHttpUploader().setDirectUploadEnabled(true);
+                return insert.execute();
+            }
+        }.call();
+    }
+
+    private void deleteQuietly(String bucket, String name) {
+        try {
+            constructObjectResourceHandle().delete(bucket, name).execute();
+        } catch (HttpResponseException e) {
+            if (e.getStatusCode() != HttpStatusCodes.STATUS_CODE_NOT_FOUND)
+                logger.warn("Unable to delete temporary object {}: {}", name, e.getMessage());
+        } catch (IOException e) {
+            logger.warn("Unable to delete temporary object {}: {}", name, e.getMessage());
+        }
+    }
+
+    /** Waits for all the futures, cancelling the rest as soon as one of them fails. */
+    private static void await(List<Future<?>> futures) throws Exception {
+        try {
+            for (Future<?> future : futures) future.get();
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw e;
+        }
     }
 
     @Override
     public long getFileSize(String remotePath) throws BackupRestoreException {
-        return 0;
+        try {
+            StorageObject object = getObject(this.srcBucketName, remotePath);
+            return object == null ? 0 : object.getSize().longValue();
+        } catch (IOException e) {
+            throw new BackupRestoreException(
+                    "IO error retrieving metadata for: "
+                            + remotePath
+                            + " from bucket: "
+                            + this.srcBucketName,
+                    e);
+        }
     }
 
     @Override
@@ -252,12 +530,9 @@ public class GoogleEncryptedFileSystem extends AbstractFileSystem {
         // TODO: Delete implementation
     }
 
-    /*
-     * @param pathPrefix
-     * @return objectName
-     */
-    static String parseObjectname(String pathPrefix) {
-        int offset = pathPrefix.lastIndexOf(0x2f);
-        return pathPrefix.substring(offset + 1);
+    @VisibleForTesting
+    void setStorage(Storage storage) {
+        this.gcsStorageHandle = storage;
+        this.objectsResoruceHandle = storage.objects();
     }
 }
@@ -14,88 +14,154 @@
 package com.netflix.priam.google;
 
 import com.google.api.services.storage.Storage;
+import com.google.api.services.storage.model.Objects;
 import com.google.api.services.storage.model.StorageObject;
-import com.google.common.collect.Lists;
-import java.io.IOException;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /*
  * Represents a list of objects within Google Cloud Storage (GCS)
+ *
+ * Pages are fetched ahead of the consumer on background threads, at most PAGES_AHEAD pages per
+ * prefix. The listing can be split into several prefixes which are enumerated concurrently, up to
+ * the given parallelism, while the names are still returned prefix by prefix in the given order.
  */
 public class GoogleFileIterator implements Iterator<String> {
-    private Iterator<String> iterator;
-    private String bucketName;
-    private String prefix;
-    private Storage.Objects objectsResoruceHandle = null;
-    private Storage.Objects.List listObjectsSrvcHandle = null;
-    private com.google.api.services.storage.model.Objects objectsContainerHandle = null;
+    private static final Logger logger = LoggerFactory.getLogger(GoogleFileIterator.class);
+    // Only ask for what is used here to keep the list responses small.
+    private static final String FIELDS = "items(name),nextPageToken";
+    private static final int PAGES_AHEAD = 2;
+    // A listing nobody consumes any more stops after this long instead of holding its thread.
+    private static final long ABANDON_TIMEOUT_MINUTES = 10;
+    private static final ExecutorService listingExecutor =
+            Executors.newCachedThreadPool(
+                    new ThreadFactoryBuilder()
+                            .setDaemon(true)
+                            .setNameFormat("GoogleFileIterator-%d")
+                            .build());
+
+    private final Storage.Objects objectsResoruceHandle;
+    private final String bucketName;
+    private final List<String> prefixes;
+    private final int parallelism;
+    private final List<BlockingQueue<Page>> buffers = new ArrayList<>();
+    private int current = 0;
+    private Iterator<String> iterator = Collections.emptyIterator();
 
     public GoogleFileIterator(Storage gcsStorageHandle, String bucket, String prefix) {
+        this(gcsStorageHandle, bucket, Collections.singletonList(prefix), 1);
+    }
 
+    /**
+     * @param gcsStorageHandle handle to GCS
+     * @param bucket bucket to list
+     * @param prefixes prefixes to list, in the order their names are returned
+     * @param parallelism number of prefixes to list at the same time
+     */
+    public GoogleFileIterator(
+            Storage gcsStorageHandle, String bucket, List<String> prefixes, int parallelism) {
         this.objectsResoruceHandle = gcsStorageHandle.objects();
         this.bucketName = bucket;
-        this.prefix = prefix;
+        this.prefixes = new ArrayList<>(prefixes);
+        this.parallelism = Math.max(1, parallelism);
+        while (buffers.size() < Math.min(this.parallelism, this.prefixes.size())) startListing();
+    }
 
-        try { // == Get the initial page of results
-            this.iterator = createIterator();
-        } catch (Exception e) {
-            throw new RuntimeException(
-                    "Exception encountered fetching elements, msg: ." + e.getLocalizedMessage(), e);
-        }
+    private void startListing() {
+        String prefix = prefixes.get(buffers.size());
+        BlockingQueue<Page> buffer = new ArrayBlockingQueue<>(PAGES_AHEAD);
+        buffers.add(buffer);
+        listingExecutor.submit(() -> list(prefix, buffer));
     }
 
-    private void initListing() {
+    private void list(String prefix, BlockingQueue<Page> buffer) {
         try {
-
-            this.listObjectsSrvcHandle =
-                    objectsResoruceHandle.list(bucketName); // == list objects within bucket
-            // fetch elements within bucket that matches this prefix
-            this.listObjectsSrvcHandle.setPrefix(this.prefix);
-        } catch (IOException e) {
-            throw new RuntimeException("Unable to get gcslist handle to bucket: " + bucketName, e);
+            Storage.Objects.List request =
+                    objectsResoruceHandle.list(bucketName).setPrefix(prefix).setFields(FIELDS);
+            String pageToken = null;
+            do {
+                Objects objects = request.setPageToken(pageToken).execute();
+                pageToken = objects.getNextPageToken();
+                List<String> names = new ArrayList<>();
+                if (objects.getItems() != null)
+                    for (StorageObject object : objects.getItems()) names.add(object.getName());
+                if (!offer(buffer, new Page(names, pageToken == null, null))) return;
+            } while (pageToken != null);
+        } catch (Exception e) {
+            offer(
+                    buffer,
+                    new Page(
+                            Collections.emptyList(),
+                            true,
+                            new RuntimeException(
+                                    "Exception encountered fetching elements of bucket: "
+                                            + bucketName
+                                            + " prefix: "
+                                            + prefix,
+                                    e)));
         }
     }
 
-    /*
-     * Fetch a page of results
-     */
-    private Iterator<String> createIterator() throws Exception {
-        if (listObjectsSrvcHandle == null) initListing();
-        List<String> temp = Lists.newArrayList(); // a container of results
-
-        // Sends the metadata request to the server and returns the parsed metadata response.
-        this.objectsContainerHandle = listObjectsSrvcHandle.execute();
-
-        for (StorageObject object : this.objectsContainerHandle.getItems()) {
-            // processing a page of results
-            temp.add(object.getName());
+    private boolean offer(BlockingQueue<Page> buffer, Page page) {
+        try {
+            if (buffer.offer(page, ABANDON_TIMEOUT_MINUTES, TimeUnit.MINUTES)) return true;
+            logger.warn("Abandoning listing of bucket: {} as it is not being consumed", bucketName);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-        return temp.iterator();
+        return false;
     }
 
     @Override
     public boolean hasNext() {
-        if (this.iterator.hasNext()) {
-            return true;
-        }
-
-        while (this.objectsContainerHandle.getNextPageToken() != null && !iterator.hasNext())
-            try { // if here, you have iterated through all elements of the previous page, now, get
-                // the next page of results
-                this.listObjectsSrvcHandle.setPageToken(objectsContainerHandle.getNextPageToken());
-                this.iterator = createIterator();
-            } catch (Exception e) {
-                throw new RuntimeException(
-                        "Exception encountered fetching elements, see previous messages for details.",
-                        e);
+        while (!iterator.hasNext()) {
+            if (current >= prefixes.size()) return false;
+            Page page;
+            try {
+                page = buffers.get(current).take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while listing bucket: " + bucketName, e);
             }
-
-        return this.iterator.hasNext();
+            if (page.error != null) {
+                current = prefixes.size();
+                throw page.error;
+            }
+            iterator = page.names.iterator();
+            if (page.last) {
+                buffers.set(current++, null);
+                if (buffers.size() < prefixes.size()) startListing();
+            }
+        }
+        return true;
     }
 
     @Override
     public String next() {
+        if (!hasNext()) throw new NoSuchElementException();
         return iterator.next();
     }
+
+    private static class Page {
+        private final List<String> names;
+        private final boolean last;
+        private final RuntimeException error;
+
+        Page(List<String> names, boolean last, RuntimeException error) {
+            this.names = names;
+            this.last = last;
+            this.error = error;
+        }
+    }
 }
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.identity;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.netflix.priam.config.IConfiguration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link IPriamInstanceFactory} that keeps an in-memory copy of the token database per cluster
+ * name. Entries are served from memory for {@link IConfiguration#getTokenDatabaseCacheTtlInMs()}.
+ * After that the first caller refreshes the entry by asking the backing factory only for the rows
+ * updated since the newest row it has seen, while concurrent callers keep being served the
+ * previous copy. Every {@link IConfiguration#getTokenDatabaseFullRefreshIntervalInMs()} a full
+ * load is done instead so that deregistered nodes drop out. Concurrent callers of a cold entry
+ * share a single load. Writes go through to the backing factory and are then applied to the copy
+ * in memory; a failed write evicts the copy as it has probably gone stale.
+ */
+public class CachedPriamInstanceFactory implements IPriamInstanceFactory {
+    private static final Logger logger = LoggerFactory.getLogger(CachedPriamInstanceFactory.class);
+    // Update timestamps are written with the clock of the writing node. Look back a little
+    // further than the newest row seen to tolerate clock skew between nodes.
+    private static final long CLOCK_SKEW_ALLOWANCE_MS = 60000;
+
+    private final IPriamInstanceFactory delegate;
+    private final Ticker ticker;
+    private final long fullRefreshIntervalNanos;
+    private final LoadingCache<String, Registry> registries;
+
+    public CachedPriamInstanceFactory(IPriamInstanceFactory delegate, IConfiguration config) {
+        this(
+                delegate,
+                config.getTokenDatabaseCacheTtlInMs(),
+                config.getTokenDatabaseFullRefreshIntervalInMs(),
+                Ticker.systemTicker());
+    }
+
+    @VisibleForTesting
+    CachedPriamInstanceFactory(
+            IPriamInstanceFactory delegate,
+            long ttlInMs,
+            long fullRefreshIntervalInMs,
+            Ticker ticker) {
+        this.delegate = delegate;
+        this.ticker = ticker;
+        this.fullRefreshIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fullRefreshIntervalInMs);
+        this.registries =
+                CacheBuilder.newBuilder()
+                        .ticker(ticker)
+                        .refreshAfterWrite(ttlInMs, TimeUnit.MILLISECONDS)
+                        .build(
+                                new CacheLoader<String, Registry>() {
+                                    @Override
+                                    public Registry load(String appName) {
+                                        return fullLoad(appName);
+                                    }
+
+                                    @Override
+                                    public ListenableFuture<Registry> reload(
+                                            String appName, Registry previous) {
+                                        return Futures.immediateFuture(
+                                                refresh(appName, previous));
+                                    }
+                                });
+    }
+
+    /**
+     * Wrap {@code factory} in a cache unless caching is disabled through {@link
+     * IConfiguration#getTokenDatabaseCacheTtlInMs()}.
+     *
+     * @param factory the backing instance factory
+     * @param config Priam configuration
+     * @return a caching view over {@code factory} or {@code factory} itself
+     */
+    public static IPriamInstanceFactory wrap(IPriamInstanceFactory factory, IConfiguration config) {
+        if (config.getTokenDatabaseCacheTtlInMs() <= 0
+                || factory instanceof CachedPriamInstanceFactory) {
+            return factory;
+        }
+        return new CachedPriamInstanceFactory(factory, config);
+    }
+
+    @Override
+    public ImmutableSet<PriamInstance> getAllIds(String appName) {
+        try {
+            return registries.getUnchecked(appName).sorted();
+        } catch (UncheckedExecutionException e) {
+            // Surface the failure of the backing factory exactly as an uncached call would.
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    @Override
+    public ImmutableSet<PriamInstance> getAllIdsUpdatedSince(String appName, long updatedSince) {
+        return ImmutableSet.copyOf(
+                getAllIds(appName)
+                        .stream()
+                        .filter(instance -> instance.getUpdatetime() > updatedSince)
+                        .collect(Collectors.toList()));
+    }
+
+    @Override
+    public PriamInstance getInstance(String appName, String dc, int id) {
+        return delegate.getInstance(appName, dc, id);
+    }
+
+    @Override
+    public PriamInstance create(
+            String app,
+            int id,
+            String instanceID,
+            String hostname,
+            String ip,
+            String rac,
+            Map<String, Object> volumes,
+            String token) {
+        PriamInstance instance;
+        try {
+            instance = delegate.create(app, id, instanceID, hostname, ip, rac, volumes, token);
+        } catch (RuntimeException e) {
+            registries.invalidate(app);
+            throw e;
+        }
+        apply(app, registry -> registry.put(instance));
+        return instance;
+    }
+
+    @Override
+    public void delete(PriamInstance inst) {
+        try {
+            delegate.delete(inst);
+        } catch (RuntimeException e) {
+            registries.invalidate(inst.getApp());
+            throw e;
+        }
+        apply(inst.getApp(), registry -> registry.remove(inst));
+    }
+
+    @Override
+    public void update(PriamInstance orig, PriamInstance inst) {
+        try {
+            delegate.update(orig, inst);
+        } catch (RuntimeException e) {
+            registries.invalidate(inst.getApp());
+            throw e;
+        }
+        apply(inst.getApp(), registry -> registry.put(inst));
+    }
+
+    /** Drop every cached registry so that the next read does a full load. */
+    public void invalidateAll() {
+        registries.invalidateAll();
+    }
+
+    private void apply(String appName, UnaryOperator<Registry> change) {
+        Registry current = registries.getIfPresent(appName);
+        if (current != null) {
+            registries.asMap().replace(appName, current, change.apply(current));
+        }
+    }
+
+    private Registry fullLoad(String appName) {
+        return new Registry(delegate.getAllIds(appName), ticker.read());
+    }
+
+    private Registry refresh(String appName, Registry previous) {
+        if (ticker.read() - previous.fullLoadNanos >= fullRefreshIntervalNanos) {
+            return fullLoad(appName);
+        }
+        long updatedSince = previous.newestUpdate - CLOCK_SKEW_ALLOWANCE_MS;
+        ImmutableSet<PriamInstance> changed =
+                delegate.getAllIdsUpdatedSince(appName, updatedSince);
+        logger.debug(
+                "Refreshed token database for {}: {} changed rows since {}",
+                appName,
+                changed.size(),
+                updatedSince);
+        Registry registry = previous;
+        for (PriamInstance instance : changed) {
+            registry = registry.put(instance);
+        }
+        return registry;
+    }
+
+    /** Immutable copy of the token database of one cluster, keyed like the SimpleDB item name. */
+    private static final class Registry {
+        private final ImmutableMap<String, PriamInstance> instances;
+        private final long newestUpdate;
+        private final long fullLoadNanos;
+
+        Registry(ImmutableSet<PriamInstance> instances, long fullLoadNanos) {
+            this(index(instances), fullLoadNanos);
+        }
+
+        private Registry(ImmutableMap<String, PriamInstance> instances, long fullLoadNanos) {
+            this.instances = instances;
+            this.newestUpdate =
+                    instances
+                            .values()
+                            .stream()
+                            .mapToLong(PriamInstance::getUpdatetime)
+                            .max()
+                            .orElse(0L);
+            this.fullLoadNanos = fullLoadNanos;
+        }
+
+        Registry put(PriamInstance instance) {
+            Map<String, PriamInstance> copy = new HashMap<>(instances);
+            copy.put(key(instance), instance);
+            return new Registry(ImmutableMap.copyOf(copy), fullLoadNanos);
+        }
+
+        Registry remove(PriamInstance instance) {
+            Map<String, PriamInstance> copy = new HashMap<>(instances);
+            copy.remove(key(instance));
+            return new Registry(ImmutableMap.copyOf(copy), fullLoadNanos);
+        }
+
+        ImmutableSet<PriamInstance> sorted() {
+            return ImmutableSet.copyOf(
+                    instances
+                            .values()
+                            .stream()
+                            .sorted(Comparator.comparingInt(PriamInstance::getId))
+                            .collect(Collectors.toList()));
+        }
+
+        private static ImmutableMap<String, PriamInstance> index(
+                ImmutableSet<PriamInstance> instances) {
+            Map<String, PriamInstance> index = new HashMap<>();
+            instances.forEach(instance -> index.put(key(instance), instance));
+            return ImmutableMap.copyOf(index);
+        }
+
+        private static String key(PriamInstance instance) {
+            return instance.getDC() + "_" + instance.getId();
+        }
+    }
+}
@@ -76,6 +76,22 @@ public interface IMembership {
      */
     ImmutableSet<String> listACL(int from, int to);
 
+    /**
+     * List the ACLs which {@link #addACL} added for this app, leaving out those added by hand or by
+     * other apps sharing the security group.
+     *
+     * @return the ranges which Priam may remove when they are no longer needed
+     */
+    default ImmutableSet<String> listOwnedACL(int from, int to) {
+        return ImmutableSet.of();
+    }
+
+    /**
+     * Forget any ACL listing kept from an earlier call, so that the next {@link #listACL} or {@link
+     * #listOwnedACL} describes the security group again.
+     */
+    default void invalidateACL() {}
+
     /**
      * Expand the membership size by 1.
      *
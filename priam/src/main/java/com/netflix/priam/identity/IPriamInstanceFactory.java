@@ -35,6 +35,19 @@ public interface IPriamInstanceFactory {
      */
     ImmutableSet<PriamInstance> getAllIds(String appName);
 
+    /**
+     * Return the Cassandra server nodes whose registration changed after {@code updatedSince}.
+     * Nodes deleted from the registry are not reported. Implementations that cannot filter on the
+     * update time may return all the nodes, so callers must treat the result as a superset.
+     *
+     * @param appName the cluster name
+     * @param updatedSince epoch millis, exclusive lower bound on the update time of a node
+     * @return nodes in {@code appName} updated after {@code updatedSince}
+     */
+    default ImmutableSet<PriamInstance> getAllIdsUpdatedSince(String appName, long updatedSince) {
+        return getAllIds(appName);
+    }
+
     /**
      * Return the Cassandra server node with the given {@code id}.
      *
@@ -5,6 +5,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 import com.netflix.priam.config.IConfiguration;
+import com.netflix.priam.identity.CachedPriamInstanceFactory;
 import com.netflix.priam.identity.IMembership;
 import com.netflix.priam.identity.IPriamInstanceFactory;
 import com.netflix.priam.identity.InstanceIdentity;
@@ -51,7 +52,8 @@ public class TokenRetriever implements ITokenRetriever {
             InstanceInfo instanceInfo,
             Sleeper sleeper,
             ITokenManager tokenManager) {
-        this.factory = factory;
+        // Token acquisition reads the whole token database on every attempt.
+        this.factory = CachedPriamInstanceFactory.wrap(factory, config);
         this.membership = membership;
         this.config = config;
         this.myInstanceInfo = instanceInfo;
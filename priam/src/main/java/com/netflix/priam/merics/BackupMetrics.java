@@ -16,6 +16,13 @@ package com.netflix.priam.merics;
 import com.netflix.spectator.api.Counter;
 import com.netflix.spectator.api.DistributionSummary;
 import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.Timer;
+import com.netflix.spectator.api.histogram.PercentileTimer;
+import com.netflix.spectator.api.patterns.PolledMeter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -29,6 +36,9 @@ public class BackupMetrics {
      */
     private final DistributionSummary uploadRate, downloadRate;
 
+    /** Peak number of files uploaded at the same time by a snapshot. */
+    private final DistributionSummary snapshotUploadConcurrency;
+
     private final Counter validUploads,
             validDownloads,
             invalidUploads,
@@ -37,6 +47,32 @@ public class BackupMetrics {
             snsNotificationFailure,
             forgottenFiles,
             backupVerificationFailure;
+    /**
+     * Bytes saved by compressing uploads, against bytes that ADAPTIVE compression uploaded
+     * uncompressed and the time spent sampling to decide. Time spent compressing is {@link
+     * #getCompressChunk()}.
+     */
+    private final Counter compressionSavedBytes, compressionSkippedBytes;
+
+    private final Timer compressionSample;
+    /**
+     * Percentile timers for the stages of an upload: waiting in the upload queue, checking if the
+     * file already exists remotely, compressing and encrypting a chunk, uploading a part and
+     * uploading the whole file including retries.
+     */
+    private final Timer uploadQueueWait,
+            existenceCheck,
+            compressChunk,
+            encryptChunk,
+            partUpload,
+            fileUpload;
+
+    private final AtomicLong uploadBytesInFlight, uploadFilesInFlight;
+    /** Archived commit log segments waiting for or in upload. */
+    private final AtomicLong commitLogBacklogBytes, commitLogBacklogSegments;
+    /** Last modified time (epoch ms) of the oldest incremental waiting for upload per keyspace. */
+    private final Map<String, AtomicLong> oldestPendingIncremental = new ConcurrentHashMap<>();
+
     public static final String uploadQueueSize = Metrics.METRIC_PREFIX + "upload.queue.size";
     public static final String downloadQueueSize = Metrics.METRIC_PREFIX + "download.queue.size";
 
@@ -49,6 +85,9 @@ public class BackupMetrics {
         invalidUploads = registry.counter(Metrics.METRIC_PREFIX + "upload.invalid");
         uploadRate = registry.distributionSummary(Metrics.METRIC_PREFIX + "upload.rate");
         downloadRate = registry.distributionSummary(Metrics.METRIC_PREFIX + "download.rate");
+        snapshotUploadConcurrency =
+                registry.distributionSummary(
+                        Metrics.METRIC_PREFIX + "snapshot.upload.concurrency");
         snsNotificationSuccess =
                 registry.counter(Metrics.METRIC_PREFIX + "sns.notification.success");
         snsNotificationFailure =
@@ -56,6 +95,156 @@ public class BackupMetrics {
         forgottenFiles = registry.counter(Metrics.METRIC_PREFIX + "forgotten.files");
         backupVerificationFailure =
                 registry.counter(Metrics.METRIC_PREFIX + "backup.verification.failure");
+        uploadQueueWait = percentileTimer("upload.queue.wait");
+        existenceCheck = percentileTimer("upload.exists.check");
+        compressChunk = percentileTimer("upload.compress");
+        encryptChunk = percentileTimer("upload.encrypt");
+        partUpload = percentileTimer("upload.part");
+        fileUpload = percentileTimer("upload.file");
+        compressionSavedBytes =
+                registry.counter(Metrics.METRIC_PREFIX + "upload.compression.saved.bytes");
+        compressionSkippedBytes =
+                registry.counter(Metrics.METRIC_PREFIX + "upload.compression.skipped.bytes");
+        compressionSample = registry.timer(Metrics.METRIC_PREFIX + "upload.compression.sample");
+        uploadBytesInFlight =
+                PolledMeter.using(registry)
+                        .withName(Metrics.METRIC_PREFIX + "upload.inflight.bytes")
+                        .monitorValue(new AtomicLong(0));
+        uploadFilesInFlight =
+                PolledMeter.using(registry)
+                        .withName(Metrics.METRIC_PREFIX + "upload.inflight.files")
+                        .monitorValue(new AtomicLong(0));
+        commitLogBacklogBytes =
+                PolledMeter.using(registry)
+                        .withName(Metrics.METRIC_PREFIX + "commitlog.backlog.bytes")
+                        .monitorValue(new AtomicLong(0));
+        commitLogBacklogSegments =
+                PolledMeter.using(registry)
+                        .withName(Metrics.METRIC_PREFIX + "commitlog.backlog.segments")
+                        .monitorValue(new AtomicLong(0));
+    }
+
+    private Timer percentileTimer(String name) {
+        return PercentileTimer.get(registry, registry.createId(Metrics.METRIC_PREFIX + name));
+    }
+
+    public Timer getUploadQueueWait() {
+        return uploadQueueWait;
+    }
+
+    public Timer getExistenceCheck() {
+        return existenceCheck;
+    }
+
+    public Timer getCompressChunk() {
+        return compressChunk;
+    }
+
+    public Timer getEncryptChunk() {
+        return encryptChunk;
+    }
+
+    public Timer getPartUpload() {
+        return partUpload;
+    }
+
+    public Timer getFileUpload() {
+        return fileUpload;
+    }
+
+    public Timer getCompressionSample() {
+        return compressionSample;
+    }
+
+    public Counter getCompressionSavedBytes() {
+        return compressionSavedBytes;
+    }
+
+    public Counter getCompressionSkippedBytes() {
+        return compressionSkippedBytes;
+    }
+
+    /** Record the outcome of uploading a file of {@code size} bytes as {@code uploaded} bytes. */
+    public void recordCompression(long size, long uploaded) {
+        if (size > uploaded) compressionSavedBytes.increment(size - uploaded);
+    }
+
+    public void incrementCompressionSkippedBytes(long size) {
+        compressionSkippedBytes.increment(size);
+    }
+
+    /** Time elapsed since {@code startNanos}, a value of {@link System#nanoTime()}. */
+    public static void recordSince(Timer timer, long startNanos) {
+        timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void incrementUploadsInFlight(long sizeInBytes) {
+        uploadFilesInFlight.incrementAndGet();
+        uploadBytesInFlight.addAndGet(sizeInBytes);
+    }
+
+    public void decrementUploadsInFlight(long sizeInBytes) {
+        uploadFilesInFlight.decrementAndGet();
+        uploadBytesInFlight.addAndGet(-sizeInBytes);
+    }
+
+    public long getUploadFilesInFlight() {
+        return uploadFilesInFlight.get();
+    }
+
+    public long getUploadBytesInFlight() {
+        return uploadBytesInFlight.get();
+    }
+
+    public void incrementCommitLogBacklog(long sizeInBytes) {
+        commitLogBacklogSegments.incrementAndGet();
+        commitLogBacklogBytes.addAndGet(sizeInBytes);
+    }
+
+    public void decrementCommitLogBacklog(long sizeInBytes) {
+        commitLogBacklogSegments.decrementAndGet();
+        commitLogBacklogBytes.addAndGet(-sizeInBytes);
+    }
+
+    public long getCommitLogBacklogSegments() {
+        return commitLogBacklogSegments.get();
+    }
+
+    public long getCommitLogBacklogBytes() {
+        return commitLogBacklogBytes.get();
+    }
+
+    /**
+     * @param keyspace keyspace of the incrementals
+     * @param oldestModifiedMillis last modified time of the oldest incremental of the keyspace
+     *     still waiting for upload, or 0 if there is none.
+     */
+    public void setOldestPendingIncremental(String keyspace, long oldestModifiedMillis) {
+        oldestPendingIncremental
+                .computeIfAbsent(
+                        keyspace,
+                        ks ->
+                                PolledMeter.using(registry)
+                                        .withId(
+                                                registry.createId(
+                                                        Metrics.METRIC_PREFIX
+                                                                + "incremental.pending.age",
+                                                        "keyspace",
+                                                        ks))
+                                        .monitorValue(new AtomicLong(0), this::ageInSeconds))
+                .set(oldestModifiedMillis);
+    }
+
+    /** @return seconds since the oldest pending incremental of the keyspace was written. */
+    public double getOldestPendingIncrementalAge(String keyspace) {
+        AtomicLong oldest = oldestPendingIncremental.get(keyspace);
+        return oldest == null ? 0 : ageInSeconds(oldest);
+    }
+
+    private double ageInSeconds(AtomicLong oldestModifiedMillis) {
+        long oldest = oldestModifiedMillis.get();
+        if (oldest <= 0) return 0;
+        return Math.max(0, registry.clock().wallTime() - oldest) / 1000.0;
     }
 
     public DistributionSummary getUploadRate() {
@@ -110,6 +299,14 @@ public class BackupMetrics {
         downloadRate.record(sizeInBytes);
     }
 
+    public void recordSnapshotUploadConcurrency(int concurrentUploads) {
+        snapshotUploadConcurrency.record(concurrentUploads);
+    }
+
+    public DistributionSummary getSnapshotUploadConcurrency() {
+        return snapshotUploadConcurrency;
+    }
+
     public DistributionSummary getDownloadRate() {
         return downloadRate;
     }
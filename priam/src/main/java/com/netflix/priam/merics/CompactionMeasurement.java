@@ -18,16 +18,19 @@ package com.netflix.priam.merics;
 
 import com.netflix.spectator.api.Counter;
 import com.netflix.spectator.api.Registry;
+import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 /** Measurement class for scheduled compactions Created by aagrawal on 2/28/18. */
 @Singleton
 public class CompactionMeasurement implements IMeasurement {
+    private final Registry registry;
     private final Counter failure, success;
 
     @Inject
     public CompactionMeasurement(Registry registry) {
+        this.registry = registry;
         failure = registry.counter(Metrics.METRIC_PREFIX + "compaction.failure");
         success = registry.counter(Metrics.METRIC_PREFIX + "compaction.success");
     }
@@ -39,4 +42,10 @@ public class CompactionMeasurement implements IMeasurement {
     public void incrementSuccess() {
         success.increment();
     }
+
+    @Override
+    public void recordKeyspaceDuration(String keyspace, long durationMs) {
+        registry.timer(Metrics.METRIC_PREFIX + "compaction.keyspace.duration", "keyspace", keyspace)
+                .record(durationMs, TimeUnit.MILLISECONDS);
+    }
 }
@@ -22,4 +22,12 @@ public interface IMeasurement {
     void incrementFailure();
 
     void incrementSuccess();
+
+    /**
+     * Record how long the operation took on a single keyspace.
+     *
+     * @param keyspace the keyspace operated on.
+     * @param durationMs duration in milliseconds.
+     */
+    default void recordKeyspaceDuration(String keyspace, long durationMs) {}
 }
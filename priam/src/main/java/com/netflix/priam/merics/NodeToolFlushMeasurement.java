@@ -15,6 +15,7 @@ package com.netflix.priam.merics;
 
 import com.netflix.spectator.api.Counter;
 import com.netflix.spectator.api.Registry;
+import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -25,10 +26,12 @@ import javax.inject.Singleton;
  */
 @Singleton
 public class NodeToolFlushMeasurement implements IMeasurement {
+    private final Registry registry;
     private final Counter failure, success;
 
     @Inject
     public NodeToolFlushMeasurement(Registry registry) {
+        this.registry = registry;
         failure = registry.counter(Metrics.METRIC_PREFIX + "flush.failure");
         success = registry.counter(Metrics.METRIC_PREFIX + "flush.success");
     }
@@ -40,4 +43,10 @@ public class NodeToolFlushMeasurement implements IMeasurement {
     public void incrementSuccess() {
         success.increment();
     }
+
+    @Override
+    public void recordKeyspaceDuration(String keyspace, long durationMs) {
+        registry.timer(Metrics.METRIC_PREFIX + "flush.keyspace.duration", "keyspace", keyspace)
+                .record(durationMs, TimeUnit.MILLISECONDS);
+    }
 }
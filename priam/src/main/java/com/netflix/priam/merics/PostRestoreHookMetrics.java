@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.priam.merics;
+
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.Timer;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/** Attempts of the post restore hook sub-process and why they were restarted. */
+@Singleton
+public class PostRestoreHookMetrics {
+    private final Timer attempt;
+    private final Counter restarts, heartbeatTimeouts;
+
+    @Inject
+    public PostRestoreHookMetrics(Registry registry) {
+        attempt = registry.timer(Metrics.METRIC_PREFIX + "restore.hook.attempt");
+        restarts = registry.counter(Metrics.METRIC_PREFIX + "restore.hook.restarts");
+        heartbeatTimeouts =
+                registry.counter(Metrics.METRIC_PREFIX + "restore.hook.heartbeat.timeouts");
+    }
+
+    public void recordAttempt(long nanos) {
+        attempt.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void incrementRestarts() {
+        restarts.increment();
+    }
+
+    public void incrementHeartbeatTimeouts() {
+        heartbeatTimeouts.increment();
+    }
+
+    public Timer getAttempt() {
+        return attempt;
+    }
+
+    public Counter getRestarts() {
+        return restarts;
+    }
+
+    public Counter getHeartbeatTimeouts() {
+        return heartbeatTimeouts;
+    }
+}
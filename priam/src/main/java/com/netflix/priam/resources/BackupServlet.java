@@ -23,6 +23,7 @@ import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.scheduler.PriamScheduler;
 import com.netflix.priam.utils.DateUtil;
 import com.netflix.priam.utils.DateUtil.DateRange;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
@@ -46,6 +47,8 @@ public class BackupServlet {
     private static final String REST_SUCCESS = "[\"ok\"]";
     private static final String REST_HEADER_RANGE = "daterange";
     private static final String REST_HEADER_FILTER = "filter";
+    private static final String REST_HEADER_LIMIT = "limit";
+    private static final String REST_HEADER_MARKER = "marker";
     private final IConfiguration config;
     private final IBackupRestoreConfig backupRestoreConfig;
     private final IBackupFileSystem backupFs;
@@ -130,6 +133,44 @@ public class BackupServlet {
         return Response.ok(object.toString(2), MediaType.APPLICATION_JSON).build();
     }
 
+    @GET
+    @Path("/list/stream")
+    @Produces(NdjsonListing.MEDIA_TYPE)
+    /*
+     * Same as list, but streams one file per line as newline delimited JSON while the remote file
+     * system is being listed, followed by a summary line. See NdjsonListing.
+     *
+     * @param date range
+     * @param filter.  The type of data files fetched, as for list.
+     * @param limit maximum number of files to return, 0 for no limit.
+     * @param marker the next_marker of the previous response to continue from.
+     */
+    public Response listStream(
+            @QueryParam(REST_HEADER_RANGE) String daterange,
+            @QueryParam(REST_HEADER_FILTER) @DefaultValue("") String filter,
+            @QueryParam(REST_HEADER_LIMIT) @DefaultValue("1000") int limit,
+            @QueryParam(REST_HEADER_MARKER) @DefaultValue("") String marker) {
+        DateUtil.DateRange dateRange = new DateUtil.DateRange(daterange);
+        Iterator<AbstractBackupPath> it =
+                backupFs.list(
+                        config.getBackupPrefix(),
+                        Date.from(dateRange.getStartTime()),
+                        Date.from(dateRange.getEndTime()));
+        String fileFilter = parseFilter(filter);
+        NdjsonListing<AbstractBackupPath> listing =
+                new NdjsonListing<>(
+                        it,
+                        AbstractBackupPath::getRemotePath,
+                        path -> {
+                            JSONObject backupJSON = toJson(path, fileFilter);
+                            return backupJSON == null ? null : backupJSON.toString();
+                        },
+                        limit,
+                        marker,
+                        Duration.ofSeconds(config.getBackupListingTimeoutInSecs()));
+        return Response.ok(listing, NdjsonListing.MEDIA_TYPE).build();
+    }
+
     @GET
     @Path("/status")
     @Produces(MediaType.APPLICATION_JSON)
@@ -243,34 +284,13 @@ public class BackupServlet {
     private JSONObject constructJsonResponse(
             JSONObject object, Iterator<AbstractBackupPath> it, String filter) throws Exception {
         int fileCnt = 0;
-        filter = filter.contains("?") ? filter.substring(0, filter.indexOf("?")) : filter;
+        filter = parseFilter(filter);
 
         try {
             JSONArray jArray = new JSONArray();
             while (it.hasNext()) {
-                AbstractBackupPath p = it.next();
-                if (!filter.isEmpty() && BackupFileType.valueOf(filter) != p.getType()) continue;
-                JSONObject backupJSON = new JSONObject();
-                backupJSON.put("bucket", config.getBackupPrefix());
-                backupJSON.put("filename", p.getRemotePath());
-                backupJSON.put("app", p.getClusterName());
-                backupJSON.put("region", p.getRegion());
-                backupJSON.put("token", p.getToken());
-                backupJSON.put("ts", DateUtil.formatyyyyMMddHHmm(p.getTime()));
-                backupJSON.put(
-                        "instance_id", p.getInstanceIdentity().getInstance().getInstanceId());
-                backupJSON.put("uploaded_ts", DateUtil.formatyyyyMMddHHmm(p.getUploadedTs()));
-                if ("meta".equalsIgnoreCase(filter)) { // only check for existence of meta file
-                    p.setFileName(
-                            "meta.json"); // ignore incremental meta files, we are only interested
-                    // in daily snapshot
-                    if (metaData.doesExist(p)) {
-                        // if here, snapshot completed.
-                        fileCnt++;
-                        jArray.put(backupJSON);
-                        backupJSON.put("num_files", "1");
-                    }
-                } else { // account for every file (data, and meta) .
+                JSONObject backupJSON = toJson(it.next(), filter);
+                if (backupJSON != null) {
                     fileCnt++;
                     jArray.put(backupJSON);
                 }
@@ -282,4 +302,33 @@ public class BackupServlet {
         }
         return object;
     }
+
+    private static String parseFilter(String filter) {
+        return filter.contains("?") ? filter.substring(0, filter.indexOf("?")) : filter;
+    }
+
+    /*
+     * @return the file in Json format, or null if it does not match the filter.
+     */
+    private JSONObject toJson(AbstractBackupPath p, String filter) throws Exception {
+        if (!filter.isEmpty() && BackupFileType.valueOf(filter) != p.getType()) return null;
+        JSONObject backupJSON = new JSONObject();
+        backupJSON.put("bucket", config.getBackupPrefix());
+        backupJSON.put("filename", p.getRemotePath());
+        backupJSON.put("app", p.getClusterName());
+        backupJSON.put("region", p.getRegion());
+        backupJSON.put("token", p.getToken());
+        backupJSON.put("ts", DateUtil.formatyyyyMMddHHmm(p.getTime()));
+        backupJSON.put("instance_id", p.getInstanceIdentity().getInstance().getInstanceId());
+        backupJSON.put("uploaded_ts", DateUtil.formatyyyyMMddHHmm(p.getUploadedTs()));
+        if ("meta".equalsIgnoreCase(filter)) { // only check for existence of meta file
+            p.setFileName("meta.json"); // ignore incremental meta files, we are only interested
+            // in daily snapshot
+            if (!metaData.doesExist(p)) return null;
+            // if here, snapshot completed.
+            backupJSON.put("num_files", "1");
+        }
+        // account for every file (data, and meta) .
+        return backupJSON;
+    }
 }
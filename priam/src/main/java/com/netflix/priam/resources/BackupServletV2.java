@@ -17,6 +17,7 @@
 
 package com.netflix.priam.resources;
 
+import com.google.common.collect.Iterators;
 import com.netflix.priam.backup.*;
 import com.netflix.priam.backupv2.BackupTTLTask;
 import com.netflix.priam.backupv2.BackupV2Service;
@@ -26,8 +27,10 @@ import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.utils.DateUtil;
 import com.netflix.priam.utils.DateUtil.DateRange;
 import com.netflix.priam.utils.GsonJsonSerializer;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -37,6 +40,7 @@ import javax.inject.Provider;
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import org.codehaus.jettison.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -53,6 +57,7 @@ public class BackupServletV2 {
     private final IMetaProxy metaProxy;
     private final Provider<AbstractBackupPath> pathProvider;
     private final BackupV2Service backupService;
+    private final IConfiguration configuration;
     private static final String REST_SUCCESS = "[\"ok\"]";
 
     @Inject
@@ -74,6 +79,7 @@ public class BackupServletV2 {
         this.metaProxy = metaV2Proxy;
         this.pathProvider = pathProvider;
         this.backupService = backupService;
+        this.configuration = configuration;
     }
 
     @GET
@@ -161,4 +167,47 @@ public class BackupServletV2 {
                                                 .collect(Collectors.toList())))
                 .build();
     }
+
+    /**
+     * Same as {@link #list(String)}, but streams the remote path of each file as newline delimited
+     * JSON while the incrementals are being listed, followed by a summary line. See {@link
+     * NdjsonListing}.
+     *
+     * @param daterange date range to list the files for.
+     * @param limit maximum number of files to return, 0 for no limit.
+     * @param marker the next_marker of the previous response to continue from.
+     */
+    @GET
+    @Path("/list/stream/{daterange}")
+    @Produces(NdjsonListing.MEDIA_TYPE)
+    public Response listStream(
+            @PathParam("daterange") String daterange,
+            @QueryParam("limit") @DefaultValue("1000") int limit,
+            @QueryParam("marker") @DefaultValue("") String marker)
+            throws Exception {
+        DateUtil.DateRange dateRange = new DateUtil.DateRange(daterange);
+        Optional<AbstractBackupPath> latestValidMetaFile =
+                BackupRestoreUtil.getLatestValidMetaPath(metaProxy, dateRange);
+        if (!latestValidMetaFile.isPresent()) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity("No valid meta found!")
+                    .build();
+        }
+        Iterator<AbstractBackupPath> allFiles =
+                Iterators.concat(
+                        BackupRestoreUtil.getMostRecentSnapshotPaths(
+                                        latestValidMetaFile.get(), metaProxy, pathProvider)
+                                .iterator(),
+                        BackupRestoreUtil.getIncrementals(
+                                latestValidMetaFile.get(), dateRange, metaProxy));
+        NdjsonListing<AbstractBackupPath> listing =
+                new NdjsonListing<>(
+                        allFiles,
+                        AbstractBackupPath::getRemotePath,
+                        path -> JSONObject.quote(path.getRemotePath()),
+                        limit,
+                        marker,
+                        Duration.ofSeconds(configuration.getBackupListingTimeoutInSecs()));
+        return Response.ok(listing, NdjsonListing.MEDIA_TYPE).build();
+    }
 }
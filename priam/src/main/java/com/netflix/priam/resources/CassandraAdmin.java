@@ -19,7 +19,8 @@ package com.netflix.priam.resources;
 import com.google.common.collect.Lists;
 import com.netflix.priam.cluster.management.Compaction;
 import com.netflix.priam.cluster.management.Flush;
-import com.netflix.priam.compress.SnappyCompression;
+import com.netflix.priam.compress.CompressionCodecs;
+import com.netflix.priam.compress.CompressionType;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.connection.CassandraOperations;
 import com.netflix.priam.connection.JMXConnectionException;
@@ -491,14 +492,18 @@ public class CassandraAdmin {
     /*
     @parm in - absolute path on disk of compressed file.
     @param out - absolute path on disk for output, decompressed file
-    @parapm compression algorithn -- optional and if not provided, defaults to Snappy
+    @param compression algorithm -- optional and if not provided, defaults to Snappy
     */
     @GET
     @Path("/decompress")
-    public Response decompress(@QueryParam("in") String in, @QueryParam("out") String out)
+    public Response decompress(
+            @QueryParam("in") String in,
+            @QueryParam("out") String out,
+            @DefaultValue("SNAPPY") @QueryParam("compression") String compression)
             throws Exception {
-        SnappyCompression compress = new SnappyCompression();
-        compress.decompressAndClose(new FileInputStream(in), new FileOutputStream(out));
+        CompressionCodecs.withDefaultLevels()
+                .get(CompressionType.valueOf(compression))
+                .decompressAndClose(new FileInputStream(in), new FileOutputStream(out));
         JSONObject object = new JSONObject();
         object.put("Input compressed file", in);
         object.put("Output decompress file", out);
@@ -18,6 +18,7 @@ package com.netflix.priam.resources;
 
 import com.netflix.priam.PriamServer;
 import com.netflix.priam.identity.DoubleRing;
+import com.netflix.priam.identity.InstanceIdentity;
 import com.netflix.priam.merics.CassMonitorMetrics;
 import java.io.IOException;
 import java.util.HashMap;
@@ -29,6 +30,7 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import org.apache.commons.lang3.StringUtils;
+import org.json.simple.JSONObject;
 import org.json.simple.JSONValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,6 +42,8 @@ import org.slf4j.LoggerFactory;
 @Produces(MediaType.TEXT_PLAIN)
 public class CassandraConfig {
     private static final Logger logger = LoggerFactory.getLogger(CassandraConfig.class);
+    private static final long MAX_BOOTSTRAP_WAIT_MS = 60 * 1000;
+    private static final long BOOTSTRAP_POLL_INTERVAL_MS = 1000;
     private final PriamServer priamServer;
     private final DoubleRing doubleRing;
     private final CassMonitorMetrics metrics;
@@ -146,6 +150,57 @@ public class CassandraConfig {
         }
     }
 
+    /**
+     * Return everything Cassandra needs at startup (token, seeds, replacement information and
+     * extra environment parameters) as one JSON document. If the token or the seeds are not known
+     * yet, the request is held for up to {@code timeout_ms} milliseconds (capped at one minute)
+     * waiting for them, so that callers do not have to poll on a coarse interval.
+     *
+     * @param timeoutMs how long to wait for the properties to become available.
+     * @return 200 with the properties, or 503 if they did not become available in time.
+     */
+    @GET
+    @Path("/get_bootstrap_properties")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getBootstrapProperties(
+            @QueryParam("timeout_ms") @DefaultValue("0") long timeoutMs) {
+        long deadline =
+                System.currentTimeMillis()
+                        + Math.min(Math.max(timeoutMs, 0), MAX_BOOTSTRAP_WAIT_MS);
+        try {
+            while (true) {
+                InstanceIdentity identity = priamServer.getInstanceIdentity();
+                String token = identity.getInstance().getToken();
+                List<String> seeds = identity.getSeeds();
+                if (StringUtils.isNotBlank(token) && !seeds.isEmpty()) {
+                    metrics.incGetToken();
+                    metrics.incGetSeeds();
+                    Map<String, String> extraEnvParams =
+                            priamServer.getConfiguration().getExtraEnvParams();
+                    JSONObject properties = new JSONObject();
+                    properties.put("token", token);
+                    properties.put("seeds", StringUtils.join(seeds, ','));
+                    properties.put("is_replace", identity.isReplace());
+                    properties.put("replaced_ip", identity.getReplacedIp());
+                    properties.put(
+                            "extra_env_params",
+                            extraEnvParams == null ? new HashMap<>() : extraEnvParams);
+                    return Response.ok(properties.toJSONString()).build();
+                }
+                if (System.currentTimeMillis() >= deadline) break;
+                Thread.sleep(BOOTSTRAP_POLL_INTERVAL_MS);
+            }
+            logger.error("Bootstrap properties are not available yet.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while waiting for bootstrap properties", e);
+        } catch (Exception e) {
+            logger.error("Error while executing get_bootstrap_properties", e);
+            return Response.serverError().build();
+        }
+        return Response.status(Status.SERVICE_UNAVAILABLE).build();
+    }
+
     @GET
     @Path("/double_ring")
     public Response doubleRing() throws IOException, ClassNotFoundException {
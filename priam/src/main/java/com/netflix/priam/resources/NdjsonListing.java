@@ -0,0 +1,131 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.resources;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import javax.ws.rs.core.StreamingOutput;
+import org.apache.commons.lang3.StringUtils;
+import org.codehaus.jettison.json.JSONObject;
+
+/**
+ * Writes a listing as newline delimited JSON while it is being enumerated, one item per line, so
+ * that neither the server nor the client has to hold the whole listing.
+ *
+ * <p>At most {@code limit} items are written, starting after the item whose marker is {@code
+ * marker}, and the listing stops once {@code timeout} has passed. The last line is a summary with
+ * the number of items written and, if the listing stopped before the end, the {@code next_marker}
+ * to pass to get the rest. Markers are only meaningful for the same listing, as the items before
+ * the marker are enumerated again and skipped. A listing that fails part way ends without the
+ * summary line.
+ */
+class NdjsonListing<T> implements StreamingOutput {
+    static final String MEDIA_TYPE = "application/x-ndjson";
+    private static final int FLUSH_EVERY = 100;
+
+    private final Iterator<T> items;
+    private final Function<T, String> toMarker;
+    private final ToJson<T> toJson;
+    private final int limit;
+    private final String marker;
+    private final Duration timeout;
+
+    /**
+     * @param items the listing
+     * @param toMarker marker of an item, unique within the listing
+     * @param toJson JSON of an item on a single line, or null to leave the item out
+     * @param limit maximum number of items to write, 0 or less for no limit
+     * @param marker marker of the item to start after, empty to start at the beginning
+     * @param timeout time after which the listing stops
+     */
+    NdjsonListing(
+            Iterator<T> items,
+            Function<T, String> toMarker,
+            ToJson<T> toJson,
+            int limit,
+            String marker,
+            Duration timeout) {
+        this.items = items;
+        this.toMarker = toMarker;
+        this.toJson = toJson;
+        this.limit = limit;
+        this.marker = marker;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        Writer writer =
+                new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        boolean skipping = StringUtils.isNotBlank(marker);
+        String lastMarker = null;
+        int count = 0;
+        boolean timedOut = false;
+        while (items.hasNext()) {
+            if (System.nanoTime() - deadline >= 0) {
+                timedOut = true;
+                break;
+            }
+            if (limit > 0 && count >= limit) break;
+            T item = items.next();
+            String itemMarker = toMarker.apply(item);
+            if (skipping) {
+                skipping = !marker.equals(itemMarker);
+                continue;
+            }
+            String json;
+            try {
+                json = toJson.apply(item);
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("Unable to convert " + itemMarker + " to JSON", e);
+            }
+            lastMarker = itemMarker;
+            if (json == null) continue;
+            writer.write(json);
+            writer.write('\n');
+            if (++count % FLUSH_EVERY == 0) writer.flush();
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("num_files", count);
+        summary.put("timed_out", timedOut);
+        // If we stopped while still skipping, continue from the same marker.
+        String nextMarker = skipping ? marker : lastMarker;
+        if (nextMarker != null && (timedOut || items.hasNext()))
+            summary.put("next_marker", nextMarker);
+        writer.write(new JSONObject(summary).toString());
+        writer.write('\n');
+        writer.flush();
+    }
+
+    @FunctionalInterface
+    interface ToJson<T> {
+        String apply(T item) throws Exception;
+    }
+}
@@ -13,8 +13,11 @@
  */
 package com.netflix.priam.resources;
 
+import com.netflix.priam.aws.SecurityGroupReconciler;
 import com.netflix.priam.identity.IMembership;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import javax.inject.Inject;
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
@@ -32,10 +35,30 @@ public class SecurityGroupAdmin {
     private static final Logger log = LoggerFactory.getLogger(SecurityGroupAdmin.class);
     private static final String CIDR_TAG = "/32";
     private final IMembership membership;
+    private final SecurityGroupReconciler reconciler;
 
     @Inject
-    public SecurityGroupAdmin(IMembership membership) {
+    public SecurityGroupAdmin(IMembership membership, SecurityGroupReconciler reconciler) {
         this.membership = membership;
+        this.reconciler = reconciler;
+    }
+
+    /** Replace the ACL for the port range with the given IPs, changing only what differs. */
+    @PUT
+    public Response setACL(
+            @QueryParam("ip") List<String> ipAddrs,
+            @QueryParam("fromPort") int fromPort,
+            @QueryParam("toPort") int toPort) {
+        List<String> ranges = new ArrayList<>();
+        for (String ipAddr : ipAddrs)
+            ranges.add(ipAddr.endsWith(CIDR_TAG) ? ipAddr : ipAddr + CIDR_TAG);
+        try {
+            reconciler.reconcile(ranges, fromPort, toPort);
+        } catch (Exception e) {
+            log.error("Error while trying to reconcile the ACLs of a security group", e);
+            return Response.serverError().build();
+        }
+        return Response.ok().build();
     }
 
     @POST
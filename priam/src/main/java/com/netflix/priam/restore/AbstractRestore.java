@@ -178,7 +178,7 @@ public abstract class AbstractRestore extends Task implements IRestoreStrategy {
         new RetryableCallable<Void>() {
             public Void retriableCall() throws Exception {
                 logger.info("Attempting restore");
-                restore(dateRange);
+                restore(dateRange, false /* resume */);
                 logger.info("Restore completed");
 
                 // Wait for other server init to complete
@@ -189,6 +189,14 @@ public abstract class AbstractRestore extends Task implements IRestoreStrategy {
     }
 
     public void restore(DateUtil.DateRange dateRange) throws Exception {
+        restore(dateRange, false /* resume */);
+    }
+
+    /**
+     * @param resume true to keep the data already downloaded by an interrupted restore, which the
+     *     file system skips downloading again.
+     */
+    public void restore(DateUtil.DateRange dateRange, boolean resume) throws Exception {
         // fail early if post restore hook has invalid parameters
         if (!postRestoreHook.hasValidParameters()) {
             throw new PostRestoreHookException("Invalid PostRestoreHook parameters");
@@ -221,9 +229,10 @@ public abstract class AbstractRestore extends Task implements IRestoreStrategy {
             // Stop cassandra if its running
             stopCassProcess();
 
-            // Cleanup local data
+            // Cleanup local data, unless resuming a restore which downloaded some of it.
             File dataDir = new File(config.getDataFileLocation());
-            if (dataDir.exists() && dataDir.isDirectory()) FileUtils.cleanDirectory(dataDir);
+            if (resume) logger.info("Resuming restore, keeping the downloaded data");
+            else if (dataDir.exists() && dataDir.isDirectory()) FileUtils.cleanDirectory(dataDir);
 
             // Find latest valid meta file.
             Optional<AbstractBackupPath> latestValidMetaFile =
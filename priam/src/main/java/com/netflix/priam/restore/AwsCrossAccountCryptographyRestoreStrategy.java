@@ -16,7 +16,7 @@ package com.netflix.priam.restore;
 import com.netflix.priam.aws.S3CrossAccountFileSystem;
 import com.netflix.priam.backup.AbstractBackupPath;
 import com.netflix.priam.backup.MetaData;
-import com.netflix.priam.compress.ICompression;
+import com.netflix.priam.compress.CompressionCodecs;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.cred.ICredentialGeneric;
 import com.netflix.priam.cryptography.IFileCryptography;
@@ -54,7 +54,7 @@ public class AwsCrossAccountCryptographyRestoreStrategy extends EncryptedRestore
             Sleeper sleeper,
             @Named("filecryptoalgorithm") IFileCryptography fileCryptography,
             @Named("pgpcredential") ICredentialGeneric credential,
-            ICompression compress,
+            CompressionCodecs codecs,
             Provider<AbstractBackupPath> pathProvider,
             InstanceIdentity id,
             RestoreTokenSelector tokenSelector,
@@ -73,7 +73,7 @@ public class AwsCrossAccountCryptographyRestoreStrategy extends EncryptedRestore
                 tokenSelector,
                 credential,
                 fileCryptography,
-                compress,
+                codecs,
                 metaData,
                 instanceState,
                 postRestoreHook);
@@ -13,11 +13,14 @@
  */
 package com.netflix.priam.restore;
 
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashingOutputStream;
+import com.google.common.io.ByteStreams;
 import com.netflix.priam.backup.AbstractBackupPath;
 import com.netflix.priam.backup.IBackupFileSystem;
 import com.netflix.priam.backup.MetaData;
+import com.netflix.priam.compress.CompressionCodecs;
 import com.netflix.priam.compress.CompressionType;
-import com.netflix.priam.compress.ICompression;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.cred.ICredentialGeneric;
 import com.netflix.priam.cryptography.IFileCryptography;
@@ -28,13 +31,11 @@ import com.netflix.priam.scheduler.NamedThreadPoolExecutor;
 import com.netflix.priam.utils.RetryableCallable;
 import com.netflix.priam.utils.Sleeper;
 import java.io.*;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.concurrent.Future;
 import java.util.concurrent.ThreadPoolExecutor;
 import javax.inject.Provider;
-import org.bouncycastle.util.io.Streams;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,7 +47,7 @@ public abstract class EncryptedRestoreBase extends AbstractRestore {
     private final String jobName;
     private final ICredentialGeneric pgpCredential;
     private final IFileCryptography fileCryptography;
-    private final ICompression compress;
+    private final CompressionCodecs codecs;
     private final ThreadPoolExecutor executor;
 
     protected EncryptedRestoreBase(
@@ -60,7 +61,7 @@ public abstract class EncryptedRestoreBase extends AbstractRestore {
             RestoreTokenSelector tokenSelector,
             ICredentialGeneric pgpCredential,
             IFileCryptography fileCryptography,
-            ICompression compress,
+            CompressionCodecs codecs,
             MetaData metaData,
             InstanceState instanceState,
             IPostRestoreHook postRestoreHook) {
@@ -80,14 +81,13 @@ public abstract class EncryptedRestoreBase extends AbstractRestore {
         this.jobName = jobName;
         this.pgpCredential = pgpCredential;
         this.fileCryptography = fileCryptography;
-        this.compress = compress;
+        this.codecs = codecs;
         executor = new NamedThreadPoolExecutor(config.getRestoreThreads(), jobName);
         executor.allowCoreThreadTimeOut(true);
         logger.info(
-                "Trying to restore cassandra cluster with filesystem: {}, RestoreStrategy: {}, Encryption: ON, Compression: {}",
+                "Trying to restore cassandra cluster with filesystem: {}, RestoreStrategy: {}, Encryption: ON, Compression: of each file",
                 fs.getClass(),
-                jobName,
-                compress.getClass());
+                jobName);
     }
 
     @Override
@@ -125,18 +125,16 @@ public abstract class EncryptedRestoreBase extends AbstractRestore {
 
                         // == object downloaded successfully from source, decrypt it.
                         File decryptedFile = new File(tempFile.getAbsolutePath() + ".decrypted");
-                        try (OutputStream fOut =
-                                        new BufferedOutputStream(
-                                                new FileOutputStream(
-                                                        decryptedFile)); // destination file after
-                                // decryption)
-                                InputStream in =
-                                        new BufferedInputStream(
-                                                new FileInputStream(tempFile.getAbsolutePath()))) {
-                            InputStream encryptedDataInputStream =
-                                    fileCryptography.decryptStream(
-                                            in, passPhrase, tempFile.getAbsolutePath());
-                            Streams.pipeAll(encryptedDataInputStream, fOut);
+                        HashCode plaintext = null;
+                        try {
+                            if (path.getCompression() == CompressionType.NONE) {
+                                // Nothing to uncompress, so decrypt to the final destination and
+                                // hash the plaintext on the way.
+                                plaintext = decrypt(tempFile, restoreLocation, passPhrase);
+                            } else {
+                                // Either format of encryption, segments are decrypted in parallel.
+                                fileCryptography.decryptFile(tempFile, decryptedFile, passPhrase);
+                            }
                             logger.info(
                                     "Completed decrypting file: {} to final file dest: {}",
                                     tempFile.getAbsolutePath(),
@@ -161,7 +159,7 @@ public abstract class EncryptedRestoreBase extends AbstractRestore {
 
                         // == object is downloaded and decrypted, now uncompress it if necessary
                         if (path.getCompression() == CompressionType.NONE) {
-                            Files.move(decryptedFile.toPath(), restoreLocation.toPath());
+                            path.verifyChecksum(plaintext);
                         } else {
                             logger.info(
                                     "Start uncompressing file: {} to the FINAL destination stream",
@@ -170,10 +168,15 @@ public abstract class EncryptedRestoreBase extends AbstractRestore {
                             try (InputStream is =
                                             new BufferedInputStream(
                                                     new FileInputStream(decryptedFile));
-                                    BufferedOutputStream finalDestination =
-                                            new BufferedOutputStream(
-                                                    new FileOutputStream(restoreLocation))) {
-                                compress.decompressAndClose(is, finalDestination);
+                                    HashingOutputStream finalDestination =
+                                            new HashingOutputStream(
+                                                    AbstractBackupPath.CHECKSUM_FUNCTION,
+                                                    new BufferedOutputStream(
+                                                            new FileOutputStream(
+                                                                    restoreLocation)))) {
+                                codecs.get(path.getCompression())
+                                        .decompressAndClose(is, finalDestination);
+                                path.verifyChecksum(finalDestination.hash());
                             } catch (Exception ex) {
                                 throw new Exception(
                                         "Exception uncompressing file: "
@@ -201,6 +204,21 @@ public abstract class EncryptedRestoreBase extends AbstractRestore {
                 });
     }
 
+    /** @return the checksum of the plaintext written to the destination. */
+    private HashCode decrypt(File encrypted, File destination, char[] passPhrase)
+            throws Exception {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(encrypted));
+                HashingOutputStream out =
+                        new HashingOutputStream(
+                                AbstractBackupPath.CHECKSUM_FUNCTION,
+                                new BufferedOutputStream(new FileOutputStream(destination)))) {
+            ByteStreams.copy(
+                    fileCryptography.decryptStream(in, passPhrase, encrypted.getAbsolutePath()),
+                    out);
+            return out.hash();
+        }
+    }
+
     @Override
     public String getName() {
         return this.jobName;
@@ -17,17 +17,25 @@
 package com.netflix.priam.restore;
 
 import com.netflix.priam.config.IConfiguration;
+import com.netflix.priam.merics.PostRestoreHookMetrics;
 import com.netflix.priam.scheduler.NamedThreadPoolExecutor;
-import com.netflix.priam.utils.RetryableCallable;
 import com.netflix.priam.utils.Sleeper;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
+import javax.inject.Singleton;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,21 +43,31 @@ import org.slf4j.LoggerFactory;
 /**
  * An implementation of IPostRestoreHook. Kicks off a child process for post restore hook using
  * ProcessBuilder; uses heart beat monitor to monitor progress of the sub process and uses a file
- * lock to pass the active state to the sub process
+ * lock to pass the active state to the sub process. The sub process is restarted with exponential
+ * backoff when it fails or stops beating.
  */
+@Singleton
 public class PostRestoreHook implements IPostRestoreHook {
     private static final Logger logger = LoggerFactory.getLogger(PostRestoreHook.class);
     private final IConfiguration config;
     private final Sleeper sleeper;
+    private final PostRestoreHookMetrics metrics;
+    // One thread, shared by all attempts, which times out when there is no hook running.
+    private final ThreadPoolExecutor heartBeatPoolExecutor;
     private static final String PostRestoreHookCommandDelimiter = " ";
     private static final String PriamPostRestoreHookFilePrefix = "PriamFileForPostRestoreHook";
     private static final String PriamPostRestoreHookFileSuffix = ".tmp";
     private static final String PriamPostRestoreHookFileOptionName = "--parentHookFilePath=";
+    private static final long INITIAL_RESTART_BACKOFF_MS = 1000;
 
     @Inject
-    public PostRestoreHook(IConfiguration config, Sleeper sleeper) {
+    public PostRestoreHook(IConfiguration config, Sleeper sleeper, PostRestoreHookMetrics metrics) {
         this.config = config;
         this.sleeper = sleeper;
+        this.metrics = metrics;
+        this.heartBeatPoolExecutor =
+                new NamedThreadPoolExecutor(1, "PostRestoreHook_HeartBeatThreadPool");
+        this.heartBeatPoolExecutor.allowCoreThreadTimeOut(true);
     }
 
     /**
@@ -90,12 +108,23 @@ public class PostRestoreHook implements IPostRestoreHook {
                 if (lock.isValid()) {
                     logger.info("Lock on RestoreHookFile acquired");
                     int countOfProcessStarts = 0;
+                    long backoffMs = INITIAL_RESTART_BACKOFF_MS;
                     while (true) {
+                        if (countOfProcessStarts > 0) {
+                            logger.info("Restarting PostRestoreHook in {} ms", backoffMs);
+                            sleeper.sleep(backoffMs);
+                            backoffMs =
+                                    Math.min(
+                                            2 * backoffMs,
+                                            config.getPostRestoreHookMaxRestartBackoffInMs());
+                        }
+
                         if (doneFileExists()) {
                             logger.info(
                                     "Not starting PostRestoreHook since DONE file already exists.");
                             break;
                         }
+                        if (countOfProcessStarts > 0) metrics.incrementRestarts();
 
                         String postRestoreHook = config.getPostRestoreHook();
                         // add temp file path as parameter to the jar file
@@ -109,6 +138,7 @@ public class PostRestoreHook implements IPostRestoreHook {
                         ProcessBuilder processBuilder = new ProcessBuilder(processCommandArguments);
 
                         // start sub-process
+                        long start = System.nanoTime();
                         Process process = processBuilder.inheritIO().start();
                         logger.info(
                                 "Started PostRestoreHook: {} - Attempt#{}",
@@ -116,15 +146,20 @@ public class PostRestoreHook implements IPostRestoreHook {
                                 ++countOfProcessStarts);
 
                         // monitor progress of sub-process
-                        monitorPostRestoreHookHeartBeat(process);
+                        Future<?> heartBeatMonitor = monitorPostRestoreHookHeartBeat(process);
 
                         // block until sub-process completes or until the timeout
-                        if (!process.waitFor(
-                                config.getPostRestoreHookTimeOutInDays(), TimeUnit.DAYS)) {
-                            logger.info(
-                                    "PostRestoreHook process did not complete within {} days. Forcefully terminating the process.",
-                                    config.getPostRestoreHookTimeOutInDays());
-                            process.destroyForcibly();
+                        try {
+                            if (!process.waitFor(
+                                    config.getPostRestoreHookTimeOutInDays(), TimeUnit.DAYS)) {
+                                logger.info(
+                                        "PostRestoreHook process did not complete within {} days. Forcefully terminating the process.",
+                                        config.getPostRestoreHookTimeOutInDays());
+                                process.destroyForcibly().waitFor();
+                            }
+                        } finally {
+                            heartBeatMonitor.cancel(true);
+                            metrics.recordAttempt(System.nanoTime() - start);
                         }
 
                         if (process.exitValue() == 0) {
@@ -151,40 +186,72 @@ public class PostRestoreHook implements IPostRestoreHook {
     }
 
     /**
-     * Monitors heart beat of the process
+     * Monitors heart beat of the process, killing it when the heart beat file is not modified for
+     * the heart beat timeout. Modifications are seen as they happen through a {@link
+     * WatchService}. The modification time of the file is also checked at the heart beat check
+     * frequency, for file systems which do not report modifications.
      *
      * @param process Process to be monitored
-     * @throws InterruptedException
-     * @throws IOException
+     * @return the monitor, to be cancelled once the process exits.
      */
-    private void monitorPostRestoreHookHeartBeat(Process process)
-            throws InterruptedException, IOException {
-        File heartBeatFile = new File(config.getPostRestoreHookHeartbeatFileName());
-        ThreadPoolExecutor heartBeatPoolExecutor =
-                new NamedThreadPoolExecutor(1, "PostRestoreHook_HeartBeatThreadPool");
-        heartBeatPoolExecutor.allowCoreThreadTimeOut(true);
-        heartBeatPoolExecutor.submit(
-                new RetryableCallable<Integer>() {
-                    @Override
-                    public Integer retriableCall() throws Exception {
-                        while (true) {
-                            sleeper.sleep(config.getPostRestoreHookHeartbeatCheckFrequencyInMs());
-                            if (System.currentTimeMillis() - heartBeatFile.lastModified()
-                                    > config.getPostRestoreHookHeartBeatTimeoutInMs()) {
-                                // kick off post restore hook process, since there is no heartbeat
-                                logger.info(
-                                        "No heartbeat for the last {} ms, killing the existing process.",
-                                        config.getPostRestoreHookHeartBeatTimeoutInMs());
-                                if (process.isAlive()) {
-                                    process.destroyForcibly();
-                                }
-                                return 0;
-                            }
-                        }
+    private Future<?> monitorPostRestoreHookHeartBeat(Process process) {
+        return heartBeatPoolExecutor.submit(
+                () -> {
+                    Path heartBeatFile =
+                            new File(config.getPostRestoreHookHeartbeatFileName())
+                                    .toPath()
+                                    .toAbsolutePath();
+                    try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+                        watchHeartBeat(process, heartBeatFile, watchService);
+                    } catch (InterruptedException e) {
+                        // process exited
+                    } catch (IOException e) {
+                        logger.warn("Unable to monitor heartbeat of PostRestoreHook", e);
                     }
+                    return null;
                 });
     }
 
+    private void watchHeartBeat(Process process, Path heartBeatFile, WatchService watchService)
+            throws InterruptedException {
+        try {
+            heartBeatFile
+                    .getParent()
+                    .register(
+                            watchService,
+                            StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            logger.warn("Unable to watch {}, checking it periodically", heartBeatFile, e);
+        }
+        long timeoutMs = config.getPostRestoreHookHeartBeatTimeoutInMs();
+        long lastHeartBeat = System.currentTimeMillis();
+        while (process.isAlive()) {
+            long waitMs =
+                    Math.min(
+                            lastHeartBeat + timeoutMs - System.currentTimeMillis(),
+                            config.getPostRestoreHookHeartbeatCheckFrequencyInMs());
+            WatchKey key = waitMs > 0 ? watchService.poll(waitMs, TimeUnit.MILLISECONDS) : null;
+            if (key != null) {
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (heartBeatFile.getFileName().equals(event.context()))
+                        lastHeartBeat = System.currentTimeMillis();
+                }
+                key.reset();
+            }
+            lastHeartBeat = Math.max(lastHeartBeat, heartBeatFile.toFile().lastModified());
+            if (System.currentTimeMillis() - lastHeartBeat > timeoutMs) {
+                // kick off post restore hook process, since there is no heartbeat
+                logger.info(
+                        "No heartbeat for the last {} ms, killing the existing process.",
+                        timeoutMs);
+                metrics.incrementHeartbeatTimeouts();
+                process.destroyForcibly();
+                return;
+            }
+        }
+    }
+
     /**
      * Checks for presence of DONE file
      *
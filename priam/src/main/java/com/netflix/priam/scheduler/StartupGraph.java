@@ -0,0 +1,149 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.scheduler;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableMap;
+import com.netflix.spectator.api.Registry;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A small set of named startup steps with dependencies between them. Each step starts as soon as
+ * all the steps it depends on have finished, so steps that do not depend on each other run
+ * concurrently. A step whose dependency failed is not run. The duration of every step is recorded
+ * as a timer tagged with the step name.
+ */
+public class StartupGraph {
+    private static final Logger logger = LoggerFactory.getLogger(StartupGraph.class);
+
+    /** A unit of startup work. */
+    public interface Step {
+        void run() throws Exception;
+    }
+
+    private final String name;
+    private final Registry registry;
+    private final Map<String, StepNode> steps = new LinkedHashMap<>();
+    private final Map<String, Long> durations = new ConcurrentHashMap<>();
+
+    public StartupGraph(String name, Registry registry) {
+        this.name = name;
+        this.registry = registry;
+    }
+
+    /**
+     * Add a step. Dependencies must have been added before, which keeps the graph acyclic.
+     *
+     * @param stepName unique name of the step, used in logs and metrics.
+     * @param step the work to do.
+     * @param dependsOn names of the steps that must finish before this one starts.
+     * @return this graph
+     */
+    public StartupGraph add(String stepName, Step step, String... dependsOn) {
+        Preconditions.checkArgument(!steps.containsKey(stepName), "Duplicate step %s", stepName);
+        for (String dependency : dependsOn) {
+            Preconditions.checkArgument(
+                    steps.containsKey(dependency),
+                    "Step %s depends on unknown step %s",
+                    stepName,
+                    dependency);
+        }
+        steps.put(stepName, new StepNode(step, dependsOn));
+        return this;
+    }
+
+    /**
+     * Run all the steps on {@code executor} and wait for them to finish.
+     *
+     * @param executor executor to run the steps on.
+     * @throws Exception the failure of the first failed step, in the order steps were added.
+     */
+    public void run(ExecutorService executor) throws Exception {
+        Stopwatch total = Stopwatch.createStarted();
+        Map<String, CompletableFuture<Void>> futures = new LinkedHashMap<>();
+        for (Map.Entry<String, StepNode> entry : steps.entrySet()) {
+            String stepName = entry.getKey();
+            StepNode node = entry.getValue();
+            List<CompletableFuture<Void>> dependencies = new ArrayList<>();
+            for (String dependency : node.dependsOn) dependencies.add(futures.get(dependency));
+            CompletableFuture<Void> future =
+                    CompletableFuture.allOf(dependencies.toArray(new CompletableFuture[0]))
+                            .thenRunAsync(() -> runStep(stepName, node.step), executor);
+            futures.put(stepName, future);
+        }
+
+        Exception failure = null;
+        for (Map.Entry<String, CompletableFuture<Void>> entry : futures.entrySet()) {
+            try {
+                entry.getValue().get();
+            } catch (ExecutionException e) {
+                if (failure == null) failure = unwrap(e.getCause());
+            }
+        }
+        long elapsed = total.elapsed(TimeUnit.MILLISECONDS);
+        registry.timer(name, "step", "total").record(elapsed, TimeUnit.MILLISECONDS);
+        logger.info("{} finished in {} ms. Step durations in ms: {}", name, elapsed, durations);
+        if (failure != null) throw failure;
+    }
+
+    /** @return duration in milliseconds of every step that ran, by step name. */
+    public ImmutableMap<String, Long> getDurations() {
+        return ImmutableMap.copyOf(durations);
+    }
+
+    private void runStep(String stepName, Step step) {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        try {
+            step.run();
+        } catch (Exception e) {
+            logger.error("Startup step {} failed", stepName, e);
+            throw new CompletionException(e);
+        } finally {
+            long elapsed = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+            durations.put(stepName, elapsed);
+            registry.timer(name, "step", stepName).record(elapsed, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static Exception unwrap(Throwable cause) {
+        while (cause instanceof CompletionException && cause.getCause() != null)
+            cause = cause.getCause();
+        return cause instanceof Exception ? (Exception) cause : new RuntimeException(cause);
+    }
+
+    private static final class StepNode {
+        private final Step step;
+        private final String[] dependsOn;
+
+        StepNode(Step step, String[] dependsOn) {
+            this.step = step;
+            this.dependsOn = dependsOn;
+        }
+    }
+}
@@ -23,8 +23,9 @@ import java.util.Set;
 import javax.inject.Singleton;
 
 /**
- * List of Garbage collection parameters for CMS/G1GC. This list is used to automatically
- * enable/disable configurations, if found in jvm.options. Created by aagrawal on 8/23/17.
+ * List of Garbage collection parameters for CMS/G1GC/ZGC/Shenandoah. This list is used to
+ * automatically enable/disable configurations, if found in jvm.options. Created by aagrawal on
+ * 8/23/17.
  */
 @Singleton
 public class GCTuner {
@@ -72,11 +73,37 @@ public class GCTuner {
                             "-XX:NewRatio",
                             "-XX:G1RSetUpdatingPauseTimePercent"));
 
+    private static final Set<String> zgcOptions =
+            new HashSet<>(
+                    Arrays.asList(
+                            "-XX:+UseZGC",
+                            "-XX:ZCollectionInterval",
+                            "-XX:ZAllocationSpikeTolerance",
+                            "-XX:ZFragmentationLimit",
+                            "-XX:+ZUncommit",
+                            "-XX:-ZUncommit",
+                            "-XX:ZUncommitDelay"));
+
+    private static final Set<String> shenandoahOptions =
+            new HashSet<>(
+                    Arrays.asList(
+                            "-XX:+UseShenandoahGC",
+                            "-XX:ShenandoahGCMode",
+                            "-XX:ShenandoahGCHeuristics",
+                            "-XX:ShenandoahInitFreeThreshold",
+                            "-XX:ShenandoahMinFreeThreshold",
+                            "-XX:ShenandoahAllocSpikeFactor",
+                            "-XX:ShenandoahGuaranteedGCInterval"));
+
     static final GCType getGCType(String option) {
         if (cmsOptions.contains(option)) return GCType.CMS;
 
         if (g1gcOptions.contains(option)) return GCType.G1GC;
 
+        if (zgcOptions.contains(option)) return GCType.ZGC;
+
+        if (shenandoahOptions.contains(option)) return GCType.SHENANDOAH;
+
         return null;
     }
 
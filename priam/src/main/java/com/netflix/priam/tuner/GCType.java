@@ -23,12 +23,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Garbage collection types supported by Priam for Cassandra (CMS/G1GC). Created by aagrawal on
- * 8/24/17.
+ * Garbage collection types supported by Priam for Cassandra (CMS/G1GC/ZGC/SHENANDOAH). ZGC and
+ * Shenandoah need a JVM that ships them. Created by aagrawal on 8/24/17.
  */
 public enum GCType {
     CMS("CMS"),
-    G1GC("G1GC");
+    G1GC("G1GC"),
+    ZGC("ZGC"),
+    SHENANDOAH("SHENANDOAH");
 
     private static final Logger logger = LoggerFactory.getLogger(GCType.class);
     private final String gcType;
@@ -105,4 +107,12 @@ public enum GCType {
     public String getGcType() {
         return gcType;
     }
+
+    /**
+     * @return true if the young generation should be sized explicitly (-Xmn) for this collector.
+     *     Only CMS needs it; the other collectors size their generations, if any, on their own.
+     */
+    public boolean usesFixedNewSize() {
+        return this == CMS;
+    }
 }
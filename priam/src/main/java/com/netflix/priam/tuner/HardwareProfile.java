@@ -0,0 +1,256 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.tuner;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cores, memory and disk type of the instance as seen from /proc and /sys. Cgroup (v1 and v2)
+ * limits on CPU and memory are honoured, so a container gets its share rather than the size of the
+ * host.
+ */
+public class HardwareProfile {
+    private static final Logger logger = LoggerFactory.getLogger(HardwareProfile.class);
+    // cgroup v1 reports "no limit" as a huge number rather than a marker.
+    private static final long UNLIMITED_MEMORY = Long.MAX_VALUE / 2;
+    // mountinfo escapes blanks and backslashes of paths in octal, e.g. \040 for a space.
+    private static final Pattern OCTAL_ESCAPE = Pattern.compile("\\\\([0-7]{3})");
+
+    private final int cores;
+    private final long memoryBytes;
+    private final boolean ssd;
+
+    public HardwareProfile(int cores, long memoryBytes, boolean ssd) {
+        this.cores = cores;
+        this.memoryBytes = memoryBytes;
+        this.ssd = ssd;
+    }
+
+    /**
+     * @param dataDir the Cassandra data directory, the disk type is that of the device holding it.
+     * @return the profile of the instance Priam is running on.
+     */
+    public static HardwareProfile detect(String dataDir) {
+        return detect(Paths.get("/proc"), Paths.get("/sys"), dataDir);
+    }
+
+    @VisibleForTesting
+    static HardwareProfile detect(Path proc, Path sys, String dataDir) {
+        HardwareProfile profile =
+                new HardwareProfile(
+                        detectCores(proc, sys),
+                        detectMemory(proc, sys),
+                        detectSsd(proc, sys, dataDir));
+        logger.info("Detected hardware: {}", profile);
+        return profile;
+    }
+
+    private static int detectCores(Path proc, Path sys) {
+        long online = countLines(proc.resolve("cpuinfo"), "processor");
+        int cores = online > 0 ? (int) online : Runtime.getRuntime().availableProcessors();
+
+        Path cgroup = sys.resolve("fs/cgroup");
+        // cgroup v2: "<quota> <period>" or "max <period>"
+        String[] cpuMax = split(read(cgroup.resolve("cpu.max")));
+        if (cpuMax.length == 2 && !cpuMax[0].equals("max")) {
+            return limitCores(cores, parseLong(cpuMax[0]), parseLong(cpuMax[1]));
+        }
+        // cgroup v1: a quota of -1 means no limit.
+        long quota = parseLong(read(cgroup.resolve("cpu/cpu.cfs_quota_us")));
+        long period = parseLong(read(cgroup.resolve("cpu/cpu.cfs_period_us")));
+        return limitCores(cores, quota, period);
+    }
+
+    private static int limitCores(int cores, long quota, long period) {
+        if (quota <= 0 || period <= 0) return cores;
+        return (int) Math.max(1, Math.min(cores, (quota + period - 1) / period));
+    }
+
+    private static long detectMemory(Path proc, Path sys) {
+        long memory = 0;
+        for (String line : readLines(proc.resolve("meminfo"))) {
+            if (line.startsWith("MemTotal:")) {
+                String[] parts = split(line);
+                // MemTotal:       16266076 kB
+                if (parts.length >= 2) memory = parseLong(parts[1]) * 1024;
+            }
+        }
+        if (memory <= 0) memory = Runtime.getRuntime().maxMemory();
+
+        Path cgroup = sys.resolve("fs/cgroup");
+        for (Path limitFile :
+                new Path[] {
+                    cgroup.resolve("memory.max"), cgroup.resolve("memory/memory.limit_in_bytes")
+                }) {
+            long limit = parseLong(read(limitFile));
+            if (limit > 0 && limit < UNLIMITED_MEMORY) memory = Math.min(memory, limit);
+        }
+        return memory;
+    }
+
+    /**
+     * Instance storage counts as SSD if the device holding the data directory does not report as
+     * rotational. If that device cannot be told, only if no physical block device does.
+     */
+    private static boolean detectSsd(Path proc, Path sys, String dataDir) {
+        String device = findMountedDevice(proc, dataDir);
+        if (device != null) {
+            String rotational = readRotational(sys.resolve("dev/block").resolve(device));
+            if (rotational != null) return rotational.equals("0");
+            logger.warn("Unable to tell if the device {} holding {} rotates", device, dataDir);
+        }
+        return detectAllSsd(sys);
+    }
+
+    /** @return major:minor of the device mounted on the closest parent of the dir, or null. */
+    private static String findMountedDevice(Path proc, String dir) {
+        Path path = Paths.get(dir).toAbsolutePath().normalize();
+        try {
+            path = path.toRealPath();
+        } catch (IOException e) {
+            // Not created yet, its parents are mounted anyway.
+        }
+        String device = null;
+        int longest = -1;
+        for (String line : readLines(proc.resolve("self/mountinfo"))) {
+            // 36 35 98:0 /mnt1 /mnt/parent rw,noatime master:1 - ext3 /dev/root rw,errors=continue
+            String[] fields = split(line);
+            if (fields.length < 5) continue;
+            Path mountPoint = Paths.get(unescape(fields[4]));
+            // A later mount on the same point hides the earlier ones.
+            if (path.startsWith(mountPoint) && mountPoint.getNameCount() >= longest) {
+                longest = mountPoint.getNameCount();
+                device = fields[2];
+            }
+        }
+        return device;
+    }
+
+    private static String unescape(String field) {
+        Matcher matcher = OCTAL_ESCAPE.matcher(field);
+        StringBuffer unescaped = new StringBuffer();
+        while (matcher.find()) {
+            char c = (char) Integer.parseInt(matcher.group(1), 8);
+            matcher.appendReplacement(unescaped, Matcher.quoteReplacement(String.valueOf(c)));
+        }
+        return matcher.appendTail(unescaped).toString();
+    }
+
+    /** @return the rotational flag of the block device, that of its disk for a partition. */
+    private static String readRotational(Path device) {
+        String rotational = read(device.resolve("queue/rotational"));
+        if (rotational != null || !Files.exists(device.resolve("partition"))) return rotational;
+        try {
+            return read(device.toRealPath().getParent().resolve("queue/rotational"));
+        } catch (IOException e) {
+            logger.warn("Unable to find the disk of the partition {}", device, e);
+            return null;
+        }
+    }
+
+    /** Instance storage counts as SSD only if no physical block device reports as rotational. */
+    private static boolean detectAllSsd(Path sys) {
+        Path block = sys.resolve("block");
+        if (!Files.isDirectory(block)) return false;
+        boolean seen = false;
+        try (DirectoryStream<Path> devices = Files.newDirectoryStream(block)) {
+            for (Path device : devices) {
+                String name = device.getFileName().toString();
+                if (name.startsWith("loop") || name.startsWith("ram") || name.startsWith("zram"))
+                    continue;
+                String rotational = read(device.resolve("queue/rotational"));
+                if (rotational == null) continue;
+                if (!rotational.equals("0")) return false;
+                seen = true;
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to list block devices under {}", block, e);
+            return false;
+        }
+        return seen;
+    }
+
+    private static long countLines(Path file, String prefix) {
+        return readLines(file).stream().filter(line -> line.startsWith(prefix)).count();
+    }
+
+    private static List<String> readLines(Path file) {
+        try {
+            if (Files.isReadable(file)) return Files.readAllLines(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            logger.warn("Unable to read {}", file, e);
+        }
+        return Collections.emptyList();
+    }
+
+    private static String read(Path file) {
+        List<String> lines = readLines(file);
+        return lines.isEmpty() ? null : lines.get(0).trim();
+    }
+
+    private static String[] split(String value) {
+        return value == null ? new String[0] : value.trim().split("\\s+");
+    }
+
+    private static long parseLong(String value) {
+        if (value == null) return -1;
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public int getCores() {
+        return cores;
+    }
+
+    public long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    public long getMemoryMB() {
+        return memoryBytes / (1024 * 1024);
+    }
+
+    public boolean isSsd() {
+        return ssd;
+    }
+
+    @Override
+    public String toString() {
+        return "HardwareProfile{cores="
+                + cores
+                + ", memoryMB="
+                + getMemoryMB()
+                + ", ssd="
+                + ssd
+                + '}';
+    }
+}
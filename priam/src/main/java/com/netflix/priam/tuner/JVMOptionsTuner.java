@@ -29,8 +29,9 @@ import org.slf4j.LoggerFactory;
 
 /**
  * This is to tune the jvm.options file introduced in Cassandra 3.x to pass JVM parameters to
- * Cassandra. It supports configuring GC type (CMS/G1GC) where it automatically activates default
- * properties as provided in jvm.options file. Note that this will not "add" any GC options.
+ * Cassandra. It supports configuring GC type (CMS/G1GC/ZGC/SHENANDOAH) where it automatically
+ * activates default properties as provided in jvm.options file. Note that this will not "add" any
+ * GC options. Heap sizes come from the {@link TuningProfile}.
  *
  * <p>Created by aagrawal on 8/23/17.
  */
@@ -84,6 +85,7 @@ public class JVMOptionsTuner {
         File jvmOptionsFile = new File(config.getJVMOptionsFileLocation());
         validate(jvmOptionsFile);
         final GCType configuredGC = config.getGCType();
+        final TuningProfile tuningProfile = new TuningProfile(config);
 
         final Map<String, JVMOption> excludeSet =
                 JVMOptionsTuner.parseJVMOptions(config.getJVMExcludeSet());
@@ -100,7 +102,8 @@ public class JVMOptionsTuner {
         List<String> configuredOptions = new LinkedList<>();
         for (String line : optionsFromFile) {
             configuredOptions.add(
-                    updateConfigurationValue(line, configuredGC, upsertSet, excludeSet));
+                    updateConfigurationValue(
+                            line, configuredGC, tuningProfile, upsertSet, excludeSet));
         }
 
         // Add all the upserts(inserts only left) from config.
@@ -129,6 +132,7 @@ public class JVMOptionsTuner {
     /**
      * @param line a line as read from jvm.options file.
      * @param configuredGC GCType configured by user for Cassandra.
+     * @param tuningProfile heap sizes for Cassandra.
      * @param upsertSet configured upsert set of JVM properties as provided by user for Cassandra.
      * @param excludeSet configured exclude set of JVM properties as provided by user for Cassandra.
      * @return the "comment" as is, if not a valid JVM option. Else, a string representation of JVM
@@ -137,6 +141,7 @@ public class JVMOptionsTuner {
     private String updateConfigurationValue(
             final String line,
             GCType configuredGC,
+            TuningProfile tuningProfile,
             Map<String, JVMOption> upsertSet,
             Map<String, JVMOption> excludeSet) {
 
@@ -149,18 +154,20 @@ public class JVMOptionsTuner {
             switch (option.getJvmOption()) {
                     // Special handling for heap new size ("Xmn")
                 case "-Xmn":
-                    configuredValue = config.getHeapNewSize();
+                    configuredValue = tuningProfile.getHeapNewSize();
                     break;
                     // Set min and max heap size to same value
                 default:
-                    configuredValue = config.getHeapSize();
+                    configuredValue = tuningProfile.getHeapSize();
                     break;
             }
             setHeapSetting(configuredValue, option);
         }
 
-        // We don't want Xmn with G1GC, allow the GC to determine optimal young gen
-        if (option.getJvmOption().equals("-Xmn") && configuredGC == GCType.G1GC)
+        // We only want Xmn with CMS, allow the other GCs to determine optimal young gen
+        if (option.getJvmOption().equals("-Xmn")
+                && configuredGC != null
+                && !configuredGC.usesFixedNewSize())
             option.setCommented(true);
 
         // Is parameter for GC.
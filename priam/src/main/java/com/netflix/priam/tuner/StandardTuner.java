@@ -59,6 +59,7 @@ public class StandardTuner implements ICassandraTuner {
         Yaml yaml = new Yaml(options);
         File yamlFile = new File(yamlLocation);
         Map map = yaml.load(new FileInputStream(yamlFile));
+        TuningProfile tuningProfile = new TuningProfile(config);
         map.put("cluster_name", config.getAppName());
         map.put("storage_port", config.getStoragePort());
         map.put("ssl_storage_port", config.getSSLStoragePort());
@@ -86,7 +87,7 @@ public class StandardTuner implements ICassandraTuner {
         if (map.containsKey("in_memory_compaction_limit_in_mb")) {
             map.remove("in_memory_compaction_limit_in_mb");
         }
-        map.put("compaction_throughput_mb_per_sec", config.getCompactionThroughput());
+        map.put("compaction_throughput_mb_per_sec", tuningProfile.getCompactionThroughput());
         map.put(
                 "partitioner",
                 derivePartitioner(map.get("partitioner").toString(), config.getPartitioner()));
@@ -95,7 +96,9 @@ public class StandardTuner implements ICassandraTuner {
             map.remove("memtable_total_space_in_mb");
         }
 
-        map.put("stream_throughput_outbound_megabits_per_sec", config.getStreamingThroughputMB());
+        map.put(
+                "stream_throughput_outbound_megabits_per_sec",
+                tuningProfile.getStreamingThroughputMB());
         if (map.containsKey("multithreaded_compaction")) {
             map.remove("multithreaded_compaction");
         }
@@ -107,9 +110,9 @@ public class StandardTuner implements ICassandraTuner {
         map.put("internode_compression", config.getInternodeCompression());
         map.put("dynamic_snitch", config.isDynamicSnitchEnabled());
 
-        map.put("concurrent_reads", config.getConcurrentReadsCnt());
-        map.put("concurrent_writes", config.getConcurrentWritesCnt());
-        map.put("concurrent_compactors", config.getConcurrentCompactorsCnt());
+        map.put("concurrent_reads", tuningProfile.getConcurrentReads());
+        map.put("concurrent_writes", tuningProfile.getConcurrentWrites());
+        map.put("concurrent_compactors", tuningProfile.getConcurrentCompactors());
 
         map.put("rpc_server_type", config.getRpcServerType());
         map.put("rpc_min_threads", config.getRpcMinThreads());
@@ -134,7 +137,7 @@ public class StandardTuner implements ICassandraTuner {
         m.put("class_name", seedProvider);
 
         configfureSecurity(map);
-        configureGlobalCaches(config, map);
+        configureGlobalCaches(config, tuningProfile, map);
         // force to 1 until vnodes are properly supported
         map.put("num_tokens", 1);
 
@@ -179,8 +182,9 @@ public class StandardTuner implements ICassandraTuner {
     }
 
     /** Setup the cassandra 1.1 global cache values */
-    private void configureGlobalCaches(IConfiguration config, Map yaml) {
-        final String keyCacheSize = config.getKeyCacheSizeInMB();
+    private void configureGlobalCaches(
+            IConfiguration config, TuningProfile tuningProfile, Map yaml) {
+        final String keyCacheSize = tuningProfile.getKeyCacheSizeInMB();
         if (!StringUtils.isEmpty(keyCacheSize)) {
             yaml.put("key_cache_size_in_mb", Integer.valueOf(keyCacheSize));
 
@@ -189,7 +193,7 @@ public class StandardTuner implements ICassandraTuner {
                 yaml.put("key_cache_keys_to_save", Integer.valueOf(keyCount));
         }
 
-        final String rowCacheSize = config.getRowCacheSizeInMB();
+        final String rowCacheSize = tuningProfile.getRowCacheSizeInMB();
         if (!StringUtils.isEmpty(rowCacheSize)) {
             yaml.put("row_cache_size_in_mb", Integer.valueOf(rowCacheSize));
 
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.tuner;
+
+import com.netflix.priam.config.IConfiguration;
+import com.netflix.priam.scheduler.UnsupportedTypeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Values for the Cassandra settings that depend on the size of the instance. When {@link
+ * IConfiguration#isAutoTuneEnabled()} is off these are the configured values. When it is on they
+ * are derived from the {@link HardwareProfile} of the instance, roughly following the guidance in
+ * cassandra-env.sh and cassandra.yaml, and every derived value is logged next to the configured
+ * one. The row cache is left as configured as its useful size depends on the data model rather than
+ * on the instance.
+ */
+public class TuningProfile {
+    private static final Logger logger = LoggerFactory.getLogger(TuningProfile.class);
+    private static final long MB_PER_GB = 1024;
+
+    private final IConfiguration config;
+    private final HardwareProfile hardware;
+
+    public TuningProfile(IConfiguration config) {
+        this(
+                config,
+                config.isAutoTuneEnabled()
+                        ? HardwareProfile.detect(config.getDataFileLocation())
+                        : null);
+    }
+
+    /**
+     * @param config Priam configuration
+     * @param hardware the instance to tune for, or null to use the configured values.
+     */
+    public TuningProfile(IConfiguration config, HardwareProfile hardware) {
+        this.config = config;
+        this.hardware = hardware;
+    }
+
+    /**
+     * CMS keeps the cassandra-env.sh sizing: max(min(1/2 memory, 1G), min(1/4 memory, 8G)). G1
+     * takes up to half of memory but stays below 31G to keep compressed oops. ZGC and Shenandoah
+     * scale with the heap and take up to half of memory, capped at 64G.
+     *
+     * @return max heap size for Cassandra.
+     */
+    public String getHeapSize() {
+        if (hardware == null) return config.getHeapSize();
+        return derived("heap size", config.getHeapSize(), getHeapSizeMB() + "M");
+    }
+
+    /**
+     * Only used with CMS, see {@link GCType#usesFixedNewSize()}: min(100M per core, 1/4 heap), as
+     * in cassandra-env.sh.
+     *
+     * @return new generation size for Cassandra.
+     */
+    public String getHeapNewSize() {
+        if (hardware == null) return config.getHeapNewSize();
+        long newSizeMB = Math.min(100L * hardware.getCores(), getHeapSizeMB() / 4);
+        return derived("heap new size", config.getHeapNewSize(), newSizeMB + "M");
+    }
+
+    /** @return concurrent_reads: 8 per core on SSD with a floor of 32, 32 on spinning disks. */
+    public int getConcurrentReads() {
+        if (hardware == null) return config.getConcurrentReadsCnt();
+        int reads = hardware.isSsd() ? clamp(8 * hardware.getCores(), 32, 128) : 32;
+        return derived("concurrent_reads", config.getConcurrentReadsCnt(), reads);
+    }
+
+    /** @return concurrent_writes: 8 per core with a floor of 32. */
+    public int getConcurrentWrites() {
+        if (hardware == null) return config.getConcurrentWritesCnt();
+        int writes = clamp(8 * hardware.getCores(), 32, 128);
+        return derived("concurrent_writes", config.getConcurrentWritesCnt(), writes);
+    }
+
+    /** @return concurrent_compactors: one per core up to 8 on SSD, 2 on spinning disks. */
+    public int getConcurrentCompactors() {
+        if (hardware == null) return config.getConcurrentCompactorsCnt();
+        int compactors = hardware.isSsd() ? clamp(hardware.getCores(), 2, 8) : 2;
+        return derived("concurrent_compactors", config.getConcurrentCompactorsCnt(), compactors);
+    }
+
+    /** @return key_cache_size_in_mb: 5% of the heap, up to 1G. */
+    public String getKeyCacheSizeInMB() {
+        if (hardware == null) return config.getKeyCacheSizeInMB();
+        long keyCacheMB = Math.min(getHeapSizeMB() / 20, MB_PER_GB);
+        return derived("key_cache_size_in_mb", config.getKeyCacheSizeInMB(), "" + keyCacheMB);
+    }
+
+    /** @return row_cache_size_in_mb, always as configured. */
+    public String getRowCacheSizeInMB() {
+        return config.getRowCacheSizeInMB();
+    }
+
+    /** @return compaction_throughput_mb_per_sec: 16 per compactor on SSD, 16 otherwise. */
+    public int getCompactionThroughput() {
+        if (hardware == null) return config.getCompactionThroughput();
+        int throughput = hardware.isSsd() ? 16 * clamp(hardware.getCores(), 2, 8) : 16;
+        return derived("compaction_throughput", config.getCompactionThroughput(), throughput);
+    }
+
+    /** @return stream_throughput_outbound_megabits_per_sec: 50 per core between 200 and 1600. */
+    public int getStreamingThroughputMB() {
+        if (hardware == null) return config.getStreamingThroughputMB();
+        int throughput = clamp(50 * hardware.getCores(), 200, 1600);
+        return derived("stream_throughput", config.getStreamingThroughputMB(), throughput);
+    }
+
+    private long getHeapSizeMB() {
+        long memoryMB = hardware.getMemoryMB();
+        switch (getGCType()) {
+            case G1GC:
+                return Math.min(memoryMB / 2, 31 * MB_PER_GB);
+            case ZGC:
+            case SHENANDOAH:
+                return Math.min(memoryMB / 2, 64 * MB_PER_GB);
+            default:
+                return Math.max(
+                        Math.min(memoryMB / 2, MB_PER_GB), Math.min(memoryMB / 4, 8 * MB_PER_GB));
+        }
+    }
+
+    private GCType getGCType() {
+        try {
+            return config.getGCType();
+        } catch (UnsupportedTypeException e) {
+            logger.warn("Sizing the heap for CMS as the configured GC type is not supported", e);
+            return GCType.CMS;
+        }
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private <T> T derived(String name, Object configured, T derived) {
+        logger.info(
+                "Auto tuned {} to {} (configured {}) for {}", name, derived, configured, hardware);
+        return derived;
+    }
+}
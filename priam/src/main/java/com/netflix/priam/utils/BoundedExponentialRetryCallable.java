@@ -31,18 +31,26 @@ public abstract class BoundedExponentialRetryCallable<T> extends RetryableCallab
     private final long max;
     private final long min;
     private final int maxRetries;
-    private final ThreadSleeper sleeper = new ThreadSleeper();
+    private final Sleeper sleeper;
 
     public BoundedExponentialRetryCallable() {
-        this.max = MAX_SLEEP;
-        this.min = MIN_SLEEP;
-        this.maxRetries = MAX_RETRIES;
+        this(new ThreadSleeper());
+    }
+
+    public BoundedExponentialRetryCallable(Sleeper sleeper) {
+        this(MIN_SLEEP, MAX_SLEEP, MAX_RETRIES, sleeper);
     }
 
     public BoundedExponentialRetryCallable(long minSleep, long maxSleep, int maxNumRetries) {
+        this(minSleep, maxSleep, maxNumRetries, new ThreadSleeper());
+    }
+
+    public BoundedExponentialRetryCallable(
+            long minSleep, long maxSleep, int maxNumRetries, Sleeper sleeper) {
         this.max = maxSleep;
         this.min = minSleep;
         this.maxRetries = maxNumRetries;
+        this.sleeper = sleeper;
     }
 
     public T call() throws Exception {
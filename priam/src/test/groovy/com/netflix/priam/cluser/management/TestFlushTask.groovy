@@ -19,9 +19,18 @@ package com.netflix.priam.cluser.management
 
 import com.netflix.priam.cluster.management.Flush
 import com.netflix.priam.config.FakeConfiguration
+import com.netflix.priam.connection.CassandraOperations
+import com.netflix.priam.merics.NodeToolFlushMeasurement
+import com.netflix.spectator.api.DefaultRegistry
+import mockit.Mock
+import mockit.MockUp
 import spock.lang.Specification
 import spock.lang.Unroll
 
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
 /**
  Created by aagrawal on 7/15/17.
  */
@@ -58,11 +67,99 @@ class TestFlushTask extends Specification {
         "0 0 0/1 1/1 * ? *" || "0 0 0/1 1/1 * ? *"
     }
 
+    def "Flush of #keyspaceCount keyspaces runs #concurrency at a time"() {
+        given:
+        def cassandra = new MockCassandraOperations(keyspaceCount, 0, concurrency)
+        def registry = new DefaultRegistry()
+        def config = new FlushConfiguration("-1", concurrency, 0)
+        def flush = new Flush(config, new CassandraOperations(config), new NodeToolFlushMeasurement(registry))
+
+        when:
+        String flushed = flush.runTask()
+
+        then:
+        flushed == (1..keyspaceCount).collect { "ks" + it }.toString()
+        cassandra.allStarted
+        cassandra.maxInFlight.get() == concurrency
+        registry.timer("priam.flush.keyspace.duration", "keyspace", "ks1").count() == 1
+
+        where:
+        keyspaceCount | concurrency
+        4             | 1
+        4             | 2
+        4             | 4
+    }
+
+    def "Flush exceeding the per keyspace timeout fails"() {
+        given:
+        new MockCassandraOperations(2, 3000, 1)
+        def config = new FlushConfiguration("-1", 2, 1)
+        def flush = new Flush(config, new CassandraOperations(config), new NodeToolFlushMeasurement(new DefaultRegistry()))
+
+        when:
+        flush.runTask()
+
+        then:
+        thrown(Exception)
+    }
+
+    private static class MockCassandraOperations extends MockUp<CassandraOperations> {
+        private final int keyspaceCount
+        private final long flushMs
+        // The first flushes wait for each other, so they must run at the same time.
+        private final CountDownLatch started
+        private final AtomicInteger inFlight = new AtomicInteger()
+        final AtomicInteger maxInFlight = new AtomicInteger()
+        volatile boolean allStarted = true
+
+        MockCassandraOperations(int keyspaceCount, long flushMs, int concurrency) {
+            this.keyspaceCount = keyspaceCount
+            this.flushMs = flushMs
+            this.started = new CountDownLatch(concurrency)
+        }
+
+        @Mock
+        List<String> getKeyspaces() throws Exception {
+            return (1..keyspaceCount).collect { "ks" + it }
+        }
+
+        @Mock
+        void forceKeyspaceFlush(String keyspaceName) throws Exception {
+            int current = inFlight.incrementAndGet()
+            maxInFlight.accumulateAndGet(current, { a, b -> Math.max(a, b) })
+            try {
+                started.countDown()
+                if (!started.await(10, TimeUnit.SECONDS)) allStarted = false
+                Thread.sleep(flushMs)
+            } finally {
+                inFlight.decrementAndGet()
+            }
+        }
+    }
+
     private class FlushConfiguration extends FakeConfiguration {
         private String flushCronExpression
+        private int concurrency
+        private int timeoutInSecs
 
         FlushConfiguration(String flushCronExpression) {
+            this(flushCronExpression, 1, 0)
+        }
+
+        FlushConfiguration(String flushCronExpression, int concurrency, int timeoutInSecs) {
             this.flushCronExpression = flushCronExpression
+            this.concurrency = concurrency
+            this.timeoutInSecs = timeoutInSecs
+        }
+
+        @Override
+        int getKeyspaceOperationConcurrency() {
+            return concurrency
+        }
+
+        @Override
+        int getKeyspaceOperationTimeoutInSecs() {
+            return timeoutInSecs
         }
 
         @Override
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.aws;
+
+import com.amazonaws.AmazonServiceException;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.truth.Truth;
+import com.netflix.priam.config.FakeConfiguration;
+import com.netflix.priam.identity.FakeMembership;
+import com.netflix.priam.identity.FakePriamInstanceFactory;
+import com.netflix.priam.identity.config.FakeInstanceInfo;
+import com.netflix.priam.utils.Sleeper;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestSecurityGroupReconciler {
+    private CountingMembership membership;
+    private RecordingSleeper sleeper;
+    private FakeConfiguration config;
+    private FakePriamInstanceFactory factory;
+    private SecurityGroupReconciler reconciler;
+
+    @Before
+    public void setUp() {
+        membership = new CountingMembership();
+        sleeper = new RecordingSleeper();
+        config = new FakeConfiguration();
+        factory =
+                new FakePriamInstanceFactory(
+                        new FakeInstanceInfo("fakeInstance", "az1", "us-east-1"));
+        reconciler = new SecurityGroupReconciler(membership, factory, config, sleeper);
+    }
+
+    @Test
+    public void testOnlyDifferenceIsApplied() throws Exception {
+        membership.addACL(Arrays.asList("1.1.1.1/32", "2.2.2.2/32"), 7103, 7103);
+        membership.calls = 0;
+
+        reconciler.reconcile(Arrays.asList("2.2.2.2/32", "3.3.3.3/32"), 7103, 7103);
+        // Two lists, one add and one remove.
+        Truth.assertThat(membership.calls).isEqualTo(4);
+        Truth.assertThat(membership.listACL(7103, 7103))
+                .containsExactly("2.2.2.2/32", "3.3.3.3/32");
+
+        membership.calls = 0;
+        reconciler.reconcile(Arrays.asList("2.2.2.2/32", "3.3.3.3/32"), 7103, 7103);
+        Truth.assertThat(membership.calls).isEqualTo(2);
+    }
+
+    @Test
+    public void testBatches() throws Exception {
+        List<String> desired = new ArrayList<>();
+        for (int i = 0; i < SecurityGroupReconciler.BATCH_SIZE * 2 + 1; i++)
+            desired.add("10.0." + (i / 256) + "." + (i % 256) + "/32");
+        reconciler.reconcile(desired, 7103, 7103);
+        Truth.assertThat(membership.calls).isEqualTo(5);
+        Truth.assertThat(membership.largestBatch).isEqualTo(SecurityGroupReconciler.BATCH_SIZE);
+        Truth.assertThat(membership.listACL(7103, 7103)).containsExactlyElementsIn(desired);
+    }
+
+    @Test
+    public void testEmptyDesiredKeepsACL() throws Exception {
+        membership.addACL(Collections.singletonList("1.1.1.1/32"), 7103, 7103);
+        reconciler.reconcile(Collections.emptyList(), 7103, 7103);
+        Truth.assertThat(membership.listACL(7103, 7103)).containsExactly("1.1.1.1/32");
+    }
+
+    @Test
+    public void testOnlyOwnedAddressesAreRevoked() throws Exception {
+        membership.addACL(Arrays.asList("1.1.1.1/32", "2.2.2.2/32"), 7103, 7103);
+        // Added by hand, or by another app sharing the security group.
+        membership.others.addAll(Arrays.asList("10.0.0.0/16", "4.4.4.4/32"));
+
+        reconciler.reconcile(Collections.singletonList("2.2.2.2/32"), 7103, 7103);
+        Truth.assertThat(membership.listACL(7103, 7103))
+                .containsExactly("2.2.2.2/32", "10.0.0.0/16", "4.4.4.4/32");
+    }
+
+    @Test
+    public void testThrottledCallsAreRetriedWithBackoff() throws Exception {
+        membership.throttled = 3;
+        reconciler.reconcile(Collections.singletonList("1.1.1.1/32"), 7103, 7103);
+        Truth.assertThat(membership.listACL(7103, 7103)).containsExactly("1.1.1.1/32");
+        Truth.assertThat(sleeper.sleeps).hasSize(3);
+        Truth.assertThat(sleeper.sleeps).isInStrictOrder();
+    }
+
+    @Test
+    public void testThrottlingGivesUpAfterRetries() throws Exception {
+        membership.throttled = Integer.MAX_VALUE;
+        try {
+            reconciler.reconcile(Collections.singletonList("1.1.1.1/32"), 7103, 7103);
+            Assert.fail("A call throttled every time should fail");
+        } catch (AmazonServiceException e) {
+            Truth.assertThat(e.getErrorCode()).isEqualTo("RequestLimitExceeded");
+        }
+        Truth.assertThat(sleeper.sleeps).isNotEmpty();
+        Truth.assertThat(membership.listACL(7103, 7103)).isEmpty();
+    }
+
+    @Test
+    public void testClusterMembershipIsAllowed() throws Exception {
+        int port = config.getSSLStoragePort();
+        factory.create(config.getAppName(), 1, "i-1", "host1", "1.1.1.1", "az1", null, "1");
+        factory.create(config.getAppName(), 2, "i-2", "host2", "2.2.2.2", "az1", null, "2");
+        membership.addACL(Collections.singletonList("3.3.3.3/32"), port, port);
+
+        reconciler.reconcileCluster();
+        Truth.assertThat(membership.listACL(port, port))
+                .containsExactly("1.1.1.1/32", "2.2.2.2/32");
+    }
+
+    @Test
+    public void testRetryAppliesOnlyWhatIsMissing() throws Exception {
+        // The first call adds its ranges but fails, as when an earlier attempt went through
+        // without a response.
+        membership.failAfterChange = 1;
+        reconciler.reconcile(Arrays.asList("1.1.1.1/32", "2.2.2.2/32"), 7103, 7103);
+        Truth.assertThat(membership.listACL(7103, 7103))
+                .containsExactly("1.1.1.1/32", "2.2.2.2/32");
+        Truth.assertThat(membership.invalidations).isEqualTo(1);
+        Truth.assertThat(membership.changes).isEqualTo(1);
+    }
+
+    private static class CountingMembership extends FakeMembership {
+        private final Set<String> others = new HashSet<>();
+        private int calls;
+        private int largestBatch;
+        private int throttled;
+        private int failAfterChange;
+        private int changes;
+        private int invalidations;
+
+        CountingMembership() {
+            super(Collections.emptyList());
+        }
+
+        private void change(Collection<String> listIPs) {
+            calls++;
+            if (throttled > 0) {
+                throttled--;
+                AmazonServiceException e = new AmazonServiceException("Request limit exceeded");
+                e.setErrorCode("RequestLimitExceeded");
+                throw e;
+            }
+            largestBatch = Math.max(largestBatch, listIPs.size());
+        }
+
+        private void changed() {
+            changes++;
+            if (failAfterChange > 0) {
+                failAfterChange--;
+                AmazonServiceException e = new AmazonServiceException("Service unavailable");
+                e.setErrorCode("Unavailable");
+                throw e;
+            }
+        }
+
+        @Override
+        public void addACL(Collection<String> listIPs, int from, int to) {
+            change(listIPs);
+            super.addACL(listIPs, from, to);
+            changed();
+        }
+
+        @Override
+        public void removeACL(Collection<String> listIPs, int from, int to) {
+            change(listIPs);
+            super.removeACL(listIPs, from, to);
+            changed();
+        }
+
+        @Override
+        public void invalidateACL() {
+            invalidations++;
+        }
+
+        @Override
+        public ImmutableSet<String> listACL(int from, int to) {
+            calls++;
+            return ImmutableSet.<String>builder()
+                    .addAll(super.listACL(from, to))
+                    .addAll(others)
+                    .build();
+        }
+
+        @Override
+        public ImmutableSet<String> listOwnedACL(int from, int to) {
+            calls++;
+            return super.listOwnedACL(from, to);
+        }
+    }
+
+    private static class RecordingSleeper implements Sleeper {
+        private final List<Long> sleeps = new ArrayList<>();
+
+        @Override
+        public void sleep(long waitTimeMs) {
+            sleeps.add(waitTimeMs);
+        }
+
+        @Override
+        public void sleepQuietly(long waitTimeMs) {
+            sleeps.add(waitTimeMs);
+        }
+    }
+}
@@ -21,9 +21,12 @@ import com.netflix.priam.aws.RemoteBackupPath;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.merics.BackupMetrics;
 import com.netflix.priam.notification.BackupNotificationMgr;
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Path;
 import java.time.Instant;
 import java.util.*;
@@ -40,6 +43,7 @@ public class FakeBackupFileSystem extends AbstractFileSystem {
     private String baseDir;
     private String region;
     private String clusterName;
+    private final IConfiguration configuration;
 
     @Inject
     public FakeBackupFileSystem(
@@ -48,6 +52,7 @@ public class FakeBackupFileSystem extends AbstractFileSystem {
             BackupNotificationMgr backupNotificationMgr,
             Provider<AbstractBackupPath> pathProvider) {
         super(configuration, backupMetrics, backupNotificationMgr, pathProvider);
+        this.configuration = configuration;
     }
 
     public void setupTest(List<String> files) {
@@ -167,8 +172,16 @@ public class FakeBackupFileSystem extends AbstractFileSystem {
     }
 
     @Override
-    protected long uploadFileImpl(AbstractBackupPath path, Instant target)
+    protected synchronized long uploadFileImpl(AbstractBackupPath path, Instant target)
             throws BackupRestoreException {
+        // Read the file as the real file systems do, so that the path gets its checksum.
+        try (InputStream in = new BufferedInputStream(new FileInputStream(path.getBackupFile()))) {
+            Iterator<byte[]> chunks =
+                    compressedChunks(in, configuration.getBackupChunkSize(), path);
+            while (chunks.hasNext()) chunks.next();
+        } catch (IOException e) {
+            throw new BackupRestoreException("Error uploading file: " + path.getBackupFile(), e);
+        }
         uploadedFiles.add(path.getBackupFile().getAbsolutePath());
         addFile(path.getRemotePath());
         return path.getBackupFile().length();
@@ -17,19 +17,26 @@
 
 package com.netflix.priam.backup;
 
+import com.google.common.hash.HashCode;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
+import com.netflix.priam.compress.CompressionType;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.merics.BackupMetrics;
 import com.netflix.priam.notification.BackupNotificationMgr;
 import com.netflix.priam.utils.BackupFileUtils;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.ParseException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.*;
@@ -128,6 +135,17 @@ public class TestAbstractFileSystem {
         Assert.assertFalse(file.exists());
     }
 
+    @Test
+    public void testUploadMetrics() throws Exception {
+        File file = generateFiles(1, 1, 1).iterator().next();
+        myFileSystem.uploadAndDelete(getDummyPath(file.toPath()), Instant.EPOCH, true).get();
+        Assert.assertEquals(1, backupMetrics.getUploadQueueWait().count());
+        Assert.assertEquals(1, backupMetrics.getExistenceCheck().count());
+        Assert.assertEquals(1, backupMetrics.getFileUpload().count());
+        Assert.assertEquals(0, backupMetrics.getUploadFilesInFlight());
+        Assert.assertEquals(0, backupMetrics.getUploadBytesInFlight());
+    }
+
     @Test
     public void testDownload() throws Exception {
         // Dummy download
@@ -259,6 +277,29 @@ public class TestAbstractFileSystem {
         Assert.assertEquals(0, myFileSystem.getDownloadTasksQueued());
     }
 
+    @Test
+    public void testChecksumIsComputedWhileCompressing() throws Exception {
+        File file = generateFiles(1, 1, 1).iterator().next();
+        FileUtils.writeStringToFile(file, "The quick brown fox jumps over the lazy dog", "UTF-8");
+        AbstractBackupPath path = getDummyPath(file.toPath());
+        path.setCompression(CompressionType.SNAPPY);
+        try (InputStream in = new FileInputStream(file)) {
+            Iterator<byte[]> chunks = myFileSystem.compressedChunks(in, 16, path);
+            Assert.assertNull(path.getChecksum());
+            while (chunks.hasNext()) chunks.next();
+        }
+        HashCode expected =
+                AbstractBackupPath.CHECKSUM_FUNCTION.hashBytes(Files.readAllBytes(file.toPath()));
+        Assert.assertEquals(expected.toString(), path.getChecksum());
+        path.verifyChecksum(expected);
+        try {
+            path.verifyChecksum(AbstractBackupPath.CHECKSUM_FUNCTION.hashBytes(new byte[1]));
+            Assert.fail("A different checksum should not be verified");
+        } catch (BackupRestoreException e) {
+            // expected
+        }
+    }
+
     @Test
     public void testAsyncDownloadFailure() throws Exception {
         Future<Path> future = failureFileSystem.asyncDownloadFile(getDummyPath(), 2);
@@ -298,6 +339,35 @@ public class TestAbstractFileSystem {
         }
     }
 
+    @Test
+    public void testListSplitsDays() throws Exception {
+        List<List<String>> listed = new ArrayList<>();
+        IBackupFileSystem fs =
+                new NullBackupFileSystem(
+                        configuration,
+                        backupMetrics,
+                        backupNotificationMgr,
+                        injector.getProvider(AbstractBackupPath.class)) {
+                    @Override
+                    public Iterator<String> listFileSystem(List<String> prefixes) {
+                        listed.add(prefixes);
+                        return super.listFileSystem(prefixes);
+                    }
+                };
+        Instant start = Instant.parse("2018-12-01T10:00:00Z");
+        fs.list("", Date.from(start), Date.from(Instant.parse("2018-12-03T05:00:00Z")))
+                .hasNext();
+        Assert.assertEquals(3, listed.get(0).size());
+        Assert.assertTrue(listed.get(0).get(0).endsWith("/20181201"));
+        Assert.assertTrue(listed.get(0).get(1).endsWith("/20181202"));
+        Assert.assertTrue(listed.get(0).get(2).endsWith("/201812030"));
+
+        // A long range is listed by the prefix common to all of its days.
+        fs.list("", Date.from(start), Date.from(Instant.parse("2019-02-01T00:00:00Z"))).hasNext();
+        Assert.assertEquals(1, listed.get(1).size());
+        Assert.assertTrue(listed.get(1).get(0).endsWith("/201"));
+    }
+
     class MyFileSystem extends NullBackupFileSystem {
 
         private final Random random = new Random();
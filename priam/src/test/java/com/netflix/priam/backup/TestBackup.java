@@ -21,6 +21,7 @@ import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.google.inject.Key;
 import com.google.inject.name.Names;
+import com.netflix.priam.merics.BackupMetrics;
 import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
@@ -96,6 +97,20 @@ public class TestBackup {
             Assert.assertTrue(filesystem.uploadedFiles.contains(filePath));
     }
 
+    @Test
+    public void testIncrementalPendingAge() throws Exception {
+        filesystem.cleanup();
+        generateIncrementalFiles();
+        File oldest =
+                new File(
+                        "target/data/Keyspace1/Standard1/backups/Keyspace1-Standard1-ia-1-Data.db");
+        Assert.assertTrue(oldest.setLastModified(System.currentTimeMillis() - 60_000));
+        injector.getInstance(IncrementalBackup.class).execute();
+        BackupMetrics backupMetrics = injector.getInstance(BackupMetrics.class);
+        Assert.assertTrue(backupMetrics.getOldestPendingIncrementalAge("Keyspace1") >= 60);
+        Assert.assertEquals(0, backupMetrics.getUploadFilesInFlight());
+    }
+
     @Test
     public void testClusterSpecificColumnFamiliesSkippedBefore21() throws Exception {
         String[] columnFamilyDirs = {"schema_columns", "local", "peers", "LocationInfo"};
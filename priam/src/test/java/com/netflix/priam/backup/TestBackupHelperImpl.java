@@ -9,6 +9,7 @@ import com.netflix.priam.compress.CompressionType;
 import com.netflix.priam.config.BackupsToCompress;
 import com.netflix.priam.config.FakeConfiguration;
 import com.netflix.priam.config.IConfiguration;
+import com.netflix.priam.merics.BackupMetrics;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Paths;
@@ -17,6 +18,7 @@ import java.time.temporal.ChronoUnit;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Objects;
+import java.util.Random;
 import javax.inject.Provider;
 import org.apache.commons.io.FileUtils;
 import org.junit.*;
@@ -101,7 +103,12 @@ public class TestBackupHelperImpl {
             IFileSystemContext context = injector.getInstance(IFileSystemContext.class);
             Provider<AbstractBackupPath> pathFactory =
                     injector.getProvider(AbstractBackupPath.class);
-            backupHelper = new BackupHelperImpl(fakeConfiguration, context, pathFactory);
+            backupHelper =
+                    new BackupHelperImpl(
+                            fakeConfiguration,
+                            context,
+                            pathFactory,
+                            injector.getInstance(BackupMetrics.class));
         }
 
         @Test
@@ -151,7 +158,12 @@ public class TestBackupHelperImpl {
             IFileSystemContext context = injector.getInstance(IFileSystemContext.class);
             Provider<AbstractBackupPath> pathFactory =
                     injector.getProvider(AbstractBackupPath.class);
-            backupHelper = new BackupHelperImpl(config, context, pathFactory);
+            backupHelper =
+                    new BackupHelperImpl(
+                            config,
+                            context,
+                            pathFactory,
+                            injector.getInstance(BackupMetrics.class));
         }
 
         @Test
@@ -208,4 +220,77 @@ public class TestBackupHelperImpl {
             Truth.assertThat(backupsAreCompressed).isTrue();
         }
     }
+
+    public static class AdaptiveTests {
+        private static final String ADAPTIVE_DIRECTORY = "target/data/ks/adaptive/backup/";
+        private final BackupHelperImpl backupHelper;
+        private final BackupMetrics backupMetrics;
+
+        @BeforeClass
+        public static void setUp() throws IOException {
+            FileUtils.forceMkdir(new File(ADAPTIVE_DIRECTORY));
+            Random random = new Random(0);
+            byte[] compressible = new byte[1024 * 1024];
+            for (int i = 0; i < compressible.length; i++)
+                compressible[i] = (byte) ('a' + random.nextInt(4));
+            byte[] incompressible = new byte[1024 * 1024];
+            random.nextBytes(incompressible);
+            FileUtils.writeByteArrayToFile(
+                    Paths.get(ADAPTIVE_DIRECTORY, UNCOMPRESSED_DATA).toFile(), compressible);
+            FileUtils.writeByteArrayToFile(
+                    Paths.get(ADAPTIVE_DIRECTORY, COMPRESSED_DATA).toFile(), incompressible);
+        }
+
+        @AfterClass
+        public static void tearDown() throws IOException {
+            FileUtils.deleteDirectory(new File(ADAPTIVE_DIRECTORY));
+        }
+
+        public AdaptiveTests() {
+            Injector injector = Guice.createInjector(new BRTestModule());
+            FakeConfiguration config =
+                    (FakeConfiguration) injector.getInstance(IConfiguration.class);
+            config.setFakeConfig("Priam.backupsToCompress", BackupsToCompress.ADAPTIVE);
+            backupMetrics = injector.getInstance(BackupMetrics.class);
+            backupHelper =
+                    new BackupHelperImpl(
+                            config,
+                            injector.getInstance(IFileSystemContext.class),
+                            injector.getProvider(AbstractBackupPath.class),
+                            backupMetrics);
+        }
+
+        @Test
+        public void testFilesAreSampledOnce() throws IOException {
+            File directory = new File(ADAPTIVE_DIRECTORY);
+            AbstractBackupPath.BackupFileType type = AbstractBackupPath.BackupFileType.SST_V2;
+            backupHelper.getBackupPaths(directory, type);
+            for (AbstractBackupPath path : backupHelper.getBackupPaths(directory, type))
+                Truth.assertThat(path.getSampledCompressionRatio()).isNotNull();
+            Truth.assertThat(backupMetrics.getCompressionSample().count()).isEqualTo(2);
+
+            // A file changed since it was sampled is sampled again.
+            File changed = Paths.get(ADAPTIVE_DIRECTORY, UNCOMPRESSED_DATA).toFile();
+            Truth.assertThat(changed.setLastModified(changed.lastModified() - 60_000)).isTrue();
+            backupHelper.getBackupPaths(directory, type);
+            Truth.assertThat(backupMetrics.getCompressionSample().count()).isEqualTo(3);
+        }
+
+        @Test
+        public void testIncompressibleFilesAreNotCompressed() throws IOException {
+            for (AbstractBackupPath path :
+                    backupHelper.getBackupPaths(
+                            new File(ADAPTIVE_DIRECTORY),
+                            AbstractBackupPath.BackupFileType.SST_V2)) {
+                Truth.assertThat(path.getSampledCompressionRatio()).isNotNull();
+                if (path.getFileName().equals(UNCOMPRESSED_DATA)) {
+                    Truth.assertThat(path.getCompression()).isEqualTo(CompressionType.SNAPPY);
+                    Truth.assertThat(path.getSampledCompressionRatio()).isGreaterThan(2.0);
+                } else {
+                    Truth.assertThat(path.getCompression()).isEqualTo(CompressionType.NONE);
+                    Truth.assertThat(path.getSampledCompressionRatio()).isLessThan(1.1);
+                }
+            }
+        }
+    }
 }
@@ -44,11 +44,13 @@ import org.quartz.SchedulerException;
 public class TestBackupService {
     private final PriamScheduler scheduler;
     private final CassandraTunerService cassandraTunerService;
+    private final CommitLogBackup commitLogBackup;
 
     public TestBackupService() {
         Injector injector = Guice.createInjector(new BRTestModule());
         this.scheduler = injector.getInstance(PriamScheduler.class);
         this.cassandraTunerService = injector.getInstance(CassandraTunerService.class);
+        this.commitLogBackup = injector.getInstance(CommitLogBackup.class);
     }
 
     @Before
@@ -96,7 +98,11 @@ public class TestBackupService {
 
         IService backupService =
                 new BackupService(
-                        configuration, backupRestoreConfig, scheduler, cassandraTunerService);
+                        configuration,
+                        backupRestoreConfig,
+                        scheduler,
+                        cassandraTunerService,
+                        commitLogBackup);
         backupService.scheduleService();
         Assert.assertEquals(0, scheduler.getScheduler().getJobKeys(null).size());
 
@@ -123,7 +129,11 @@ public class TestBackupService {
         };
         IService backupService =
                 new BackupService(
-                        configuration, backupRestoreConfig, scheduler, cassandraTunerService);
+                        configuration,
+                        backupRestoreConfig,
+                        scheduler,
+                        cassandraTunerService,
+                        commitLogBackup);
         backupService.scheduleService();
         Assert.assertEquals(2, scheduler.getScheduler().getJobKeys(null).size());
     }
@@ -142,7 +152,11 @@ public class TestBackupService {
         };
         IService backupService =
                 new BackupService(
-                        configuration, backupRestoreConfig, scheduler, cassandraTunerService);
+                        configuration,
+                        backupRestoreConfig,
+                        scheduler,
+                        cassandraTunerService,
+                        commitLogBackup);
         backupService.scheduleService();
         Assert.assertEquals(3, scheduler.getScheduler().getJobKeys(null).size());
     }
@@ -171,7 +185,11 @@ public class TestBackupService {
         };
         IService backupService =
                 new BackupService(
-                        configuration, backupRestoreConfig, scheduler, cassandraTunerService);
+                        configuration,
+                        backupRestoreConfig,
+                        scheduler,
+                        cassandraTunerService,
+                        commitLogBackup);
         backupService.scheduleService();
         Assert.assertEquals(3, scheduler.getScheduler().getJobKeys(null).size());
 
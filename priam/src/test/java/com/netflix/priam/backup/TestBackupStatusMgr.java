@@ -20,13 +20,20 @@ package com.netflix.priam.backup;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.netflix.priam.config.IConfiguration;
+import com.netflix.priam.health.InstanceState;
 import com.netflix.priam.utils.DateUtil;
 import com.netflix.priam.utils.DateUtil.DateRange;
+import com.netflix.priam.utils.MaxSizeHashMap;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
 import org.apache.commons.io.FileUtils;
@@ -44,6 +51,7 @@ public class TestBackupStatusMgr {
     private static final Logger logger = LoggerFactory.getLogger(TestBackupStatusMgr.class);
     private static IConfiguration configuration;
     private static IBackupStatusMgr backupStatusMgr;
+    private static InstanceState instanceState;
     private final String backupDate = "201812011000";
 
     @BeforeClass
@@ -52,12 +60,14 @@ public class TestBackupStatusMgr {
         // cleanup old saved file, if any
         configuration = injector.getInstance(IConfiguration.class);
         backupStatusMgr = injector.getInstance(IBackupStatusMgr.class);
+        instanceState = injector.getInstance(InstanceState.class);
     }
 
     @Before
     @After
     public void cleanup() {
         FileUtils.deleteQuietly(new File(configuration.getBackupStatusFileLoc()));
+        FileUtils.deleteQuietly(new File(configuration.getBackupStatusFileLoc() + ".tmp"));
     }
 
     private void prepare() throws Exception {
@@ -196,6 +206,36 @@ public class TestBackupStatusMgr {
         // Verify there is only capacity entries
         Assert.assertEquals(
                 backupStatusMgr.getCapacity(), backupStatusMgr.getAllSnapshotStatus().size());
+        // The day dropped from memory is not found by date range either.
+        Assert.assertTrue(
+                backupStatusMgr
+                        .getLatestBackupMetadata(
+                                BackupVersion.SNAPSHOT_BACKUP,
+                                new DateRange("198501010000,198501012359"))
+                        .isEmpty());
+        Assert.assertEquals(
+                1,
+                backupStatusMgr
+                        .getLatestBackupMetadata(
+                                BackupVersion.SNAPSHOT_BACKUP,
+                                new DateRange("198501020000,198501022359"))
+                        .size());
+    }
+
+    @Test
+    public void testSnapshotsStartedTogether() throws Exception {
+        Date start = new Date(DateUtil.parseInstant(backupDate).toEpochMilli());
+        BackupMetadata first = new BackupMetadata(BackupVersion.SNAPSHOT_BACKUP, "123", start);
+        BackupMetadata second = new BackupMetadata(BackupVersion.SNAPSHOT_BACKUP, "456", start);
+        backupStatusMgr.finish(first);
+        backupStatusMgr.finish(second);
+        Assert.assertEquals(
+                2,
+                backupStatusMgr
+                        .getLatestBackupMetadata(
+                                BackupVersion.SNAPSHOT_BACKUP,
+                                new DateRange(backupDate + "," + backupDate))
+                        .size());
     }
 
     @Test
@@ -249,4 +289,88 @@ public class TestBackupStatusMgr {
                         new DateRange(backupDate + "," + "201812031000"));
         list.forEach(System.out::println);
     }
+
+    @Test
+    public void testStatusSurvivesRestart() throws Exception {
+        prepare();
+        Instant start = DateUtil.parseInstant(backupDate);
+        BackupMetadata validated = getBackupMetaData(start, Status.FINISHED);
+        validated.setLastValidated(new Date(start.plus(1, ChronoUnit.HOURS).toEpochMilli()));
+        backupStatusMgr.update(validated);
+        // A line cut short by a crash is skipped.
+        try (FileWriter writer = new FileWriter(configuration.getBackupStatusFileLoc(), true)) {
+            writer.write("{\"backupVersion\":\"SNAPSHOT_BA");
+        }
+
+        IBackupStatusMgr restarted = new FileSnapshotStatusMgr(configuration, instanceState);
+        DateRange dateRange = new DateRange(backupDate + "," + "201812031000");
+        List<BackupMetadata> expected =
+                backupStatusMgr.getLatestBackupMetadata(BackupVersion.SNAPSHOT_BACKUP, dateRange);
+        List<BackupMetadata> actual =
+                restarted.getLatestBackupMetadata(BackupVersion.SNAPSHOT_BACKUP, dateRange);
+        Assert.assertEquals(expected, actual);
+        Assert.assertEquals(4, actual.size());
+        BackupMetadata first = restarted.locate(validated.getSnapshotDate()).getLast();
+        Assert.assertEquals(validated, first);
+        Assert.assertEquals(validated.getLastValidated(), first.getLastValidated());
+        Assert.assertEquals(validated.getCompleted(), first.getCompleted());
+        Assert.assertEquals("file.txt", first.getSnapshotLocation());
+        Assert.assertEquals(
+                Status.FAILED, restarted.locate(validated.getSnapshotDate()).get(0).getStatus());
+    }
+
+    @Test
+    public void testConvertJavaSerializedStatus() throws Exception {
+        Instant start = DateUtil.parseInstant(backupDate);
+        BackupMetadata backupMetadata = getBackupMetaData(start, Status.FINISHED);
+        MaxSizeHashMap<String, LinkedList<BackupMetadata>> saved = new MaxSizeHashMap<>(60);
+        LinkedList<BackupMetadata> list = new LinkedList<>();
+        list.add(backupMetadata);
+        saved.put(backupMetadata.getSnapshotDate(), list);
+        try (ObjectOutputStream out =
+                new ObjectOutputStream(
+                        new FileOutputStream(configuration.getBackupStatusFileLoc()))) {
+            out.writeObject(saved);
+        }
+
+        IBackupStatusMgr converted = new FileSnapshotStatusMgr(configuration, instanceState);
+        Assert.assertEquals(list, converted.locate(backupMetadata.getSnapshotDate()));
+        // The file is now in the new format and is read back the same way.
+        IBackupStatusMgr restarted = new FileSnapshotStatusMgr(configuration, instanceState);
+        Assert.assertEquals(list, restarted.locate(backupMetadata.getSnapshotDate()));
+        Assert.assertEquals(
+                Status.FINISHED,
+                restarted.locate(backupMetadata.getSnapshotDate()).get(0).getStatus());
+    }
+
+    @Test
+    public void testNothingAppendedToJavaSerializedStatus() throws Exception {
+        Instant start = DateUtil.parseInstant(backupDate);
+        BackupMetadata backupMetadata = getBackupMetaData(start, Status.FINISHED);
+        MaxSizeHashMap<String, LinkedList<BackupMetadata>> saved = new MaxSizeHashMap<>(60);
+        LinkedList<BackupMetadata> list = new LinkedList<>();
+        list.add(backupMetadata);
+        saved.put(backupMetadata.getSnapshotDate(), list);
+        File statusFile = new File(configuration.getBackupStatusFileLoc());
+        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(statusFile))) {
+            out.writeObject(saved);
+        }
+        byte[] serialized = Files.readAllBytes(statusFile.toPath());
+        // The file cannot be replaced while there is a directory in the way.
+        File tmp = new File(configuration.getBackupStatusFileLoc() + ".tmp");
+        Assert.assertTrue(tmp.mkdirs());
+
+        IBackupStatusMgr converted = new FileSnapshotStatusMgr(configuration, instanceState);
+        BackupMetadata next = getBackupMetaData(start.plus(1, ChronoUnit.DAYS), Status.FINISHED);
+        converted.finish(next);
+        Assert.assertArrayEquals(serialized, Files.readAllBytes(statusFile.toPath()));
+
+        FileUtils.deleteDirectory(tmp);
+        BackupMetadata last = getBackupMetaData(start.plus(2, ChronoUnit.DAYS), Status.FINISHED);
+        converted.finish(last);
+        IBackupStatusMgr restarted = new FileSnapshotStatusMgr(configuration, instanceState);
+        Assert.assertEquals(list, restarted.locate(backupMetadata.getSnapshotDate()));
+        Assert.assertEquals(next, restarted.locate(next.getSnapshotDate()).getFirst());
+        Assert.assertEquals(last, restarted.locate(last.getSnapshotDate()).getFirst());
+    }
 }
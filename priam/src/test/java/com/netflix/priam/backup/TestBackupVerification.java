@@ -17,8 +17,10 @@
 
 package com.netflix.priam.backup;
 
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
+import com.google.inject.util.Modules;
 import com.netflix.priam.backup.AbstractBackupPath.BackupFileType;
 import com.netflix.priam.backupv2.IMetaProxy;
 import com.netflix.priam.backupv2.MetaV1Proxy;
@@ -26,14 +28,24 @@ import com.netflix.priam.backupv2.MetaV2Proxy;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.utils.DateUtil;
 import com.netflix.priam.utils.DateUtil.DateRange;
+import com.netflix.priam.utils.FakeClock;
 import java.io.File;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import mockit.Mock;
 import mockit.MockUp;
 import org.apache.commons.io.FileUtils;
@@ -59,9 +71,17 @@ public class TestBackupVerification {
                     "PLAINTEXT",
                     "meta_v2_201812011000.json");
     private final int numFakeBackups = 10;
+    private static final AtomicInteger verifications = new AtomicInteger();
+    private static volatile CountDownLatch verificationGate = new CountDownLatch(0);
+    private static volatile CountDownLatch verificationStarted = new CountDownLatch(1);
+    private static volatile boolean verificationValid = true;
+    private final FakeClock clock = new FakeClock(Instant.EPOCH);
 
     public TestBackupVerification() {
-        Injector injector = Guice.createInjector(new BRTestModule());
+        Injector injector =
+                Guice.createInjector(
+                        Modules.override(new BRTestModule())
+                                .with(binder -> binder.bind(Clock.class).toInstance(clock)));
 
         backupVerification = injector.getInstance(BackupVerification.class);
         configuration = injector.getInstance(IConfiguration.class);
@@ -78,7 +98,12 @@ public class TestBackupVerification {
     static class MockMetaV2Proxy extends MockUp<MetaV2Proxy> {
         @Mock
         public BackupVerificationResult isMetaFileValid(AbstractBackupPath metaBackupPath) {
-            return getBackupVerificationResult();
+            verifications.incrementAndGet();
+            verificationStarted.countDown();
+            Uninterruptibles.awaitUninterruptibly(verificationGate);
+            BackupVerificationResult result = getBackupVerificationResult();
+            result.valid = verificationValid;
+            return result;
         }
     }
 
@@ -87,6 +112,10 @@ public class TestBackupVerification {
     public void cleanup() {
         new MockMetaV1Proxy();
         new MockMetaV2Proxy();
+        verifications.set(0);
+        verificationGate = new CountDownLatch(0);
+        verificationStarted = new CountDownLatch(1);
+        verificationValid = true;
         FileUtils.deleteQuietly(new File(configuration.getBackupStatusFileLoc()));
     }
 
@@ -283,6 +312,104 @@ public class TestBackupVerification {
         backupMetadata.stream().forEach(b -> Assert.assertNull(b.getLastValidated()));
     }
 
+    @Test
+    public void forcedVerificationReusesOnlyRecentResults() throws Exception {
+        setUp();
+        DateRange dateRange = new DateRange(backupDate + "," + backupDate);
+        for (int i = 0; i < 3; i++) {
+            Optional<BackupVerificationResult> result =
+                    backupVerification.verifyLatestBackup(
+                            BackupVersion.SNAPSHOT_META_SERVICE, true, dateRange);
+            Assert.assertTrue(result.isPresent());
+            Assert.assertEquals("some_random", result.get().remotePath);
+            Assert.assertEquals(123, result.get().filesMatched);
+        }
+        Assert.assertEquals(1, verifications.get());
+
+        // Still fresh for an unforced verification, but too old for a forced one.
+        clock.advance(Duration.ofSeconds(configuration.getBackupVerificationForcedMaxAgeInSecs()));
+        Assert.assertTrue(
+                backupVerification
+                        .verifyLatestBackup(BackupVersion.SNAPSHOT_META_SERVICE, true, dateRange)
+                        .isPresent());
+        Assert.assertEquals(2, verifications.get());
+    }
+
+    @Test
+    public void verificationIsCachedUntilTtl() throws Exception {
+        setUp();
+        DateRange dateRange = new DateRange(backupDate + "," + backupDate);
+        Assert.assertTrue(verifyLatestV2(dateRange).isPresent());
+        Assert.assertEquals(1, verifications.get());
+
+        clearLastValidated(dateRange);
+        Duration ttl = Duration.ofSeconds(configuration.getBackupVerificationCacheTtlInSecs());
+        clock.advance(ttl.minusSeconds(1));
+        Assert.assertTrue(verifyLatestV2(dateRange).isPresent());
+        Assert.assertEquals(1, verifications.get());
+
+        clearLastValidated(dateRange);
+        clock.advance(Duration.ofSeconds(1));
+        Assert.assertTrue(verifyLatestV2(dateRange).isPresent());
+        Assert.assertEquals(2, verifications.get());
+    }
+
+    @Test
+    public void invalidVerificationIsCachedBriefly() throws Exception {
+        setUp();
+        DateRange dateRange = new DateRange(backupDate + "," + backupDate);
+        verificationValid = false;
+        Assert.assertFalse(verifyLatestV2(dateRange).isPresent());
+        // The backups of the range share a meta file, which is read once.
+        Assert.assertEquals(1, verifications.get());
+        Assert.assertFalse(verifyLatestV2(dateRange).isPresent());
+        Assert.assertEquals(1, verifications.get());
+
+        verificationValid = true;
+        Duration ttl =
+                Duration.ofSeconds(configuration.getBackupVerificationInvalidCacheTtlInSecs());
+        clock.advance(ttl);
+        Assert.assertTrue(verifyLatestV2(dateRange).isPresent());
+        Assert.assertEquals(2, verifications.get());
+    }
+
+    @Test
+    public void concurrentVerificationsAreCoalesced() throws Exception {
+        setUp();
+        DateRange dateRange = new DateRange(backupDate + "," + backupDate);
+        verificationGate = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Optional<BackupVerificationResult>>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> verifyLatestV2(dateRange)));
+            }
+            // Callers arriving after the verification find its result instead of verifying again.
+            Assert.assertTrue(verificationStarted.await(10, TimeUnit.SECONDS));
+            verificationGate.countDown();
+            for (Future<Optional<BackupVerificationResult>> future : futures)
+                Assert.assertTrue(future.get(10, TimeUnit.SECONDS).isPresent());
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(1, verifications.get());
+    }
+
+    private Optional<BackupVerificationResult> verifyLatestV2(DateRange dateRange)
+            throws Exception {
+        return backupVerification.verifyLatestBackup(
+                BackupVersion.SNAPSHOT_META_SERVICE, false, dateRange);
+    }
+
+    private void clearLastValidated(DateRange dateRange) {
+        for (BackupMetadata backupMetadata :
+                backupStatusMgr.getLatestBackupMetadata(
+                        BackupVersion.SNAPSHOT_META_SERVICE, dateRange)) {
+            backupMetadata.setLastValidated(null);
+            backupStatusMgr.update(backupMetadata);
+        }
+    }
+
     private BackupMetadata getBackupMetaData(
             BackupVersion backupVersion, Instant startTime, Status status) throws Exception {
         BackupMetadata backupMetadata =
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.netflix.priam.backup;
+
+import com.google.common.truth.Truth;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.name.Names;
+import com.google.inject.util.Modules;
+import com.netflix.priam.merics.BackupMetrics;
+import com.netflix.priam.utils.FakeClock;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestCommitLogBackup {
+    private Path archiveDir;
+    private CommitLogBackup commitLogBackup;
+    private FakeBackupFileSystem fs;
+    private BackupMetrics backupMetrics;
+    private FakeClock clock;
+
+    @Before
+    public void setUp() throws IOException {
+        // Whole seconds, as file systems may keep modification times no finer.
+        clock = new FakeClock(Instant.now().truncatedTo(ChronoUnit.SECONDS));
+        Injector injector =
+                Guice.createInjector(
+                        Modules.override(new BRTestModule())
+                                .with(binder -> binder.bind(Clock.class).toInstance(clock)));
+        commitLogBackup = injector.getInstance(CommitLogBackup.class);
+        fs =
+                (FakeBackupFileSystem)
+                        injector.getInstance(
+                                Key.get(IBackupFileSystem.class, Names.named("backup")));
+        fs.setupTest(Collections.emptyList());
+        backupMetrics = injector.getInstance(BackupMetrics.class);
+        archiveDir = Files.createTempDirectory("commitlog");
+    }
+
+    @After
+    public void tearDown() {
+        commitLogBackup.stopWatching();
+        FileUtils.deleteQuietly(archiveDir.toFile());
+    }
+
+    @Test
+    public void testUploadArchivedSegments() throws Exception {
+        for (int i = 0; i < 10; i++) createSegment("CommitLog-6-" + i + ".log");
+        settle();
+
+        List<Future<AbstractBackupPath>> uploads =
+                commitLogBackup.upload(archiveDir.toString(), null);
+        Truth.assertThat(uploads).hasSize(10);
+        for (Future<AbstractBackupPath> upload : uploads) upload.get(10, TimeUnit.SECONDS);
+
+        Truth.assertThat(fs.uploadedFiles).hasSize(10);
+        Truth.assertThat(archiveDir.toFile().list()).isEmpty();
+        Truth.assertThat(backupMetrics.getCommitLogBacklogSegments()).isEqualTo(0);
+        Truth.assertThat(backupMetrics.getCommitLogBacklogBytes()).isEqualTo(0);
+    }
+
+    @Test
+    public void testScanSkipsSegmentsStillWritten() throws Exception {
+        File segment = createSegment("CommitLog-6-1.log");
+        Truth.assertThat(commitLogBackup.upload(archiveDir.toString(), null)).isEmpty();
+        Truth.assertThat(segment.exists()).isTrue();
+
+        settle();
+        List<Future<AbstractBackupPath>> uploads =
+                commitLogBackup.upload(archiveDir.toString(), null);
+        Truth.assertThat(uploads).hasSize(1);
+        uploads.get(0).get(10, TimeUnit.SECONDS);
+        Truth.assertThat(fs.uploadedFiles).containsExactly(segment.getAbsolutePath());
+    }
+
+    @Test
+    public void testUploadAsArchived() throws Exception {
+        File segment = createSegment("CommitLog-6-1.log");
+        commitLogBackup.onArchived(segment);
+        clock.advance(Duration.ofMillis(CommitLogBackup.SETTLE_MILLIS - 1));
+        Truth.assertThat(commitLogBackup.submitSettled()).isEmpty();
+
+        clock.advance(Duration.ofMillis(1));
+        List<Future<AbstractBackupPath>> uploads = commitLogBackup.submitSettled();
+        Truth.assertThat(uploads).hasSize(1);
+        uploads.get(0).get(10, TimeUnit.SECONDS);
+        Truth.assertThat(segment.exists()).isFalse();
+        Truth.assertThat(fs.uploadedFiles).containsExactly(segment.getAbsolutePath());
+        Truth.assertThat(commitLogBackup.submitSettled()).isEmpty();
+    }
+
+    @Test
+    public void testWatchAgainAfterStopping() throws Exception {
+        commitLogBackup.watch(archiveDir.toString());
+        commitLogBackup.stopWatching();
+        commitLogBackup.watch(archiveDir.toString());
+        commitLogBackup.stopWatching();
+    }
+
+    private void settle() {
+        clock.advance(Duration.ofMillis(CommitLogBackup.SETTLE_MILLIS));
+    }
+
+    private File createSegment(String name) throws IOException {
+        File file = archiveDir.resolve(name).toFile();
+        FileUtils.writeStringToFile(file, name, "UTF-8");
+        Truth.assertThat(file.setLastModified(clock.millis())).isTrue();
+        return file;
+    }
+}
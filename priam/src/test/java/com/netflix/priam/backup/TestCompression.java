@@ -17,17 +17,27 @@
 
 package com.netflix.priam.backup;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import com.netflix.priam.Benchmark;
 import com.netflix.priam.compress.ChunkedStream;
 import com.netflix.priam.compress.CompressionType;
 import com.netflix.priam.compress.ICompression;
+import com.netflix.priam.compress.Lz4Compression;
+import com.netflix.priam.compress.ParallelSnappyStream;
 import com.netflix.priam.compress.SnappyCompression;
+import com.netflix.priam.compress.ZstdCompression;
 import com.netflix.priam.utils.SystemUtils;
 import java.io.*;
 import java.util.Enumeration;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
@@ -35,8 +45,12 @@ import org.apache.commons.io.FileUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class TestCompression {
+    private static final Logger logger = LoggerFactory.getLogger(TestCompression.class);
 
     private final File randomContentFile = new File("/tmp/content.txt");
 
@@ -113,6 +127,132 @@ public class TestCompression {
         testCompressor(compress);
     }
 
+    @Test
+    public void lz4Test() throws IOException {
+        testCompressor(new Lz4Compression(0));
+        testCompressor(new Lz4Compression(9));
+    }
+
+    @Test
+    public void zstdTest() throws IOException {
+        testCompressor(new ZstdCompression(3));
+        testCompressor(new ZstdCompression(19));
+    }
+
+    /**
+     * Logs ratio and throughput of each codec. The files of the directory in the system property
+     * priam.compression.benchmark.dir are used when set, e.g. the Data.db files of a table,
+     * otherwise generated data.
+     */
+    @Test
+    @Category(Benchmark.class)
+    public void compareCodecs() throws IOException {
+        String dir = System.getProperty("priam.compression.benchmark.dir");
+        File[] files = dir == null ? null : new File(dir).listFiles(File::isFile);
+        byte[] content;
+        if (files == null || files.length == 0) {
+            content = compressibleBytes(32 * 1024 * 1024);
+        } else {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            for (File file : files) out.write(FileUtils.readFileToByteArray(file));
+            content = out.toByteArray();
+        }
+        Map<String, ICompression> codecs = new LinkedHashMap<>();
+        codecs.put("snappy", new SnappyCompression());
+        codecs.put("lz4", new Lz4Compression(0));
+        codecs.put("lz4hc", new Lz4Compression(9));
+        codecs.put("zstd-1", new ZstdCompression(1));
+        codecs.put("zstd-3", new ZstdCompression(3));
+        codecs.put("zstd-9", new ZstdCompression(9));
+        for (Map.Entry<String, ICompression> entry : codecs.entrySet()) {
+            ICompression codec = entry.getValue();
+            long start = System.nanoTime();
+            byte[] compressed =
+                    concat(
+                            new ChunkedStream(
+                                    new ByteArrayInputStream(content), 10 * 1024 * 1024, codec));
+            long compressNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            ByteArrayOutputStream decompressed = new ByteArrayOutputStream(content.length);
+            codec.decompressAndClose(new ByteArrayInputStream(compressed), decompressed);
+            long decompressNanos = System.nanoTime() - start;
+            assertArrayEquals(content, decompressed.toByteArray());
+            logger.info(
+                    "{}: ratio {}, compress {} MB/s, decompress {} MB/s",
+                    entry.getKey(),
+                    String.format("%.3f", (double) compressed.length / Math.max(1, content.length)),
+                    content.length * 1000L / compressNanos,
+                    content.length * 1000L / decompressNanos);
+        }
+    }
+
+    @Test
+    public void parallelSnappyTest() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int size : new int[] {0, 100, 9 * 1024 * 1024 + 123}) {
+                byte[] content = compressibleBytes(size);
+                byte[] sequential =
+                        concat(
+                                new ChunkedStream(
+                                        new ByteArrayInputStream(content),
+                                        1024 * 1024,
+                                        CompressionType.SNAPPY));
+                byte[] parallel =
+                        concat(
+                                new ParallelSnappyStream(
+                                        new ByteArrayInputStream(content),
+                                        1024 * 1024,
+                                        executor,
+                                        4));
+                assertArrayEquals(sequential, parallel);
+
+                ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+                new SnappyCompression()
+                        .decompressAndClose(new ByteArrayInputStream(parallel), decompressed);
+                assertArrayEquals(content, decompressed.toByteArray());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @Category(Benchmark.class)
+    public void parallelSnappyThroughput() throws IOException {
+        byte[] content = compressibleBytes(64 * 1024 * 1024);
+        for (int threads : new int[] {1, 2, 4, 8, 16}) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                long start = System.nanoTime();
+                concat(
+                        new ParallelSnappyStream(
+                                new ByteArrayInputStream(content),
+                                10 * 1024 * 1024,
+                                executor,
+                                threads));
+                long nanos = System.nanoTime() - start;
+                logger.info(
+                        "Snappy with {} threads: {} MB/s", threads, content.length * 1000L / nanos);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private static byte[] compressibleBytes(int size) {
+        Random random = new Random(size);
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) bytes[i] = (byte) ('a' + random.nextInt(8));
+        return bytes;
+    }
+
+    private static byte[] concat(Iterator<byte[]> chunks) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        while (chunks.hasNext()) out.write(chunks.next());
+        return out.toByteArray();
+    }
+
     private void testCompressor(ICompression compress) throws IOException {
         File compressedOutputFile = new File("/tmp/test1.compress");
         File decompressedTempOutput = new File("/tmp/compress-test-out.txt");
@@ -121,9 +261,7 @@ public class TestCompression {
 
             Iterator<byte[]> it =
                     new ChunkedStream(
-                            new FileInputStream(randomContentFile),
-                            chunkSize,
-                            CompressionType.SNAPPY);
+                            new FileInputStream(randomContentFile), chunkSize, compress);
             try (FileOutputStream ostream = new FileOutputStream(compressedOutputFile)) {
                 while (it.hasNext()) {
                     byte[] chunk = it.next();
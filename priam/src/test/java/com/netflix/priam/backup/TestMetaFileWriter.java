@@ -0,0 +1,101 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.netflix.priam.backup;
+
+import com.google.common.truth.Truth;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.json.simple.JSONArray;
+import org.json.simple.parser.JSONParser;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestMetaFileWriter {
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("meta", ".json");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testSameOutputAsJSONArray() throws Exception {
+        List<String> paths =
+                Arrays.asList(
+                        "bucket/prefix/SNAP/ks/cf/ks-cf-ka-1-Data.db",
+                        "bucket/prefix/SNAP/ks/cf/ks-cf-ka-1-\"quoted\"\\Index.db",
+                        "bucket/prefix/SNAP/ks/cf/ks-cf-ka-1-\u00e9\t.db");
+        try (MetaFileWriter writer = new MetaFileWriter(file)) {
+            for (String path : paths) writer.add(path);
+        }
+        JSONArray expected = new JSONArray();
+        expected.addAll(paths);
+        Truth.assertThat(read()).isEqualTo(expected.toJSONString());
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        new MetaFileWriter(file).close();
+        Truth.assertThat(read()).isEqualTo(new JSONArray().toJSONString());
+    }
+
+    @Test
+    public void testConcurrentAdds() throws Exception {
+        MetaFileWriter writer = new MetaFileWriter(file);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 1000; i++) {
+            String path = "path" + i;
+            executor.submit(
+                    () -> {
+                        writer.add(path);
+                        return null;
+                    });
+        }
+        executor.shutdown();
+        Truth.assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        writer.close();
+        Truth.assertThat(writer.getCount()).isEqualTo(1000);
+        List<?> parsed = new ArrayList<>((JSONArray) new JSONParser().parse(read()));
+        Truth.assertThat(parsed).hasSize(1000);
+        Truth.assertThat(parsed).containsNoDuplicates();
+    }
+
+    @Test(expected = IOException.class)
+    public void testAddAfterClose() throws Exception {
+        MetaFileWriter writer = new MetaFileWriter(file);
+        writer.close();
+        writer.add("path");
+    }
+
+    private String read() throws IOException {
+        return new String(Files.readAllBytes(file.toPath()));
+    }
+}
@@ -22,6 +22,7 @@ import com.google.inject.Injector;
 import com.netflix.priam.backup.AbstractBackupPath;
 import com.netflix.priam.backup.BRTestModule;
 import com.netflix.priam.backup.BackupRestoreException;
+import com.netflix.priam.backup.BackupVerificationResult;
 import com.netflix.priam.backup.FakeBackupFileSystem;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.utils.DateUtil;
@@ -118,6 +119,48 @@ public class TestMetaV2Proxy {
         Assert.assertFalse(metaProxy.isMetaFileValid(abstractBackupPath).valid);
     }
 
+    @Test
+    public void testIncrementalVerification() throws Exception {
+        Instant snapshotInstant = DateUtil.getInstant();
+        Path metaPath = backupUtils.createMeta(getRemoteFakeFiles(), snapshotInstant);
+        AbstractBackupPath abstractBackupPath = abstractBackupPathProvider.get();
+        abstractBackupPath.parseLocal(metaPath.toFile(), AbstractBackupPath.BackupFileType.META_V2);
+
+        BackupVerificationResult result = metaProxy.isMetaFileValid(abstractBackupPath);
+        Assert.assertTrue(result.valid);
+        Assert.assertTrue(result.filesMatched > 0);
+        Assert.assertEquals(result.filesMatched, result.filesChecked);
+        int components = result.filesMatched;
+
+        // Nothing new since the last verification.
+        result = metaProxy.isMetaFileValid(abstractBackupPath);
+        Assert.assertTrue(result.valid);
+        Assert.assertEquals(components, result.filesMatched);
+        Assert.assertEquals(0, result.filesChecked);
+        FileUtils.deleteQuietly(metaPath.toFile());
+
+        // Only the new component is checked.
+        List<String> files = getRemoteFakeFiles();
+        files.add(
+                Paths.get(
+                                getPrefix(),
+                                AbstractBackupPath.BackupFileType.SST_V2.toString(),
+                                "1859828430000",
+                                "keyspace1",
+                                "columnfamily1",
+                                "SNAPPY",
+                                "PLAINTEXT",
+                                "file5-Data.db")
+                        .toString());
+        fs.setupTest(files);
+        metaPath = backupUtils.createMeta(files, snapshotInstant);
+        result = metaProxy.isMetaFileValid(abstractBackupPath);
+        Assert.assertTrue(result.valid);
+        Assert.assertEquals(components + 1, result.filesMatched);
+        Assert.assertEquals(1, result.filesChecked);
+        FileUtils.deleteQuietly(metaPath.toFile());
+    }
+
     @Test
     public void testGetSSTFilesFromMeta() throws Exception {
         Instant snapshotInstant = DateUtil.getInstant();
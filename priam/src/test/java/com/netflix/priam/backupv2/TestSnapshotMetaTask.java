@@ -16,19 +16,28 @@
  */
 package com.netflix.priam.backupv2;
 
+import com.google.common.truth.Truth;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.netflix.priam.backup.AbstractBackup;
+import com.netflix.priam.backup.AbstractBackupPath;
 import com.netflix.priam.backup.BRTestModule;
+import com.netflix.priam.backup.BackupRestoreException;
 import com.netflix.priam.config.IBackupRestoreConfig;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.identity.config.InstanceInfo;
 import com.netflix.priam.scheduler.TaskTimer;
 import com.netflix.priam.utils.BackupFileUtils;
 import com.netflix.priam.utils.DateUtil;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+import javax.inject.Provider;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -45,6 +54,8 @@ public class TestSnapshotMetaTask {
     private final SnapshotMetaTask snapshotMetaService;
     private final TestMetaFileReader metaFileReader;
     private final InstanceInfo instanceInfo;
+    private final MetaV2Proxy metaProxy;
+    private final Provider<AbstractBackupPath> pathProvider;
 
     public TestSnapshotMetaTask() {
         Injector injector = Guice.createInjector(new BRTestModule());
@@ -54,6 +65,8 @@ public class TestSnapshotMetaTask {
         snapshotMetaService = injector.getInstance(SnapshotMetaTask.class);
         metaFileReader = new TestMetaFileReader();
         instanceInfo = injector.getInstance(InstanceInfo.class);
+        metaProxy = injector.getInstance(MetaV2Proxy.class);
+        pathProvider = injector.getProvider(AbstractBackupPath.class);
     }
 
     @Before
@@ -123,6 +136,86 @@ public class TestSnapshotMetaTask {
         test(1000, 2, 2);
     }
 
+    @Test
+    public void testChecksumsRoundTripThroughMeta() throws Exception {
+        Instant snapshotInstant = DateUtil.getInstant();
+        String snapshotName = snapshotMetaService.generateSnapshotName(snapshotInstant);
+        BackupFileUtils.generateDummyFiles(
+                dummyDataDirectoryLocation,
+                1,
+                1,
+                3,
+                AbstractBackup.SNAPSHOT_FOLDER,
+                snapshotName,
+                true);
+        // The upload deletes the files, so keep their contents to check against.
+        Map<Path, byte[]> contents = new HashMap<>();
+        try (Stream<Path> files = Files.walk(dummyDataDirectoryLocation)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                byte[] content = file.toString().getBytes(StandardCharsets.UTF_8);
+                Files.write(file, content);
+                contents.put(file.toAbsolutePath(), content);
+            }
+        }
+        snapshotMetaService.setSnapshotName(snapshotName);
+        Path metaFileLocation =
+                snapshotMetaService.processSnapshot(snapshotInstant).getMetaFilePath();
+
+        ChecksumReader checksumReader = new ChecksumReader(contents);
+        checksumReader.readMeta(metaFileLocation);
+        Map<String, String> checksums = metaProxy.getChecksumsFromMeta(metaFileLocation);
+        Truth.assertThat(checksums).isNotEmpty();
+        Truth.assertThat(checksums.keySet())
+                .containsExactlyElementsIn(metaProxy.getSSTFilesFromMeta(metaFileLocation));
+        Truth.assertThat(checksums.keySet())
+                .containsExactlyElementsIn(checksumReader.restored.keySet());
+
+        // Restore sets the checksum of each component from the meta file and verifies it.
+        for (Map.Entry<String, String> checksum : checksums.entrySet()) {
+            AbstractBackupPath path = pathProvider.get();
+            path.parseRemote(checksum.getKey());
+            path.setChecksum(checksum.getValue());
+            byte[] restored = checksumReader.restored.get(checksum.getKey());
+            path.verifyChecksum(AbstractBackupPath.CHECKSUM_FUNCTION.hashBytes(restored));
+            try {
+                path.verifyChecksum(
+                        AbstractBackupPath.CHECKSUM_FUNCTION.hashBytes(
+                                "corrupt".getBytes(StandardCharsets.UTF_8)));
+                Assert.fail("A corrupt restore of " + checksum.getKey() + " should be detected");
+            } catch (BackupRestoreException e) {
+                // expected
+            }
+        }
+
+        metaFileLocation.toFile().delete();
+        BackupFileUtils.cleanupDir(dummyDataDirectoryLocation);
+    }
+
+    /** Checks the checksum of each component against the content of its file when uploaded. */
+    private static class ChecksumReader extends MetaFileReader {
+        private final Map<Path, byte[]> contents;
+        private final Map<String, byte[]> restored = new HashMap<>();
+
+        ChecksumReader(Map<Path, byte[]> contents) {
+            this.contents = contents;
+        }
+
+        @Override
+        public void process(ColumnFamilyResult columnfamilyResult) {
+            for (ColumnFamilyResult.SSTableResult ssTableResult :
+                    columnfamilyResult.getSstables()) {
+                for (FileUploadResult fileUploadResult : ssTableResult.getSstableComponents()) {
+                    byte[] content = contents.get(fileUploadResult.getFileName().toAbsolutePath());
+                    Assert.assertNotNull(content);
+                    Assert.assertEquals(
+                            AbstractBackupPath.CHECKSUM_FUNCTION.hashBytes(content).toString(),
+                            fileUploadResult.getChecksum());
+                    restored.put(fileUploadResult.getBackupPath(), content);
+                }
+            }
+        }
+    }
+
     static class TestMetaFileReader extends MetaFileReader {
 
         private int noOfSstables;
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.cli;
+
+import com.google.common.truth.Truth;
+import com.google.inject.Key;
+import com.google.inject.name.Names;
+import com.google.inject.util.Modules;
+import com.netflix.priam.backup.AbstractBackupPath;
+import com.netflix.priam.backup.BRTestModule;
+import com.netflix.priam.backup.BackupHelper;
+import com.netflix.priam.backup.IBackupFileSystem;
+import com.netflix.priam.config.IConfiguration;
+import com.netflix.priam.configSource.IConfigSource;
+import com.netflix.priam.configSource.MemoryConfigSource;
+import com.netflix.priam.identity.FakeMembership;
+import com.netflix.priam.identity.IMembership;
+import com.netflix.priam.merics.BackupMetrics;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import mockit.Mock;
+import mockit.MockUp;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Runs the command line tools with their own bindings, backing up to a local directory. */
+public class TestApplication {
+    private static final File DATA = new File("target/cli-data");
+    private static final File TARGET = new File("target/cli-backup");
+    private static final File CHECKPOINT = new File("target/cli-backup.checkpoint");
+
+    private File sstable;
+
+    @Before
+    public void setUp() throws Exception {
+        cleanup();
+        File backups = new File(DATA, "ks/cf-1234/backups");
+        Assert.assertTrue(backups.mkdirs());
+        sstable = new File(backups, "mc-1-big-Data.db");
+        byte[] content = new byte[64 * 1024];
+        new Random(1).nextBytes(content);
+        Files.write(sstable.toPath(), content);
+        useTestModules();
+    }
+
+    private static void useTestModules() {
+        MemoryConfigSource configSource = new MemoryConfigSource();
+        configSource.set("priam.data.location", DATA.getAbsolutePath());
+        configSource.set("priam.async.incremental", "true");
+        // The tools replace the bindings of the service, which need a Cassandra host, by their own.
+        // Those of the tests stand in for the host, except for the static membership file.
+        Application.setModules(
+                Modules.combine(
+                        new BRTestModule(),
+                        binder -> binder.bind(IConfigSource.class).toInstance(configSource)),
+                binder ->
+                        binder.bind(IMembership.class)
+                                .toInstance(
+                                        new FakeMembership(
+                                                Collections.singletonList("fakeInstance1"))));
+    }
+
+    @After
+    public void cleanup() {
+        FileUtils.deleteQuietly(DATA);
+        FileUtils.deleteQuietly(TARGET);
+        FileUtils.deleteQuietly(CHECKPOINT);
+    }
+
+    @Test
+    public void testIncrementalBackupToLocalTarget() throws Exception {
+        IncrementalBackuper.main(
+                new String[] {
+                    "--target=" + TARGET.getPath(),
+                    "--checkpoint=" + CHECKPOINT.getPath(),
+                    "--threads=2",
+                    "--progress=0"
+                });
+
+        Assert.assertEquals(
+                2, Application.getInjector().getInstance(IConfiguration.class).getBackupThreads());
+        Truth.assertThat(
+                        Application.getInjector()
+                                .getInstance(
+                                        Key.get(IBackupFileSystem.class, Names.named("backup"))))
+                .isInstanceOf(LocalFileSystem.class);
+        Assert.assertFalse(sstable.exists());
+        List<Path> uploaded = listFiles(TARGET);
+        Assert.assertEquals(1, uploaded.size());
+        Truth.assertThat(uploaded.get(0).toString()).endsWith(sstable.getName());
+        BackupMetrics backupMetrics = Application.getInjector().getInstance(BackupMetrics.class);
+        Assert.assertEquals(1, backupMetrics.getValidUploads().count());
+        // Nothing is left to resume once every upload succeeded.
+        Assert.assertFalse(CHECKPOINT.exists());
+        Assert.assertFalse(Application.isResuming());
+    }
+
+    @Test
+    public void testResumeSkipsCheckpointedFiles() throws Exception {
+        // An interrupted run uploaded the file, and recorded it to the checkpoint.
+        Application.initialize(new String[] {"--target=" + TARGET.getPath(), "--progress=0"});
+        String remotePath =
+                Application.getInjector()
+                        .getInstance(BackupHelper.class)
+                        .getBackupPaths(
+                                sstable.getParentFile(), AbstractBackupPath.BackupFileType.SST)
+                        .iterator()
+                        .next()
+                        .getRemotePath();
+        Application.shutdownAdditionalThreads();
+        File remoteFile = new File(TARGET, remotePath);
+        FileUtils.writeStringToFile(remoteFile, "uploaded", "UTF-8");
+        Files.write(CHECKPOINT.toPath(), Collections.singletonList(remotePath));
+
+        useTestModules();
+        IncrementalBackuper.main(
+                new String[] {
+                    "--target=" + TARGET.getPath(),
+                    "--checkpoint=" + CHECKPOINT.getPath(),
+                    "--progress=0"
+                });
+
+        Assert.assertTrue(Application.isResuming());
+        Assert.assertFalse(sstable.exists());
+        Truth.assertThat(listFiles(TARGET)).containsExactly(remoteFile.toPath());
+        Assert.assertEquals("uploaded", FileUtils.readFileToString(remoteFile, "UTF-8"));
+        Assert.assertFalse(CHECKPOINT.exists());
+    }
+
+    @Test
+    public void testAwaitUploadsGivesUpWithoutProgress() throws Exception {
+        IBackupFileSystem fs =
+                new MockUp<IBackupFileSystem>() {
+                    @Mock
+                    int getUploadTasksQueued() {
+                        return 1;
+                    }
+                }.getMockInstance();
+        Assert.assertEquals(1, Application.awaitUploads(fs, 300));
+    }
+
+    private static List<Path> listFiles(File dir) throws Exception {
+        if (!dir.isDirectory()) return Collections.emptyList();
+        try (Stream<Path> files = Files.walk(dir.toPath())) {
+            return files.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+    }
+}
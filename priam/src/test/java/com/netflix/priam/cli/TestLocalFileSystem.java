@@ -0,0 +1,167 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.cli;
+
+import com.google.common.collect.Lists;
+import com.google.common.truth.Truth;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.netflix.priam.backup.AbstractBackupPath;
+import com.netflix.priam.backup.BRTestModule;
+import com.netflix.priam.backup.TransferCheckpoint;
+import com.netflix.priam.compress.CompressionType;
+import com.netflix.priam.config.IConfiguration;
+import com.netflix.priam.merics.BackupMetrics;
+import com.netflix.priam.notification.BackupNotificationMgr;
+import com.netflix.priam.utils.BackupFileUtils;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestLocalFileSystem {
+    private static final File TARGET = new File("target/local-backup");
+    private static final File CHECKPOINT = new File("target/local-backup.checkpoint");
+
+    private Injector injector;
+    private IConfiguration configuration;
+
+    @Before
+    public void setUp() {
+        injector = Guice.createInjector(new BRTestModule());
+        configuration = injector.getInstance(IConfiguration.class);
+        FileUtils.deleteQuietly(TARGET);
+        FileUtils.deleteQuietly(CHECKPOINT);
+        BackupFileUtils.cleanupDir(Paths.get(configuration.getDataFileLocation()));
+    }
+
+    @After
+    public void cleanup() {
+        FileUtils.deleteQuietly(TARGET);
+        FileUtils.deleteQuietly(CHECKPOINT);
+    }
+
+    @Test
+    public void testBackupAndRestore() throws Exception {
+        LocalFileSystem fs = newFileSystem();
+        File file = generateFile();
+        byte[] content = Files.readAllBytes(file.toPath());
+        AbstractBackupPath path = localPath(file);
+        path.setCompression(CompressionType.SNAPPY);
+        fs.uploadAndDelete(path, false /* async */);
+        Assert.assertFalse(file.exists());
+        Assert.assertTrue(new File(TARGET, path.getRemotePath()).isFile());
+        Truth.assertThat(Lists.newArrayList(fs.listFileSystem("", null, null)))
+                .containsExactly(path.getRemotePath());
+
+        AbstractBackupPath remote = injector.getInstance(AbstractBackupPath.class);
+        remote.parseRemote(path.getRemotePath());
+        remote.setChecksum(path.getChecksum());
+        fs.downloadFile(remote, "", 1);
+        Assert.assertArrayEquals(content, Files.readAllBytes(remote.newRestoreFile().toPath()));
+    }
+
+    @Test
+    public void testCheckpointSkipsTransferredFiles() throws Exception {
+        File file = generateFile();
+        byte[] content = Files.readAllBytes(file.toPath());
+        long modified = file.lastModified();
+        AbstractBackupPath path = localPath(file);
+        LocalFileSystem fs = newFileSystem();
+        fs.setCheckpoint(new TransferCheckpoint(CHECKPOINT));
+        fs.uploadAndDelete(path, false /* async */);
+        Truth.assertThat(Files.readAllLines(CHECKPOINT.toPath()))
+                .containsExactly(path.getChecksum() + "\t" + path.getRemotePath());
+
+        // A new run, after an interruption, does not upload the file again.
+        File remoteFile = new File(TARGET, path.getRemotePath());
+        Assert.assertTrue(remoteFile.setLastModified(modified));
+        Files.write(file.toPath(), content);
+        Assert.assertTrue(file.setLastModified(modified));
+        LocalFileSystem resumed = newFileSystem();
+        resumed.setCheckpoint(new TransferCheckpoint(CHECKPOINT));
+        AbstractBackupPath resumedPath = localPath(file);
+        resumed.uploadAndDelete(resumedPath, false /* async */);
+        Assert.assertFalse(file.exists());
+        Assert.assertEquals(modified, remoteFile.lastModified());
+        BackupMetrics backupMetrics = injector.getInstance(BackupMetrics.class);
+        Assert.assertEquals(1, (int) backupMetrics.getValidUploads().count());
+        // The path describes the upload of the interrupted run.
+        Assert.assertEquals(path.getChecksum(), resumedPath.getChecksum());
+        Assert.assertEquals(remoteFile.length(), resumedPath.getCompressedFileSize());
+    }
+
+    @Test
+    public void testCheckpointLines() throws Exception {
+        Files.write(
+                CHECKPOINT.toPath(),
+                Lists.newArrayList("legacy/path", "1a2b3c4d\tnew/path", "5e6f7a8b\ttorn/pa"));
+        TransferCheckpoint checkpoint = new TransferCheckpoint(CHECKPOINT);
+        Assert.assertTrue(checkpoint.contains("legacy/path"));
+        Assert.assertFalse(checkpoint.getChecksum("legacy/path").isPresent());
+        Assert.assertEquals("1a2b3c4d", checkpoint.getChecksum("new/path").get());
+        Assert.assertFalse(checkpoint.contains("torn/path"));
+    }
+
+    @Test
+    public void testOptions() {
+        CliOptions options =
+                CliOptions.parse(
+                        "--threads=4", "--bandwidth=2", "--part-size=64", "from", "--to");
+        Assert.assertEquals(4, (int) options.getThreads());
+        Assert.assertEquals(2 * 1024 * 1024, (int) options.getBandwidth());
+        Assert.assertEquals(64 * 1024 * 1024L, (long) options.getPartSize());
+        Assert.assertNull(options.getTarget());
+        Truth.assertThat(options.getArguments()).containsExactly("from", "--to").inOrder();
+        try {
+            CliOptions.parse("--threads=0");
+            Assert.fail("Threads should be positive");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private LocalFileSystem newFileSystem() {
+        return new LocalFileSystem(
+                configuration,
+                injector.getInstance(BackupMetrics.class),
+                injector.getInstance(BackupNotificationMgr.class),
+                injector.getProvider(AbstractBackupPath.class),
+                CliOptions.parse("--target=" + TARGET.getPath()));
+    }
+
+    private File generateFile() throws Exception {
+        File dir = new File(configuration.getDataFileLocation(), "ks/cf");
+        dir.mkdirs();
+        File file = new File(dir, "mc-1-big-Data.db");
+        byte[] content = new byte[64 * 1024];
+        new Random(1).nextBytes(content);
+        Files.write(file.toPath(), content);
+        return file;
+    }
+
+    private AbstractBackupPath localPath(File file) throws Exception {
+        AbstractBackupPath path = injector.getInstance(AbstractBackupPath.class);
+        path.parseLocal(file, AbstractBackupPath.BackupFileType.SST_V2);
+        return path;
+    }
+}
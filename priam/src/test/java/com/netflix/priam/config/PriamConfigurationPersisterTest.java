@@ -18,6 +18,7 @@ package com.netflix.priam.config;
 
 import static junit.framework.TestCase.assertTrue;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.inject.Guice;
@@ -69,6 +70,25 @@ public class PriamConfigurationPersisterTest {
         assertEquals(myMap.get("backupLocation"), fakeConfiguration.getBackupLocation());
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void executeOnlyWritesChanges() throws Exception {
+        PriamConfigurationPersister persister = new PriamConfigurationPersister(fakeConfiguration);
+        Path structuredJson = Paths.get(folder.getRoot().getPath(), "structured.json");
+
+        persister.execute();
+        assertTrue(structuredJson.toFile().setLastModified(0));
+        persister.execute();
+        assertEquals(0, structuredJson.toFile().lastModified());
+
+        fakeConfiguration.setFakeConfig("Priam.backupsToCompress", BackupsToCompress.NONE);
+        persister.execute();
+        assertNotEquals(0, structuredJson.toFile().lastModified());
+        Map<String, Object> myMap =
+                new ObjectMapper().readValue(Files.readAllBytes(structuredJson), HashMap.class);
+        assertEquals("NONE", myMap.get("backupsToCompress"));
+    }
+
     @Test
     public void getTimer() {
         assertEquals(
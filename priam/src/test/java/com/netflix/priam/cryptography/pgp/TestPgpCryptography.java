@@ -0,0 +1,294 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.netflix.priam.cryptography.pgp;
+
+import com.google.common.truth.Truth;
+import com.netflix.priam.Benchmark;
+import com.netflix.priam.config.FakeConfiguration;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.openpgp.PGPEncryptedData;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPSecretKey;
+import org.bouncycastle.openpgp.PGPSignature;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class TestPgpCryptography {
+    private static final Logger logger = LoggerFactory.getLogger(TestPgpCryptography.class);
+    private static final char[] PASSPHRASE = "priam".toCharArray();
+    private static final File KEY_DIR = new File("target/pgp");
+    private static final int SEGMENT_SIZE = 64 * 1024;
+
+    private PgpConfiguration config;
+    private PgpCryptography cryptography;
+
+    @BeforeClass
+    public static void addProvider() {
+        Security.addProvider(new BouncyCastleProvider());
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        FileUtils.deleteQuietly(KEY_DIR);
+        KEY_DIR.mkdirs();
+        config = new PgpConfiguration();
+        writeKeys(0);
+        cryptography = new PgpCryptography(config);
+    }
+
+    @After
+    public void cleanup() {
+        FileUtils.deleteQuietly(KEY_DIR);
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        byte[] plaintext = randomBytes(3 * 1024 * 1024 + 17);
+        byte[] cast5 = encrypt(plaintext);
+        config.algorithm = "AES_256";
+        byte[] aes256 = encrypt(plaintext);
+        // Backups taken before the cipher was changed must still be restorable.
+        Assert.assertArrayEquals(plaintext, decrypt(cast5));
+        Assert.assertArrayEquals(plaintext, decrypt(aes256));
+    }
+
+    @Test
+    public void testKeysAreReloadedWhenChanged() throws Exception {
+        byte[] plaintext = randomBytes(1024);
+        byte[] before = encrypt(plaintext);
+        Assert.assertArrayEquals(plaintext, decrypt(before));
+
+        writeKeys(10_000);
+        byte[] after = encrypt(plaintext);
+        Assert.assertArrayEquals(plaintext, decrypt(after));
+        try {
+            decrypt(before);
+            Assert.fail("Data encrypted for the old key should not be decrypted by the new one");
+        } catch (IllegalStateException e) {
+            Truth.assertThat(e.getMessage()).contains("Private key for message not found");
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownAlgorithm() {
+        config.algorithm = "DES";
+        cryptography.encryptStream(new ByteArrayInputStream(new byte[1]), "file");
+    }
+
+    @Test
+    public void testSegmentedRoundTrip() throws Exception {
+        byte[] plaintext = randomBytes(3 * SEGMENT_SIZE + 100);
+        List<byte[]> segments = encryptSegments(plaintext);
+        Truth.assertThat(segments).hasSize(4);
+        byte[] ciphertext = concat(segments);
+        Assert.assertArrayEquals(plaintext, decryptFile(ciphertext));
+        Assert.assertArrayEquals(plaintext, decrypt(ciphertext));
+    }
+
+    @Test
+    public void testSegmentedEmptyFile() throws Exception {
+        byte[] ciphertext = concat(encryptSegments(new byte[0]));
+        Truth.assertThat(decryptFile(ciphertext)).isEmpty();
+        Truth.assertThat(decrypt(ciphertext)).isEmpty();
+    }
+
+    @Test
+    public void testDecryptFileReadsStreamFormat() throws Exception {
+        byte[] plaintext = randomBytes(3 * SEGMENT_SIZE + 100);
+        Assert.assertArrayEquals(plaintext, decryptFile(encrypt(plaintext)));
+    }
+
+    @Test
+    public void testSegmentFromAnotherFileIsRejected() throws Exception {
+        byte[] plaintext = randomBytes(3 * SEGMENT_SIZE);
+        List<byte[]> segments = encryptSegments(plaintext);
+        List<byte[]> others = encryptSegments(plaintext);
+        Truth.assertThat(segments.get(1).length).isEqualTo(others.get(1).length);
+        segments.set(1, others.get(1));
+        byte[] ciphertext = concat(segments);
+        try {
+            decryptFile(ciphertext);
+            Assert.fail("A segment of another file should be detected");
+        } catch (Exception e) {
+            Truth.assertThat(e.getMessage()).contains("does not match the index");
+        }
+        try {
+            decrypt(ciphertext);
+            Assert.fail("A segment of another file should be detected");
+        } catch (Exception e) {
+            Truth.assertThat(e.getMessage()).contains("Unexpected segment");
+        }
+    }
+
+    @Test
+    @Category(Benchmark.class)
+    public void compareCipherThroughput() throws Exception {
+        byte[] plaintext = randomBytes(32 * 1024 * 1024);
+        for (String algorithm : new String[] {"CAST5", "AES_256"}) {
+            config.algorithm = algorithm;
+            encrypt(randomBytes(1024 * 1024)); // warm up
+            long start = System.nanoTime();
+            byte[] ciphertext = encrypt(plaintext);
+            long encryptNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            decrypt(ciphertext);
+            long decryptNanos = System.nanoTime() - start;
+            logger.info(
+                    "{}: encrypt {} MB/s, decrypt {} MB/s",
+                    algorithm,
+                    plaintext.length * 1000L / encryptNanos,
+                    plaintext.length * 1000L / decryptNanos);
+
+            start = System.nanoTime();
+            File encrypted = new File(KEY_DIR, "encrypted");
+            Files.write(encrypted.toPath(), concat(encryptSegments(plaintext, 4 * 1024 * 1024)));
+            encryptNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            cryptography.decryptFile(encrypted, new File(KEY_DIR, "decrypted"), PASSPHRASE);
+            decryptNanos = System.nanoTime() - start;
+            logger.info(
+                    "{} segmented: encrypt {} MB/s, decrypt {} MB/s",
+                    algorithm,
+                    plaintext.length * 1000L / encryptNanos,
+                    plaintext.length * 1000L / decryptNanos);
+        }
+    }
+
+    private List<byte[]> encryptSegments(byte[] plaintext) throws Exception {
+        return encryptSegments(plaintext, SEGMENT_SIZE);
+    }
+
+    private List<byte[]> encryptSegments(byte[] plaintext, int segmentSize) throws Exception {
+        File file = new File(KEY_DIR, "plaintext");
+        Files.write(file.toPath(), plaintext);
+        List<byte[]> segments = new ArrayList<>();
+        cryptography.encryptSegments(file, "file", segmentSize).forEachRemaining(segments::add);
+        return segments;
+    }
+
+    private byte[] decryptFile(byte[] ciphertext) throws Exception {
+        File encrypted = new File(KEY_DIR, "encrypted");
+        File decrypted = new File(KEY_DIR, "decrypted");
+        Files.write(encrypted.toPath(), ciphertext);
+        cryptography.decryptFile(encrypted, decrypted, PASSPHRASE);
+        return Files.readAllBytes(decrypted.toPath());
+    }
+
+    private static byte[] concat(List<byte[]> chunks) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        chunks.forEach(chunk -> out.write(chunk, 0, chunk.length));
+        return out.toByteArray();
+    }
+
+    private byte[] encrypt(byte[] plaintext) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Iterator<byte[]> chunks =
+                cryptography.encryptStream(new ByteArrayInputStream(plaintext), "file");
+        while (chunks.hasNext()) {
+            byte[] chunk = chunks.next();
+            out.write(chunk, 0, chunk.length);
+        }
+        return out.toByteArray();
+    }
+
+    private byte[] decrypt(byte[] ciphertext) throws Exception {
+        return IOUtils.toByteArray(
+                cryptography.decryptStream(
+                        new ByteArrayInputStream(ciphertext), PASSPHRASE, "file"));
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    /** Generate a new key pair, with the modification time of the files moved by the offset. */
+    private void writeKeys(long offsetMillis) throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA", "BC");
+        generator.initialize(1024);
+        KeyPair keyPair = generator.generateKeyPair();
+        PGPSecretKey secretKey =
+                new PGPSecretKey(
+                        PGPSignature.DEFAULT_CERTIFICATION,
+                        PGPPublicKey.RSA_GENERAL,
+                        keyPair.getPublic(),
+                        keyPair.getPrivate(),
+                        new Date(),
+                        "priam",
+                        PGPEncryptedData.CAST5,
+                        PASSPHRASE,
+                        null,
+                        null,
+                        new SecureRandom(),
+                        "BC");
+        File secret = new File(config.getPrivateKeyLocation());
+        try (OutputStream out = new FileOutputStream(secret)) {
+            secretKey.encode(out);
+        }
+        File pub = new File(config.getPgpPublicKeyLoc());
+        try (OutputStream out = new FileOutputStream(pub)) {
+            secretKey.getPublicKey().encode(out);
+        }
+        long modified = System.currentTimeMillis() + offsetMillis;
+        secret.setLastModified(modified);
+        pub.setLastModified(modified);
+    }
+
+    private static class PgpConfiguration extends FakeConfiguration {
+        private String algorithm = "CAST5";
+
+        @Override
+        public String getPrivateKeyLocation() {
+            return new File(KEY_DIR, "secring.gpg").getPath();
+        }
+
+        @Override
+        public String getPgpPublicKeyLoc() {
+            return new File(KEY_DIR, "pubring.gpg").getPath();
+        }
+
+        @Override
+        public String getPgpSymmetricAlgorithm() {
+            return algorithm;
+        }
+    }
+}
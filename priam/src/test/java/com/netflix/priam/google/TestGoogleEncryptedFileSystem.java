@@ -0,0 +1,509 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.netflix.priam.google;
+
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.services.storage.Storage;
+import com.google.common.collect.Lists;
+import com.google.common.truth.Truth;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.netflix.priam.backup.AbstractBackupPath;
+import com.netflix.priam.backup.BRTestModule;
+import com.netflix.priam.compress.CompressionCodecs;
+import com.netflix.priam.compress.CompressionType;
+import com.netflix.priam.config.FakeConfiguration;
+import com.netflix.priam.config.IConfiguration;
+import com.netflix.priam.cred.ICredentialGeneric;
+import com.netflix.priam.cryptography.IFileCryptography;
+import com.netflix.priam.merics.BackupMetrics;
+import com.netflix.priam.notification.BackupNotificationMgr;
+import com.netflix.priam.utils.BackupFileUtils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import org.apache.commons.io.IOUtils;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestGoogleEncryptedFileSystem {
+    private static final int CHUNK_SIZE = 1024;
+    private static final int LIST_PAGE_SIZE = 3;
+    private Injector injector;
+    private FakeGcs gcs;
+    private GoogleEncryptedFileSystem fs;
+    private Storage storage;
+    private String bucket;
+
+    @Before
+    public void setUp() throws IOException {
+        injector = Guice.createInjector(new BRTestModule());
+        GcsConfiguration config = new GcsConfiguration();
+        bucket = config.getBackupPrefix();
+        BackupFileUtils.cleanupDir(Paths.get(config.getDataFileLocation()));
+        gcs = new FakeGcs();
+        fs =
+                new GoogleEncryptedFileSystem(
+                        injector.getProvider(AbstractBackupPath.class),
+                        config,
+                        new NullCredential(),
+                        new XorCryptography(),
+                        injector.getInstance(BackupMetrics.class),
+                        injector.getInstance(BackupNotificationMgr.class));
+        storage =
+                new Storage.Builder(
+                                new NetHttpTransport(), JacksonFactory.getDefaultInstance(), null)
+                        .setRootUrl(gcs.getUrl())
+                        .setApplicationName("test")
+                        .build();
+        fs.setStorage(storage);
+    }
+
+    @After
+    public void tearDown() {
+        fs.shutdown();
+        gcs.stop();
+    }
+
+    @Test
+    public void testSmallFileIsSingleObject() throws Exception {
+        byte[] data = randomBytes(CHUNK_SIZE / 2);
+        AbstractBackupPath path = createFile("file-Data.db", data);
+        Truth.assertThat(fs.uploadFileImpl(path, Instant.EPOCH)).isEqualTo(data.length);
+        Truth.assertThat(gcs.objects.keySet()).containsExactly(key(path.getRemotePath()));
+        Truth.assertThat(gcs.objects.get(key(path.getRemotePath())))
+                .isEqualTo(XorCryptography.xor(data));
+        Truth.assertThat(gcs.composeRequests.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void testCompositeUploadAndRangedDownload() throws Exception {
+        // 101 parts, so composing takes four rounds of at most 32 sources.
+        byte[] data = randomBytes(100 * CHUNK_SIZE + 17);
+        AbstractBackupPath path = createFile("file-Data.db", data);
+        Truth.assertThat(fs.uploadFileImpl(path, Instant.EPOCH)).isEqualTo(data.length);
+        // Temporary parts are gone and only the composed object is left.
+        Truth.assertThat(gcs.objects.keySet()).containsExactly(key(path.getRemotePath()));
+        byte[] encrypted = XorCryptography.xor(data);
+        Truth.assertThat(gcs.objects.get(key(path.getRemotePath()))).isEqualTo(encrypted);
+        Truth.assertThat(gcs.composeRequests.get()).isEqualTo(4);
+        // The parts were written apart from the backups.
+        for (String name : gcs.inserted)
+            if (!name.equals(path.getRemotePath()))
+                Truth.assertThat(name).startsWith(GoogleEncryptedFileSystem.PARTS_PREFIX);
+
+        // The first range fails once and is retried on its own.
+        gcs.failOnce.add("bytes=0-" + (CHUNK_SIZE - 1));
+        fs.downloadFileImpl(path, ".tmp");
+        File downloaded = new File(path.newRestoreFile().getAbsolutePath() + ".tmp");
+        Truth.assertThat(Files.readAllBytes(downloaded.toPath())).isEqualTo(encrypted);
+        Truth.assertThat(gcs.rangeReads.get()).isEqualTo((data.length / CHUNK_SIZE) + 2);
+        Truth.assertThat(gcs.failOnce).isEmpty();
+    }
+
+    @Test
+    public void testUploadDownloadDecryptRoundTrip() throws Exception {
+        byte[] data = new byte[40 * CHUNK_SIZE];
+        new Random(1).nextBytes(data);
+        // Compressible, so the compressed size differs from the size of the file.
+        Arrays.fill(data, 0, data.length / 2, (byte) 7);
+        AbstractBackupPath path = createFile("file-Data.db", data);
+        path.setCompression(CompressionType.SNAPPY);
+        long uploaded = fs.uploadFileImpl(path, Instant.EPOCH);
+        Truth.assertThat(gcs.objects.get(key(path.getRemotePath())).length).isEqualTo(uploaded);
+        Truth.assertThat(gcs.composeRequests.get()).isGreaterThan(0);
+
+        // As restored by EncryptedRestoreBase: download, decrypt then decompress.
+        fs.downloadFileImpl(path, ".tmp");
+        File downloaded = new File(path.newRestoreFile().getAbsolutePath() + ".tmp");
+        File decrypted = new File(path.newRestoreFile().getAbsolutePath() + ".decrypted");
+        new XorCryptography().decryptFile(downloaded, decrypted, null);
+        ByteArrayOutputStream restored = new ByteArrayOutputStream();
+        CompressionCodecs.withDefaultLevels()
+                .get(CompressionType.SNAPPY)
+                .decompressAndClose(new FileInputStream(decrypted), restored);
+        Truth.assertThat(restored.toByteArray()).isEqualTo(data);
+    }
+
+    @Test
+    public void testDoesRemoteFileExist() throws Exception {
+        AbstractBackupPath path = createFile("file-Data.db", randomBytes(10));
+        Path remotePath = Paths.get(path.getRemotePath());
+        Truth.assertThat(fs.checkObjectExists(remotePath)).isFalse();
+        fs.uploadFileImpl(path, Instant.EPOCH);
+        Truth.assertThat(fs.checkObjectExists(remotePath)).isTrue();
+        Truth.assertThat(fs.getFileSize(path.getRemotePath())).isEqualTo(10);
+
+        // Positive results are served from the cache.
+        int metadataReads = gcs.metadataReads.get();
+        Truth.assertThat(fs.checkObjectExists(remotePath)).isTrue();
+        Truth.assertThat(gcs.metadataReads.get()).isEqualTo(metadataReads);
+    }
+
+    @Test
+    public void testListFileSystem() {
+        List<String> expected = putObjects("base/a/", 10);
+        putObjects("base/b/", 2);
+        List<String> listed = Lists.newArrayList(fs.listFileSystem("base/a/", null, null));
+        Truth.assertThat(listed).containsExactlyElementsIn(expected).inOrder();
+        // Four pages of at most three names, asking only for the fields that are used.
+        Truth.assertThat(gcs.listRequests.get()).isEqualTo(4);
+        Truth.assertThat(gcs.fields).containsExactly("items(name),nextPageToken");
+    }
+
+    @Test
+    public void testSplitListing() {
+        List<String> expected = new ArrayList<>();
+        expected.addAll(putObjects("base/c/", 4));
+        expected.addAll(putObjects("base/a/", 7));
+        putObjects("base/b/", 5);
+        Iterator<String> iterator =
+                fs.listFileSystem(Arrays.asList("base/c/", "base/d/", "base/a/"));
+        Truth.assertThat(Lists.newArrayList(iterator))
+                .containsExactlyElementsIn(expected)
+                .inOrder();
+        Truth.assertThat(iterator.hasNext()).isFalse();
+    }
+
+    private List<String> putObjects(String prefix, int count) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String name = prefix + "file-" + i;
+            gcs.objects.put(key(name), new byte[0]);
+            names.add(name);
+        }
+        return names;
+    }
+
+    private AbstractBackupPath createFile(String name, byte[] data) throws Exception {
+        Path file =
+                Paths.get(
+                        injector.getInstance(IConfiguration.class).getDataFileLocation(),
+                        "ks",
+                        "cf",
+                        name);
+        file.getParent().toFile().mkdirs();
+        Files.write(file, data);
+        AbstractBackupPath path = injector.getInstance(AbstractBackupPath.class);
+        path.parseLocal(file.toFile(), AbstractBackupPath.BackupFileType.SST_V2);
+        path.setCompression(CompressionType.NONE);
+        return path;
+    }
+
+    private String key(String name) {
+        return bucket + "/" + name;
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] data = new byte[size];
+        new Random().nextBytes(data);
+        return data;
+    }
+
+    private static class GcsConfiguration extends FakeConfiguration {
+        @Override
+        public long getBackupChunkSize() {
+            return CHUNK_SIZE;
+        }
+
+        @Override
+        public int getRestoreThreads() {
+            return 4;
+        }
+    }
+
+    /** Reversible stand-in for PGP, which emits the ciphertext in chunks of a quarter part. */
+    private static class XorCryptography implements IFileCryptography {
+        private static final int CHUNK = CHUNK_SIZE / 4;
+
+        static byte[] xor(byte[] data) {
+            byte[] result = new byte[data.length];
+            for (int i = 0; i < data.length; i++) result[i] = (byte) (data[i] ^ 0x5a);
+            return result;
+        }
+
+        @Override
+        public InputStream decryptStream(InputStream in, char[] passwd, String objectName)
+                throws Exception {
+            return new ByteArrayInputStream(xor(IOUtils.toByteArray(in)));
+        }
+
+        @Override
+        public Iterator<byte[]> encryptStream(InputStream is, String fileName) throws Exception {
+            byte[] encrypted = xor(IOUtils.toByteArray(is));
+            List<byte[]> chunks = new ArrayList<>();
+            for (int i = 0; i < encrypted.length; i += CHUNK)
+                chunks.add(
+                        Arrays.copyOfRange(encrypted, i, Math.min(i + CHUNK, encrypted.length)));
+            return chunks.iterator();
+        }
+
+        @Override
+        public Iterator<byte[]> encryptSegments(File file, String fileName, long segmentSize)
+                throws Exception {
+            return encryptStream(new FileInputStream(file), fileName);
+        }
+
+        @Override
+        public void decryptFile(File encrypted, File decrypted, char[] passwd) throws Exception {
+            Files.write(decrypted.toPath(), xor(Files.readAllBytes(encrypted.toPath())));
+        }
+    }
+
+    private static class NullCredential implements ICredentialGeneric {
+        @Override
+        public byte[] getValue(KEY key) {
+            return null;
+        }
+
+        @Override
+        public AWSCredentialsProvider getAwsCredentialProvider() {
+            return null;
+        }
+    }
+
+    /**
+     * Just enough of the GCS JSON API for the file system. Objects are keyed by bucket/name and
+     * listed {@link #LIST_PAGE_SIZE} at a time.
+     */
+    private static class FakeGcs {
+        final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+        final Set<String> failOnce = ConcurrentHashMap.newKeySet();
+        final AtomicInteger rangeReads = new AtomicInteger();
+        final AtomicInteger metadataReads = new AtomicInteger();
+        final AtomicInteger composeRequests = new AtomicInteger();
+        final AtomicInteger listRequests = new AtomicInteger();
+        final Set<String> inserted = ConcurrentHashMap.newKeySet();
+        final Set<String> fields = ConcurrentHashMap.newKeySet();
+        private final HttpServer server;
+        private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        FakeGcs() throws IOException {
+            server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/", this::handle);
+            server.setExecutor(executor);
+            server.start();
+        }
+
+        String getUrl() {
+            return "http://localhost:" + server.getAddress().getPort() + "/";
+        }
+
+        void stop() {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            try {
+                String method = exchange.getRequestMethod();
+                String[] segments = exchange.getRequestURI().getRawPath().split("/");
+                Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+                if (segments[1].equals("upload")) {
+                    // /upload/storage/v1/b/{bucket}/o?uploadType=media&name={name}
+                    String key = decode(segments[5]) + "/" + query.get("name");
+                    inserted.add(query.get("name"));
+                    objects.put(key, readBody(exchange));
+                    sendMetadata(exchange, key);
+                    return;
+                }
+                if (segments.length == 6) {
+                    // /storage/v1/b/{bucket}/o?prefix={prefix}&pageToken={token}
+                    list(exchange, decode(segments[4]), query);
+                    return;
+                }
+                // /storage/v1/b/{bucket}/o/{name}[/compose]
+                String bucket = decode(segments[4]);
+                String key = bucket + "/" + decode(segments[6]);
+                if (method.equals("POST") && segments.length == 8) {
+                    compose(exchange, bucket, key);
+                } else if (method.equals("DELETE")) {
+                    boolean removed = objects.remove(key) != null;
+                    if (removed) send(exchange, 204, new byte[0]);
+                    else sendNotFound(exchange);
+                } else if (!objects.containsKey(key)) {
+                    metadataReads.incrementAndGet();
+                    sendNotFound(exchange);
+                } else if ("media".equals(query.get("alt"))) {
+                    sendRange(exchange, objects.get(key));
+                } else {
+                    metadataReads.incrementAndGet();
+                    sendMetadata(exchange, key);
+                }
+            } finally {
+                exchange.close();
+            }
+        }
+
+        private void list(HttpExchange exchange, String bucket, Map<String, String> query)
+                throws IOException {
+            listRequests.incrementAndGet();
+            fields.add(query.get("fields"));
+            String prefix = bucket + "/" + query.getOrDefault("prefix", "");
+            List<String> names =
+                    objects.keySet()
+                            .stream()
+                            .filter(key -> key.startsWith(prefix))
+                            .map(key -> key.substring(bucket.length() + 1))
+                            .sorted()
+                            .collect(Collectors.toList());
+            int start = Integer.parseInt(query.getOrDefault("pageToken", "0"));
+            int end = Math.min(start + LIST_PAGE_SIZE, names.size());
+            JSONArray items = new JSONArray();
+            for (String name : names.subList(start, end)) {
+                JSONObject item = new JSONObject();
+                item.put("name", name);
+                items.add(item);
+            }
+            JSONObject response = new JSONObject();
+            response.put("kind", "storage#objects");
+            if (!items.isEmpty()) response.put("items", items);
+            if (end < names.size()) response.put("nextPageToken", String.valueOf(end));
+            sendJson(exchange, 200, response);
+        }
+
+        private void compose(HttpExchange exchange, String bucket, String key)
+                throws IOException {
+            composeRequests.incrementAndGet();
+            String body = new String(readBody(exchange), StandardCharsets.UTF_8);
+            JSONObject request;
+            try {
+                request = (JSONObject) new JSONParser().parse(body);
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+            ByteArrayOutputStream composed = new ByteArrayOutputStream();
+            for (Object source : (JSONArray) request.get("sourceObjects")) {
+                composed.write(objects.get(bucket + "/" + ((JSONObject) source).get("name")));
+            }
+            objects.put(key, composed.toByteArray());
+            sendMetadata(exchange, key);
+        }
+
+        private void sendRange(HttpExchange exchange, byte[] data) throws IOException {
+            rangeReads.incrementAndGet();
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            if (range == null) {
+                send(exchange, 200, data);
+                return;
+            }
+            if (failOnce.remove(range)) {
+                send(exchange, 503, new byte[0]);
+                return;
+            }
+            String[] bounds = range.substring("bytes=".length()).split("-");
+            int first = Integer.parseInt(bounds[0]);
+            int last = Math.min(Integer.parseInt(bounds[1]), data.length - 1);
+            exchange.getResponseHeaders()
+                    .add("Content-Range", "bytes " + first + "-" + last + "/" + data.length);
+            byte[] body = new byte[last - first + 1];
+            System.arraycopy(data, first, body, 0, body.length);
+            send(exchange, 206, body);
+        }
+
+        private void sendMetadata(HttpExchange exchange, String key) throws IOException {
+            JSONObject metadata = new JSONObject();
+            int slash = key.indexOf('/');
+            metadata.put("kind", "storage#object");
+            metadata.put("bucket", key.substring(0, slash));
+            metadata.put("name", key.substring(slash + 1));
+            metadata.put("size", String.valueOf(objects.get(key).length));
+            metadata.put("generation", "1");
+            sendJson(exchange, 200, metadata);
+        }
+
+        private void sendNotFound(HttpExchange exchange) throws IOException {
+            JSONObject error = new JSONObject();
+            error.put("code", 404);
+            error.put("message", "Not Found");
+            JSONObject response = new JSONObject();
+            response.put("error", error);
+            sendJson(exchange, 404, response);
+        }
+
+        private void sendJson(HttpExchange exchange, int status, JSONObject json)
+                throws IOException {
+            exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+            send(exchange, status, json.toJSONString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        private static void send(HttpExchange exchange, int status, byte[] body)
+                throws IOException {
+            exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+            if (body.length > 0) {
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(body);
+                }
+            }
+        }
+
+        private static byte[] readBody(HttpExchange exchange) throws IOException {
+            InputStream in = exchange.getRequestBody();
+            if ("gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding")))
+                in = new GZIPInputStream(in);
+            return IOUtils.toByteArray(in);
+        }
+
+        private static Map<String, String> parseQuery(String query) throws IOException {
+            Map<String, String> params = new HashMap<>();
+            if (query == null) return params;
+            for (String param : query.split("&")) {
+                String[] pair = param.split("=", 2);
+                params.put(decode(pair[0]), pair.length > 1 ? decode(pair[1]) : "");
+            }
+            return params;
+        }
+
+        private static String decode(String value) throws IOException {
+            return URLDecoder.decode(value, "UTF-8");
+        }
+    }
+}
@@ -68,6 +68,11 @@ public class FakeMembership implements IMembership {
         return ImmutableSet.copyOf(acl);
     }
 
+    @Override
+    public ImmutableSet<String> listOwnedACL(int from, int to) {
+        return ImmutableSet.copyOf(acl);
+    }
+
     @Override
     public void expandRacMembership(int count) {
         // TODO Auto-generated method stub
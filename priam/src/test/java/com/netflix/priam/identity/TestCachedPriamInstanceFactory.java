@@ -0,0 +1,225 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.netflix.priam.identity;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.truth.Truth;
+import com.netflix.priam.identity.config.FakeInstanceInfo;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestCachedPriamInstanceFactory {
+    private static final String APP = "fake-app";
+    private static final long TTL_MS = 5000;
+    private static final long FULL_REFRESH_MS = 60000;
+
+    private CountingInstanceFactory backing;
+    private FakeTicker ticker;
+    private CachedPriamInstanceFactory cached;
+
+    @Before
+    public void setUp() {
+        backing = new CountingInstanceFactory();
+        ticker = new FakeTicker();
+        cached = new CachedPriamInstanceFactory(backing, TTL_MS, FULL_REFRESH_MS, ticker);
+        create(backing, 0, "iid_0");
+        create(backing, 1, "iid_1");
+    }
+
+    @Test
+    public void testServedFromMemoryWithinTtl() {
+        Truth.assertThat(cached.getAllIds(APP)).hasSize(2);
+        ticker.advance(TTL_MS - 1);
+        Truth.assertThat(cached.getAllIds(APP)).hasSize(2);
+        Truth.assertThat(backing.fullLoads.get()).isEqualTo(1);
+        Truth.assertThat(backing.incrementalLoads.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void testRefreshAfterTtlOnlyFetchesChangedRows() {
+        cached.getAllIds(APP);
+        create(backing, 2, "iid_2");
+        ticker.advance(TTL_MS + 1);
+        ImmutableSet<PriamInstance> instances = cached.getAllIds(APP);
+        Truth.assertThat(instances).hasSize(3);
+        Truth.assertThat(instances.asList().get(2).getInstanceId()).isEqualTo("iid_2");
+        Truth.assertThat(backing.fullLoads.get()).isEqualTo(1);
+        Truth.assertThat(backing.incrementalLoads.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testFullRefreshDropsDeletedRows() {
+        PriamInstance first = cached.getAllIds(APP).asList().get(0);
+        backing.delete(first);
+        ticker.advance(TTL_MS + 1);
+        Truth.assertThat(cached.getAllIds(APP)).hasSize(2);
+        ticker.advance(FULL_REFRESH_MS);
+        Truth.assertThat(cached.getAllIds(APP)).hasSize(1);
+        Truth.assertThat(backing.fullLoads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testWritesAreVisibleImmediately() {
+        cached.getAllIds(APP);
+        create(cached, 2, "iid_2");
+        PriamInstance updated = copy(cached.getAllIds(APP).asList().get(0), "iid_new");
+        cached.update(cached.getAllIds(APP).asList().get(0), updated);
+        ImmutableSet<PriamInstance> instances = cached.getAllIds(APP);
+        Truth.assertThat(instances).hasSize(3);
+        Truth.assertThat(instances.asList().get(0).getInstanceId()).isEqualTo("iid_new");
+        Truth.assertThat(backing.fullLoads.get()).isEqualTo(1);
+        Truth.assertThat(backing.incrementalLoads.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void testFailedWriteEvictsRegistry() {
+        cached.getAllIds(APP);
+        backing.failWrites = true;
+        PriamInstance orig = cached.getAllIds(APP).asList().get(0);
+        try {
+            cached.update(orig, copy(orig, "iid_new"));
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+        cached.getAllIds(APP);
+        Truth.assertThat(backing.fullLoads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testConcurrentCallersShareOneLoad() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        backing.loadLatch = release;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<ImmutableSet<PriamInstance>>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> cached.getAllIds(APP)));
+            }
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<ImmutableSet<PriamInstance>> result : results) {
+                Truth.assertThat(result.get(10, TimeUnit.SECONDS)).hasSize(2);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Truth.assertThat(backing.fullLoads.get()).isEqualTo(1);
+    }
+
+    private static PriamInstance create(IPriamInstanceFactory factory, int id, String instanceId) {
+        return factory.create(
+                APP, id, instanceId, "host_" + id, "127.0.0." + id, "az1", null, id + "");
+    }
+
+    private static PriamInstance copy(PriamInstance orig, String instanceId) {
+        PriamInstance instance = new PriamInstance();
+        instance.setApp(orig.getApp());
+        instance.setId(orig.getId());
+        instance.setInstanceId(instanceId);
+        instance.setHost(orig.getHostName(), orig.getHostIP());
+        instance.setRac(orig.getRac());
+        instance.setToken(orig.getToken());
+        instance.setDC(orig.getDC());
+        return instance;
+    }
+
+    private static final class FakeTicker extends Ticker {
+        private final AtomicLong nanos = new AtomicLong();
+
+        void advance(long millis) {
+            nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+    }
+
+    private static final class CountingInstanceFactory extends FakePriamInstanceFactory {
+        private final AtomicInteger fullLoads = new AtomicInteger();
+        private final AtomicInteger incrementalLoads = new AtomicInteger();
+        private final AtomicLong clock = new AtomicLong(System.currentTimeMillis());
+        private volatile CountDownLatch loadLatch;
+        private volatile boolean failWrites;
+
+        CountingInstanceFactory() {
+            super(new FakeInstanceInfo("fakeInstance1", "az1", "us-east-1"));
+        }
+
+        @Override
+        public ImmutableSet<PriamInstance> getAllIds(String appName) {
+            fullLoads.incrementAndGet();
+            if (loadLatch != null) {
+                try {
+                    loadLatch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return super.getAllIds(appName);
+        }
+
+        @Override
+        public ImmutableSet<PriamInstance> getAllIdsUpdatedSince(
+                String appName, long updatedSince) {
+            incrementalLoads.incrementAndGet();
+            ImmutableSet.Builder<PriamInstance> changed = ImmutableSet.builder();
+            super.getAllIds(appName)
+                    .stream()
+                    .filter(instance -> instance.getUpdatetime() > updatedSince)
+                    .forEach(changed::add);
+            return changed.build();
+        }
+
+        @Override
+        public PriamInstance create(
+                String app,
+                int id,
+                String instanceID,
+                String hostname,
+                String ip,
+                String rac,
+                Map<String, Object> volumes,
+                String payload) {
+            PriamInstance instance =
+                    super.create(app, id, instanceID, hostname, ip, rac, volumes, payload);
+            // Mimic SimpleDB, which stamps every write with the writer's clock.
+            instance.setUpdatetime(clock.addAndGet(1000));
+            return instance;
+        }
+
+        @Override
+        public void update(PriamInstance orig, PriamInstance inst) {
+            if (failWrites) throw new IllegalStateException("conditional check failed");
+            inst.setUpdatetime(clock.addAndGet(1000));
+            super.update(orig, inst);
+        }
+    }
+}
@@ -22,6 +22,7 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.inject.Guice;
 import com.netflix.priam.PriamServer;
 import com.netflix.priam.backup.BRTestModule;
@@ -35,6 +36,8 @@ import java.util.List;
 import javax.ws.rs.core.Response;
 import mockit.Expectations;
 import mockit.Mocked;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -232,6 +235,60 @@ public class CassandraConfigTest {
         assertEquals(400, response.getStatus());
     }
 
+    @Test
+    public void getBootstrapProperties(
+            @Mocked final InstanceIdentity identity, @Mocked final PriamInstance instance)
+            throws Exception {
+        new Expectations() {
+            {
+                priamServer.getInstanceIdentity();
+                result = identity;
+                identity.getInstance();
+                result = instance;
+                instance.getToken();
+                result = "myToken";
+                identity.getSeeds();
+                result = ImmutableList.of("seed1", "seed2");
+                identity.isReplace();
+                result = true;
+                identity.getReplacedIp();
+                result = "127.0.0.1";
+                priamServer.getConfiguration().getExtraEnvParams();
+                result = ImmutableMap.of("key", "value");
+            }
+        };
+
+        Response response = resource.getBootstrapProperties(0);
+        assertEquals(200, response.getStatus());
+        JSONObject properties = (JSONObject) new JSONParser().parse((String) response.getEntity());
+        assertEquals("myToken", properties.get("token"));
+        assertEquals("seed1,seed2", properties.get("seeds"));
+        assertEquals(true, properties.get("is_replace"));
+        assertEquals("127.0.0.1", properties.get("replaced_ip"));
+        assertEquals("value", ((JSONObject) properties.get("extra_env_params")).get("key"));
+    }
+
+    @Test
+    public void getBootstrapProperties_notReady(
+            @Mocked final InstanceIdentity identity, @Mocked final PriamInstance instance)
+            throws Exception {
+        new Expectations() {
+            {
+                priamServer.getInstanceIdentity();
+                result = identity;
+                identity.getInstance();
+                result = instance;
+                instance.getToken();
+                result = "myToken";
+                identity.getSeeds();
+                result = ImmutableList.of();
+            }
+        };
+
+        Response response = resource.getBootstrapProperties(0);
+        assertEquals(503, response.getStatus());
+    }
+
     @Test
     public void doubleRing() throws Exception {
         new Expectations() {
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.netflix.priam.resources;
+
+import com.google.common.collect.Iterators;
+import com.google.common.truth.Truth;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import org.codehaus.jettison.json.JSONObject;
+import org.junit.Test;
+
+public class NdjsonListingTest {
+    private static final List<String> FILES = Arrays.asList("a", "b", "c", "d", "e");
+
+    @Test
+    public void testAll() throws Exception {
+        List<String> lines = list(FILES.iterator(), 0, "", Duration.ofMinutes(1));
+        Truth.assertThat(lines.subList(0, 5))
+                .containsExactly("\"a\"", "\"b\"", "\"c\"", "\"d\"", "\"e\"")
+                .inOrder();
+        JSONObject summary = new JSONObject(lines.get(5));
+        Truth.assertThat(summary.getInt("num_files")).isEqualTo(5);
+        Truth.assertThat(summary.getBoolean("timed_out")).isFalse();
+        Truth.assertThat(summary.has("next_marker")).isFalse();
+    }
+
+    @Test
+    public void testPages() throws Exception {
+        List<String> lines = list(FILES.iterator(), 2, "", Duration.ofMinutes(1));
+        Truth.assertThat(lines.subList(0, 2)).containsExactly("\"a\"", "\"b\"").inOrder();
+        Truth.assertThat(new JSONObject(lines.get(2)).getString("next_marker")).isEqualTo("b");
+
+        lines = list(FILES.iterator(), 2, "b", Duration.ofMinutes(1));
+        Truth.assertThat(lines.subList(0, 2)).containsExactly("\"c\"", "\"d\"").inOrder();
+        Truth.assertThat(new JSONObject(lines.get(2)).getString("next_marker")).isEqualTo("d");
+
+        lines = list(FILES.iterator(), 2, "d", Duration.ofMinutes(1));
+        Truth.assertThat(lines.subList(0, 1)).containsExactly("\"e\"");
+        JSONObject summary = new JSONObject(lines.get(1));
+        Truth.assertThat(summary.getInt("num_files")).isEqualTo(1);
+        Truth.assertThat(summary.has("next_marker")).isFalse();
+    }
+
+    @Test
+    public void testExcludedItems() throws Exception {
+        NdjsonListing<String> listing =
+                new NdjsonListing<>(
+                        FILES.iterator(),
+                        file -> file,
+                        file -> file.equals("b") ? null : JSONObject.quote(file),
+                        2,
+                        "",
+                        Duration.ofMinutes(1));
+        List<String> lines = write(listing);
+        Truth.assertThat(lines.subList(0, 2)).containsExactly("\"a\"", "\"c\"").inOrder();
+        Truth.assertThat(new JSONObject(lines.get(2)).getString("next_marker")).isEqualTo("c");
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        Iterator<String> slow =
+                Iterators.transform(
+                        FILES.iterator(),
+                        file -> {
+                            try {
+                                Thread.sleep(200);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                            return file;
+                        });
+        List<String> lines = list(slow, 0, "", Duration.ofMillis(300));
+        JSONObject summary = new JSONObject(lines.get(lines.size() - 1));
+        Truth.assertThat(summary.getBoolean("timed_out")).isTrue();
+        Truth.assertThat(summary.getInt("num_files")).isLessThan(FILES.size());
+        Truth.assertThat(summary.getInt("num_files")).isEqualTo(lines.size() - 1);
+        if (summary.getInt("num_files") > 0)
+            Truth.assertThat(summary.getString("next_marker"))
+                    .isEqualTo(FILES.get(summary.getInt("num_files") - 1));
+    }
+
+    private static List<String> list(
+            Iterator<String> files, int limit, String marker, Duration timeout)
+            throws IOException {
+        return write(
+                new NdjsonListing<>(
+                        files, file -> file, JSONObject::quote, limit, marker, timeout));
+    }
+
+    private static List<String> write(NdjsonListing<String> listing) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        listing.write(output);
+        String content = new String(output.toByteArray(), StandardCharsets.UTF_8);
+        return new ArrayList<>(Arrays.asList(content.split("\n")));
+    }
+}
@@ -16,11 +16,19 @@
 
 package com.netflix.priam.restore;
 
+import com.google.common.truth.Truth;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.netflix.priam.TestModule;
+import com.netflix.priam.config.FakeConfiguration;
 import com.netflix.priam.config.IConfiguration;
+import com.netflix.priam.merics.PostRestoreHookMetrics;
+import com.netflix.priam.utils.Sleeper;
+import com.netflix.spectator.api.DefaultRegistry;
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.commons.io.FileUtils;
 import org.junit.After;
 import org.junit.Assert;
@@ -94,6 +102,54 @@ public class TestPostRestoreHook {
         postRestoreHook.execute();
     }
 
+    @Test
+    /*
+     Test to validate that a failing hook is restarted with exponential backoff, until the done
+     file appears.
+    */
+    public void testPostRestoreHookRestartsWithBackoff() throws Exception {
+        IConfiguration configuration =
+                new FakeConfiguration() {
+                    @Override
+                    public String getPostRestoreHook() {
+                        return "false";
+                    }
+
+                    @Override
+                    public long getPostRestoreHookMaxRestartBackoffInMs() {
+                        return 3000;
+                    }
+                };
+        List<Long> backoffs = new ArrayList<>();
+        Sleeper sleeper =
+                new Sleeper() {
+                    @Override
+                    public void sleep(long waitTimeMs) {
+                        backoffs.add(waitTimeMs);
+                        if (backoffs.size() == 3) createDoneFile();
+                    }
+
+                    @Override
+                    public void sleepQuietly(long waitTimeMs) {
+                        sleep(waitTimeMs);
+                    }
+
+                    private void createDoneFile() {
+                        try {
+                            new File(configuration.getPostRestoreHookDoneFileName())
+                                    .createNewFile();
+                        } catch (IOException e) {
+                            Assert.fail(e.getMessage());
+                        }
+                    }
+                };
+        PostRestoreHookMetrics metrics = new PostRestoreHookMetrics(new DefaultRegistry());
+        new PostRestoreHook(configuration, sleeper, metrics).execute();
+        Truth.assertThat(backoffs).containsExactly(1000L, 2000L, 3000L).inOrder();
+        Assert.assertEquals(3, metrics.getAttempt().count());
+        Assert.assertEquals(2, metrics.getRestarts().count());
+    }
+
     /**
      * Starts a thread to emit heartbeat and finish with a done file.
      *
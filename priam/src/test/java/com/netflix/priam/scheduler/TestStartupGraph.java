@@ -0,0 +1,97 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.netflix.priam.scheduler;
+
+import com.google.common.truth.Truth;
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.spectator.api.Registry;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestStartupGraph {
+    private final Registry registry = new DefaultRegistry();
+    private final ExecutorService executor = new NamedThreadPoolExecutor(4, "test-startup");
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testIndependentStepsRunConcurrently() throws Exception {
+        // Each step waits for the other one, which can only finish if both run at the same time.
+        CountDownLatch latch = new CountDownLatch(2);
+        StartupGraph graph =
+                new StartupGraph("startup", registry)
+                        .add("a", () -> await(latch))
+                        .add("b", () -> await(latch));
+        graph.run(executor);
+        Truth.assertThat(graph.getDurations().keySet()).containsExactly("a", "b");
+        Truth.assertThat(registry.timer("startup", "step", "a").count()).isEqualTo(1);
+        Truth.assertThat(registry.timer("startup", "step", "total").count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testDependenciesRunFirst() throws Exception {
+        List<String> order = new CopyOnWriteArrayList<>();
+        new StartupGraph("startup", registry)
+                .add("a", () -> order.add("a"))
+                .add("b", () -> order.add("b"), "a")
+                .add("c", () -> order.add("c"), "a", "b")
+                .run(executor);
+        Truth.assertThat(order).containsExactly("a", "b", "c").inOrder();
+    }
+
+    @Test
+    public void testFailedStepSkipsDependents() throws Exception {
+        List<String> ran = new CopyOnWriteArrayList<>();
+        StartupGraph graph =
+                new StartupGraph("startup", registry)
+                        .add(
+                                "a",
+                                () -> {
+                                    throw new IOException("boom");
+                                })
+                        .add("b", () -> ran.add("b"), "a")
+                        .add("c", () -> ran.add("c"));
+        try {
+            graph.run(executor);
+            Assert.fail("Expected the failure of step a");
+        } catch (IOException e) {
+            Truth.assertThat(e).hasMessageThat().isEqualTo("boom");
+        }
+        Truth.assertThat(ran).containsExactly("c");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownDependency() {
+        new StartupGraph("startup", registry).add("a", () -> {}, "b");
+    }
+
+    private static void await(CountDownLatch latch) throws InterruptedException {
+        latch.countDown();
+        Truth.assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.netflix.priam.tuner;
+
+import com.google.common.truth.Truth;
+import com.netflix.priam.config.FakeConfiguration;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TuningProfileTest {
+    private static final long GB = 1024L * 1024 * 1024;
+    private Path root;
+
+    @Before
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("tuning_profile");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(root.toFile());
+    }
+
+    @Test
+    public void testDetectHost() throws IOException {
+        write("proc/cpuinfo", "processor\t: 0\nmodel name\t: x\nprocessor\t: 1\n");
+        write("proc/meminfo", "MemTotal:       16777216 kB\nMemFree:         1024 kB\n");
+        write("sys/fs/cgroup/memory/memory.limit_in_bytes", "9223372036854771712");
+        write("sys/fs/cgroup/cpu/cpu.cfs_quota_us", "-1");
+        write("sys/block/nvme0n1/queue/rotational", "0");
+        write("sys/block/loop0/queue/rotational", "1");
+        HardwareProfile hardware = detect();
+        Truth.assertThat(hardware.getCores()).isEqualTo(2);
+        Truth.assertThat(hardware.getMemoryBytes()).isEqualTo(16 * GB);
+        Truth.assertThat(hardware.isSsd()).isTrue();
+    }
+
+    @Test
+    public void testDetectCgroupLimits() throws IOException {
+        StringBuilder cpuinfo = new StringBuilder();
+        for (int i = 0; i < 16; i++) cpuinfo.append("processor\t: ").append(i).append("\n");
+        write("proc/cpuinfo", cpuinfo.toString());
+        write("proc/meminfo", "MemTotal:       67108864 kB\n");
+        write("sys/fs/cgroup/cpu.max", "250000 100000");
+        write("sys/fs/cgroup/memory.max", "" + 8 * GB);
+        write("sys/block/sda/queue/rotational", "1");
+        write("sys/block/sdb/queue/rotational", "0");
+        HardwareProfile hardware = detect();
+        Truth.assertThat(hardware.getCores()).isEqualTo(3);
+        Truth.assertThat(hardware.getMemoryBytes()).isEqualTo(8 * GB);
+        Truth.assertThat(hardware.isSsd()).isFalse();
+    }
+
+    @Test
+    public void testDetectDataDeviceOnly() throws IOException {
+        // The data directory is on a partition of an SSD, the root disk spins.
+        write("sys/devices/pci0/block/sda/queue/rotational", "1");
+        write("sys/devices/pci0/block/nvme0n1/queue/rotational", "0");
+        write("sys/devices/pci0/block/nvme0n1/nvme0n1p1/partition", "1");
+        link("sys/dev/block/8:0", "sys/devices/pci0/block/sda");
+        link("sys/dev/block/259:1", "sys/devices/pci0/block/nvme0n1/nvme0n1p1");
+        write(
+                "proc/self/mountinfo",
+                "22 1 8:0 / / rw,relatime shared:1 - ext4 /dev/sda rw\n"
+                        + "30 22 259:1 / /mnt/data\\040disk rw,noatime shared:2 - xfs"
+                        + " /dev/nvme0n1p1 rw\n");
+        Truth.assertThat(detect("/mnt/data disk/cassandra/data").isSsd()).isTrue();
+        Truth.assertThat(detect("/var/lib/cassandra/data").isSsd()).isFalse();
+    }
+
+    @Test
+    public void testConfiguredValuesWithoutHardware() {
+        FakeConfiguration config = new FakeConfiguration();
+        TuningProfile profile = new TuningProfile(config, null);
+        Truth.assertThat(profile.getHeapSize()).isEqualTo(config.getHeapSize());
+        Truth.assertThat(profile.getHeapNewSize()).isEqualTo(config.getHeapNewSize());
+        Truth.assertThat(profile.getConcurrentReads()).isEqualTo(config.getConcurrentReadsCnt());
+        Truth.assertThat(profile.getCompactionThroughput())
+                .isEqualTo(config.getCompactionThroughput());
+    }
+
+    @Test
+    public void testDerivedForCMS() {
+        TuningProfile profile =
+                new TuningProfile(new FakeConfiguration(), new HardwareProfile(8, 64 * GB, true));
+        Truth.assertThat(profile.getHeapSize()).isEqualTo("8192M");
+        Truth.assertThat(profile.getHeapNewSize()).isEqualTo("800M");
+        Truth.assertThat(profile.getConcurrentReads()).isEqualTo(64);
+        Truth.assertThat(profile.getConcurrentWrites()).isEqualTo(64);
+        Truth.assertThat(profile.getConcurrentCompactors()).isEqualTo(8);
+        Truth.assertThat(profile.getKeyCacheSizeInMB()).isEqualTo("409");
+        Truth.assertThat(profile.getCompactionThroughput()).isEqualTo(128);
+        Truth.assertThat(profile.getStreamingThroughputMB()).isEqualTo(400);
+    }
+
+    @Test
+    public void testDerivedForSmallSpinningInstance() {
+        TuningProfile profile =
+                new TuningProfile(new FakeConfiguration(), new HardwareProfile(2, 2 * GB, false));
+        Truth.assertThat(profile.getHeapSize()).isEqualTo("1024M");
+        Truth.assertThat(profile.getHeapNewSize()).isEqualTo("200M");
+        Truth.assertThat(profile.getConcurrentReads()).isEqualTo(32);
+        Truth.assertThat(profile.getConcurrentCompactors()).isEqualTo(2);
+        Truth.assertThat(profile.getCompactionThroughput()).isEqualTo(16);
+        Truth.assertThat(profile.getStreamingThroughputMB()).isEqualTo(200);
+    }
+
+    @Test
+    public void testHeapForModernCollectors() {
+        HardwareProfile hardware = new HardwareProfile(32, 256 * GB, true);
+        Truth.assertThat(heapSize(GCType.G1GC, hardware)).isEqualTo("31744M");
+        Truth.assertThat(heapSize(GCType.ZGC, hardware)).isEqualTo("65536M");
+        Truth.assertThat(heapSize(GCType.SHENANDOAH, hardware)).isEqualTo("65536M");
+    }
+
+    private static String heapSize(GCType gcType, HardwareProfile hardware) {
+        return new TuningProfile(new GCConfiguration(gcType), hardware).getHeapSize();
+    }
+
+    private HardwareProfile detect() {
+        return detect("/var/lib/cassandra/data");
+    }
+
+    private HardwareProfile detect(String dataDir) {
+        return HardwareProfile.detect(root.resolve("proc"), root.resolve("sys"), dataDir);
+    }
+
+    private void link(String path, String target) throws IOException {
+        Path link = root.resolve(path);
+        FileUtils.forceMkdir(link.getParent().toFile());
+        Files.createSymbolicLink(link, root.resolve(target));
+    }
+
+    private void write(String path, String content) throws IOException {
+        File file = root.resolve(path).toFile();
+        FileUtils.forceMkdir(file.getParentFile());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static class GCConfiguration extends FakeConfiguration {
+        private final GCType gcType;
+
+        GCConfiguration(GCType gcType) {
+            this.gcType = gcType;
+        }
+
+        @Override
+        public GCType getGCType() {
+            return gcType;
+        }
+    }
+}